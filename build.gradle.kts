@@ -41,6 +41,7 @@ dependencies {
     // Тестирование
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.batch:spring-batch-test")
+    testImplementation("com.h2database:h2")
 }
 
 application {
@@ -83,3 +84,18 @@ configure<JavaPluginExtension> {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Замеры производительности: свой набор исходников, в jar приложения не попадают
+sourceSets {
+    create("benchmark") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+        runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+    }
+}
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs a benchmark main: ./gradlew benchmark -Pbench=history.CompressionBenchmark --args=\"...\""
+    group = "verification"
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set(providers.gradleProperty("bench").map { "com.gpustatix.$it" })
+}
@@ -0,0 +1,128 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluation cost of {@link AlertEngine} with thousands of rules on synthetic 1 Hz samples.
+ * The same rule set is run with window and hold lengths from seconds to an hour: with running
+ * sums and monotonic deques the cost per rule stays flat as the windows grow.
+ *
+ * <pre>./gradlew benchmark -Pbench=alert.AlertBenchmark --args="[rules] [gpus] [samples]"</pre>
+ */
+public class AlertBenchmark {
+    private static final String[] GPU_SIGNALS = {
+            "gpu_temperature", "gpu_utilization", "gpu_memory_percent", "gpu_power", "gpu_fan_rpm", "gpu_core_clock"
+    };
+    private static final String[] OPERATORS = {">", ">=", "<", "<="};
+
+    public static void main(String[] args) {
+        int ruleCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int gpus = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int samples = args.length > 2 ? Integer.parseInt(args[2]) : 3600;
+        AtomicLong actions = new AtomicLong();
+        AlertActions.register("count", argument -> event -> actions.incrementAndGet());
+
+        System.out.printf("%d rules, %d GPUs, %d samples (1 Hz)%n", ruleCount, gpus, samples);
+        for (String window : new String[] {"10s", "1m", "10m", "1h"}) {
+            long t0 = System.nanoTime();
+            List<AlertRule> rules = RuleParser.parse(generate(ruleCount, window, new Random(11)));
+            long compileNanos = System.nanoTime() - t0;
+            run(rules, gpus, samples, window, compileNanos, actions);
+        }
+    }
+
+    private static void run(List<AlertRule> rules, int gpus, int samples, String window, long compileNanos,
+                            AtomicLong actions) {
+        long actionsBefore = actions.get();
+        try (AlertEngine engine = new AlertEngine(rules, gpus, 1 << 16)) {
+            HostSnapshot host = new HostSnapshot();
+            List<GpuSnapshot> snapshots = new ArrayList<>();
+            for (int i = 0; i < gpus; i++) {
+                snapshots.add(new GpuSnapshot(i));
+            }
+            Random random = new Random(3);
+            long ts = 1_700_000_000_000L;
+            // Первая половина - прогрев JIT и заполнение окон, замер по второй
+            int warmup = samples / 2;
+            long measured = 0;
+            for (int s = 0; s < samples; s++, ts += 1000) {
+                fill(host, snapshots, random, ts, s);
+                long start = System.nanoTime();
+                engine.onSample(host, snapshots);
+                if (s >= warmup) {
+                    measured += System.nanoTime() - start;
+                }
+            }
+            long evaluations = (long) (samples - warmup) * rules.size() * gpus;
+            System.out.printf("windows %-4s compile %5.1f ms  %8.1f us/sample  %6.1f ns/rule/GPU  fired %d, dropped %d%n",
+                    window, compileNanos / 1e6, measured / 1e3 / (samples - warmup), (double) measured / evaluations,
+                    engine.getFiredCount(), engine.getDroppedCount());
+        }
+        System.out.printf("          actions run %d%n", actions.get() - actionsBefore);
+    }
+
+    private static void fill(HostSnapshot host, List<GpuSnapshot> gpus, Random random, long ts, int step) {
+        host.setTimestampMillis(ts);
+        host.setCpuLoad(20 + random.nextInt(60));
+        host.setRamUsedMb(16_000 + random.nextInt(8000));
+        for (int i = 0; i < gpus.size(); i++) {
+            GpuSnapshot gpu = gpus.get(i);
+            // Медленная волна нагрузки плюс шум: правила то срабатывают, то снимаются
+            double wave = Math.sin((step + i * 300) / 600.0);
+            int utilization = (int) Math.max(0, Math.min(100, 50 + 50 * wave + random.nextInt(10) - 5));
+            gpu.setTimestampMillis(ts);
+            gpu.setUtilization(utilization);
+            gpu.setTemperature(40 + utilization / 2 + random.nextInt(4));
+            gpu.setMemoryUsedMb(4000 + utilization * 150 + random.nextInt(500));
+            gpu.setMemoryTotalMb(24_000);
+            gpu.setPowerUsage(60 + utilization * 2.8f + random.nextFloat() * 10);
+            gpu.setPowerLimit(350);
+            gpu.setFanSpeed(30 + utilization / 2);
+            gpu.setFanRpm(800 + utilization * 25 + random.nextInt(100));
+            gpu.setCoreClock(1200 + utilization * 6);
+        }
+    }
+
+    private static List<String> generate(int count, String window, Random random) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder rule = new StringBuilder("rule").append(i).append(": ");
+            int conditions = 1 + random.nextInt(2);
+            for (int c = 0; c < conditions; c++) {
+                if (c > 0) {
+                    rule.append(" and ");
+                }
+                String signal = GPU_SIGNALS[random.nextInt(GPU_SIGNALS.length)];
+                switch (random.nextInt(4)) {
+                    case 0 -> rule.append(signal);
+                    case 1 -> rule.append("avg(").append(signal).append(", ").append(window).append(')');
+                    case 2 -> rule.append("min(").append(signal).append(", ").append(window).append(')');
+                    default -> rule.append("max(").append(signal).append(", ").append(window).append(')');
+                }
+                rule.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ')
+                        .append(threshold(signal, random));
+            }
+            if (random.nextBoolean()) {
+                rule.append(" for ").append(window);
+            }
+            lines.add(rule.append(" -> count").toString());
+        }
+        return lines;
+    }
+
+    private static int threshold(String signal, Random random) {
+        return switch (signal) {
+            case "gpu_temperature" -> 40 + random.nextInt(50);
+            case "gpu_power" -> 60 + random.nextInt(290);
+            case "gpu_fan_rpm" -> 800 + random.nextInt(2500);
+            case "gpu_core_clock" -> 1200 + random.nextInt(600);
+            default -> random.nextInt(100);
+        };
+    }
+}
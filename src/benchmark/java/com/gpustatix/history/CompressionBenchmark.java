@@ -0,0 +1,140 @@
+package com.gpustatix.history;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the chunk encoding on synthetic but realistic GPU telemetry:
+ * bytes per sample compared to the 64-byte {@link SampleRecord}, decode throughput
+ * and the disk needed for the retention window.
+ *
+ * <pre>./gradlew benchmark -Pbench=history.CompressionBenchmark --args="[samples] [intervalMs]"</pre>
+ */
+public class CompressionBenchmark {
+
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long interval = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int chunkSamples = 600;
+
+        Metric[] metrics = TelemetryRecording.columns(false);
+        long[] timestamps = new long[samples];
+        float[][] rows = new float[samples][];
+        generate(metrics, interval, timestamps, rows);
+
+        ChunkEncoder encoder = new ChunkEncoder(metrics);
+        long totalBytes = 0;
+        long encodeStart = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            encoder.add(timestamps[i], rows[i]);
+            if (encoder.getCount() == chunkSamples || i == samples - 1) {
+                totalBytes += TelemetryRecording.HEADER_SIZE + encoder.getOutput().byteLength();
+                encoder.reset();
+            }
+        }
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        // Отдельный прогон: сохраняем чанки, чтобы мерить только декодирование
+        int chunkCount = (samples + chunkSamples - 1) / chunkSamples;
+        byte[][] chunks = new byte[chunkCount][];
+        long[] bitLengths = new long[chunkCount];
+        int[] counts = new int[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int start = c * chunkSamples;
+            int end = Math.min(samples, start + chunkSamples);
+            for (int i = start; i < end; i++) {
+                encoder.add(timestamps[i], rows[i]);
+            }
+            BitWriter out = encoder.getOutput();
+            chunks[c] = Arrays.copyOf(out.array(), out.byteLength());
+            bitLengths[c] = out.bitLength();
+            counts[c] = encoder.getCount();
+            encoder.reset();
+        }
+
+        ChunkDecoder decoder = new ChunkDecoder(metrics);
+        double checksum = 0;
+        long decoded = 0;
+        long decodeNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int c = 0; c < chunkCount; c++) {
+                decoder.wrap(chunks[c], 0, bitLengths[c], counts[c]);
+                while (decoder.next()) {
+                    checksum += decoder.getValue(0);
+                    decoded++;
+                }
+            }
+            decodeNanos = Math.min(decodeNanos, System.nanoTime() - start);
+        }
+        verify(metrics, chunks, bitLengths, counts, timestamps, rows);
+
+        double bytesPerSample = (double) totalBytes / samples;
+        long perDay = 86_400_000L / interval;
+        System.out.printf("samples:            %d (%d metrics, %d ms interval)%n", samples, metrics.length, interval);
+        System.out.printf("bytes/sample:       %.2f (raw record %d, ratio %.1fx)%n",
+                bytesPerSample, SampleRecord.SIZE, SampleRecord.SIZE / bytesPerSample);
+        System.out.printf("encode:             %.1f M samples/s%n", samples * 1e3 / encodeNanos);
+        System.out.printf("decode:             %.1f M samples/s (checksum %.0f, %d)%n",
+                samples * 1e3 / decodeNanos, checksum, decoded);
+        System.out.printf("30 days per GPU:    %.1f MB%n", bytesPerSample * perDay * 30 / (1024 * 1024));
+    }
+
+    /**
+     * Load phases with slowly drifting temperature and fan, P-state clocks, noisy power
+     */
+    private static void generate(Metric[] metrics, long interval, long[] timestamps, float[][] rows) {
+        Random random = new Random(42);
+        long ts = 1_700_000_000_000L;
+        float temperature = 40;
+        float fan = 30;
+        boolean load = false;
+        for (int i = 0; i < rows.length; i++) {
+            if (random.nextInt(600) == 0) {
+                load = !load;
+            }
+            // Небольшой джиттер планировщика на отметках времени
+            ts += interval + (random.nextInt(20) == 0 ? random.nextInt(5) - 2 : 0);
+            float targetTemperature = load ? 72 : 41;
+            temperature += Math.signum(targetTemperature - temperature) * (random.nextInt(4) == 0 ? 1 : 0);
+            fan += Math.signum((temperature - 35) * 1.5f - fan) * (random.nextInt(6) == 0 ? 1 : 0);
+
+            float[] row = new float[metrics.length];
+            for (int m = 0; m < metrics.length; m++) {
+                row[m] = switch (metrics[m]) {
+                    case GPU_TEMPERATURE -> temperature;
+                    case GPU_UTILIZATION -> load ? 95 + random.nextInt(6) : random.nextInt(3);
+                    case GPU_MEMORY_USED -> load ? 7900 + random.nextInt(50) : 600;
+                    case GPU_CORE_CLOCK -> load ? 1905 - 15 * random.nextInt(3) : 210;
+                    case GPU_MEMORY_CLOCK -> load ? 7000 : 405;
+                    case GPU_POWER -> Math.round(((load ? 215f : 18f) + random.nextFloat() * 10) * 1000) / 1000f;
+                    case GPU_FAN_SPEED -> fan;
+                    case GPU_FAN_RPM -> Math.round(fan * 33);
+                    default -> -1;
+                };
+            }
+            timestamps[i] = ts;
+            rows[i] = row;
+        }
+    }
+
+    private static void verify(Metric[] metrics, byte[][] chunks, long[] bitLengths, int[] counts,
+                               long[] timestamps, float[][] rows) {
+        ChunkDecoder decoder = new ChunkDecoder(metrics);
+        int i = 0;
+        for (int c = 0; c < chunks.length; c++) {
+            decoder.wrap(chunks[c], 0, bitLengths[c], counts[c]);
+            while (decoder.next()) {
+                if (decoder.getTimestamp() != timestamps[i]) {
+                    throw new IllegalStateException("Timestamp mismatch at " + i);
+                }
+                for (int m = 0; m < metrics.length; m++) {
+                    if (Float.compare(decoder.getValue(m), rows[i][m]) != 0) {
+                        throw new IllegalStateException("Value mismatch at " + i + " " + metrics[m]);
+                    }
+                }
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.gpustatix.history;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Scan throughput of {@link HistoryQueryEngine} against the number of worker threads,
+ * on a synthetic log of hourly segments (host + GPUs every second).
+ *
+ * <pre>./gradlew benchmark -Pbench=history.QueryBenchmark --args="[records] [gpus]"</pre>
+ */
+public class QueryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int gpus = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        Path directory = Files.createTempDirectory("gpustatix-query-bench");
+        try {
+            long start = 1_700_000_000_000L;
+            long end = generate(directory, records, gpus, start);
+            try (SampleLog log = SampleLog.openReadOnly(directory)) {
+                System.out.printf("%d records, %d segments, %d GPUs%n", records, log.segments().size(), gpus);
+                int cores = Runtime.getRuntime().availableProcessors();
+                for (int threads = 1; threads <= cores; threads *= 2) {
+                    run(log, threads, "full scan, all devices", start, end);
+                }
+                run(log, cores, "last 10%, GPU 0 only", end - (end - start) / 10, end, 0);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void run(SampleLog log, int threads, String label, long from, long to, int... devices) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        HistoryQueryEngine engine = new HistoryQueryEngine(log, pool);
+        // Прогрев: отображения подтягиваются в page cache, JIT компилирует цикл
+        engine.aggregate(Metric.GPU_TEMPERATURE, from, to, devices);
+        long best = Long.MAX_VALUE;
+        MetricAccumulator result = null;
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            result = engine.aggregate(Metric.GPU_TEMPERATURE, from, to, devices);
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        pool.shutdown();
+        System.out.printf("%-24s threads=%-3d %7.1f M records/s  scanned=%d  max GPU0=%.0f%n",
+                label, threads, result.getScannedRecords() * 1e3 / best, result.getScannedRecords(),
+                result.getMax(0));
+    }
+
+    private static long generate(Path directory, int records, int gpus, long start) throws IOException {
+        int perHour = 3600 * (gpus + 1);
+        Random random = new Random(7);
+        float[] values = new float[Metric.count()];
+        LogSegment segment = null;
+        long ts = start;
+        for (int written = 0; written < records; ts += 1000) {
+            if (segment == null || segment.getCount() + gpus + 1 > perHour) {
+                if (segment != null) {
+                    segment.seal();
+                }
+                segment = LogSegment.create(directory.resolve(ts + ".glog"), perHour, ts);
+            }
+            for (int device = -1; device < gpus && written < records; device++, written++) {
+                for (int m = 0; m < values.length; m++) {
+                    values[m] = Metric.byOrdinal(m).isHost() == (device < 0) ? 30 + random.nextInt(60) : Float.NaN;
+                }
+                segment.append(ts, device, values);
+            }
+        }
+        if (segment != null) {
+            segment.seal();
+        }
+        return ts;
+    }
+}
@@ -1,18 +1,293 @@
 package com.gpustatix;
 
+import com.gpustatix.alert.AlertEngine;
+import com.gpustatix.alert.AnomalyDetector;
+import com.gpustatix.alert.RuleParser;
+import com.gpustatix.batch.CompactionApplication;
+import com.gpustatix.cli.CollectorCommand;
+import com.gpustatix.cli.ExportCommand;
+import com.gpustatix.cli.HeadlessMonitor;
+import com.gpustatix.export.SharedMemoryWriter;
+import com.gpustatix.fleet.FleetAgent;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.RollupStore;
+import com.gpustatix.history.SampleLog;
+import com.gpustatix.history.TelemetryRecording;
+import com.gpustatix.net.ControlServer;
+import com.gpustatix.net.LiveFeedServer;
+import com.gpustatix.net.PrometheusEndpoint;
+import com.gpustatix.net.UdpMetricsEmitter;
+import com.gpustatix.net.UnixStreamServer;
+import com.gpustatix.replay.ReplayGPUSettings;
+import com.gpustatix.replay.ReplayGpuBackend;
+import com.gpustatix.replay.ReplaySampler;
+import com.gpustatix.replay.SessionReader;
+import com.gpustatix.replay.SessionRecorder;
 import com.gpustatix.ui.DashboardUI;
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.ActuatorQueue;
+import com.gpustatix.utils.ConfigLoader;
 import com.gpustatix.utils.GPUSettings;
+import com.gpustatix.utils.GpuBackends;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSampler;
+import com.gpustatix.utils.GpuTopology;
+import com.gpustatix.utils.HostSampler;
+import com.gpustatix.utils.ThreadAffinity;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Main {
     public static void main(String[] args) {
         System.setProperty("jna.library.path", "/usr/lib/x86_64-linux-gnu");
+        // В headless-режиме Swing не загружается вовсе
+        if (Arrays.asList(args).contains("--headless")) {
+            reportJitter();
+            HeadlessMonitor.run(args);
+            return;
+        }
+        if (Arrays.asList(args).contains("--export")) {
+            ExportCommand.run(args);
+            return;
+        }
+        if (Arrays.asList(args).contains("--collector")) {
+            CollectorCommand.run(args);
+            return;
+        }
+        if (Arrays.asList(args).contains("--compact")) {
+            CompactionApplication.main(args);
+            return;
+        }
+        reportJitter();
+        startGui(args);
+    }
+
+    /**
+     * Sampling jitter only matters to the modes that sample (GUI and --headless);
+     * --export, --collector and --compact skip the probe
+     */
+    private static void reportJitter() {
+        if (ThreadAffinity.isEnabled()) {
+            ThreadAffinity.reportJitter(System.err);
+        }
+    }
+
+    /**
+     * Options: --replay FILE [--speed 1|4x|max] plays a recorded session instead of the real GPU,
+     * --record-session FILE records samples and control commands for a later --replay
+     */
+    private static void startGui(String[] args) {
+        String replayFile = null;
+        String sessionFile = null;
+        double speed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--replay" -> replayFile = args[++i];
+                case "--speed" -> speed = ReplaySampler.parseSpeed(args[++i]);
+                case "--record-session" -> sessionFile = args[++i];
+                default -> System.err.println("Unknown option: " + args[i]);
+            }
+        }
+        String replay = replayFile;
+        String session = sessionFile;
+        double replaySpeed = speed;
         SwingUtilities.invokeLater(() -> {
-            // GPUSettings теперь инициализируется без параметров, данные будут получаться через геттеры
-            GPUSettings gpuSettings = new GPUSettings ();
-            DashboardUI dashboard = new DashboardUI(gpuSettings);
+            GPUSettings gpuSettings;
+            GpuSampler sampler;
+            if (replay != null) {
+                ReplaySampler replaySampler = openReplay(replay, replaySpeed);
+                if (replaySampler == null) {
+                    return;
+                }
+                ReplayGPUSettings replaySettings = new ReplayGPUSettings((ReplayGpuBackend) replaySampler.getBackend());
+                replaySampler.setSettings(replaySettings);
+                gpuSettings = replaySettings;
+                sampler = replaySampler;
+            } else {
+                // GPUSettings теперь инициализируется без параметров, данные будут получаться через геттеры
+                gpuSettings = new GPUSettings ();
+                sampler = createSampler(gpuSettings);
+            }
+            ActuatorQueue actuators = new ActuatorQueue(gpuSettings);
+            RollupStore history = startSampler(gpuSettings, sampler, actuators, replay == null, session);
+            DashboardUI dashboard = new DashboardUI(gpuSettings, sampler, actuators, history);
             dashboard.setVisible(true);
         });
     }
-}
\ No newline at end of file
+
+    private static ReplaySampler openReplay(String file, double speed) {
+        try {
+            SessionReader reader = new SessionReader(Paths.get(file));
+            return new ReplaySampler(reader, new ReplayGpuBackend(reader), speed);
+        } catch (IOException e) {
+            System.err.println("Cannot replay session: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static GpuSampler createSampler(GPUSettings gpuSettings) {
+        return new GpuSampler(GpuBackends.detect(GpuTopology.getSystem(), gpuSettings),
+                new HostSampler(), ConfigLoader.getInt("sampler.interval.ms", 1000));
+    }
+
+    /**
+     * Background sampler shared by the statistics tab and the continuous recording into
+     * the sample log (log.enabled), the source for File > Export... and --export,
+     * and the compressed long-term recording (recording.enabled).
+     * A replayed session is never written to either.
+     * @return the in-memory history, null if history.enabled is off
+     */
+    private static RollupStore startSampler(GPUSettings gpuSettings, GpuSampler sampler, ActuatorQueue actuators,
+                                     boolean logSamples, String sessionFile) {
+        List<AutoCloseable> outputs = new ArrayList<>();
+        RollupStore history = null;
+        if (ConfigLoader.getBoolean("history.enabled", true)) {
+            history = openHistory(sampler.getBackend().getDeviceCount());
+            sampler.addListener(history);
+        }
+        if (logSamples && ConfigLoader.getBoolean("log.enabled", true)) {
+            try {
+                SampleLog log = new SampleLog();
+                sampler.addListener(log);
+                outputs.add(log);
+            } catch (IOException e) {
+                System.err.println("Sample recording disabled: " + e.getMessage());
+            }
+        }
+        if (logSamples && ConfigLoader.getBoolean("recording.enabled", false)) {
+            try {
+                TelemetryRecording recording = new TelemetryRecording();
+                sampler.addListener(recording);
+                outputs.add(recording);
+            } catch (IOException e) {
+                System.err.println("Telemetry recording disabled: " + e.getMessage());
+            }
+        }
+        if (sessionFile != null) {
+            SessionRecorder recorder = openSession(sessionFile, gpuSettings, sampler);
+            if (recorder != null) {
+                outputs.add(recorder);
+            }
+        }
+        if (ConfigLoader.getBoolean("metrics.enabled", false)) {
+            try {
+                PrometheusEndpoint metrics = new PrometheusEndpoint(sampler.getBackend());
+                sampler.addListener(metrics);
+                outputs.add(metrics);
+            } catch (IOException e) {
+                System.err.println("Metrics endpoint disabled: " + e.getMessage());
+            }
+        }
+        if (ConfigLoader.getBoolean("udp.enabled", false)) {
+            try {
+                UdpMetricsEmitter emitter = new UdpMetricsEmitter(sampler.getBackend());
+                sampler.addListener(emitter);
+                outputs.add(emitter);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("UDP metrics disabled: " + e.getMessage());
+            }
+        }
+        if (ConfigLoader.getBoolean("uds.enabled", false)) {
+            try {
+                UnixStreamServer stream = new UnixStreamServer(sampler.getBackend());
+                sampler.addListener(stream);
+                outputs.add(stream);
+            } catch (IOException e) {
+                System.err.println("Unix socket stream disabled: " + e.getMessage());
+            }
+        }
+        if (ConfigLoader.getBoolean("sse.enabled", false)) {
+            try {
+                LiveFeedServer feed = new LiveFeedServer(sampler.getBackend());
+                sampler.addListener(feed);
+                outputs.add(feed);
+            } catch (IOException e) {
+                System.err.println("Live feed disabled: " + e.getMessage());
+            }
+        }
+        if (ConfigLoader.getBoolean("shm.enabled", false)) {
+            try {
+                SharedMemoryWriter shm = new SharedMemoryWriter(sampler.getBackend());
+                sampler.addListener(shm);
+                outputs.add(shm);
+            } catch (IOException e) {
+                System.err.println("Shared memory export disabled: " + e.getMessage());
+            }
+        }
+        if (!ConfigLoader.getString("fleet.collector", "").isEmpty()) {
+            try {
+                FleetAgent agent = new FleetAgent(sampler.getBackend());
+                sampler.addListener(agent);
+                outputs.add(agent);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Fleet agent disabled: " + e.getMessage());
+            }
+        }
+        if (ConfigLoader.getBoolean("alerts.enabled", false)) {
+            try {
+                AlertEngine alerts = new AlertEngine(RuleParser.fromConfig(), sampler.getBackend().getDeviceCount());
+                gpuSettings.addActuatorListener(alerts);
+                sampler.addListener(alerts);
+                outputs.add(alerts);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Alerts disabled: " + e.getMessage());
+            }
+        }
+        if (ConfigLoader.getBoolean("anomaly.enabled", false)) {
+            sampler.addListener(new AnomalyDetector(sampler.getBackend().getDeviceCount()));
+        }
+        if (ConfigLoader.getBoolean("control.enabled", false)) {
+            try {
+                outputs.add(new ControlServer(actuators, history));
+            } catch (IOException e) {
+                System.err.println("Control API disabled: " + e.getMessage());
+            }
+        }
+        // Очередь закрывается после API, уже принятые изменения успевают примениться
+        outputs.add(actuators);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            sampler.stop();
+            for (AutoCloseable output : outputs) {
+                try {
+                    output.close();
+                } catch (Exception e) {
+                    System.err.println("Error while closing " + output + ": " + e.getMessage());
+                }
+            }
+        }));
+        sampler.start();
+        return history;
+    }
+
+    /**
+     * In-memory history of every metric with its rollup tiers; the size is fixed by
+     * history.capacity and rollup.tiers and reported up front
+     */
+    private static RollupStore openHistory(int deviceCount) {
+        RollupStore history = new RollupStore(new MetricStore(deviceCount));
+        System.err.printf("In-memory history: %d samples per metric plus rollups, %.1f MB%n",
+                ConfigLoader.getInt("history.capacity", MetricStore.DEFAULT_CAPACITY),
+                history.getMemoryBytes() / (1024.0 * 1024));
+        return history;
+    }
+
+    private static SessionRecorder openSession(String file, GPUSettings gpuSettings, GpuSampler sampler) {
+        GpuBackend backend = sampler.getBackend();
+        try {
+            SessionRecorder recorder = new SessionRecorder(Paths.get(file), backend, sampler.getIntervalMs());
+            // Текущий предел температуры в данных выборки не виден, поэтому пишем его первой командой
+            recorder.onCommand(0, ActuatorCommand.TEMP_LIMIT, gpuSettings.getTempLimit());
+            gpuSettings.addActuatorListener(recorder);
+            sampler.addListener(recorder);
+            return recorder;
+        } catch (IOException e) {
+            System.err.println("Session recording disabled: " + e.getMessage());
+            return null;
+        }
+    }
+}
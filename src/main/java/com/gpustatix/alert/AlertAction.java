@@ -0,0 +1,10 @@
+package com.gpustatix.alert;
+
+/**
+ * Reaction to an alert transition. Actions run on the engine's dispatch thread, never on the
+ * sampler thread, one event at a time; new kinds are added with {@link AlertActions#register}.
+ */
+public interface AlertAction {
+
+    void execute(AlertEvent event) throws Exception;
+}
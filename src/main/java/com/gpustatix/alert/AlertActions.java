@@ -0,0 +1,43 @@
+package com.gpustatix.alert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Action kinds available to rules. A rule names an action as KIND or KIND:ARGUMENT;
+ * built in are log, command:PROGRAM [ARGS] and webhook:URL.
+ */
+public final class AlertActions {
+    private static final Map<String, Function<String, AlertAction>> FACTORIES = new ConcurrentHashMap<>();
+
+    static {
+        register("log", argument -> new LogAction());
+        register("command", CommandAction::new);
+        register("webhook", WebhookAction::new);
+    }
+
+    private AlertActions() {
+    }
+
+    /**
+     * Adds or replaces an action kind
+     * @param factory receives the text after the first ':', or null if there is none
+     */
+    public static void register(String kind, Function<String, AlertAction> factory) {
+        FACTORIES.put(kind, factory);
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown kind or an argument the factory rejects
+     */
+    public static AlertAction create(String spec) {
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec : spec.substring(0, colon);
+        Function<String, AlertAction> factory = FACTORIES.get(kind.trim());
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown alert action: " + kind);
+        }
+        return factory.apply(colon < 0 ? null : spec.substring(colon + 1));
+    }
+}
@@ -0,0 +1,194 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.ActuatorListener;
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates alert rules on every sample. Each sample is read into one signal row per device,
+ * then every rule steps its per-device evaluator: cost is constant per rule and condition,
+ * independent of window lengths, and nothing is allocated unless an alert changes state.
+ * Transitions are queued to a dispatch thread that runs the actions, so a slow webhook or
+ * command never delays sampling; when the queue is full new events are dropped and counted.
+ * <p>
+ * Also listens to control commands to provide the fan_command signal.
+ */
+public class AlertEngine implements SampleListener, ActuatorListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-alerts";
+
+    private final List<AlertRule> rules;
+    private final RuleEvaluator[] hostEvaluators;
+    private final RuleEvaluator[][] gpuEvaluators;
+    private final float[] hostValues = new float[Signals.COUNT];
+    private final float[][] gpuValues;
+    private final AtomicIntegerArray fanCommands;
+    private final BlockingQueue<AlertEvent> events;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong fired = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Settings from config.properties (alerts.queue)
+     */
+    public AlertEngine(List<AlertRule> rules, int deviceCount) {
+        this(rules, deviceCount, ConfigLoader.getInt("alerts.queue", 1024));
+    }
+
+    /**
+     * @param queueCapacity transitions waiting for their actions before new ones are dropped
+     */
+    public AlertEngine(List<AlertRule> rules, int deviceCount, int queueCapacity) {
+        this.rules = List.copyOf(rules);
+        List<RuleEvaluator> host = new ArrayList<>();
+        List<AlertRule> gpu = new ArrayList<>();
+        for (AlertRule rule : this.rules) {
+            if (rule.isHost()) {
+                host.add(new RuleEvaluator(rule, -1));
+            } else {
+                gpu.add(rule);
+            }
+        }
+        hostEvaluators = host.toArray(new RuleEvaluator[0]);
+        gpuEvaluators = new RuleEvaluator[deviceCount][gpu.size()];
+        gpuValues = new float[deviceCount][Signals.COUNT];
+        for (int device = 0; device < deviceCount; device++) {
+            for (int i = 0; i < gpu.size(); i++) {
+                gpuEvaluators[device][i] = new RuleEvaluator(gpu.get(i), device);
+            }
+        }
+        fanCommands = new AtomicIntegerArray(deviceCount);
+        for (int device = 0; device < deviceCount; device++) {
+            fanCommands.set(device, -1);
+        }
+        events = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        thread = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::dispatch);
+        thread.start();
+    }
+
+    public List<AlertRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return transitions not handed to actions because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return how many times any rule started firing
+     */
+    public long getFiredCount() {
+        return fired.get();
+    }
+
+    /**
+     * @return number of (rule, device) pairs currently firing; read without locking,
+     * so approximate while samples arrive
+     */
+    public int getFiringCount() {
+        int count = 0;
+        for (RuleEvaluator evaluator : hostEvaluators) {
+            count += evaluator.isFiring() ? 1 : 0;
+        }
+        for (RuleEvaluator[] device : gpuEvaluators) {
+            for (RuleEvaluator evaluator : device) {
+                count += evaluator.isFiring() ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void onCommand(int device, ActuatorCommand command, int value) {
+        if (command == ActuatorCommand.FAN_SPEED && device >= 0 && device < fanCommands.length()) {
+            fanCommands.set(device, value);
+        }
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        long timestamp = host.getTimestampMillis();
+        if (hostEvaluators.length > 0) {
+            Signals.read(host, null, -1, hostValues);
+            evaluate(hostEvaluators, timestamp, hostValues);
+        }
+        int count = Math.min(gpus.size(), gpuEvaluators.length);
+        for (int device = 0; device < count; device++) {
+            if (gpuEvaluators[device].length == 0) {
+                break;
+            }
+            float[] values = gpuValues[device];
+            Signals.read(host, gpus.get(device), fanCommands.get(device), values);
+            evaluate(gpuEvaluators[device], timestamp, values);
+        }
+    }
+
+    private void evaluate(RuleEvaluator[] evaluators, long timestamp, float[] values) {
+        for (RuleEvaluator evaluator : evaluators) {
+            AlertEvent.State state = evaluator.update(timestamp, values);
+            if (state == null) {
+                continue;
+            }
+            if (state == AlertEvent.State.FIRING) {
+                fired.incrementAndGet();
+            }
+            AlertEvent event = new AlertEvent(evaluator.rule, evaluator.device, state, timestamp,
+                    evaluator.observedValues());
+            if (!events.offer(event)) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (running || !events.isEmpty()) {
+            AlertEvent event;
+            try {
+                event = events.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (event == null) {
+                continue;
+            }
+            for (AlertAction action : event.getRule().getActions()) {
+                try {
+                    action.execute(event);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    System.err.println("Alert action " + action + " failed for " + event.getRule().getName()
+                            + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops after the queued transitions have been handed to their actions
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(30_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.gpustatix.alert;
+
+import java.util.Locale;
+
+/**
+ * Transition of one rule on one device, handed to the rule's actions
+ */
+public final class AlertEvent {
+
+    public enum State {
+        FIRING, RESOLVED
+    }
+
+    private final AlertRule rule;
+    private final int device;
+    private final State state;
+    private final long timestampMillis;
+    private final float[] values;
+
+    AlertEvent(AlertRule rule, int device, State state, long timestampMillis, float[] values) {
+        this.rule = rule;
+        this.device = device;
+        this.state = state;
+        this.timestampMillis = timestampMillis;
+        this.values = values;
+    }
+
+    public AlertRule getRule() {
+        return rule;
+    }
+
+    /**
+     * @return GPU index, -1 for a host rule
+     */
+    public int getDevice() {
+        return device;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return timestamp of the sample that caused the transition
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return value of each condition's operand at the transition, NaN if unavailable
+     */
+    public float[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * @return one line such as "hot_gpu firing on GPU 0: gpu_temperature = 87 (> 85)"
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder(rule.getName()).append(' ')
+                .append(state.name().toLowerCase(Locale.ROOT))
+                .append(device < 0 ? " on host: " : " on GPU " + device + ": ");
+        for (int i = 0; i < values.length; i++) {
+            Condition condition = rule.getCondition(i);
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(condition.operand()).append(" = ").append(RuleParser.formatNumber(values[i]))
+                    .append(" (").append(condition.comparison.getSymbol()).append(' ')
+                    .append(RuleParser.formatNumber(condition.threshold)).append(')');
+        }
+        if (rule.getHoldMillis() > 0) {
+            text.append(" for ").append(RuleParser.formatDuration(rule.getHoldMillis()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return the event as a JSON object, the webhook body
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(128)
+                .append("{\"rule\":\"").append(rule.getName())
+                .append("\",\"state\":\"").append(state.name().toLowerCase(Locale.ROOT))
+                .append("\",\"device\":").append(device)
+                .append(",\"ts\":").append(timestampMillis)
+                .append(",\"values\":{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(rule.getCondition(i).operand()).append("\":");
+            json.append(Float.isNaN(values[i]) ? "null" : RuleParser.formatNumber(values[i]));
+        }
+        return json.append("},\"message\":\"").append(describe()).append("\"}").toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.gpustatix.alert;
+
+import java.util.List;
+
+/**
+ * Compiled alert rule: all conditions must hold, continuously for the hold time if one is given.
+ * A rule that only tests host signals is evaluated once per sample, any other rule once per GPU.
+ * The rule itself is immutable; per-device state lives in {@link RuleEvaluator}.
+ */
+public final class AlertRule {
+    private final String name;
+    private final Condition[] conditions;
+    private final long holdMillis;
+    private final List<AlertAction> actions;
+    private final boolean host;
+
+    AlertRule(String name, Condition[] conditions, long holdMillis, List<AlertAction> actions) {
+        this.name = name;
+        this.conditions = conditions;
+        this.holdMillis = holdMillis;
+        this.actions = List.copyOf(actions);
+        boolean hostOnly = true;
+        for (Condition condition : conditions) {
+            hostOnly &= Signals.isHost(condition.signal);
+        }
+        this.host = hostOnly;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how long the conditions must hold before the rule fires, 0 to fire at once
+     */
+    public long getHoldMillis() {
+        return holdMillis;
+    }
+
+    public List<AlertAction> getActions() {
+        return actions;
+    }
+
+    /**
+     * @return true if the rule only tests host signals
+     */
+    public boolean isHost() {
+        return host;
+    }
+
+    int getConditionCount() {
+        return conditions.length;
+    }
+
+    Condition getCondition(int index) {
+        return conditions[index];
+    }
+
+    /**
+     * @return the rule in the syntax it was parsed from, without the actions
+     */
+    public String getExpression() {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < conditions.length; i++) {
+            if (i > 0) {
+                expression.append(" and ");
+            }
+            expression.append(conditions[i]);
+        }
+        if (holdMillis > 0) {
+            expression.append(" for ").append(RuleParser.formatDuration(holdMillis));
+        }
+        return expression.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + getExpression();
+    }
+}
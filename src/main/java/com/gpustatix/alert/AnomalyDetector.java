@@ -0,0 +1,91 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs an {@link AnomalyModel} over the local GPUs and reports each statistic when it gets flagged
+ * and when it returns to normal. Runs on the sampler thread; the model does a fixed amount of
+ * arithmetic per GPU and allocates nothing unless a flag changes.
+ */
+public class AnomalyDetector implements SampleListener {
+    private final AnomalyModel model;
+    private final double[] state;
+    private final int[] flags;
+    private final float[][] scores;
+    private final float[][] deviations;
+    private final float[] sampleScores = new float[AnomalyModel.STAT_COUNT];
+    private final float[] sampleDeviations = new float[AnomalyModel.STAT_COUNT];
+
+    /**
+     * Settings from config.properties (anomaly.*)
+     */
+    public AnomalyDetector(int deviceCount) {
+        this(AnomalyModel.fromConfig(), deviceCount);
+    }
+
+    public AnomalyDetector(AnomalyModel model, int deviceCount) {
+        this.model = model;
+        state = model.newState(deviceCount);
+        flags = new int[deviceCount];
+        scores = new float[deviceCount][AnomalyModel.STAT_COUNT];
+        deviations = new float[deviceCount][AnomalyModel.STAT_COUNT];
+    }
+
+    /**
+     * @return bit i set if {@link AnomalyModel.Stat} i of the GPU is flagged
+     */
+    public synchronized int getFlags(int device) {
+        return flags[device];
+    }
+
+    /**
+     * @return latest score of the statistic, NaN while it is not judged
+     */
+    public synchronized float getScore(int device, AnomalyModel.Stat stat) {
+        return scores[device][stat.ordinal()];
+    }
+
+    /**
+     * @return how far the recent level is from the baseline, NaN while it is not judged
+     */
+    public synchronized float getDeviation(int device, AnomalyModel.Stat stat) {
+        return deviations[device][stat.ordinal()];
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        int count = Math.min(gpus.size(), flags.length);
+        for (int device = 0; device < count; device++) {
+            GpuSnapshot gpu = gpus.get(device);
+            int newFlags = model.update(state, device * model.stateSize(), gpu, sampleScores, sampleDeviations);
+            int changed;
+            synchronized (this) {
+                changed = newFlags ^ flags[device];
+                flags[device] = newFlags;
+                System.arraycopy(sampleScores, 0, scores[device], 0, sampleScores.length);
+                System.arraycopy(sampleDeviations, 0, deviations[device], 0, sampleDeviations.length);
+            }
+            for (int i = 0; changed != 0; i++, changed >>>= 1) {
+                if ((changed & 1) != 0) {
+                    report(device, gpu, AnomalyModel.stat(i), (newFlags & (1 << i)) != 0);
+                }
+            }
+        }
+    }
+
+    private void report(int device, GpuSnapshot gpu, AnomalyModel.Stat stat, boolean flagged) {
+        int i = stat.ordinal();
+        String band = AnomalyModel.bandLabel(AnomalyModel.band(gpu.getUtilization()));
+        if (flagged) {
+            System.err.println(String.format(Locale.ROOT, "Anomaly on GPU %d at %s load: %s %+.1f %s from baseline (score %.1f)",
+                    device, band, stat.getKey(), sampleDeviations[i], stat.getUnit(), sampleScores[i]));
+        } else {
+            System.err.println("Anomaly on GPU " + device + " cleared: " + stat.getKey());
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Online drift detector for GPU thermals and fans. Raw history is never kept: every statistic is
+ * an exponentially weighted moving average, tracked separately per utilization band because
+ * "normal" temperature, fan speed and power all depend on load.
+ * <p>
+ * For each band and {@link Stat} a slow EWMA of mean and variance is the baseline and a fast EWMA
+ * of the value is the recent level. The score is how many standard errors the recent level is
+ * away from the baseline mean; for independent noise with variance v the fast EWMA has variance
+ * v * a / (2 - a). A single spike barely moves the fast average, a sustained shift (a slowing fan,
+ * drying paste) does. Sensor noise is autocorrelated, so a statistic is only flagged when the
+ * score crosses the threshold and the shift is also large enough to matter
+ * ({@link Stat#getMinShift()}). While a statistic is flagged its baseline is frozen so the anomaly
+ * is not learned as the new normal; the flag stays with its band until samples in that band
+ * clear it.
+ * <p>
+ * Fan speed is judged in RPM and, separately, in percent: NVML reports only the percent, hwmon
+ * usually both, and the two need different thresholds.
+ * <p>
+ * The residual statistics compare temperature with what the band's own history predicts from
+ * the fan (RPM, or percent if the fan has no tachometer) and from the power draw: an online
+ * least-squares line, also kept as EWMAs of the means, covariance and variance. Temperature
+ * higher than usual at the same fan speed and power points at cooling rather than workload.
+ * The fan regression keeps the unit of the first fan reading of the GPU, so it never mixes them.
+ * <p>
+ * State is a flat double[] of {@link #stateSize()} values per GPU (about 1 KB), so a collector
+ * can track every GPU of a fleet at 1 Hz. Not thread-safe: each state has one updating thread.
+ */
+public final class AnomalyModel {
+
+    public enum Stat {
+        TEMPERATURE("temperature", "°C", 0.5f, 3),
+        FAN_RPM("fan_rpm", "RPM", 20, 150),
+        FAN_SPEED("fan_speed", "%", 1, 5),
+        POWER("power", "W", 2, 15),
+        TEMP_VS_FAN("temp_vs_fan", "°C", 0.5f, 2),
+        TEMP_VS_POWER("temp_vs_power", "°C", 0.5f, 2);
+
+        private final String key;
+        private final String unit;
+        // Нижняя граница СКО: датчики с шагом 1°C на ровной нагрузке дают почти нулевую дисперсию
+        private final float minDeviation;
+        // Сдвиг меньше этого не интересен, даже если он статистически значим
+        private final float minShift;
+
+        Stat(String key, String unit, float minDeviation, float minShift) {
+            this.key = key;
+            this.unit = unit;
+            this.minDeviation = minDeviation;
+            this.minShift = minShift;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        /**
+         * @return smallest shift from the baseline that is flagged, in {@link #getUnit()}
+         */
+        public float getMinShift() {
+            return minShift;
+        }
+    }
+
+    private static final Stat[] STATS = Stat.values();
+    public static final int STAT_COUNT = STATS.length;
+
+    /**
+     * Utilization bands: [0, 10), [10, 40), [40, 75), [75, 100]
+     */
+    private static final int[] BAND_UPPER = {10, 40, 75, Integer.MAX_VALUE};
+    private static final String[] BAND_LABELS = {"0-10%", "10-40%", "40-75%", "75-100%"};
+    public static final int BANDS = BAND_UPPER.length;
+
+    // Раскладка состояния: заголовок GPU, затем блоки полос
+    private static final int LAST_BAND = 0;
+    private static final int IN_BAND = 1;
+    private static final int FAN_SOURCE = 2;
+    private static final int HEADER = 3;
+    // Источник оборотов для регрессии: ещё не выбран, RPM или проценты
+    private static final int FAN_UNKNOWN = 0;
+    private static final int FAN_RPM = 1;
+    private static final int FAN_PERCENT = 2;
+    // Блок полосы: счётчик выборок, две регрессии (mean x, mean y, cov xy, var x), статистики
+    private static final int BAND_COUNT = 0;
+    private static final int REGRESSION_FAN = 1;
+    private static final int REGRESSION_POWER = 5;
+    private static final int STATS_START = 9;
+    // Статистика: базовое среднее, базовая дисперсия, быстрое среднее, число выборок, флаг
+    private static final int MEAN = 0;
+    private static final int VARIANCE = 1;
+    private static final int FAST = 2;
+    private static final int COUNT = 3;
+    private static final int FLAG = 4;
+    private static final int STAT_SIZE = 5;
+    private static final int BAND_SIZE = STATS_START + STAT_COUNT * STAT_SIZE;
+    private static final int STATE_SIZE = HEADER + BANDS * BAND_SIZE;
+
+    private final double slowAlpha;
+    private final double fastAlpha;
+    private final double fastVarianceFactor;
+    private final double threshold;
+    private final int warmupSamples;
+    private final int settleSamples;
+    private final double[] values = new double[STAT_COUNT];
+
+    /**
+     * @param baselineSamples horizon of the baseline EWMAs, in samples
+     * @param recentSamples horizon of the recent level, in samples
+     * @param threshold score at which a statistic is flagged; cleared when the score or the shift
+     *                  falls below 3/4 of its limit
+     * @param warmupSamples samples a band needs before it is judged
+     * @param settleSamples samples ignored after the GPU enters a band, while temperatures settle
+     */
+    public AnomalyModel(int baselineSamples, int recentSamples, double threshold, int warmupSamples,
+                        int settleSamples) {
+        slowAlpha = 2.0 / (Math.max(baselineSamples, 2) + 1);
+        fastAlpha = 2.0 / (Math.max(recentSamples, 1) + 1);
+        fastVarianceFactor = fastAlpha / (2 - fastAlpha);
+        this.threshold = threshold;
+        this.warmupSamples = warmupSamples;
+        this.settleSamples = settleSamples;
+    }
+
+    /**
+     * Settings from config.properties (anomaly.baseline.samples, anomaly.recent.samples,
+     * anomaly.threshold, anomaly.warmup.samples, anomaly.settle.samples)
+     */
+    public static AnomalyModel fromConfig() {
+        return new AnomalyModel(ConfigLoader.getInt("anomaly.baseline.samples", 86_400),
+                ConfigLoader.getInt("anomaly.recent.samples", 300),
+                Double.parseDouble(ConfigLoader.getString("anomaly.threshold", "4")),
+                ConfigLoader.getInt("anomaly.warmup.samples", 600),
+                ConfigLoader.getInt("anomaly.settle.samples", 60));
+    }
+
+    public static Stat stat(int index) {
+        return STATS[index];
+    }
+
+    public static int band(int utilization) {
+        int band = 0;
+        while (utilization >= BAND_UPPER[band]) {
+            band++;
+        }
+        return band;
+    }
+
+    public static String bandLabel(int band) {
+        return BAND_LABELS[band];
+    }
+
+    /**
+     * @return number of doubles in the state of one GPU
+     */
+    public int stateSize() {
+        return STATE_SIZE;
+    }
+
+    /**
+     * @return a fresh state for {@code gpus} GPUs, GPU i at offset i * {@link #stateSize()}
+     */
+    public double[] newState(int gpus) {
+        double[] state = new double[gpus * STATE_SIZE];
+        for (int i = 0; i < gpus; i++) {
+            reset(state, i * STATE_SIZE);
+        }
+        return state;
+    }
+
+    public void reset(double[] state, int offset) {
+        Arrays.fill(state, offset, offset + STATE_SIZE, 0);
+        state[offset + LAST_BAND] = -1;
+    }
+
+    /**
+     * Feeds one sample of one GPU
+     * @param scores receives the score of each {@link Stat} in the current band, NaN while
+     *               the band is warming up or settling or the reading is unavailable
+     * @param deviations receives how far the recent level is from the baseline, in the stat's unit
+     * @return bit i set if {@link Stat} i is flagged in any band
+     */
+    public int update(double[] state, int offset, GpuSnapshot gpu, float[] scores, float[] deviations) {
+        Arrays.fill(scores, Float.NaN);
+        Arrays.fill(deviations, Float.NaN);
+        int utilization = gpu.getUtilization();
+        if (utilization < 0) {
+            // Пропущенное чтение загрузки не снимает уже выставленные флаги
+            return flags(state, offset);
+        }
+        int band = band(utilization);
+        int bandOffset = offset + HEADER + band * BAND_SIZE;
+        if (state[offset + LAST_BAND] != band) {
+            state[offset + LAST_BAND] = band;
+            state[offset + IN_BAND] = 0;
+        }
+        if (++state[offset + IN_BAND] <= settleSamples) {
+            return flags(state, offset);
+        }
+
+        double temperature = gpu.getTemperature() < 0 ? Double.NaN : gpu.getTemperature();
+        double fanRpm = gpu.getFanRpm() < 0 ? Double.NaN : gpu.getFanRpm();
+        double fanSpeed = gpu.getFanSpeed() < 0 ? Double.NaN : gpu.getFanSpeed();
+        double fan = regressionFan(state, offset, fanRpm, fanSpeed);
+        double power = gpu.getPowerUsage() < 0 ? Double.NaN : gpu.getPowerUsage();
+        values[Stat.TEMPERATURE.ordinal()] = temperature;
+        values[Stat.FAN_RPM.ordinal()] = fanRpm;
+        values[Stat.FAN_SPEED.ordinal()] = fanSpeed;
+        values[Stat.POWER.ordinal()] = power;
+        // Невязки считаются до обновления регрессии: это ошибка предсказания по прошлому
+        boolean regressionReady = state[bandOffset + BAND_COUNT] >= warmupSamples;
+        values[Stat.TEMP_VS_FAN.ordinal()] = regressionReady
+                ? residual(state, bandOffset + REGRESSION_FAN, fan, temperature) : Double.NaN;
+        values[Stat.TEMP_VS_POWER.ordinal()] = regressionReady
+                ? residual(state, bandOffset + REGRESSION_POWER, power, temperature) : Double.NaN;
+
+        int flags = 0;
+        for (int i = 0; i < STAT_COUNT; i++) {
+            int at = bandOffset + STATS_START + i * STAT_SIZE;
+            if (!Double.isNaN(values[i])) {
+                updateStat(state, at, STATS[i], values[i], scores, deviations, i);
+            }
+            if (state[at + FLAG] != 0) {
+                flags |= 1 << i;
+            }
+        }
+
+        double bandCount = state[bandOffset + BAND_COUNT];
+        double alpha = Math.max(slowAlpha, 1 / (bandCount + 1));
+        if ((flags & (1 << Stat.TEMP_VS_FAN.ordinal())) == 0) {
+            updateRegression(state, bandOffset + REGRESSION_FAN, fan, temperature, alpha);
+        }
+        if ((flags & (1 << Stat.TEMP_VS_POWER.ordinal())) == 0) {
+            updateRegression(state, bandOffset + REGRESSION_POWER, power, temperature, alpha);
+        }
+        state[bandOffset + BAND_COUNT] = bandCount + 1;
+        return flags(state, offset);
+    }
+
+    /**
+     * @return the reading in the unit the GPU's fan regression uses, NaN if that one is unavailable
+     */
+    private static double regressionFan(double[] state, int offset, double fanRpm, double fanSpeed) {
+        if (state[offset + FAN_SOURCE] == FAN_UNKNOWN) {
+            if (!Double.isNaN(fanRpm)) {
+                state[offset + FAN_SOURCE] = FAN_RPM;
+            } else if (!Double.isNaN(fanSpeed)) {
+                state[offset + FAN_SOURCE] = FAN_PERCENT;
+            }
+        }
+        return state[offset + FAN_SOURCE] == FAN_RPM ? fanRpm
+                : state[offset + FAN_SOURCE] == FAN_PERCENT ? fanSpeed : Double.NaN;
+    }
+
+    private static int flags(double[] state, int offset) {
+        int flags = 0;
+        for (int band = 0; band < BANDS; band++) {
+            flags |= bandFlags(state, offset, band);
+        }
+        return flags;
+    }
+
+    /**
+     * @return bit i set if {@link Stat} i is flagged in the given band
+     */
+    public static int bandFlags(double[] state, int offset, int band) {
+        int flags = 0;
+        int at = offset + HEADER + band * BAND_SIZE + STATS_START + FLAG;
+        for (int i = 0; i < STAT_COUNT; i++, at += STAT_SIZE) {
+            if (state[at] != 0) {
+                flags |= 1 << i;
+            }
+        }
+        return flags;
+    }
+
+    private void updateStat(double[] state, int at, Stat stat, double value, float[] scores,
+                               float[] deviations, int index) {
+        double count = state[at + COUNT];
+        if (count == 0) {
+            state[at + MEAN] = value;
+            state[at + FAST] = value;
+        }
+        state[at + FAST] += fastAlpha * (value - state[at + FAST]);
+        boolean flagged = state[at + FLAG] != 0;
+        if (count >= warmupSamples) {
+            double deviation = state[at + FAST] - state[at + MEAN];
+            double minDeviation = stat.minDeviation;
+            double variance = Math.max(state[at + VARIANCE], minDeviation * minDeviation);
+            double score = deviation / Math.sqrt(variance * fastVarianceFactor);
+            scores[index] = (float) score;
+            deviations[index] = (float) deviation;
+            double scale = flagged ? 0.75 : 1;
+            flagged = Math.abs(score) >= threshold * scale && Math.abs(deviation) >= stat.minShift * scale;
+            state[at + FLAG] = flagged ? 1 : 0;
+        }
+        if (!flagged) {
+            // Пока база молодая, вес новой выборки 1/n: сначала это обычное среднее
+            double alpha = Math.max(slowAlpha, 1 / (count + 1));
+            double delta = value - state[at + MEAN];
+            state[at + MEAN] += alpha * delta;
+            state[at + VARIANCE] = (1 - alpha) * (state[at + VARIANCE] + alpha * delta * delta);
+            state[at + COUNT] = count + 1;
+        }
+    }
+
+    private static double residual(double[] state, int at, double x, double y) {
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            return Double.NaN;
+        }
+        double varianceX = state[at + 3];
+        double slope = varianceX > 1e-9 ? state[at + 2] / varianceX : 0;
+        return y - (state[at + 1] + slope * (x - state[at]));
+    }
+
+    private static void updateRegression(double[] state, int at, double x, double y, double alpha) {
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            return;
+        }
+        double dx = x - state[at];
+        double dy = y - state[at + 1];
+        state[at] += alpha * dx;
+        state[at + 1] += alpha * dy;
+        state[at + 2] = (1 - alpha) * (state[at + 2] + alpha * dx * dy);
+        state[at + 3] = (1 - alpha) * (state[at + 3] + alpha * dx * dx);
+    }
+}
@@ -0,0 +1,33 @@
+package com.gpustatix.alert;
+
+/**
+ * Mean over the window kept as a running sum: each sample is added once and subtracted once
+ * when it expires
+ */
+final class AverageWindow extends SlidingWindow {
+    private double sum;
+
+    AverageWindow(long spanMillis) {
+        super(spanMillis);
+    }
+
+    @Override
+    float update(long timestampMillis, float value) {
+        expire(timestampMillis);
+        if (!Float.isNaN(value)) {
+            pushBack(timestampMillis, value);
+            sum += value;
+        }
+        if (size() == 0) {
+            // Пустое окно - заодно сбрасываем накопленную ошибку округления
+            sum = 0;
+            return Float.NaN;
+        }
+        return (float) (sum / size());
+    }
+
+    @Override
+    protected void evicted(float value) {
+        sum -= value;
+    }
+}
@@ -0,0 +1,58 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.ConfigLoader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a program for each transition, e.g. {@code command:/usr/local/bin/page-oncall --gpu}.
+ * The command line is split on whitespace without a shell; the event is passed in
+ * GPUSTATIX_ALERT, GPUSTATIX_STATE, GPUSTATIX_DEVICE, GPUSTATIX_MESSAGE and, as JSON,
+ * GPUSTATIX_EVENT. The program's stdout is discarded, stderr is inherited.
+ */
+public class CommandAction implements AlertAction {
+    private final List<String> command;
+    private final long timeoutMillis;
+
+    public CommandAction(String commandLine) {
+        this(commandLine, ConfigLoader.getLong("alerts.command.timeout.ms", 10_000));
+    }
+
+    public CommandAction(String commandLine, long timeoutMillis) {
+        if (commandLine == null || commandLine.isBlank()) {
+            throw new IllegalArgumentException("command action needs a program, e.g. command:/path/to/script");
+        }
+        this.command = List.of(commandLine.trim().split("\\s+"));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void execute(AlertEvent event) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        Map<String, String> environment = builder.environment();
+        environment.put("GPUSTATIX_ALERT", event.getRule().getName());
+        environment.put("GPUSTATIX_STATE", event.getState().name().toLowerCase(Locale.ROOT));
+        environment.put("GPUSTATIX_DEVICE", Integer.toString(event.getDevice()));
+        environment.put("GPUSTATIX_MESSAGE", event.describe());
+        environment.put("GPUSTATIX_EVENT", event.toJson());
+        Process process = builder.start();
+        if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            throw new IOException(command.get(0) + " did not finish in " + timeoutMillis + " ms");
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException(command.get(0) + " exited with " + process.exitValue());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "command:" + String.join(" ", command);
+    }
+}
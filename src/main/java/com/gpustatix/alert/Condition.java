@@ -0,0 +1,90 @@
+package com.gpustatix.alert;
+
+import java.util.Locale;
+
+/**
+ * One compiled comparison of a rule: a signal, optionally aggregated over a sliding window,
+ * against a constant threshold
+ */
+final class Condition {
+
+    enum Aggregate {
+        LAST, AVG, MIN, MAX
+    }
+
+    enum Comparison {
+        GT(">"), GE(">="), LT("<"), LE("<="), EQ("=="), NE("!=");
+
+        private final String symbol;
+
+        Comparison(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Comparison bySymbol(String symbol) {
+            for (Comparison comparison : values()) {
+                if (comparison.symbol.equals(symbol)) {
+                    return comparison;
+                }
+            }
+            throw new IllegalArgumentException("Unknown comparison: " + symbol);
+        }
+
+        String getSymbol() {
+            return symbol;
+        }
+    }
+
+    final int signal;
+    final Aggregate aggregate;
+    final long windowMillis;
+    final Comparison comparison;
+    final float threshold;
+
+    Condition(int signal, Aggregate aggregate, long windowMillis, Comparison comparison, float threshold) {
+        this.signal = signal;
+        this.aggregate = aggregate;
+        this.windowMillis = windowMillis;
+        this.comparison = comparison;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the window state for one device, null when the condition reads the latest value
+     */
+    SlidingWindow newWindow() {
+        return switch (aggregate) {
+            case LAST -> null;
+            case AVG -> new AverageWindow(windowMillis);
+            case MIN -> new ExtremumWindow(windowMillis, false);
+            case MAX -> new ExtremumWindow(windowMillis, true);
+        };
+    }
+
+    boolean test(float value) {
+        return switch (comparison) {
+            case GT -> value > threshold;
+            case GE -> value >= threshold;
+            case LT -> value < threshold;
+            case LE -> value <= threshold;
+            case EQ -> value == threshold;
+            case NE -> value != threshold;
+        };
+    }
+
+    /**
+     * @return the operand as written in a rule, e.g. avg(gpu_power, 60s)
+     */
+    String operand() {
+        String key = Signals.key(signal);
+        if (aggregate == Aggregate.LAST) {
+            return key;
+        }
+        return aggregate.name().toLowerCase(Locale.ROOT) + "(" + key + ", " + RuleParser.formatDuration(windowMillis) + ")";
+    }
+
+    @Override
+    public String toString() {
+        return operand() + " " + comparison.getSymbol() + " " + RuleParser.formatNumber(threshold);
+    }
+}
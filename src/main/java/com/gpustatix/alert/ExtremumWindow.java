@@ -0,0 +1,27 @@
+package com.gpustatix.alert;
+
+/**
+ * Minimum or maximum over the window as a monotonic deque: a new sample first removes every
+ * entry at the back that it dominates, so the front is always the extremum and each sample
+ * is pushed and popped at most once
+ */
+final class ExtremumWindow extends SlidingWindow {
+    private final boolean max;
+
+    ExtremumWindow(long spanMillis, boolean max) {
+        super(spanMillis);
+        this.max = max;
+    }
+
+    @Override
+    float update(long timestampMillis, float value) {
+        expire(timestampMillis);
+        if (!Float.isNaN(value)) {
+            while (size() > 0 && (max ? back() <= value : back() >= value)) {
+                popBack();
+            }
+            pushBack(timestampMillis, value);
+        }
+        return size() == 0 ? Float.NaN : front();
+    }
+}
@@ -0,0 +1,19 @@
+package com.gpustatix.alert;
+
+import java.time.Instant;
+
+/**
+ * Writes the alert to stderr (stdout carries the headless sample stream)
+ */
+public class LogAction implements AlertAction {
+
+    @Override
+    public void execute(AlertEvent event) {
+        System.err.println(Instant.ofEpochMilli(event.getTimestampMillis()) + " ALERT " + event.describe());
+    }
+
+    @Override
+    public String toString() {
+        return "log";
+    }
+}
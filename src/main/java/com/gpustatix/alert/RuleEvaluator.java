@@ -0,0 +1,80 @@
+package com.gpustatix.alert;
+
+/**
+ * State of one rule on one device: its windows, since when all conditions have held and
+ * whether the alert is active. Each update costs one step per condition.
+ */
+final class RuleEvaluator {
+    final AlertRule rule;
+    final int device;
+    private final SlidingWindow[] windows;
+    private final float[] observed;
+    private long holdingSince = -1;
+    private boolean firing;
+
+    RuleEvaluator(AlertRule rule, int device) {
+        this.rule = rule;
+        this.device = device;
+        int count = rule.getConditionCount();
+        windows = new SlidingWindow[count];
+        observed = new float[count];
+        for (int i = 0; i < count; i++) {
+            windows[i] = rule.getCondition(i).newWindow();
+        }
+    }
+
+    /**
+     * Feeds one sample. A condition whose value is unavailable leaves the alert state as it is:
+     * a missed sensor read neither resolves an alert nor counts towards the hold time.
+     * @param values signals of this device, see {@link Signals}
+     * @return the new state on a transition, null otherwise
+     */
+    AlertEvent.State update(long timestampMillis, float[] values) {
+        boolean holds = true;
+        boolean known = true;
+        // Без раннего выхода: окна всех условий должны увидеть каждую выборку
+        for (int i = 0; i < windows.length; i++) {
+            Condition condition = rule.getCondition(i);
+            float value = values[condition.signal];
+            if (windows[i] != null) {
+                value = windows[i].update(timestampMillis, value);
+            }
+            observed[i] = value;
+            if (Float.isNaN(value)) {
+                known = false;
+            } else if (!condition.test(value)) {
+                holds = false;
+            }
+        }
+        if (!holds) {
+            holdingSince = -1;
+            if (firing) {
+                firing = false;
+                return AlertEvent.State.RESOLVED;
+            }
+            return null;
+        }
+        if (!known) {
+            return null;
+        }
+        if (holdingSince < 0) {
+            holdingSince = timestampMillis;
+        }
+        if (!firing && timestampMillis - holdingSince >= rule.getHoldMillis()) {
+            firing = true;
+            return AlertEvent.State.FIRING;
+        }
+        return null;
+    }
+
+    boolean isFiring() {
+        return firing;
+    }
+
+    /**
+     * @return a copy of the condition values seen by the last update
+     */
+    float[] observedValues() {
+        return observed.clone();
+    }
+}
@@ -0,0 +1,205 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.ConfigLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles alert rules, one per line:
+ * <pre>
+ * NAME: CONDITION [and CONDITION ...] [for DURATION] [-> ACTION[, ACTION ...]]
+ *
+ * hot_gpu: gpu_temperature > 85 for 30s -> log
+ * fan_stuck: fan_command >= 80 and gpu_fan_rpm < 500 for 10s -> log, command:/usr/local/bin/fan-alert
+ * idle_vram: gpu_utilization < 5 and gpu_memory_percent > 90 for 10m -> webhook:http://127.0.0.1:9090/alerts
+ * power_avg: avg(gpu_power, 1m) > 300 -> log
+ * </pre>
+ * A condition compares a signal (a history metric key, gpu_memory_percent, gpu_power_percent or
+ * fan_command) or avg/min/max of a signal over a sliding window with a number, using
+ * &gt;, &gt;=, &lt;, &lt;=, == or !=. Durations take ms, s, m or h. Without actions a rule logs.
+ * Blank lines and lines starting with # are ignored.
+ */
+public final class RuleParser {
+    private static final String RULES_RESOURCE = "alerts.rules";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+    private static final Pattern CONDITION = Pattern.compile(
+            "(?:(avg|min|max)\\(\\s*([a-z_]+)\\s*,\\s*(\\S+?)\\s*\\)|([a-z_]+))\\s*(>=|<=|==|!=|>|<)\\s*(-?[0-9]+(?:\\.[0-9]+)?)\\s*%?");
+    private static final Pattern DURATION = Pattern.compile("([0-9]+)(ms|s|m|h)");
+    private static final Pattern AND = Pattern.compile("\\s+and\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FOR = Pattern.compile("\\s+for\\s+(\\S+)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private RuleParser() {
+    }
+
+    /**
+     * Rules from alerts.file, or the bundled examples if that file does not exist
+     * @throws IllegalArgumentException if a rule does not compile
+     */
+    public static List<AlertRule> fromConfig() throws IOException {
+        Path file = Paths.get(ConfigLoader.getString("alerts.file", RULES_RESOURCE));
+        if (Files.isRegularFile(file)) {
+            return load(file);
+        }
+        try (InputStream in = RuleParser.class.getClassLoader().getResourceAsStream(RULES_RESOURCE)) {
+            if (in == null) {
+                return List.of();
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return parse(reader.lines().toList());
+        }
+    }
+
+    public static List<AlertRule> load(Path file) throws IOException {
+        try {
+            return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the first line that does not compile
+     */
+    public static List<AlertRule> parse(List<String> lines) {
+        List<AlertRule> rules = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        // Одинаковые действия разделяются правилами
+        Map<String, AlertAction> actions = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                AlertRule rule = parseRule(line, actions);
+                if (!names.add(rule.getName())) {
+                    throw new IllegalArgumentException("duplicate rule name " + rule.getName());
+                }
+                rules.add(rule);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    public static AlertRule parseRule(String line) {
+        return parseRule(line, new HashMap<>());
+    }
+
+    private static AlertRule parseRule(String line, Map<String, AlertAction> actionCache) {
+        int colon = line.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("expected NAME: CONDITION");
+        }
+        String name = line.substring(0, colon).trim();
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("invalid rule name '" + name + "'");
+        }
+        String body = line.substring(colon + 1).trim();
+
+        List<AlertAction> actions = new ArrayList<>();
+        int arrow = body.indexOf("->");
+        if (arrow >= 0) {
+            for (String spec : body.substring(arrow + 2).split(",", -1)) {
+                String key = spec.trim();
+                if (key.isEmpty()) {
+                    throw new IllegalArgumentException("empty action");
+                }
+                actions.add(actionCache.computeIfAbsent(key, AlertActions::create));
+            }
+            body = body.substring(0, arrow).trim();
+        } else {
+            actions.add(actionCache.computeIfAbsent("log", AlertActions::create));
+        }
+
+        long holdMillis = 0;
+        Matcher hold = FOR.matcher(body);
+        if (hold.find()) {
+            holdMillis = parseDuration(hold.group(1));
+            body = body.substring(0, hold.start()).trim();
+        }
+        if (body.isEmpty()) {
+            throw new IllegalArgumentException("no condition");
+        }
+        String[] parts = AND.split(body);
+        Condition[] conditions = new Condition[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            conditions[i] = parseCondition(parts[i].trim());
+        }
+        return new AlertRule(name, conditions, holdMillis, actions);
+    }
+
+    private static Condition parseCondition(String text) {
+        Matcher matcher = CONDITION.matcher(text);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("cannot parse condition '" + text + "'");
+        }
+        Condition.Aggregate aggregate = Condition.Aggregate.LAST;
+        long windowMillis = 0;
+        String signal = matcher.group(4);
+        if (matcher.group(1) != null) {
+            aggregate = Condition.Aggregate.valueOf(matcher.group(1).toUpperCase(Locale.ROOT));
+            signal = matcher.group(2);
+            windowMillis = parseDuration(matcher.group(3));
+            if (windowMillis <= 0) {
+                throw new IllegalArgumentException("window must be positive in '" + text + "'");
+            }
+        }
+        return new Condition(Signals.byKey(signal), aggregate, windowMillis,
+                Condition.Comparison.bySymbol(matcher.group(5)), Float.parseFloat(matcher.group(6)));
+    }
+
+    static long parseDuration(String text) {
+        Matcher matcher = DURATION.matcher(text);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("invalid duration '" + text + "', expected e.g. 500ms, 30s, 10m, 1h");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "ms" -> amount;
+            case "s" -> amount * 1000;
+            case "m" -> amount * 60_000;
+            default -> amount * 3_600_000;
+        };
+    }
+
+    static String formatDuration(long millis) {
+        if (millis % 3_600_000 == 0) {
+            return millis / 3_600_000 + "h";
+        }
+        if (millis % 60_000 == 0) {
+            return millis / 60_000 + "m";
+        }
+        if (millis % 1000 == 0) {
+            return millis / 1000 + "s";
+        }
+        return millis + "ms";
+    }
+
+    static String formatNumber(float value) {
+        if (Float.isNaN(value)) {
+            return "n/a";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e9f) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,88 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+
+/**
+ * Values a rule can test: every history {@link Metric} under its key, plus derived GPU signals.
+ * Signals are numbered so a sample is read into one float[] per device and shared by all rules.
+ * Unavailable readings are stored as NaN.
+ */
+final class Signals {
+    /**
+     * Used VRAM in percent of the total
+     */
+    static final int MEMORY_PERCENT = Metric.count();
+    /**
+     * Power draw in percent of the power limit
+     */
+    static final int POWER_PERCENT = MEMORY_PERCENT + 1;
+    /**
+     * Fan speed last requested through {@link com.gpustatix.utils.GPUSettings}, in percent
+     */
+    static final int FAN_COMMAND = POWER_PERCENT + 1;
+    static final int COUNT = FAN_COMMAND + 1;
+
+    private Signals() {
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown key
+     */
+    static int byKey(String key) {
+        return switch (key) {
+            case "gpu_memory_percent" -> MEMORY_PERCENT;
+            case "gpu_power_percent" -> POWER_PERCENT;
+            case "fan_command" -> FAN_COMMAND;
+            default -> Metric.byKey(key).ordinal();
+        };
+    }
+
+    static String key(int signal) {
+        if (signal == MEMORY_PERCENT) {
+            return "gpu_memory_percent";
+        }
+        if (signal == POWER_PERCENT) {
+            return "gpu_power_percent";
+        }
+        if (signal == FAN_COMMAND) {
+            return "fan_command";
+        }
+        return Metric.byOrdinal(signal).getKey();
+    }
+
+    static boolean isHost(int signal) {
+        return signal < Metric.count() && Metric.byOrdinal(signal).isHost();
+    }
+
+    /**
+     * Fills every signal of one device
+     * @param gpu null for the host-only row, its GPU signals are then NaN
+     * @param fanCommand last requested fan speed, negative if none
+     */
+    static void read(HostSnapshot host, GpuSnapshot gpu, int fanCommand, float[] out) {
+        for (int i = 0; i < Metric.count(); i++) {
+            Metric metric = Metric.byOrdinal(i);
+            if (metric.isHost()) {
+                out[i] = available(metric.read(host));
+            } else {
+                out[i] = gpu == null ? Float.NaN : available(metric.read(gpu));
+            }
+        }
+        if (gpu == null) {
+            out[MEMORY_PERCENT] = Float.NaN;
+            out[POWER_PERCENT] = Float.NaN;
+            out[FAN_COMMAND] = Float.NaN;
+            return;
+        }
+        out[MEMORY_PERCENT] = available(gpu.getMemoryUsagePercent());
+        out[POWER_PERCENT] = gpu.getPowerUsage() >= 0 && gpu.getPowerLimit() > 0
+                ? gpu.getPowerUsage() * 100 / gpu.getPowerLimit() : Float.NaN;
+        out[FAN_COMMAND] = available(fanCommand);
+    }
+
+    private static float available(float value) {
+        return value < 0 ? Float.NaN : value;
+    }
+}
@@ -0,0 +1,84 @@
+package com.gpustatix.alert;
+
+/**
+ * Time-based window over one signal of one device, updated once per sample.
+ * Entries live in a ring-buffer deque (parallel long[] timestamps and float[] values)
+ * that only grows while the window holds more samples than ever before, so the steady
+ * state allocates nothing and each update is amortized O(1) whatever the window length.
+ */
+abstract class SlidingWindow {
+    protected final long spanMillis;
+    private long[] timestamps = new long[16];
+    private float[] values = new float[16];
+    private int head;
+    private int size;
+
+    protected SlidingWindow(long spanMillis) {
+        this.spanMillis = spanMillis;
+    }
+
+    /**
+     * Adds a sample and drops the ones older than the span
+     * @param value NaN for an unavailable reading: it only advances the window
+     * @return the aggregate over the samples now in the window, NaN if there are none
+     */
+    abstract float update(long timestampMillis, float value);
+
+    /**
+     * Removes front entries that fell out of the window ending at now and returns them
+     * one by one through {@link #evicted}
+     */
+    protected final void expire(long nowMillis) {
+        long cutoff = nowMillis - spanMillis;
+        while (size > 0 && timestamps[head] <= cutoff) {
+            evicted(values[head]);
+            head = (head + 1) & (timestamps.length - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Called for each entry removed by {@link #expire}
+     */
+    protected void evicted(float value) {
+    }
+
+    protected final void pushBack(long timestampMillis, float value) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        int slot = (head + size) & (timestamps.length - 1);
+        timestamps[slot] = timestampMillis;
+        values[slot] = value;
+        size++;
+    }
+
+    protected final void popBack() {
+        size--;
+    }
+
+    protected final float front() {
+        return values[head];
+    }
+
+    protected final float back() {
+        return values[(head + size - 1) & (timestamps.length - 1)];
+    }
+
+    protected final int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] newTimestamps = new long[timestamps.length * 2];
+        float[] newValues = new float[values.length * 2];
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) & (timestamps.length - 1);
+            newTimestamps[i] = timestamps[slot];
+            newValues[i] = values[slot];
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        head = 0;
+    }
+}
@@ -0,0 +1,62 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.ConfigLoader;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * POSTs the event as JSON, e.g. {@code webhook:http://127.0.0.1:9090/alerts}
+ * (see {@link AlertEvent#toJson}). Any status outside 2xx counts as a failure.
+ */
+public class WebhookAction implements AlertAction {
+    // Один клиент на каждый таймаут: вебхуки с одинаковыми настройками делят пул соединений
+    private static final Map<Duration, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private final URI uri;
+    private final Duration timeout;
+
+    public WebhookAction(String url) {
+        this(url, Duration.ofMillis(ConfigLoader.getLong("alerts.webhook.timeout.ms", 5000)));
+    }
+
+    public WebhookAction(String url, Duration timeout) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("webhook action needs a URL, e.g. webhook:http://127.0.0.1:9090/alerts");
+        }
+        this.uri = URI.create(url.trim());
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+            throw new IllegalArgumentException("webhook URL must be http or https: " + url);
+        }
+        this.timeout = timeout;
+    }
+
+    private static HttpClient client(Duration timeout) {
+        return CLIENTS.computeIfAbsent(timeout, connectTimeout -> HttpClient.newBuilder()
+                .connectTimeout(connectTimeout).build());
+    }
+
+    @Override
+    public void execute(AlertEvent event) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(event.toJson()))
+                .build();
+        HttpResponse<Void> response = client(timeout).send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(uri + " answered " + response.statusCode());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "webhook:" + uri;
+    }
+}
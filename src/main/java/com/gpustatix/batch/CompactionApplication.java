@@ -0,0 +1,75 @@
+package com.gpustatix.batch;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+/**
+ * Runs the compaction job once and exits (Main --compact, e.g. from cron or a systemd timer).
+ * If the previous execution failed or was stopped it is restarted with the same parameters,
+ * otherwise a new run covers everything up to the start of the current hour.
+ */
+@SpringBootApplication
+public class CompactionApplication {
+
+    public static void main(String[] args) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(CompactionApplication.class)
+                .web(WebApplicationType.NONE)
+                // Задание запускаем сами, чтобы решить: перезапуск или новый прогон
+                .properties("spring.batch.job.enabled=false")
+                .run(args);
+        int exitCode = 1;
+        try {
+            exitCode = run(context) ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Compaction failed: " + e.getMessage());
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static boolean run(ConfigurableApplicationContext context) throws Exception {
+        Job job = context.getBean("telemetryCompactionJob", Job.class);
+        JobExplorer explorer = context.getBean(JobExplorer.class);
+        JobLauncher launcher = context.getBean(JobLauncher.class);
+
+        JobParameters parameters = null;
+        List<JobInstance> last = explorer.getJobInstances(job.getName(), 0, 1);
+        if (!last.isEmpty()) {
+            JobExecution previous = explorer.getLastJobExecution(last.get(0));
+            if (previous != null && (previous.getStatus() == BatchStatus.FAILED
+                    || previous.getStatus() == BatchStatus.STOPPED)) {
+                parameters = previous.getJobParameters();
+                System.out.println("Restarting compaction up to " + parameters.getLong(CompactionJobConfig.UNTIL));
+            }
+        }
+        if (parameters == null) {
+            long now = System.currentTimeMillis();
+            parameters = new JobParametersBuilder()
+                    .addLong(CompactionJobConfig.UNTIL, now - Math.floorMod(now, HourlyAggregateReader.HOUR_MILLIS))
+                    .toJobParameters();
+        }
+
+        try {
+            JobExecution execution = launcher.run(job, parameters);
+            System.out.println("Compaction finished: " + execution.getStatus());
+            return execution.getStatus() == BatchStatus.COMPLETED;
+        } catch (JobInstanceAlreadyCompleteException e) {
+            System.out.println("Compaction is already up to date for this hour");
+            return true;
+        }
+    }
+}
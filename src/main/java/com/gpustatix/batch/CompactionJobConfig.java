@@ -0,0 +1,129 @@
+package com.gpustatix.batch;
+
+import com.gpustatix.db.JdbcSampleSink;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Compaction of the raw {@value JdbcSampleSink#TABLE} rows:
+ * <ol>
+ *     <li>create the hourly and archive tables if needed,</li>
+ *     <li>aggregate every complete hour per device into {@value HourlyAggregateWriter#TABLE},
+ *     partitioned by device and time range and run in parallel; hours that received raw rows
+ *     after they were aggregated are aggregated again,</li>
+ *     <li>delete (or archive and delete) compacted raw rows older than the retention window.</li>
+ * </ol>
+ * The job parameter {@value #UNTIL} (ms, hour aligned) bounds the run; restarting a failed
+ * execution with the same parameter resumes each partition from its last committed chunk.
+ */
+@Configuration
+public class CompactionJobConfig {
+    public static final String JOB_NAME = "telemetryCompaction";
+    public static final String UNTIL = "until";
+
+    @Bean
+    public Job telemetryCompactionJob(JobRepository jobRepository, Step compactionSchemaStep,
+                                      Step compactHoursStep, Step rawRetentionStep) {
+        return new JobBuilder(JOB_NAME, jobRepository)
+                .start(compactionSchemaStep)
+                .next(compactHoursStep)
+                .next(rawRetentionStep)
+                .build();
+    }
+
+    @Bean
+    public Step compactionSchemaStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                     JdbcTemplate jdbc) {
+        return new StepBuilder("compactionSchema", jobRepository)
+                .tasklet((contribution, chunkContext) -> {
+                    for (String sql : JdbcSampleSink.schemaSql(JdbcSampleSink.TABLE)) {
+                        jdbc.execute(sql);
+                    }
+                    for (String sql : JdbcSampleSink.schemaSql(RawRetentionTasklet.ARCHIVE_TABLE)) {
+                        jdbc.execute(sql);
+                    }
+                    for (String sql : HourlyAggregateWriter.schemaSql()) {
+                        jdbc.execute(sql);
+                    }
+                    return RepeatStatus.FINISHED;
+                }, transactionManager)
+                .allowStartIfComplete(true)
+                .build();
+    }
+
+    @Bean
+    public Step compactHoursStep(JobRepository jobRepository, DeviceRangePartitioner partitioner,
+                                 Step compactHourStep,
+                                 @Value("${gpustatix.compaction.grid-size:4}") int gridSize) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("gpustatix-compaction-");
+        executor.setConcurrencyLimit(gridSize);
+        return new StepBuilder("compactHours", jobRepository)
+                .partitioner("compactHour", partitioner)
+                .step(compactHourStep)
+                .gridSize(gridSize)
+                .taskExecutor(executor)
+                .build();
+    }
+
+    @Bean
+    public Step compactHourStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                HourlyAggregateReader hourlyAggregateReader, JdbcTemplate jdbc,
+                                @Value("${gpustatix.compaction.chunk-size:24}") int chunkSize) {
+        return new StepBuilder("compactHour", jobRepository)
+                .<HourlyAggregate, HourlyAggregate>chunk(chunkSize, transactionManager)
+                .reader(hourlyAggregateReader)
+                .writer(new HourlyAggregateWriter(jdbc))
+                .build();
+    }
+
+    @Bean
+    public Step rawRetentionStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                 RawRetentionTasklet rawRetentionTasklet) {
+        return new StepBuilder("rawRetention", jobRepository)
+                .tasklet(rawRetentionTasklet, transactionManager)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public DeviceRangePartitioner deviceRangePartitioner(JdbcTemplate jdbc,
+                                                         @Value("#{jobParameters['until']}") Long until,
+                                                         @Value("${gpustatix.compaction.partition-hours:24}") int partitionHours,
+                                                         @Value("${gpustatix.compaction.raw-retention-hours:168}") long retentionHours) {
+        // Поздние строки проверяем только в часах, которые переживут удаление по сроку хранения
+        long recheckFrom = until - retentionHours * HourlyAggregateReader.HOUR_MILLIS;
+        return new DeviceRangePartitioner(jdbc, until, recheckFrom, partitionHours);
+    }
+
+    @Bean
+    @StepScope
+    public HourlyAggregateReader hourlyAggregateReader(JdbcTemplate jdbc,
+                                                       @Value("#{stepExecutionContext['device']}") Integer device,
+                                                       @Value("#{stepExecutionContext['from']}") Long from,
+                                                       @Value("#{stepExecutionContext['to']}") Long to) {
+        return new HourlyAggregateReader(jdbc, device, from, to);
+    }
+
+    @Bean
+    @StepScope
+    public RawRetentionTasklet rawRetentionTasklet(JdbcTemplate jdbc,
+                                                   @Value("#{jobParameters['until']}") Long until,
+                                                   @Value("${gpustatix.compaction.raw-retention-hours:168}") long retentionHours,
+                                                   @Value("${gpustatix.compaction.archive:false}") boolean archive) {
+        // Сырые строки удаляются только из уже агрегированного диапазона, см. журнал в gpu_sample_compacted
+        long cutoff = until - retentionHours * HourlyAggregateReader.HOUR_MILLIS;
+        return new RawRetentionTasklet(jdbc, cutoff, archive);
+    }
+}
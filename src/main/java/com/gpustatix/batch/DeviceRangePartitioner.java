@@ -0,0 +1,107 @@
+package com.gpustatix.batch;
+
+import com.gpustatix.db.JdbcSampleSink;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the not yet compacted raw data into one partition per device and time range.
+ * A device continues after the last hour in the compaction ledger (or at its oldest raw row) and
+ * ends at {@code until}, which is aligned to a whole hour so that only complete hours are compacted.
+ * Hours from {@code recheckFrom} on whose raw row count no longer matches the ledger received late
+ * rows after they were compacted and get partitions of their own.
+ */
+public class DeviceRangePartitioner implements Partitioner {
+    public static final String DEVICE = "device";
+    public static final String FROM = "from";
+    public static final String TO = "to";
+
+    private static final String LATE_HOURS_SQL = "SELECT r.hour_ts FROM (SELECT hour_ts, COUNT(*) AS raw_rows"
+            + " FROM (SELECT ts - MOD(ts, " + HourlyAggregateReader.HOUR_MILLIS + ") AS hour_ts FROM "
+            + JdbcSampleSink.TABLE + " WHERE device = ? AND ts >= ? AND ts < ?) h GROUP BY hour_ts) r"
+            + " LEFT JOIN " + HourlyAggregateWriter.LEDGER_TABLE + " c ON c.device = ? AND c.hour_ts = r.hour_ts"
+            + " WHERE c.raw_rows IS NULL OR c.raw_rows <> r.raw_rows ORDER BY r.hour_ts";
+
+    private final JdbcTemplate jdbc;
+    private final long until;
+    private final long recheckFrom;
+    private final long partitionMillis;
+
+    /**
+     * @param recheckFrom start of the hours compared against the ledger; raw rows before it are
+     *                    about to be removed by retention and are not aggregated again
+     */
+    public DeviceRangePartitioner(JdbcTemplate jdbc, long until, long recheckFrom, int partitionHours) {
+        this.jdbc = jdbc;
+        this.until = until;
+        this.recheckFrom = recheckFrom;
+        this.partitionMillis = Math.max(1, partitionHours) * HourlyAggregateReader.HOUR_MILLIS;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        List<Integer> devices = jdbc.queryForList(
+                "SELECT DISTINCT device FROM " + JdbcSampleSink.TABLE + " WHERE ts < ?", Integer.class, until);
+        for (int device : devices) {
+            Long start = jdbc.queryForObject(
+                    "SELECT MAX(hour_ts) FROM " + HourlyAggregateWriter.LEDGER_TABLE + " WHERE device = ?",
+                    Long.class, device);
+            if (start != null) {
+                start += HourlyAggregateReader.HOUR_MILLIS;
+                addLateHours(partitions, device, start);
+            } else {
+                start = jdbc.queryForObject(
+                        "SELECT MIN(ts) FROM " + JdbcSampleSink.TABLE + " WHERE device = ?", Long.class, device);
+                if (start == null) {
+                    continue;
+                }
+                start -= Math.floorMod(start, HourlyAggregateReader.HOUR_MILLIS);
+            }
+
+            for (long from = start; from < until; from += partitionMillis) {
+                addPartition(partitions, "device" + device + "-" + from, device, from,
+                        Math.min(from + partitionMillis, until));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Adds partitions for the compacted hours before {@code compactedUntil} that changed since,
+     * merging adjacent hours up to the partition width
+     */
+    private void addLateHours(Map<String, ExecutionContext> partitions, int device, long compactedUntil) {
+        List<Long> hours = jdbc.queryForList(LATE_HOURS_SQL, Long.class, device, recheckFrom, compactedUntil, device);
+        long from = -1;
+        long to = -1;
+        for (long hour : hours) {
+            if (from >= 0 && hour == to && to - from < partitionMillis) {
+                to += HourlyAggregateReader.HOUR_MILLIS;
+                continue;
+            }
+            if (from >= 0) {
+                addPartition(partitions, "device" + device + "-late-" + from, device, from, to);
+            }
+            from = hour;
+            to = hour + HourlyAggregateReader.HOUR_MILLIS;
+        }
+        if (from >= 0) {
+            addPartition(partitions, "device" + device + "-late-" + from, device, from, to);
+        }
+    }
+
+    private static void addPartition(Map<String, ExecutionContext> partitions, String name, int device,
+                                     long from, long to) {
+        ExecutionContext context = new ExecutionContext();
+        context.putInt(DEVICE, device);
+        context.putLong(FROM, from);
+        context.putLong(TO, to);
+        partitions.put(name, context);
+    }
+}
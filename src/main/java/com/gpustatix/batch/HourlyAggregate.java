@@ -0,0 +1,73 @@
+package com.gpustatix.batch;
+
+import com.gpustatix.history.Metric;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of one device over one hour, one entry per {@link Metric} (NaN if the metric had no values)
+ */
+public class HourlyAggregate {
+    private final int device;
+    private final long hourStart;
+    private final int samples;
+    private final float[] min = new float[Metric.count()];
+    private final float[] max = new float[Metric.count()];
+    private final float[] avg = new float[Metric.count()];
+    private final float[] p95 = new float[Metric.count()];
+    private final int[] counts = new int[Metric.count()];
+
+    public HourlyAggregate(int device, long hourStart, int samples) {
+        this.device = device;
+        this.hourStart = hourStart;
+        this.samples = samples;
+        Arrays.fill(min, Float.NaN);
+        Arrays.fill(max, Float.NaN);
+        Arrays.fill(avg, Float.NaN);
+        Arrays.fill(p95, Float.NaN);
+    }
+
+    void set(Metric metric, int count, float minValue, float maxValue, float avgValue, float p95Value) {
+        int m = metric.ordinal();
+        counts[m] = count;
+        min[m] = minValue;
+        max[m] = maxValue;
+        avg[m] = avgValue;
+        p95[m] = p95Value;
+    }
+
+    public int getDevice() {
+        return device;
+    }
+
+    public long getHourStart() {
+        return hourStart;
+    }
+
+    /**
+     * @return raw rows in the hour; 0 for an hour without data, which is not written
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    public int getCount(Metric metric) {
+        return counts[metric.ordinal()];
+    }
+
+    public float getMin(Metric metric) {
+        return min[metric.ordinal()];
+    }
+
+    public float getMax(Metric metric) {
+        return max[metric.ordinal()];
+    }
+
+    public float getAvg(Metric metric) {
+        return avg[metric.ordinal()];
+    }
+
+    public float getP95(Metric metric) {
+        return p95[metric.ordinal()];
+    }
+}
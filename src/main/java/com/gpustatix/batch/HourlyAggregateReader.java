@@ -0,0 +1,105 @@
+package com.gpustatix.batch;
+
+import com.gpustatix.db.JdbcSampleSink;
+import com.gpustatix.history.Metric;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Reads the raw rows of one device in [from, to) hour by hour and turns each hour into an
+ * {@link HourlyAggregate}. Item n is always hour n of the range (empty hours included),
+ * so a restart jumps straight to the first hour after the last committed chunk.
+ */
+public class HourlyAggregateReader extends AbstractItemCountingItemStreamItemReader<HourlyAggregate> {
+    static final long HOUR_MILLIS = 3_600_000L;
+
+    private final JdbcTemplate jdbc;
+    private final int device;
+    private final long from;
+    private final String sql;
+    // Значения текущего часа по метрикам, переиспользуются между часами
+    private final float[][] values = new float[Metric.count()][];
+    private final int[] counts = new int[Metric.count()];
+
+    public HourlyAggregateReader(JdbcTemplate jdbc, int device, long from, long to) {
+        this.jdbc = jdbc;
+        this.device = device;
+        this.from = from;
+        setName("hourlyAggregateReader");
+        setMaxItemCount((int) ((to - from + HOUR_MILLIS - 1) / HOUR_MILLIS));
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (Metric metric : Metric.values()) {
+            select.append(metric.ordinal() == 0 ? "" : ", ").append(metric.getKey());
+        }
+        select.append(" FROM ").append(JdbcSampleSink.TABLE).append(" WHERE device = ? AND ts >= ? AND ts < ?");
+        this.sql = select.toString();
+        for (int m = 0; m < values.length; m++) {
+            values[m] = new float[4096];
+        }
+    }
+
+    @Override
+    protected void doOpen() {
+    }
+
+    @Override
+    protected HourlyAggregate doRead() {
+        // read() уже увеличил счётчик
+        long hourStart = from + (getCurrentItemCount() - 1) * HOUR_MILLIS;
+        Arrays.fill(counts, 0);
+        int[] rows = new int[1];
+        jdbc.query(sql, (RowCallbackHandler) rs -> {
+            rows[0]++;
+            collect(rs);
+        }, device, hourStart, hourStart + HOUR_MILLIS);
+
+        HourlyAggregate aggregate = new HourlyAggregate(device, hourStart, rows[0]);
+        for (Metric metric : Metric.values()) {
+            int m = metric.ordinal();
+            int n = counts[m];
+            if (n == 0) {
+                continue;
+            }
+            float[] v = values[m];
+            Arrays.sort(v, 0, n);
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += v[i];
+            }
+            // p95 по ближайшему рангу
+            int rank = (int) Math.ceil(0.95 * n) - 1;
+            aggregate.set(metric, n, v[0], v[n - 1], (float) (sum / n), v[Math.max(0, rank)]);
+        }
+        return aggregate;
+    }
+
+    private void collect(ResultSet rs) throws SQLException {
+        for (int m = 0; m < values.length; m++) {
+            float value = rs.getFloat(m + 1);
+            if (rs.wasNull() || Float.isNaN(value)) {
+                continue;
+            }
+            if (counts[m] == values[m].length) {
+                values[m] = Arrays.copyOf(values[m], values[m].length * 2);
+            }
+            values[m][counts[m]++] = value;
+        }
+    }
+
+    /**
+     * Items are addressed by hour index, nothing has to be re-read to skip them
+     */
+    @Override
+    protected void jumpToItem(int itemIndex) {
+    }
+
+    @Override
+    protected void doClose() {
+    }
+}
@@ -0,0 +1,77 @@
+package com.gpustatix.batch;
+
+import com.gpustatix.history.Metric;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the hourly rows of each aggregated (device, hour), so re-running a chunk after a
+ * failure does not duplicate them. One row per metric in {@value #TABLE}.
+ * The number of raw rows each hour was built from goes to the ledger {@value #LEDGER_TABLE}
+ * in the same transaction; raw rows that arrive later for that hour change the count and make
+ * the next run aggregate it again.
+ */
+public class HourlyAggregateWriter implements ItemWriter<HourlyAggregate> {
+    public static final String TABLE = "gpu_sample_hourly";
+    public static final String LEDGER_TABLE = "gpu_sample_compacted";
+
+    private static final String DELETE_SQL = "DELETE FROM " + TABLE + " WHERE device = ? AND hour_ts = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE
+            + " (device, hour_ts, metric, samples, min_value, max_value, avg_value, p95_value)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LEDGER_DELETE_SQL = "DELETE FROM " + LEDGER_TABLE
+            + " WHERE device = ? AND hour_ts = ?";
+    private static final String LEDGER_INSERT_SQL = "INSERT INTO " + LEDGER_TABLE
+            + " (device, hour_ts, raw_rows) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+
+    public HourlyAggregateWriter(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    static String[] schemaSql() {
+        return new String[]{
+                "CREATE TABLE IF NOT EXISTS " + TABLE + " (device SMALLINT NOT NULL, hour_ts BIGINT NOT NULL,"
+                        + " metric VARCHAR(32) NOT NULL, samples INTEGER NOT NULL, min_value REAL,"
+                        + " max_value REAL, avg_value REAL, p95_value REAL,"
+                        + " PRIMARY KEY (device, hour_ts, metric))",
+                "CREATE INDEX IF NOT EXISTS " + TABLE + "_metric_hour ON " + TABLE + " (metric, hour_ts)",
+                "CREATE TABLE IF NOT EXISTS " + LEDGER_TABLE + " (device SMALLINT NOT NULL,"
+                        + " hour_ts BIGINT NOT NULL, raw_rows INTEGER NOT NULL, PRIMARY KEY (device, hour_ts))"
+        };
+    }
+
+    @Override
+    public void write(Chunk<? extends HourlyAggregate> chunk) {
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> ledger = new ArrayList<>();
+        for (HourlyAggregate aggregate : chunk) {
+            if (aggregate.getSamples() == 0) {
+                continue;
+            }
+            deletes.add(new Object[]{aggregate.getDevice(), aggregate.getHourStart()});
+            ledger.add(new Object[]{aggregate.getDevice(), aggregate.getHourStart(), aggregate.getSamples()});
+            for (Metric metric : Metric.values()) {
+                int count = aggregate.getCount(metric);
+                if (count == 0) {
+                    continue;
+                }
+                inserts.add(new Object[]{aggregate.getDevice(), aggregate.getHourStart(), metric.getKey(), count,
+                        aggregate.getMin(metric), aggregate.getMax(metric),
+                        aggregate.getAvg(metric), aggregate.getP95(metric)});
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbc.batchUpdate(DELETE_SQL, deletes);
+            jdbc.batchUpdate(INSERT_SQL, inserts);
+            jdbc.batchUpdate(LEDGER_DELETE_SQL, deletes);
+            jdbc.batchUpdate(LEDGER_INSERT_SQL, ledger);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.gpustatix.batch;
+
+import com.gpustatix.db.JdbcSampleSink;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Removes compacted raw rows older than the retention window, optionally copying them to
+ * {@value #ARCHIVE_TABLE} first. Each device is cut at the retention cutoff or at the end of
+ * its last hour in the compaction ledger, whichever is earlier, so rows that were never
+ * aggregated are kept. Works in slices of a few hours of one device, one transaction each,
+ * so a restart simply continues with the oldest remaining slice.
+ */
+public class RawRetentionTasklet implements Tasklet {
+    public static final String ARCHIVE_TABLE = "gpu_sample_archive";
+    private static final int SLICE_HOURS = 6;
+
+    private final JdbcTemplate jdbc;
+    private final long cutoff;
+    private final boolean archive;
+
+    /**
+     * @param cutoff rows with ts < cutoff are removed, but never past a device's compaction watermark
+     */
+    public RawRetentionTasklet(JdbcTemplate jdbc, long cutoff, boolean archive) {
+        this.jdbc = jdbc;
+        this.cutoff = cutoff;
+        this.archive = archive;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        List<Integer> devices = jdbc.queryForList(
+                "SELECT DISTINCT device FROM " + JdbcSampleSink.TABLE + " WHERE ts < ?", Integer.class, cutoff);
+        for (int device : devices) {
+            Long compacted = jdbc.queryForObject(
+                    "SELECT MAX(hour_ts) FROM " + HourlyAggregateWriter.LEDGER_TABLE + " WHERE device = ?",
+                    Long.class, device);
+            if (compacted == null) {
+                continue;
+            }
+            long limit = Math.min(cutoff, compacted + HourlyAggregateReader.HOUR_MILLIS);
+            Long oldest = jdbc.queryForObject(
+                    "SELECT MIN(ts) FROM " + JdbcSampleSink.TABLE + " WHERE device = ? AND ts < ?",
+                    Long.class, device, limit);
+            if (oldest == null) {
+                continue;
+            }
+            long sliceEnd = Math.min(limit, oldest - Math.floorMod(oldest, HourlyAggregateReader.HOUR_MILLIS)
+                    + SLICE_HOURS * HourlyAggregateReader.HOUR_MILLIS);
+            if (archive) {
+                jdbc.update("INSERT INTO " + ARCHIVE_TABLE + " SELECT * FROM " + JdbcSampleSink.TABLE
+                        + " WHERE device = ? AND ts < ?", device, sliceEnd);
+            }
+            int deleted = jdbc.update("DELETE FROM " + JdbcSampleSink.TABLE + " WHERE device = ? AND ts < ?",
+                    device, sliceEnd);
+            contribution.incrementWriteCount(deleted);
+            // Следующий вызов снова ищет самый старый срез - так рестарт продолжает с того же места
+            return RepeatStatus.CONTINUABLE;
+        }
+        return RepeatStatus.FINISHED;
+    }
+}
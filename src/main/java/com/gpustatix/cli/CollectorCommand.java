@@ -0,0 +1,68 @@
+package com.gpustatix.cli;
+
+import com.gpustatix.fleet.FleetCollector;
+import com.gpustatix.utils.ConfigLoader;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the fleet collector without the GUI or a local sampler
+ */
+public class CollectorCommand {
+
+    private CollectorCommand() {
+    }
+
+    /**
+     * Entry point for --collector
+     * Options: --port N (agent port, default fleet.port), --http-port N (default fleet.http.port),
+     * --threads N (selector threads, default fleet.threads)
+     */
+    public static void run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        String bind = ConfigLoader.getString("fleet.bind", "0.0.0.0");
+        int port = ConfigLoader.getInt("fleet.port", 9881);
+        int httpPort = ConfigLoader.getInt("fleet.http.port", 9882);
+        int threads = ConfigLoader.getInt("fleet.threads", 2);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--collector" -> { }
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--http-port" -> httpPort = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> System.err.println("Unknown option: " + args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid collector arguments: " + e.getMessage());
+            System.exit(2);
+        }
+
+        FleetCollector collector;
+        try {
+            collector = new FleetCollector(new InetSocketAddress(bind, port), new InetSocketAddress(bind, httpPort),
+                    threads, ConfigLoader.getLong("fleet.stale.ms", 10_000), ConfigLoader.getInt("fleet.top", 10));
+        } catch (IOException e) {
+            System.err.println("Cannot start fleet collector: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.err.println("Collecting from agents on port " + port + ", aggregates on http://" + bind + ":"
+                + collector.getHttpAddress().getPort() + "/fleet");
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            collector.close();
+            stopped.countDown();
+        }));
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
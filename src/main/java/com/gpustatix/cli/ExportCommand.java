@@ -0,0 +1,127 @@
+package com.gpustatix.cli;
+
+import com.gpustatix.export.ExportFormat;
+import com.gpustatix.export.SampleExporter;
+import com.gpustatix.history.HistoryQueryEngine;
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.MetricAccumulator;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.SampleLog;
+import com.gpustatix.utils.ConfigLoader;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Exports recorded samples from the sample log without starting the GUI
+ */
+public class ExportCommand {
+
+    private ExportCommand() {
+    }
+
+    /**
+     * Entry point for --export
+     * Options: --format csv|ndjson|columnar (default csv), --from T, --to T (default: last 24 hours),
+     * --device N (-1 = host, default all), --out FILE, --log-dir DIR (default log.dir),
+     * --summary METRIC (count/min/avg/max of one metric per device instead of the rows, to --out or stdout)
+     * T is epoch milliseconds, an ISO instant (2024-01-31T10:00:00Z) or local date[-time]
+     */
+    public static void run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        ExportFormat format = ExportFormat.CSV;
+        long to = System.currentTimeMillis();
+        long from = to - 24 * 3_600_000L;
+        int device = SampleExporter.ALL_DEVICES;
+        String out = null;
+        Metric summary = null;
+        Path logDir = Paths.get(ConfigLoader.getString("log.dir", "data/log"));
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--export" -> { }
+                    case "--format" -> format = ExportFormat.parse(args[++i]);
+                    case "--from" -> from = parseTime(args[++i]);
+                    case "--to" -> to = parseTime(args[++i]);
+                    case "--device" -> device = Integer.parseInt(args[++i]);
+                    case "--out" -> out = args[++i];
+                    case "--log-dir" -> logDir = Paths.get(args[++i]);
+                    case "--summary" -> summary = Metric.byKey(args[++i]);
+                    default -> System.err.println("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid export arguments: " + e.getMessage());
+            System.exit(2);
+        }
+        if (summary != null) {
+            try (SampleLog log = SampleLog.openReadOnly(logDir);
+                 Writer writer = out != null ? Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)
+                         : new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+                writeSummary(new HistoryQueryEngine(log), summary, from, to, device, writer);
+            } catch (Exception e) {
+                System.err.println("Summary failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        Path target = Paths.get(out != null ? out : "gpustatix-export." + format.getExtension());
+
+        long started = System.nanoTime();
+        try (SampleLog log = SampleLog.openReadOnly(logDir)) {
+            long rows = new SampleExporter(log, format, device).export(from, to, target);
+            System.err.printf("Exported %d rows to %s in %d ms%n",
+                    rows, target, (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * CSV with one line per device that has values: device,count,min,avg,max (device -1 = host)
+     */
+    static void writeSummary(HistoryQueryEngine engine, Metric metric, long from, long to, int device,
+                             Writer writer) throws IOException {
+        MetricAccumulator result = device == SampleExporter.ALL_DEVICES
+                ? engine.aggregate(metric, from, to)
+                : engine.aggregate(metric, from, to, device);
+        StringBuilder line = new StringBuilder("device,count,min,avg,max\n");
+        for (int d = MetricStore.HOST; d < MetricAccumulator.SLOTS - 2; d++) {
+            if (result.getCount(d) == 0) {
+                continue;
+            }
+            line.append(d).append(',').append(result.getCount(d))
+                    .append(',').append(result.getMin(d))
+                    .append(',').append(Math.round(result.getAverage(d) * 100) / 100.0)
+                    .append(',').append(result.getMax(d)).append('\n');
+        }
+        writer.write(line.toString());
+        writer.flush();
+    }
+
+    static long parseTime(String value) {
+        if (value.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(value);
+        }
+        if (value.endsWith("Z") || value.contains("+")) {
+            return Instant.parse(value).toEpochMilli();
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        if (value.contains("T")) {
+            return LocalDateTime.parse(value).atZone(zone).toInstant().toEpochMilli();
+        }
+        return LocalDate.parse(value).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,527 @@
+package com.gpustatix.cli;
+
+import com.gpustatix.alert.AlertEngine;
+import com.gpustatix.alert.AnomalyDetector;
+import com.gpustatix.alert.RuleParser;
+import com.gpustatix.db.JdbcSampleSink;
+import com.gpustatix.export.SharedMemoryWriter;
+import com.gpustatix.fleet.FleetAgent;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.RollupStore;
+import com.gpustatix.history.SampleLog;
+import com.gpustatix.history.TelemetryRecording;
+import com.gpustatix.net.ControlServer;
+import com.gpustatix.net.LiveFeedServer;
+import com.gpustatix.net.PrometheusEndpoint;
+import com.gpustatix.net.UdpMetricsEmitter;
+import com.gpustatix.net.UnixStreamServer;
+import com.gpustatix.replay.ReplayGpuBackend;
+import com.gpustatix.replay.ReplaySampler;
+import com.gpustatix.replay.SessionReader;
+import com.gpustatix.replay.SessionRecorder;
+import com.gpustatix.utils.ActuatorQueue;
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GPUSettings;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuBackends;
+import com.gpustatix.utils.GpuSampler;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.GpuTopology;
+import com.gpustatix.utils.HostSampler;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleJson;
+import com.gpustatix.utils.SampleListener;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Headless monitor: prints samples to stdout as dmon-style columns or NDJSON.
+ * Never touches AWT, so it runs on servers without a display.
+ */
+public class HeadlessMonitor implements SampleListener {
+    public enum Format { DMON, JSON }
+
+    private static final int HEADER_EVERY = 20;
+    // gpu temp util memMB totMB sclk mclk pwrW fan rpm
+    private static final int[] GPU_COLUMN_WIDTHS = {5, 6, 6, 7, 7, 6, 6, 7, 5, 6};
+
+    private final Writer out;
+    private final Format format;
+    private final String[] deviceNames;
+    // Reused for every row
+    private final StringBuilder line = new StringBuilder(512);
+    private final long maxSamples;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private long samples;
+
+    public HeadlessMonitor(Writer out, Format format, String[] deviceNames, long maxSamples) {
+        this.out = out;
+        this.format = format;
+        this.deviceNames = deviceNames;
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Entry point for --headless
+     * Options: --interval MS (default 1000), --format dmon|json, --count N (0 = endless),
+     * --jdbc (also store samples in the database configured by db.* keys),
+     * --record (also append samples to the sample log, see --export),
+     * --telemetry (also keep the compressed long-term recording in recording.dir),
+     * --record-session FILE (record the raw stream for --replay),
+     * --replay FILE [--speed 1|4x|max] (play a recorded session instead of polling, ends with it),
+     * --metrics (serve /metrics for Prometheus on metrics.bind:metrics.port),
+     * --udp (push samples to the StatsD/InfluxDB agent configured by udp.* keys),
+     * --uds (stream samples to local clients on the Unix socket uds.path),
+     * --shm (publish the latest values in the shared memory file shm.path),
+     * --sse (serve a live browser page and Server-Sent Events on sse.bind:sse.port),
+     * --control (accept setting changes over the local HTTP API on control.bind:control.port),
+     * --history (keep history.capacity samples of every metric in memory, served on /history with --control),
+     * --fleet HOST:PORT [--fleet-name NAME] (stream samples to a fleet collector, see --collector),
+     * --alerts (evaluate the alert rules from alerts.file on every sample),
+     * --anomaly (report drifting temperatures, fans and power against their learned baseline)
+     */
+    public static void run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        int intervalMs = 1000;
+        Format format = Format.DMON;
+        long count = 0;
+        boolean jdbc = false;
+        boolean record = false;
+        boolean telemetry = false;
+        boolean metrics = false;
+        boolean udp = false;
+        boolean uds = false;
+        boolean shm = false;
+        boolean sse = false;
+        boolean control = false;
+        boolean alerts = false;
+        boolean anomaly = false;
+        boolean keepHistory = false;
+        String fleetAddress = ConfigLoader.getString("fleet.collector", "");
+        String fleetName = ConfigLoader.getString("fleet.name", "");
+        String sessionFile = null;
+        String replayFile = null;
+        double speed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--headless" -> { }
+                case "--interval" -> intervalMs = Integer.parseInt(args[++i]);
+                case "--format" -> format = args[++i].equalsIgnoreCase("json") ? Format.JSON : Format.DMON;
+                case "--count" -> count = Long.parseLong(args[++i]);
+                case "--jdbc" -> jdbc = true;
+                case "--record" -> record = true;
+                case "--telemetry" -> telemetry = true;
+                case "--metrics" -> metrics = true;
+                case "--udp" -> udp = true;
+                case "--uds" -> uds = true;
+                case "--shm" -> shm = true;
+                case "--sse" -> sse = true;
+                case "--control" -> control = true;
+                case "--alerts" -> alerts = true;
+                case "--anomaly" -> anomaly = true;
+                case "--history" -> keepHistory = true;
+                case "--fleet" -> fleetAddress = args[++i];
+                case "--fleet-name" -> fleetName = args[++i];
+                case "--record-session" -> sessionFile = args[++i];
+                case "--replay" -> replayFile = args[++i];
+                case "--speed" -> speed = ReplaySampler.parseSpeed(args[++i]);
+                default -> System.err.println("Unknown option: " + args[i]);
+            }
+        }
+        if (intervalMs < 10) {
+            System.err.println("Interval must be at least 10 ms");
+            intervalMs = 10;
+        }
+
+        ReplaySampler replay = null;
+        if (replayFile != null) {
+            try {
+                SessionReader reader = new SessionReader(Paths.get(replayFile));
+                replay = new ReplaySampler(reader, new ReplayGpuBackend(reader), speed);
+            } catch (IOException e) {
+                System.err.println("Cannot replay session: " + e.getMessage());
+                return;
+            }
+        }
+        GpuBackend backend = replay != null ? replay.getBackend() : GpuBackends.detect(GpuTopology.getSystem());
+        String[] names = new String[backend.getDeviceCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = backend.getDeviceName(i);
+        }
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 16 * 1024);
+        HeadlessMonitor monitor = new HeadlessMonitor(out, format, names, count);
+
+        GpuSampler sampler = replay != null ? replay : new GpuSampler(backend, new HostSampler(), intervalMs);
+        if (replay != null) {
+            replay.setOnFinished(monitor::finish);
+        }
+        sampler.addListener(monitor);
+        // Закрывается один раз, в порядке добавления: сначала источник выборок, затем выходы
+        List<AutoCloseable> outputs = new ArrayList<>();
+        outputs.add(sampler);
+        outputs.add(backend);
+        outputs.add(monitor::flushQuietly);
+        JdbcSampleSink sink = jdbc ? openSink() : null;
+        addOutput(sampler, outputs, sink);
+        SampleLog log = record ? openLog() : null;
+        addOutput(sampler, outputs, log);
+        TelemetryRecording recording = telemetry ? openRecording() : null;
+        addOutput(sampler, outputs, recording);
+        SessionRecorder session = sessionFile != null ? openSession(sessionFile, backend, intervalMs) : null;
+        addOutput(sampler, outputs, session);
+        PrometheusEndpoint endpoint = metrics ? openMetrics(backend) : null;
+        addOutput(sampler, outputs, endpoint);
+        UdpMetricsEmitter emitter = udp ? openUdp(backend) : null;
+        addOutput(sampler, outputs, emitter);
+        UnixStreamServer stream = uds ? openStream(backend) : null;
+        addOutput(sampler, outputs, stream);
+        SharedMemoryWriter shared = shm ? openSharedMemory(backend) : null;
+        addOutput(sampler, outputs, shared);
+        LiveFeedServer feed = sse ? openFeed(backend) : null;
+        addOutput(sampler, outputs, feed);
+        FleetAgent agent = fleetAddress.isEmpty() ? null : openAgent(backend, fleetAddress, fleetName);
+        addOutput(sampler, outputs, agent);
+        RollupStore history = keepHistory ? openHistory(backend.getDeviceCount()) : null;
+        if (history != null) {
+            sampler.addListener(history);
+        }
+        GPUSettings settings = null;
+        if (control && replay != null) {
+            System.err.println("Control API is not available while replaying");
+        } else if (control) {
+            // Без инициализации вентилятора: headless-режим меняет только то, что прислали в API
+            settings = GPUSettings.withoutFanInitialization();
+            ActuatorQueue actuators = new ActuatorQueue(settings);
+            ControlServer controlServer = openControl(actuators, history);
+            // API, затем очередь: уже принятые изменения успевают примениться,
+            // после чего вентилятор, выставленный через API, возвращается в автоматический режим
+            if (controlServer != null) {
+                outputs.add(controlServer);
+            }
+            outputs.add(actuators);
+            outputs.add(settings::shutdown);
+        }
+        AlertEngine alertEngine = alerts ? openAlerts(backend) : null;
+        if (alertEngine != null) {
+            // fan_command известен, только когда настройки меняются через --control
+            if (settings != null) {
+                settings.addActuatorListener(alertEngine);
+            }
+            addOutput(sampler, outputs, alertEngine);
+        }
+        if (anomaly) {
+            sampler.addListener(new AnomalyDetector(backend.getDeviceCount()));
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> closeOnce(outputs, closed)));
+        sampler.start();
+        monitor.awaitDone();
+        closeOnce(outputs, closed);
+        if (sink != null && sink.getDroppedCount() > 0) {
+            System.err.println("Database sink dropped " + sink.getDroppedCount() + " rows");
+        }
+        if (recording != null && recording.getDroppedCount() > 0) {
+            System.err.println("Telemetry recording dropped " + recording.getDroppedCount() + " samples");
+        }
+        if (emitter != null && emitter.getDroppedCount() > 0) {
+            System.err.println("UDP emitter dropped " + emitter.getDroppedCount() + " datagrams");
+        }
+        if (alertEngine != null && alertEngine.getDroppedCount() > 0) {
+            System.err.println("Alert engine dropped " + alertEngine.getDroppedCount() + " events");
+        }
+    }
+
+    private static <T extends SampleListener & AutoCloseable> void addOutput(GpuSampler sampler,
+                                                                              List<AutoCloseable> outputs, T output) {
+        if (output != null) {
+            sampler.addListener(output);
+            outputs.add(output);
+        }
+    }
+
+    /**
+     * Closes the outputs in order unless the other exit path already did; the shutdown hook
+     * waits here while the normal exit is still closing them
+     */
+    private static void closeOnce(List<AutoCloseable> outputs, AtomicBoolean closed) {
+        synchronized (outputs) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            for (AutoCloseable output : outputs) {
+                try {
+                    output.close();
+                } catch (Exception e) {
+                    System.err.println("Error while closing " + output + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static AlertEngine openAlerts(GpuBackend backend) {
+        try {
+            AlertEngine engine = new AlertEngine(RuleParser.fromConfig(), backend.getDeviceCount());
+            System.err.println("Evaluating " + engine.getRules().size() + " alert rules");
+            return engine;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Alerts disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static FleetAgent openAgent(GpuBackend backend, String address, String name) {
+        try {
+            return new FleetAgent(backend, FleetAgent.parseAddress(address), name);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Fleet agent disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static RollupStore openHistory(int deviceCount) {
+        RollupStore history = new RollupStore(new MetricStore(deviceCount));
+        System.err.printf("In-memory history: %d samples per metric plus rollups, %.1f MB%n",
+                ConfigLoader.getInt("history.capacity", MetricStore.DEFAULT_CAPACITY),
+                history.getMemoryBytes() / (1024.0 * 1024));
+        return history;
+    }
+
+    private static ControlServer openControl(ActuatorQueue actuators, RollupStore history) {
+        try {
+            ControlServer server = new ControlServer(actuators, history);
+            System.err.println("Control API on http://" + server.getAddress().getHostString() + ":"
+                    + server.getAddress().getPort() + "/settings");
+            return server;
+        } catch (IOException e) {
+            System.err.println("Control API disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static LiveFeedServer openFeed(GpuBackend backend) {
+        try {
+            LiveFeedServer feed = new LiveFeedServer(backend);
+            System.err.println("Live view on http://" + feed.getAddress().getHostString() + ":"
+                    + feed.getAddress().getPort() + "/");
+            return feed;
+        } catch (IOException e) {
+            System.err.println("Live feed disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static SharedMemoryWriter openSharedMemory(GpuBackend backend) {
+        try {
+            return new SharedMemoryWriter(backend);
+        } catch (IOException e) {
+            System.err.println("Shared memory export disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static UnixStreamServer openStream(GpuBackend backend) {
+        try {
+            return new UnixStreamServer(backend);
+        } catch (IOException e) {
+            System.err.println("Unix socket stream disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static UdpMetricsEmitter openUdp(GpuBackend backend) {
+        try {
+            return new UdpMetricsEmitter(backend);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("UDP metrics disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static PrometheusEndpoint openMetrics(GpuBackend backend) {
+        try {
+            PrometheusEndpoint endpoint = new PrometheusEndpoint(backend);
+            System.err.println("Serving metrics on http://" + endpoint.getAddress().getHostString() + ":"
+                    + endpoint.getAddress().getPort() + "/metrics");
+            return endpoint;
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static SessionRecorder openSession(String file, GpuBackend backend, int intervalMs) {
+        try {
+            return new SessionRecorder(Paths.get(file), backend, intervalMs);
+        } catch (IOException e) {
+            System.err.println("Session recording disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static JdbcSampleSink openSink() {
+        try {
+            return new JdbcSampleSink();
+        } catch (IllegalStateException e) {
+            System.err.println("Database sink disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static SampleLog openLog() {
+        try {
+            return new SampleLog();
+        } catch (IOException e) {
+            System.err.println("Sample log disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static TelemetryRecording openRecording() {
+        try {
+            TelemetryRecording recording = new TelemetryRecording();
+            System.err.println("Recording telemetry to " + recording.getDirectory());
+            return recording;
+        } catch (IOException e) {
+            System.err.println("Telemetry recording disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        if (done.getCount() == 0) {
+            return;
+        }
+        try {
+            if (format == Format.JSON) {
+                writeJson(host, gpus);
+            } else {
+                if (samples % HEADER_EVERY == 0) {
+                    writeHeader();
+                }
+                writeColumns(host, gpus);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // stdout закрыт (например, конец пайпа) - завершаемся
+            done.countDown();
+            return;
+        }
+        samples++;
+        if (maxSamples > 0 && samples >= maxSamples) {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Ends the run early, e.g. when a replayed session is over
+     */
+    void finish() {
+        done.countDown();
+    }
+
+    public void awaitDone() {
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (samples == 0) {
+            for (int i = 0; i < deviceNames.length; i++) {
+                out.append("# gpu").append(String.valueOf(i)).append(": ").append(deviceNames[i]).append('\n');
+            }
+        }
+        out.append("# gpu  temp  util  memMB  totMB  sclk  mclk   pwrW  fan   rpm  cpu%  cpuMHz  cpuC  ramMB\n");
+    }
+
+    private void writeColumns(HostSnapshot host, List<GpuSnapshot> gpus) throws IOException {
+        if (gpus.isEmpty()) {
+            line.setLength(0);
+            for (int width : GPU_COLUMN_WIDTHS) {
+                pad("-", width);
+            }
+            appendHost(host);
+            out.append(line);
+            return;
+        }
+        for (GpuSnapshot gpu : gpus) {
+            line.setLength(0);
+            pad(gpu.getDeviceIndex(), 5);
+            pad(gpu.getTemperature(), 6);
+            pad(gpu.getUtilization(), 6);
+            pad(gpu.getMemoryUsedMb(), 7);
+            pad(gpu.getMemoryTotalMb(), 7);
+            pad(gpu.getCoreClock(), 6);
+            pad(gpu.getMemoryClock(), 6);
+            pad(Math.round(gpu.getPowerUsage()), 7);
+            pad(gpu.getFanSpeed(), 5);
+            pad(gpu.getFanRpm(), 6);
+            appendHost(host);
+            out.append(line);
+        }
+    }
+
+    private void appendHost(HostSnapshot host) {
+        pad(Math.round(host.getCpuLoad()), 6);
+        pad(host.getCpuFrequency(), 8);
+        pad(host.getCpuTemperature(), 6);
+        pad(host.getRamUsedMb(), 7);
+        line.append('\n');
+    }
+
+    /**
+     * Right-aligns a number, -1 is printed as '-' like nvidia-smi dmon does
+     */
+    private void pad(long value, int width) {
+        if (value < 0) {
+            pad("-", width);
+            return;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = digits; i < width; i++) {
+            line.append(' ');
+        }
+        line.append(value);
+    }
+
+    private void pad(String value, int width) {
+        for (int i = value.length(); i < width; i++) {
+            line.append(' ');
+        }
+        line.append(value);
+    }
+
+    private void writeJson(HostSnapshot host, List<GpuSnapshot> gpus) throws IOException {
+        line.setLength(0);
+        SampleJson.append(line, host, gpus).append('\n');
+        out.append(line);
+    }
+}
@@ -0,0 +1,63 @@
+package com.gpustatix.db;
+
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * The spring.datasource settings of application.yml, read outside a Spring context so the
+ * headless sink writes to the same database as --compact. Resolved in Spring Boot's order:
+ * system properties, environment variables (SPRING_DATASOURCE_URL, SPRING_DATASOURCE_USERNAME,
+ * SPRING_DATASOURCE_PASSWORD), ./application.yml, then the bundled application.yml.
+ */
+final class DatasourceSettings {
+    private static final String FILE = "application.yml";
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private DatasourceSettings(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * @throws IllegalStateException if spring.datasource.url is not configured
+     */
+    static DatasourceSettings load() {
+        StandardEnvironment environment = new StandardEnvironment();
+        YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+        for (Resource resource : new Resource[]{new FileSystemResource(FILE), new ClassPathResource(FILE)}) {
+            if (!resource.exists()) {
+                continue;
+            }
+            try {
+                for (PropertySource<?> source : loader.load(resource.getDescription(), resource)) {
+                    environment.getPropertySources().addLast(source);
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading " + resource.getDescription() + ": " + e.getMessage());
+            }
+        }
+        String url = environment.getProperty("spring.datasource.url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("spring.datasource.url is not set in " + FILE);
+        }
+        return new DatasourceSettings(url.trim(), environment.getProperty("spring.datasource.username", ""),
+                environment.getProperty("spring.datasource.password", ""));
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+}
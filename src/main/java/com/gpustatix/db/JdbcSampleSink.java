@@ -0,0 +1,467 @@
+package com.gpustatix.db;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes samples to the database in the background.
+ * The sampler thread only copies rows into a lock-free {@link SampleQueue}; rows that do not fit
+ * are dropped and counted. A writer thread drains the queue into multi-row INSERT statements,
+ * one transaction per batch. While the database is unreachable batches are spilled to a local
+ * file (up to db.spill.mb) and replayed once it is back.
+ *
+ * <p>Table {@value #TABLE}: ts (BIGINT, ms), device (SMALLINT, -1 = host) and one REAL column
+ * per {@link Metric} named by its key; NULL where the metric does not apply.</p>
+ */
+public class JdbcSampleSink implements SampleListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-jdbc-writer";
+    public static final String TABLE = "gpu_sample";
+    // ts long, device short, reserved short, значения float
+    private static final int SPILL_RECORD_SIZE = 12 + Metric.count() * 4;
+    private static final long RETRY_DELAY_MILLIS = 5000;
+
+    private final ConnectionSource connections;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Path spillFile;
+    private final long spillLimitBytes;
+
+    private final SampleQueue queue;
+    private final float[] row = new float[Metric.count()];
+    private final long[] batchTimestamps;
+    private final short[] batchDevices;
+    private final float[] batchValues;
+    private int pending;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private Connection connection;
+    private PreparedStatement batchInsert;
+    private PreparedStatement singleInsert;
+    private long retryAt;
+    private FileChannel spill;
+    private ByteBuffer spillBuffer;
+
+    /**
+     * Connects with DriverManager to the spring.datasource of application.yml (see
+     * {@link DatasourceSettings}); batching and spilling from config.properties (db.batch.size,
+     * db.flush.interval.ms, db.queue.capacity, db.spill.file, db.spill.mb)
+     * @throws IllegalStateException if no datasource URL is configured
+     */
+    public JdbcSampleSink() {
+        this(DatasourceSettings.load()::connect,
+                ConfigLoader.getInt("db.batch.size", 500),
+                ConfigLoader.getLong("db.flush.interval.ms", 1000),
+                ConfigLoader.getInt("db.queue.capacity", 16384),
+                Paths.get(ConfigLoader.getString("db.spill.file", "data/db-spill.bin")),
+                ConfigLoader.getLong("db.spill.mb", 256) * 1024 * 1024);
+    }
+
+    /**
+     * Uses an existing pool, e.g. the Spring datasource or an embedded H2
+     */
+    public JdbcSampleSink(DataSource dataSource, int batchSize, long flushIntervalMillis, int queueCapacity,
+                          Path spillFile, long spillLimitBytes) {
+        this(dataSource::getConnection, batchSize, flushIntervalMillis, queueCapacity, spillFile, spillLimitBytes);
+    }
+
+    private JdbcSampleSink(ConnectionSource connections, int batchSize, long flushIntervalMillis,
+                           int queueCapacity, Path spillFile, long spillLimitBytes) {
+        this.connections = connections;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.spillFile = spillFile;
+        this.spillLimitBytes = spillLimitBytes;
+        this.queue = new SampleQueue(queueCapacity, Metric.count());
+        this.batchTimestamps = new long[this.batchSize];
+        this.batchDevices = new short[this.batchSize];
+        this.batchValues = new float[this.batchSize * Metric.count()];
+
+        writer = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::writeLoop);
+        writer.start();
+    }
+
+    /**
+     * @return rows dropped because the queue was full or the spill file reached its limit
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * @return rows currently waiting in the spill file
+     */
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        long ts = host.getTimestampMillis();
+        Arrays.fill(row, Float.NaN);
+        for (Metric metric : Metric.values()) {
+            if (metric.isHost()) {
+                row[metric.ordinal()] = metric.read(host);
+            }
+        }
+        offer(ts, MetricStore.HOST);
+
+        for (GpuSnapshot gpu : gpus) {
+            Arrays.fill(row, Float.NaN);
+            for (Metric metric : Metric.values()) {
+                if (!metric.isHost()) {
+                    row[metric.ordinal()] = metric.read(gpu);
+                }
+            }
+            offer(ts, gpu.getDeviceIndex());
+        }
+        if (queue.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void offer(long ts, int device) {
+        if (!queue.offer(ts, device, row)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        long lastFlush = System.nanoTime();
+        while (running || !queue.isEmpty()) {
+            pending += queue.drainTo(batchTimestamps, batchDevices, batchValues, pending, batchSize - pending);
+            long now = System.nanoTime();
+            boolean due = pending > 0 && now - lastFlush >= flushIntervalNanos;
+            if (pending == batchSize || due || (!running && pending > 0)) {
+                flush();
+                lastFlush = now;
+            } else if (running) {
+                LockSupport.parkNanos(Math.min(flushIntervalNanos, TimeUnit.MILLISECONDS.toNanos(100)));
+            }
+        }
+        if (pending > 0) {
+            flush();
+        }
+        closeConnection();
+        closeSpill();
+    }
+
+    private void flush() {
+        if (ensureConnection()) {
+            try {
+                insert(batchTimestamps, batchDevices, batchValues, pending);
+                written.addAndGet(pending);
+                pending = 0;
+                replaySpill();
+                return;
+            } catch (SQLException e) {
+                System.err.println("Database write failed, spilling to disk: " + e.getMessage());
+                closeConnection();
+                retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+            }
+        }
+        spill(pending);
+        pending = 0;
+    }
+
+    private boolean ensureConnection() {
+        if (connection != null) {
+            return true;
+        }
+        if (System.currentTimeMillis() < retryAt) {
+            return false;
+        }
+        try {
+            connection = connections.get();
+            connection.setAutoCommit(false);
+            createTable(connection);
+            singleInsert = connection.prepareStatement(insertSql(1));
+            batchInsert = batchSize > 1 ? connection.prepareStatement(insertSql(batchSize)) : singleInsert;
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Database unavailable: " + e.getMessage());
+            closeConnection();
+            retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+            return false;
+        }
+    }
+
+    static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : schemaSql(TABLE)) {
+                statement.execute(sql);
+            }
+        }
+        connection.commit();
+    }
+
+    /**
+     * DDL for a raw sample table with the {@value #TABLE} layout; portable between PostgreSQL and H2
+     * @param table table name, e.g. {@value #TABLE} or an archive copy
+     */
+    public static String[] schemaSql(String table) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(table)
+                .append(" (ts BIGINT NOT NULL, device SMALLINT NOT NULL");
+        for (Metric metric : Metric.values()) {
+            sql.append(", ").append(metric.getKey()).append(" REAL");
+        }
+        sql.append(')');
+        return new String[]{
+                sql.toString(),
+                "CREATE INDEX IF NOT EXISTS " + table + "_device_ts ON " + table + " (device, ts)"
+        };
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(TABLE).append(" (ts, device");
+        for (Metric metric : Metric.values()) {
+            sql.append(", ").append(metric.getKey());
+        }
+        sql.append(") VALUES ");
+        for (int r = 0; r < rows; r++) {
+            sql.append(r == 0 ? "(" : ", (").append("?, ?");
+            for (int m = 0; m < Metric.count(); m++) {
+                sql.append(", ?");
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Full batches go out as one multi-row INSERT, a partial batch as a JDBC batch of single-row inserts
+     */
+    private void insert(long[] timestamps, short[] devices, float[] values, int count) throws SQLException {
+        try {
+            if (count == batchSize) {
+                bindRows(batchInsert, timestamps, devices, values, 0, count);
+                batchInsert.executeUpdate();
+            } else {
+                for (int r = 0; r < count; r++) {
+                    bindRows(singleInsert, timestamps, devices, values, r, 1);
+                    singleInsert.addBatch();
+                }
+                singleInsert.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+                // соединение уже мертво
+            }
+            throw e;
+        }
+    }
+
+    private static void bindRows(PreparedStatement statement, long[] timestamps, short[] devices, float[] values,
+                                 int from, int count) throws SQLException {
+        int width = Metric.count();
+        int parameter = 1;
+        for (int r = from; r < from + count; r++) {
+            statement.setLong(parameter++, timestamps[r]);
+            statement.setShort(parameter++, devices[r]);
+            for (int m = 0; m < width; m++) {
+                float value = values[r * width + m];
+                if (Float.isNaN(value)) {
+                    statement.setNull(parameter++, Types.REAL);
+                } else {
+                    statement.setFloat(parameter++, value);
+                }
+            }
+        }
+    }
+
+    private void spill(int count) {
+        if (spillLimitBytes <= 0) {
+            dropped.addAndGet(count);
+            return;
+        }
+        try {
+            openSpill();
+            long size = spill.size();
+            int fits = (int) Math.max(0, Math.min(count, (spillLimitBytes - size) / SPILL_RECORD_SIZE));
+            int width = Metric.count();
+            spillBuffer.clear();
+            for (int r = 0; r < fits; r++) {
+                spillBuffer.putLong(batchTimestamps[r]).putShort(batchDevices[r]).putShort((short) 0);
+                for (int m = 0; m < width; m++) {
+                    spillBuffer.putFloat(batchValues[r * width + m]);
+                }
+            }
+            spillBuffer.flip();
+            while (spillBuffer.hasRemaining()) {
+                size += spill.write(spillBuffer, size);
+            }
+            spilled.addAndGet(fits);
+            dropped.addAndGet(count - fits);
+        } catch (IOException e) {
+            System.err.println("Failed to spill samples: " + e.getMessage());
+            dropped.addAndGet(count);
+        }
+    }
+
+    private void openSpill() throws IOException {
+        if (spill == null) {
+            if (spillFile.getParent() != null) {
+                Files.createDirectories(spillFile.getParent());
+            }
+            spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            // Хвост от прерванной записи отбрасываем
+            spill.truncate(spill.size() - spill.size() % SPILL_RECORD_SIZE);
+            spilled.set(spill.size() / SPILL_RECORD_SIZE);
+            spillBuffer = ByteBuffer.allocate(SPILL_RECORD_SIZE * batchSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Re-inserts spilled rows batch by batch through the (now empty) batch arrays, then empties the file.
+     * A crash in the middle of a replay can insert the replayed part twice.
+     */
+    private void replaySpill() throws SQLException {
+        try {
+            if (spill == null) {
+                if (!Files.exists(spillFile) || Files.size(spillFile) < SPILL_RECORD_SIZE) {
+                    return;
+                }
+                openSpill();
+            }
+            long size = spill.size();
+            if (size == 0) {
+                return;
+            }
+            int width = Metric.count();
+            long position = 0;
+            try {
+                while (position < size) {
+                    spillBuffer.clear();
+                    spillBuffer.limit((int) Math.min(spillBuffer.capacity(), size - position));
+                    while (spillBuffer.hasRemaining()
+                            && spill.read(spillBuffer, position + spillBuffer.position()) >= 0) {
+                        // дочитываем блок
+                    }
+                    spillBuffer.flip();
+                    int rows = spillBuffer.remaining() / SPILL_RECORD_SIZE;
+                    for (int r = 0; r < rows; r++) {
+                        batchTimestamps[r] = spillBuffer.getLong();
+                        batchDevices[r] = spillBuffer.getShort();
+                        spillBuffer.getShort();
+                        for (int m = 0; m < width; m++) {
+                            batchValues[r * width + m] = spillBuffer.getFloat();
+                        }
+                    }
+                    insert(batchTimestamps, batchDevices, batchValues, rows);
+                    written.addAndGet(rows);
+                    position += (long) rows * SPILL_RECORD_SIZE;
+                    spilled.set((size - position) / SPILL_RECORD_SIZE);
+                }
+            } catch (SQLException e) {
+                // Уже вставленные строки вырезаем, чтобы при следующем повторе не было дублей
+                compactSpill(position, size);
+                throw e;
+            }
+            spill.truncate(0);
+            spilled.set(0);
+        } catch (IOException e) {
+            System.err.println("Failed to replay spilled samples: " + e.getMessage());
+        }
+    }
+
+    private void compactSpill(long from, long size) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+        long read = from;
+        long write = 0;
+        while (read < size) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), size - read));
+            int n = spill.read(chunk, read);
+            if (n <= 0) {
+                break;
+            }
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                write += spill.write(chunk, write);
+            }
+            read += n;
+        }
+        spill.truncate(write);
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+        connection = null;
+        batchInsert = null;
+        singleInsert = null;
+    }
+
+    private void closeSpill() {
+        if (spill != null) {
+            try {
+                spill.force(false);
+                spill.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close spill file: " + e.getMessage());
+            }
+            spill = null;
+        }
+    }
+
+    /**
+     * Stops the writer after the queue has been drained (or spilled)
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+}
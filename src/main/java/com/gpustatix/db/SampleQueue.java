@@ -0,0 +1,84 @@
+package com.gpustatix.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer queue of sample rows stored in flat primitive arrays.
+ * Lock-free and allocation-free: the producer (sampler thread) copies a row into a free slot
+ * and publishes it with a release store; the consumer (writer thread) copies rows out in bulk.
+ */
+class SampleQueue {
+    private final int mask;
+    private final int width;
+    private final long[] timestamps;
+    private final short[] devices;
+    private final float[] values;
+
+    // Индекс следующей записи (пишет только производитель)
+    private final AtomicLong tail = new AtomicLong();
+    // Индекс следующего чтения (пишет только потребитель)
+    private final AtomicLong head = new AtomicLong();
+    private long cachedHead;
+
+    /**
+     * @param capacity rounded up to a power of two
+     * @param width values per row
+     */
+    SampleQueue(int capacity, int width) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.width = width;
+        this.timestamps = new long[size];
+        this.devices = new short[size];
+        this.values = new float[size * width];
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    /**
+     * Producer side
+     * @return false if the queue is full and the row was not added
+     */
+    boolean offer(long timestamp, int device, float[] row) {
+        long t = tail.getPlain();
+        if (t - cachedHead > mask) {
+            cachedHead = head.getAcquire();
+            if (t - cachedHead > mask) {
+                return false;
+            }
+        }
+        int slot = (int) (t & mask);
+        timestamps[slot] = timestamp;
+        devices[slot] = (short) device;
+        System.arraycopy(row, 0, values, slot * width, width);
+        tail.setRelease(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: moves up to max rows into the given arrays starting at index {@code at}
+     * @return number of rows moved
+     */
+    int drainTo(long[] outTimestamps, short[] outDevices, float[] outValues, int at, int max) {
+        long h = head.getPlain();
+        int available = (int) Math.min(max, tail.getAcquire() - h);
+        for (int i = 0; i < available; i++) {
+            int slot = (int) ((h + i) & mask);
+            outTimestamps[at + i] = timestamps[slot];
+            outDevices[at + i] = devices[slot];
+            System.arraycopy(values, slot * width, outValues, (at + i) * width, width);
+        }
+        head.setRelease(h + available);
+        return available;
+    }
+}
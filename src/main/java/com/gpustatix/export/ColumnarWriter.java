@@ -0,0 +1,152 @@
+package com.gpustatix.export;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.SampleRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parquet-like columnar file: rows are buffered into a fixed-size row group and written
+ * column by column, the schema and per-group statistics go into a footer.
+ * <pre>
+ * "GSXCOL1\0"
+ * row group*:  ts long[n] | device short[n] | one float[n] per metric (NaN = no value)
+ * footer:      column count int, per column: type byte (0 long, 1 short, 2 float),
+ *              name length short, name UTF-8;
+ *              group count int, per group: offset long, rows int, min ts long, max ts long
+ * footer length int, "GSXCOL1\0"
+ * </pre>
+ * All numbers are little-endian. Memory use is one row group plus 28 bytes per written group.
+ */
+class ColumnarWriter {
+    static final byte[] MAGIC = "GSXCOL1\0".getBytes(StandardCharsets.US_ASCII);
+    static final byte TYPE_LONG = 0;
+    static final byte TYPE_SHORT = 1;
+    static final byte TYPE_FLOAT = 2;
+    private static final int GROUP_ENTRY_SIZE = 28;
+
+    private final FileChannel channel;
+    private final ByteBuffer out;
+    private final int groupSize;
+    private final long[] timestamps;
+    private final short[] devices;
+    private final float[][] columns = new float[Metric.count()][];
+    private int rows;
+    private long position;
+    private ByteBuffer groups = ByteBuffer.allocate(GROUP_ENTRY_SIZE * 64).order(ByteOrder.LITTLE_ENDIAN);
+    private int groupCount;
+
+    ColumnarWriter(FileChannel channel, ByteBuffer out, int groupSize) throws IOException {
+        this.channel = channel;
+        this.out = out.order(ByteOrder.LITTLE_ENDIAN);
+        this.groupSize = groupSize;
+        this.timestamps = new long[groupSize];
+        this.devices = new short[groupSize];
+        for (int m = 0; m < columns.length; m++) {
+            columns[m] = new float[groupSize];
+        }
+        out.clear();
+        out.put(MAGIC);
+    }
+
+    void add(SampleRecord record) throws IOException {
+        timestamps[rows] = record.getTimestamp();
+        devices[rows] = (short) record.getDevice();
+        for (Metric metric : Metric.values()) {
+            columns[metric.ordinal()][rows] = record.getValue(metric);
+        }
+        if (++rows == groupSize) {
+            writeGroup();
+        }
+    }
+
+    private void writeGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        long offset = position + out.position();
+        for (int i = 0; i < rows; i++) {
+            ensure(8);
+            out.putLong(timestamps[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            ensure(2);
+            out.putShort(devices[i]);
+        }
+        for (float[] column : columns) {
+            for (int i = 0; i < rows; i++) {
+                ensure(4);
+                out.putFloat(column[i]);
+            }
+        }
+
+        if (groups.remaining() < GROUP_ENTRY_SIZE) {
+            ByteBuffer grown = ByteBuffer.allocate(groups.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            groups.flip();
+            grown.put(groups);
+            groups = grown;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            min = Math.min(min, timestamps[i]);
+            max = Math.max(max, timestamps[i]);
+        }
+        groups.putLong(offset).putInt(rows).putLong(min).putLong(max);
+        groupCount++;
+        rows = 0;
+    }
+
+    /**
+     * Writes the last row group and the footer
+     */
+    void finish() throws IOException {
+        writeGroup();
+        long footerStart = position + out.position();
+        ensure(4);
+        out.putInt(2 + Metric.count());
+        writeColumn(TYPE_LONG, "ts");
+        writeColumn(TYPE_SHORT, "device");
+        for (Metric metric : Metric.values()) {
+            writeColumn(TYPE_FLOAT, metric.getKey());
+        }
+        ensure(4);
+        out.putInt(groupCount);
+        groups.flip();
+        while (groups.hasRemaining()) {
+            ensure(GROUP_ENTRY_SIZE);
+            int limit = groups.limit();
+            groups.limit(groups.position() + GROUP_ENTRY_SIZE);
+            out.put(groups);
+            groups.limit(limit);
+        }
+        ensure(4 + MAGIC.length);
+        out.putInt((int) (position + out.position() - footerStart));
+        out.put(MAGIC);
+        drain();
+    }
+
+    private void writeColumn(byte type, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensure(3 + bytes.length);
+        out.put(type).putShort((short) bytes.length).put(bytes);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            position += channel.write(out);
+        }
+        out.clear();
+    }
+}
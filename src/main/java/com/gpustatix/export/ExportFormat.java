@@ -0,0 +1,36 @@
+package com.gpustatix.export;
+
+/**
+ * Output formats of {@link SampleExporter}
+ */
+public enum ExportFormat {
+    CSV("csv"),
+    NDJSON("ndjson"),
+    /** Row groups of typed columns with a footer, see {@link ColumnarWriter} */
+    COLUMNAR("gsxc");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return the format for a name or file extension, CSV if unknown
+     */
+    public static ExportFormat parse(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        if ("json".equalsIgnoreCase(name) || "parquet".equalsIgnoreCase(name)) {
+            return "json".equalsIgnoreCase(name) ? NDJSON : COLUMNAR;
+        }
+        return CSV;
+    }
+}
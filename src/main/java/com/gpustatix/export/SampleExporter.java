@@ -0,0 +1,202 @@
+package com.gpustatix.export;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.SampleLog;
+import com.gpustatix.history.SampleRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a time range of the {@link SampleLog} into a CSV, NDJSON or columnar file.
+ * Records are read straight from the log mappings, formatted into one reused line buffer
+ * and written through a single direct buffer in large chunks, so memory use does not
+ * depend on the size of the range.
+ *
+ * <p>Text formats: one row per device per tick; {@code device} is the GPU index or -1 for
+ * the host, metrics that do not apply are empty (CSV) or omitted (NDJSON).</p>
+ */
+public class SampleExporter {
+    public static final int ALL_DEVICES = Integer.MIN_VALUE;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int ROW_GROUP_SIZE = 8192;
+
+    private final SampleLog log;
+    private final ExportFormat format;
+    private final int device;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(512);
+    private volatile boolean cancelled;
+
+    /**
+     * @param device GPU index, {@link MetricStore#HOST} or {@link #ALL_DEVICES}
+     */
+    public SampleExporter(SampleLog log, ExportFormat format, int device) {
+        this.log = log;
+        this.format = format;
+        this.device = device;
+    }
+
+    /**
+     * Stops a running export after the current record
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Writes all records with from <= timestamp <= to to the target file (replaced if it exists)
+     * @return number of rows written
+     */
+    public long export(long from, long to, Path target) throws IOException {
+        cancelled = false;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return format == ExportFormat.COLUMNAR
+                    ? exportColumnar(from, to, channel)
+                    : exportText(from, to, channel);
+        }
+    }
+
+    private long exportText(long from, long to, FileChannel channel) throws IOException {
+        out.clear();
+        if (format == ExportFormat.CSV) {
+            line.setLength(0);
+            line.append("timestamp,device");
+            for (Metric metric : Metric.values()) {
+                line.append(',').append(metric.getKey());
+            }
+            line.append('\n');
+            put(channel, line);
+        }
+
+        RowVisitor visitor = new RowVisitor() {
+            @Override
+            void accept(SampleRecord record) throws IOException {
+                line.setLength(0);
+                if (format == ExportFormat.CSV) {
+                    appendCsv(record);
+                } else {
+                    appendJson(record);
+                }
+                put(channel, line);
+            }
+        };
+        log.scan(from, to, visitor);
+        visitor.rethrow();
+        flush(channel);
+        return visitor.rows;
+    }
+
+    private long exportColumnar(long from, long to, FileChannel channel) throws IOException {
+        ColumnarWriter writer = new ColumnarWriter(channel, out, ROW_GROUP_SIZE);
+        RowVisitor visitor = new RowVisitor() {
+            @Override
+            void accept(SampleRecord record) throws IOException {
+                writer.add(record);
+            }
+        };
+        log.scan(from, to, visitor);
+        visitor.rethrow();
+        writer.finish();
+        return visitor.rows;
+    }
+
+    private void appendCsv(SampleRecord record) {
+        line.append(record.getTimestamp()).append(',').append(record.getDevice());
+        for (Metric metric : Metric.values()) {
+            line.append(',');
+            float value = record.getValue(metric);
+            if (!Float.isNaN(value)) {
+                appendValue(value);
+            }
+        }
+        line.append('\n');
+    }
+
+    private void appendJson(SampleRecord record) {
+        line.append("{\"timestamp\":").append(record.getTimestamp())
+                .append(",\"device\":").append(record.getDevice());
+        for (Metric metric : Metric.values()) {
+            float value = record.getValue(metric);
+            if (!Float.isNaN(value)) {
+                line.append(",\"").append(metric.getKey()).append("\":");
+                appendValue(value);
+            }
+        }
+        line.append("}\n");
+    }
+
+    /**
+     * Whole values (temperatures, clocks, percentages) are printed without a fraction
+     */
+    private void appendValue(float value) {
+        if (value == (int) value) {
+            line.append((int) value);
+        } else {
+            line.append(value);
+        }
+    }
+
+    // Все символы вывода - ASCII, поэтому кодировщик не нужен
+    private void put(FileChannel channel, CharSequence text) throws IOException {
+        int length = text.length();
+        if (out.remaining() < length) {
+            flush(channel);
+        }
+        for (int i = 0; i < length; i++) {
+            out.put((byte) text.charAt(i));
+        }
+    }
+
+    private void flush(FileChannel channel) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private boolean accepts(SampleRecord record) {
+        return device == ALL_DEVICES || record.getDevice() == device;
+    }
+
+    /**
+     * Adapts the scan callback (which cannot throw) to IOException-throwing writers
+     */
+    private abstract class RowVisitor implements SampleLog.RecordVisitor {
+        long rows;
+        IOException failure;
+
+        abstract void accept(SampleRecord record) throws IOException;
+
+        @Override
+        public boolean visit(SampleRecord record) {
+            if (cancelled) {
+                failure = new IOException("Export cancelled");
+                return false;
+            }
+            if (!accepts(record)) {
+                return true;
+            }
+            try {
+                accept(record);
+                rows++;
+                return true;
+            } catch (IOException e) {
+                failure = e;
+                return false;
+            }
+        }
+
+        void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
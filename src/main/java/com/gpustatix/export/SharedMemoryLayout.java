@@ -0,0 +1,96 @@
+package com.gpustatix.export;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the shared-memory file written by {@link SharedMemoryWriter}, little-endian,
+ * every record 64-byte (cache line) aligned:
+ * <pre>
+ * header, offset 0, 64 bytes:
+ *    0 u32 magic 0x4D485347 ("GSHM")     4 u16 version (1)      6 u16 GPU count N
+ *    8 u32 header size (64)             12 u32 record size (64) 16 u32 host record offset
+ *   20 u32 names offset                 24 u32 state: 1 = writer running, 0 = writer closed
+ *   28 i32 writer pid                   32..63 reserved
+ * GPU records, offset 64 + i * 64 for GPU i:
+ *    0 u64 sequence                      8 i64 timestamp, ms since epoch
+ *   16 i32 temperature, °C              20 i32 utilization, %   24 i32 VRAM used, MB
+ *   28 i32 VRAM total, MB               32 i32 core clock, MHz  36 i32 memory clock, MHz
+ *   40 f32 power draw, W                44 i32 power limit, W   48 i32 fan speed, %
+ *   52 i32 fan speed, RPM               56..63 reserved
+ * host record, offset 64 + N * 64:
+ *    0 u64 sequence                      8 i64 timestamp        16 f32 CPU load, %
+ *   20 i32 CPU clock, MHz               24 i32 CPU temperature  28 i32 RAM used, MB
+ *   32 i32 RAM total, MB                36..63 reserved
+ * names, offset 64 + (N + 1) * 64: 64 bytes per GPU, UTF-8, NUL-padded
+ * </pre>
+ * Unavailable readings are -1. Each record is a seqlock: the writer makes the sequence odd,
+ * stores the fields, then makes it even again. A reader loads the sequence (acquire), retries
+ * while it is odd, copies the fields, and accepts the copy if a second load of the sequence
+ * (after a load-load fence) returns the same value. In C:
+ * <pre>
+ * s1 = __atomic_load_n(&amp;rec-&gt;sequence, __ATOMIC_ACQUIRE);
+ * if (s1 &amp; 1) retry;
+ * memcpy(&amp;copy, rec, sizeof copy);
+ * __atomic_thread_fence(__ATOMIC_ACQUIRE);   // keeps the copy before the second load
+ * s2 = __atomic_load_n(&amp;rec-&gt;sequence, __ATOMIC_RELAXED);
+ * if (s1 != s2) retry;
+ * </pre>
+ * An acquire load alone only orders what follows it, so without the fence the copy could be
+ * satisfied after the second load and a torn record would pass the check.
+ */
+public final class SharedMemoryLayout {
+    public static final int MAGIC = 0x4D485347;
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 64;
+    public static final int NAME_SIZE = 64;
+
+    static final int VERSION_OFFSET = 4;
+    static final int COUNT_OFFSET = 6;
+    static final int HEADER_SIZE_OFFSET = 8;
+    static final int RECORD_SIZE_OFFSET = 12;
+    static final int HOST_OFFSET_OFFSET = 16;
+    static final int NAMES_OFFSET_OFFSET = 20;
+    static final int STATE_OFFSET = 24;
+    static final int PID_OFFSET = 28;
+
+    static final int SEQUENCE = 0;
+    static final int TIMESTAMP = 8;
+    static final int GPU_TEMPERATURE = 16;
+    static final int GPU_UTILIZATION = 20;
+    static final int GPU_MEMORY_USED = 24;
+    static final int GPU_MEMORY_TOTAL = 28;
+    static final int GPU_CORE_CLOCK = 32;
+    static final int GPU_MEMORY_CLOCK = 36;
+    static final int GPU_POWER = 40;
+    static final int GPU_POWER_LIMIT = 44;
+    static final int GPU_FAN_SPEED = 48;
+    static final int GPU_FAN_RPM = 52;
+    static final int CPU_LOAD = 16;
+    static final int CPU_FREQUENCY = 20;
+    static final int CPU_TEMPERATURE = 24;
+    static final int RAM_USED = 28;
+    static final int RAM_TOTAL = 32;
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    // Атомарный доступ к u64/u32 внутри отображённого буфера (смещения выровнены)
+    static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ORDER);
+    static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ORDER);
+
+    private SharedMemoryLayout() {
+    }
+
+    static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    static int namesOffset(int gpuCount) {
+        return HEADER_SIZE + (gpuCount + 1) * RECORD_SIZE;
+    }
+
+    static int fileSize(int gpuCount) {
+        return namesOffset(gpuCount) + gpuCount * NAME_SIZE;
+    }
+}
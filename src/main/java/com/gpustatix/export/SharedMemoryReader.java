@@ -0,0 +1,148 @@
+package com.gpustatix.export;
+
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.gpustatix.export.SharedMemoryLayout.*;
+
+/**
+ * Reads the latest values published by {@link SharedMemoryWriter} in another process.
+ * After {@link #open} every read is a few memory loads: no locks, no syscalls.
+ */
+public class SharedMemoryReader implements AutoCloseable {
+    // Писатель держит запись занятой наносекунды; столько попыток хватает с запасом
+    private static final int MAX_ATTEMPTS = 10_000;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int gpuCount;
+    private final String[] names;
+
+    private SharedMemoryReader(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.order(ORDER);
+        if (buffer.capacity() < HEADER_SIZE || (int) INT.getAcquire(buffer, 0) != MAGIC) {
+            throw new IOException("Not a GPUStatix shared memory file");
+        }
+        if (buffer.getShort(VERSION_OFFSET) != VERSION || buffer.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+            throw new IOException("Unsupported shared memory layout version " + buffer.getShort(VERSION_OFFSET));
+        }
+        gpuCount = buffer.getShort(COUNT_OFFSET) & 0xFFFF;
+        if (buffer.capacity() < fileSize(gpuCount)) {
+            throw new IOException("Shared memory file is truncated");
+        }
+        names = new String[gpuCount];
+        int namesOffset = buffer.getInt(NAMES_OFFSET_OFFSET);
+        for (int i = 0; i < gpuCount; i++) {
+            byte[] name = new byte[NAME_SIZE];
+            buffer.get(namesOffset + i * NAME_SIZE, name);
+            int length = 0;
+            while (length < NAME_SIZE && name[length] != 0) {
+                length++;
+            }
+            names[i] = new String(name, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static SharedMemoryReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SharedMemoryReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getDeviceCount() {
+        return gpuCount;
+    }
+
+    public String getDeviceName(int device) {
+        return names[device];
+    }
+
+    /**
+     * @return false once the writer has closed; reopen the path to follow a restarted writer
+     */
+    public boolean isWriterAlive() {
+        return (int) INT.getAcquire(buffer, STATE_OFFSET) == 1;
+    }
+
+    /**
+     * Copies a consistent snapshot of one GPU
+     * @return false if nothing has been published yet or the writer kept the record busy
+     */
+    public boolean read(int device, GpuSnapshot into) {
+        int base = recordOffset(device);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long before = (long) LONG.getAcquire(buffer, base + SEQUENCE);
+            if (before == 0) {
+                return false;
+            }
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            into.setDeviceIndex(device);
+            into.setTimestampMillis(buffer.getLong(base + TIMESTAMP));
+            into.setTemperature(buffer.getInt(base + GPU_TEMPERATURE));
+            into.setUtilization(buffer.getInt(base + GPU_UTILIZATION));
+            into.setMemoryUsedMb(buffer.getInt(base + GPU_MEMORY_USED));
+            into.setMemoryTotalMb(buffer.getInt(base + GPU_MEMORY_TOTAL));
+            into.setCoreClock(buffer.getInt(base + GPU_CORE_CLOCK));
+            into.setMemoryClock(buffer.getInt(base + GPU_MEMORY_CLOCK));
+            into.setPowerUsage(buffer.getFloat(base + GPU_POWER));
+            into.setPowerLimit(buffer.getInt(base + GPU_POWER_LIMIT));
+            into.setFanSpeed(buffer.getInt(base + GPU_FAN_SPEED));
+            into.setFanRpm(buffer.getInt(base + GPU_FAN_RPM));
+            VarHandle.loadLoadFence();
+            if ((long) LONG.getAcquire(buffer, base + SEQUENCE) == before) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies a consistent snapshot of the host readings
+     */
+    public boolean readHost(HostSnapshot into) {
+        int base = recordOffset(gpuCount);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long before = (long) LONG.getAcquire(buffer, base + SEQUENCE);
+            if (before == 0) {
+                return false;
+            }
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            into.setTimestampMillis(buffer.getLong(base + TIMESTAMP));
+            into.setCpuLoad(buffer.getFloat(base + CPU_LOAD));
+            into.setCpuFrequency(buffer.getInt(base + CPU_FREQUENCY));
+            into.setCpuTemperature(buffer.getInt(base + CPU_TEMPERATURE));
+            into.setRamUsedMb(buffer.getInt(base + RAM_USED));
+            into.setRamTotalMb(buffer.getInt(base + RAM_TOTAL));
+            VarHandle.loadLoadFence();
+            if ((long) LONG.getAcquire(buffer, base + SEQUENCE) == before) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,171 @@
+package com.gpustatix.export;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static com.gpustatix.export.SharedMemoryLayout.*;
+
+/**
+ * Publishes the latest sample of every GPU and of the host in a file under /dev/shm
+ * (layout in {@link SharedMemoryLayout}), so HUDs and other local consumers read it with
+ * plain memory loads. Writes happen on the sampler thread and never enter the kernel.
+ * An exclusive lock on the sibling file {@code <path>.lock} keeps a second writer from
+ * replacing the file of a live one.
+ */
+public class SharedMemoryWriter implements SampleListener, AutoCloseable {
+    static final String LOCK_SUFFIX = ".lock";
+
+    private final Path path;
+    private final FileChannel lockChannel;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int gpuCount;
+    private boolean closed;
+
+    /**
+     * Maps shm.path from config.properties (default /dev/shm/gpustatix)
+     */
+    public SharedMemoryWriter(GpuBackend backend) throws IOException {
+        this(backend, Paths.get(ConfigLoader.getString("shm.path", "/dev/shm/gpustatix")));
+    }
+
+    /**
+     * @throws IOException also if another live writer holds the lock for this path
+     */
+    public SharedMemoryWriter(GpuBackend backend, Path path) throws IOException {
+        this.path = path;
+        gpuCount = Math.min(backend.getDeviceCount(), 0xFFFF);
+        // Файл данных пересоздаётся, поэтому блокируется отдельный файл рядом с ним
+        lockChannel = FileChannel.open(path.resolveSibling(path.getFileName() + LOCK_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (tryLock(lockChannel) == null) {
+                throw new IOException("Shared memory file " + path + " is in use by another writer");
+            }
+            // Новый файл, а не перезапись: читатели старого отображения увидят state = 0
+            Files.deleteIfExists(path);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(gpuCount));
+        buffer.order(ORDER);
+
+        buffer.putShort(VERSION_OFFSET, VERSION);
+        buffer.putShort(COUNT_OFFSET, (short) gpuCount);
+        buffer.putInt(HEADER_SIZE_OFFSET, HEADER_SIZE);
+        buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        buffer.putInt(HOST_OFFSET_OFFSET, recordOffset(gpuCount));
+        buffer.putInt(NAMES_OFFSET_OFFSET, namesOffset(gpuCount));
+        buffer.putInt(STATE_OFFSET, 1);
+        buffer.putInt(PID_OFFSET, (int) ProcessHandle.current().pid());
+        for (int i = 0; i < gpuCount; i++) {
+            byte[] name = backend.getDeviceName(i).getBytes(StandardCharsets.UTF_8);
+            // Последний байт всегда NUL
+            buffer.put(namesOffset(gpuCount) + i * NAME_SIZE, name, 0, Math.min(name.length, NAME_SIZE - 1));
+        }
+        for (int slot = 0; slot <= gpuCount; slot++) {
+            for (int offset = TIMESTAMP + 8; offset < RECORD_SIZE; offset += 4) {
+                buffer.putInt(recordOffset(slot) + offset, -1);
+            }
+        }
+        // Магическое число последним: читатель не примет наполовину заполненный заголовок
+        INT.setRelease(buffer, 0, MAGIC);
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Блокировку держит другой писатель в этой же JVM
+            return null;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        for (int i = 0; i < gpus.size() && i < gpuCount; i++) {
+            GpuSnapshot gpu = gpus.get(i);
+            int base = recordOffset(i);
+            long sequence = begin(base);
+            buffer.putLong(base + TIMESTAMP, gpu.getTimestampMillis() > 0 ? gpu.getTimestampMillis() : host.getTimestampMillis());
+            buffer.putInt(base + GPU_TEMPERATURE, gpu.getTemperature());
+            buffer.putInt(base + GPU_UTILIZATION, gpu.getUtilization());
+            buffer.putInt(base + GPU_MEMORY_USED, gpu.getMemoryUsedMb());
+            buffer.putInt(base + GPU_MEMORY_TOTAL, gpu.getMemoryTotalMb());
+            buffer.putInt(base + GPU_CORE_CLOCK, gpu.getCoreClock());
+            buffer.putInt(base + GPU_MEMORY_CLOCK, gpu.getMemoryClock());
+            buffer.putFloat(base + GPU_POWER, gpu.getPowerUsage());
+            buffer.putInt(base + GPU_POWER_LIMIT, gpu.getPowerLimit());
+            buffer.putInt(base + GPU_FAN_SPEED, gpu.getFanSpeed());
+            buffer.putInt(base + GPU_FAN_RPM, gpu.getFanRpm());
+            end(base, sequence);
+        }
+
+        int base = recordOffset(gpuCount);
+        long sequence = begin(base);
+        buffer.putLong(base + TIMESTAMP, host.getTimestampMillis());
+        buffer.putFloat(base + CPU_LOAD, host.getCpuLoad());
+        buffer.putInt(base + CPU_FREQUENCY, host.getCpuFrequency());
+        buffer.putInt(base + CPU_TEMPERATURE, host.getCpuTemperature());
+        buffer.putInt(base + RAM_USED, host.getRamUsedMb());
+        buffer.putInt(base + RAM_TOTAL, host.getRamTotalMb());
+        end(base, sequence);
+    }
+
+    /**
+     * Makes the record's sequence odd; the fence keeps the field stores after it
+     */
+    private long begin(int base) {
+        long sequence = (long) LONG.getOpaque(buffer, base + SEQUENCE) + 1;
+        LONG.setOpaque(buffer, base + SEQUENCE, sequence);
+        VarHandle.storeStoreFence();
+        return sequence;
+    }
+
+    private void end(int base, long sequence) {
+        LONG.setRelease(buffer, base + SEQUENCE, sequence + 1);
+    }
+
+    /**
+     * Marks the file as abandoned and removes it; readers holding the mapping see state 0
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        INT.setRelease(buffer, STATE_OFFSET, 0);
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+            // Файл блокировки остаётся: его удаление открыло бы гонку между двумя новыми писателями
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing shared memory export: " + e.getMessage());
+        }
+    }
+}
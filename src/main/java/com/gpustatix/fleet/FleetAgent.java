@@ -0,0 +1,267 @@
+package com.gpustatix.fleet;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleCodec;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams samples to a {@link FleetCollector}. The sampler thread only copies the sample;
+ * an agent thread encodes and sends it, reconnecting with backoff when the collector is away.
+ * Only the newest sample is kept: while disconnected or behind, older ones are skipped.
+ */
+public class FleetAgent implements SampleListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-fleet-agent";
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final InetSocketAddress collector;
+    private final String name;
+    private final String[] deviceNames;
+    private final Thread thread;
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean running = true;
+
+    // Передача выборки от сэмплера
+    private final Object lock = new Object();
+    private final HostSnapshot incomingHost = new HostSnapshot();
+    private final GpuSnapshot[] incomingGpus;
+    private int incomingCount;
+    private boolean hasNew;
+
+    // Дальше - только поток агента
+    private final HostSnapshot host = new HostSnapshot();
+    private final GpuSnapshot[] gpus;
+    private final int[] hostFields = new int[SampleCodec.HOST_FIELDS];
+    private final int[] previousHost = new int[SampleCodec.HOST_FIELDS];
+    private final int[] gpuFields;
+    private final int[] previousGpus;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(FleetFormat.MAX_FRAME);
+    private long previousTimestamp;
+    private SocketChannel channel;
+
+    /**
+     * Settings from config.properties (fleet.collector, fleet.name)
+     */
+    public FleetAgent(GpuBackend backend) {
+        this(backend, parseAddress(ConfigLoader.getString("fleet.collector", "")),
+                ConfigLoader.getString("fleet.name", ""));
+    }
+
+    /**
+     * @param name how the collector shows this host, empty for the host name
+     */
+    public FleetAgent(GpuBackend backend, InetSocketAddress collector, String name) {
+        this.collector = collector;
+        this.name = name == null || name.isEmpty() ? localHostName() : name;
+        int count = Math.min(backend.getDeviceCount(), FleetFormat.MAX_GPUS);
+        deviceNames = new String[count];
+        incomingGpus = new GpuSnapshot[count];
+        gpus = new GpuSnapshot[count];
+        for (int i = 0; i < count; i++) {
+            deviceNames[i] = backend.getDeviceName(i);
+            incomingGpus[i] = new GpuSnapshot(i);
+            gpus[i] = new GpuSnapshot(i);
+        }
+        gpuFields = new int[count * SampleCodec.GPU_FIELDS];
+        previousGpus = new int[gpuFields.length];
+        thread = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::run);
+        thread.start();
+    }
+
+    /**
+     * @param address HOST:PORT
+     */
+    public static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Collector address must be HOST:PORT, got '" + address + "'");
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return samples not sent because the collector was unreachable or slower than the sampler
+     */
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        synchronized (lock) {
+            if (hasNew) {
+                skipped.incrementAndGet();
+            }
+            incomingHost.copyFrom(host);
+            incomingCount = Math.min(gpus.size(), incomingGpus.length);
+            for (int i = 0; i < incomingCount; i++) {
+                incomingGpus[i].copyFrom(gpus.get(i));
+            }
+            hasNew = true;
+            lock.notify();
+        }
+    }
+
+    private void run() {
+        long backoff = 1000;
+        long retryAt = 0;
+        while (running) {
+            int count;
+            synchronized (lock) {
+                while (running && !hasNew) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    break;
+                }
+                host.copyFrom(incomingHost);
+                count = incomingCount;
+                for (int i = 0; i < count; i++) {
+                    gpus[i].copyFrom(incomingGpus[i]);
+                }
+                hasNew = false;
+            }
+            try {
+                if (channel == null) {
+                    if (System.currentTimeMillis() < retryAt) {
+                        skipped.incrementAndGet();
+                        continue;
+                    }
+                    connect();
+                    backoff = 1000;
+                }
+                buffer.clear();
+                encodeSample(count);
+                send();
+            } catch (IOException e) {
+                System.err.println("Fleet collector " + collector + " unreachable, retrying in "
+                        + backoff / 1000 + " s: " + e.getMessage());
+                disconnect();
+                skipped.incrementAndGet();
+                retryAt = System.currentTimeMillis() + backoff;
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+        disconnect();
+    }
+
+    private void connect() throws IOException {
+        SocketChannel opened = SocketChannel.open();
+        try {
+            opened.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            opened.connect(collector);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        channel = opened;
+        // Новое соединение - дельты снова от нуля
+        previousTimestamp = 0;
+        Arrays.fill(previousHost, 0);
+        Arrays.fill(previousGpus, 0);
+
+        buffer.clear();
+        int start = beginFrame(FleetFormat.FRAME_HELLO);
+        buffer.putShort(FleetFormat.VERSION);
+        FleetFormat.putString(buffer, name);
+        buffer.put((byte) deviceNames.length);
+        for (String deviceName : deviceNames) {
+            FleetFormat.putString(buffer, deviceName);
+        }
+        endFrame(start);
+        send();
+    }
+
+    private int beginFrame(byte type) {
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put(type);
+        return start;
+    }
+
+    private void endFrame(int start) {
+        buffer.putShort(start, (short) (buffer.position() - start - 2));
+    }
+
+    private void encodeSample(int count) {
+        int start = beginFrame(FleetFormat.FRAME_SAMPLE);
+        SampleCodec.putVarLong(buffer, host.getTimestampMillis() - previousTimestamp);
+        previousTimestamp = host.getTimestampMillis();
+        SampleCodec.putVarLong(buffer, count);
+        SampleCodec.hostFields(host, hostFields);
+        for (int i = 0; i < SampleCodec.HOST_FIELDS; i++) {
+            SampleCodec.putVarLong(buffer, hostFields[i] - previousHost[i]);
+            previousHost[i] = hostFields[i];
+        }
+        for (int g = 0; g < count; g++) {
+            int offset = g * SampleCodec.GPU_FIELDS;
+            SampleCodec.gpuFields(gpus[g], gpuFields, offset);
+            for (int i = offset; i < offset + SampleCodec.GPU_FIELDS; i++) {
+                SampleCodec.putVarLong(buffer, gpuFields[i] - previousGpus[i]);
+                previousGpus[i] = gpuFields[i];
+            }
+        }
+        endFrame(start);
+    }
+
+    private void send() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notify();
+        }
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.gpustatix.fleet;
+
+import com.gpustatix.alert.AnomalyModel;
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleCodec;
+import com.gpustatix.utils.ThreadAffinity;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Collector mode: accepts {@link FleetAgent} streams over TCP and serves fleet-wide aggregates.
+ * <p>
+ * fleet.threads selector threads share all agent connections (the first one also accepts).
+ * Each readable connection is drained into its buffer, every complete frame in it is decoded,
+ * and only the newest sample of that batch is written to the {@link FleetStore}: an agent that
+ * reconnects after a stall costs one store update, not one per queued sample. Every sample
+ * still reaches the anomaly model, which counts its horizons in samples.
+ * <pre>
+ * GET /fleet       {"hosts":..,"gpus":..,"total_power_w":..,"hottest":[..],"most_throttled":[..]}
+ * GET /fleet/gpus  every known GPU with a "stale" flag
+ * </pre>
+ */
+public class FleetCollector implements AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-fleet";
+    // Не меньше двух кадров наибольшей длины
+    private static final int READ_BUFFER = 2 * FleetFormat.MAX_FRAME;
+
+    private final FleetStore store;
+    private final int top;
+    private final ServerSocketChannel server;
+    private final Worker[] workers;
+    private final HttpServer http;
+    private final ExecutorService httpExecutor;
+    private volatile boolean running = true;
+    private int nextWorker;
+
+    /**
+     * Settings from config.properties (fleet.bind, fleet.port, fleet.http.port, fleet.threads,
+     * fleet.stale.ms, fleet.top)
+     */
+    public FleetCollector() throws IOException {
+        this(new InetSocketAddress(ConfigLoader.getString("fleet.bind", "0.0.0.0"), ConfigLoader.getInt("fleet.port", 9881)),
+                new InetSocketAddress(ConfigLoader.getString("fleet.bind", "0.0.0.0"), ConfigLoader.getInt("fleet.http.port", 9882)),
+                ConfigLoader.getInt("fleet.threads", 2), ConfigLoader.getLong("fleet.stale.ms", 10_000),
+                ConfigLoader.getInt("fleet.top", 10));
+    }
+
+    public FleetCollector(InetSocketAddress agents, InetSocketAddress httpAddress, int threads, long staleMillis,
+                          int top) throws IOException {
+        this.store = new FleetStore(staleMillis);
+        this.top = top;
+        server = ServerSocketChannel.open();
+        server.bind(agents, 256);
+        server.configureBlocking(false);
+
+        workers = new Worker[Math.max(threads, 1)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
+        server.register(workers[0].selector, SelectionKey.OP_ACCEPT);
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].thread = ThreadAffinity.threadFactory(THREAD_NAME + "-" + i).newThread(workers[i]::run);
+            workers[i].thread.start();
+        }
+
+        http = HttpServer.create(httpAddress, 0);
+        httpExecutor = Executors.newSingleThreadExecutor(ThreadAffinity.threadFactory(THREAD_NAME + "-http"));
+        http.setExecutor(httpExecutor);
+        http.createContext("/fleet", this::handle);
+        http.start();
+    }
+
+    public InetSocketAddress getAgentAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    public InetSocketAddress getHttpAddress() {
+        return http.getAddress();
+    }
+
+    public FleetStore getStore() {
+        return store;
+    }
+
+    /**
+     * Called on the first worker's thread
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            Worker worker = workers[nextWorker];
+            nextWorker = (nextWorker + 1) % workers.length;
+            worker.incoming.add(channel);
+            worker.selector.wakeup();
+        }
+    }
+
+    private final class Worker {
+        final Selector selector;
+        final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        final List<Connection> connections = new ArrayList<>();
+        Thread thread;
+
+        Worker() throws IOException {
+            selector = Selector.open();
+        }
+
+        void run() {
+            while (running) {
+                try {
+                    selector.select(1000);
+                    SocketChannel channel;
+                    while ((channel = incoming.poll()) != null) {
+                        Connection connection = new Connection(channel);
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                        connections.add(connection);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            read((Connection) key.attachment());
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Fleet collector error: " + e.getMessage());
+                }
+            }
+            for (Connection connection : new ArrayList<>(connections)) {
+                disconnect(connection);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        void read(Connection connection) {
+            int read;
+            try {
+                // Одно чтение забирает всё накопившееся в сокете (до размера буфера) - это и есть пачка
+                read = connection.channel.read(connection.in);
+            } catch (IOException e) {
+                disconnect(connection);
+                return;
+            }
+            connection.in.flip();
+            boolean sampled = false;
+            try {
+                while (connection.in.remaining() >= 2) {
+                    int length = connection.in.getShort(connection.in.position()) & 0xFFFF;
+                    if (connection.in.remaining() < 2 + length) {
+                        break;
+                    }
+                    connection.in.position(connection.in.position() + 2);
+                    int end = connection.in.position() + length;
+                    byte type = connection.in.get();
+                    switch (type) {
+                        case FleetFormat.FRAME_HELLO -> connection.hello();
+                        case FleetFormat.FRAME_SAMPLE -> sampled |= connection.sample();
+                        default -> { }
+                    }
+                    connection.in.position(end);
+                }
+            } catch (BufferUnderflowException | IllegalStateException | IllegalArgumentException e) {
+                System.err.println("Malformed frame from fleet agent " + connection.remote() + ", disconnecting");
+                disconnect(connection);
+                return;
+            }
+            connection.in.compact();
+            if (sampled) {
+                store.update(connection.entry, connection.host, connection.gpus, connection.gpuCount,
+                        System.currentTimeMillis());
+            }
+            if (read < 0) {
+                disconnect(connection);
+            }
+        }
+
+        void disconnect(Connection connection) {
+            connections.remove(connection);
+            connection.key.cancel();
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+        final HostSnapshot host = new HostSnapshot();
+        final int[] hostFields = new int[SampleCodec.HOST_FIELDS];
+        final int[] gpuFields = new int[FleetFormat.MAX_GPUS * SampleCodec.GPU_FIELDS];
+        GpuSnapshot[] gpus = new GpuSnapshot[0];
+        int gpuCount;
+        long timestamp;
+        SelectionKey key;
+        FleetStore.HostEntry entry;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        String remote() {
+            try {
+                return String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                return "?";
+            }
+        }
+
+        /**
+         * @return the agent's IP address without the port, which changes on every reconnect
+         */
+        String remoteAddress() {
+            try {
+                return ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+            } catch (IOException e) {
+                return "?";
+            }
+        }
+
+        void hello() {
+            short version = in.getShort();
+            if (version != FleetFormat.VERSION) {
+                throw new IllegalArgumentException("Unsupported fleet protocol version " + version);
+            }
+            String name = FleetFormat.getString(in);
+            int count = in.get() & 0xFF;
+            if (count > FleetFormat.MAX_GPUS) {
+                throw new IllegalArgumentException("Too many GPUs: " + count);
+            }
+            String[] names = new String[count];
+            gpus = new GpuSnapshot[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = FleetFormat.getString(in);
+                gpus[i] = new GpuSnapshot(i);
+            }
+            entry = store.register(name, remoteAddress(), names);
+            timestamp = 0;
+            Arrays.fill(hostFields, 0);
+            Arrays.fill(gpuFields, 0);
+        }
+
+        /**
+         * Applies one delta frame to the connection's running values
+         * @return true if the frame was accepted
+         */
+        boolean sample() {
+            if (entry == null) {
+                throw new IllegalStateException("Sample before hello");
+            }
+            timestamp += SampleCodec.getVarLong(in);
+            int count = (int) SampleCodec.getVarLong(in);
+            if (count < 0 || count > gpus.length) {
+                throw new IllegalArgumentException("Sample for " + count + " GPUs, hello announced " + gpus.length);
+            }
+            for (int i = 0; i < SampleCodec.HOST_FIELDS; i++) {
+                hostFields[i] += (int) SampleCodec.getVarLong(in);
+            }
+            for (int i = 0; i < count * SampleCodec.GPU_FIELDS; i++) {
+                gpuFields[i] += (int) SampleCodec.getVarLong(in);
+            }
+            SampleCodec.toHost(hostFields, host);
+            host.setTimestampMillis(timestamp);
+            for (int g = 0; g < count; g++) {
+                SampleCodec.toGpu(gpuFields, g * SampleCodec.GPU_FIELDS, gpus[g]);
+                gpus[g].setTimestampMillis(timestamp);
+            }
+            gpuCount = count;
+            store.observe(entry, gpus, count);
+            return true;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            long now = System.currentTimeMillis();
+            StringBuilder json = new StringBuilder(4096);
+            switch (path) {
+                case "/fleet", "/fleet/" -> summaryJson(json, store.summarize(top, now));
+                case "/fleet/gpus" -> {
+                    json.append('[');
+                    appendGpus(json, store.list(now));
+                    json.append(']');
+                }
+                default -> {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+            }
+            byte[] body = json.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void summaryJson(StringBuilder json, FleetStore.Summary summary) {
+        json.append("{\"hosts\":").append(summary.hosts);
+        json.append(",\"stale_hosts\":").append(summary.staleHosts);
+        json.append(",\"gpus\":").append(summary.gpus);
+        json.append(",\"total_power_w\":").append(Math.round(summary.totalPowerWatts * 10) / 10.0);
+        json.append(",\"total_power_limit_w\":").append(summary.totalPowerLimitWatts);
+        json.append(",\"hottest\":[");
+        appendGpus(json, summary.hottest);
+        json.append("],\"most_throttled\":[");
+        appendGpus(json, summary.mostThrottled);
+        json.append("],\"anomalous\":[");
+        appendGpus(json, summary.anomalous);
+        json.append("]}");
+    }
+
+    private static void appendGpus(StringBuilder json, List<FleetStore.GpuView> gpus) {
+        for (int i = 0; i < gpus.size(); i++) {
+            FleetStore.GpuView gpu = gpus.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"host\":\"").append(escape(gpu.host));
+            json.append("\",\"address\":\"").append(escape(gpu.address));
+            json.append("\",\"gpu\":").append(gpu.gpu);
+            json.append(",\"name\":\"").append(escape(gpu.name));
+            json.append("\",\"temp\":").append(gpu.temperature);
+            json.append(",\"util\":").append(gpu.utilization);
+            json.append(",\"sclk\":").append(gpu.coreClock);
+            json.append(",\"peak_sclk\":").append(gpu.peakBusyClock);
+            json.append(",\"throttle_pct\":").append(gpu.throttlePercent);
+            json.append(",\"power\":").append(gpu.powerWatts < 0 ? -1 : Math.round(gpu.powerWatts * 10) / 10.0);
+            json.append(",\"power_limit\":").append(gpu.powerLimitWatts);
+            json.append(",\"mem_used\":").append(gpu.memoryUsedMb);
+            json.append(",\"mem_total\":").append(gpu.memoryTotalMb);
+            json.append(",\"fan\":").append(gpu.fanSpeed);
+            json.append(",\"anomalies\":[");
+            for (int stat = 0, n = 0; stat < AnomalyModel.STAT_COUNT; stat++) {
+                if ((gpu.anomalies & (1 << stat)) != 0) {
+                    json.append(n++ > 0 ? ",\"" : "\"").append(AnomalyModel.stat(stat).getKey()).append('"');
+                }
+            }
+            json.append(']');
+            json.append(",\"received\":").append(gpu.receivedMillis);
+            json.append(",\"stale\":").append(gpu.stale);
+            json.append('}');
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        http.stop(0);
+        httpExecutor.shutdownNow();
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Error closing fleet collector: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.gpustatix.fleet;
+
+import com.gpustatix.utils.SampleCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Agent-to-collector stream, big-endian. Every frame is: u16 length of the rest, u8 type.
+ * <pre>
+ * hello:   type 1, u16 version, u16+UTF-8 agent name, u8 GPU count, per GPU u16+UTF-8 name
+ * sample:  type 2, varint dt, varint GPU count, 5 host fields, 10 fields per GPU
+ * </pre>
+ * The agent sends hello once per connection. Sample timestamps and fields are zigzag deltas
+ * to the previous sample of the same connection (the first sample against zeros), encoded
+ * with {@link SampleCodec} like session recordings.
+ */
+final class FleetFormat {
+    static final short VERSION = 1;
+    static final byte FRAME_HELLO = 1;
+    static final byte FRAME_SAMPLE = 2;
+
+    static final int MAX_GPUS = 64;
+    // Длина кадра в u16; 64 GPU по 50 байт укладываются с запасом
+    static final int MAX_FRAME = 0xFFFF + 2;
+
+    private FleetFormat() {
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 255);
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,379 @@
+package com.gpustatix.fleet;
+
+import com.gpustatix.alert.AnomalyModel;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Latest state of every GPU reported to the collector, keyed by (agent name, agent address, gpu):
+ * two machines that report the same name show up as two hosts instead of overwriting each other.
+ * Connections update it once per read batch under the write lock; aggregates are computed
+ * under the read lock in one pass over the GPUs.
+ * <p>
+ * Agents do not report throttle reasons, so throttling is estimated: for a busy GPU
+ * (utilization at least {@link #BUSY_UTILIZATION}%) it is how far the core clock is below the
+ * highest clock that GPU has reached while busy.
+ * <p>
+ * Every GPU also carries {@link AnomalyModel} state (about 1 KB), fed with every received sample
+ * (not only the stored newest one, so the model's horizons stay in samples of agent time),
+ * so drifting thermals and failing fans are flagged fleet-wide without keeping history.
+ */
+public class FleetStore {
+    public static final int BUSY_UTILIZATION = 50;
+    private static final Comparator<GpuView> ORDER = Comparator.comparing((GpuView view) -> view.host)
+            .thenComparing(view -> view.address).thenComparingInt(view -> view.gpu);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, HostEntry> hosts = new HashMap<>();
+    private final long staleMillis;
+    private final AnomalyModel anomalyModel;
+
+    public FleetStore(long staleMillis) {
+        this(staleMillis, AnomalyModel.fromConfig());
+    }
+
+    public FleetStore(long staleMillis, AnomalyModel anomalyModel) {
+        this.staleMillis = staleMillis;
+        this.anomalyModel = anomalyModel;
+    }
+
+    /**
+     * Registers an agent; an agent reconnecting under the same name from the same address
+     * keeps its entries
+     * @param address IP address the agent connects from, without the port
+     * @return handle for {@link #update}
+     */
+    HostEntry register(String host, String address, String[] deviceNames) {
+        String key = host + '@' + address;
+        lock.writeLock().lock();
+        try {
+            HostEntry entry = hosts.get(key);
+            if (entry == null || entry.gpus.length != deviceNames.length) {
+                entry = new HostEntry(host, address, deviceNames.length, anomalyModel);
+                hosts.put(key, entry);
+            }
+            for (int i = 0; i < deviceNames.length; i++) {
+                entry.gpus[i].name = deviceNames[i];
+            }
+            return entry;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Feeds one decoded sample to the anomaly model without taking the store lock;
+     * the flags are published by the next {@link #update}
+     */
+    void observe(HostEntry entry, GpuSnapshot[] gpus, int count) {
+        synchronized (entry) {
+            for (int i = 0; i < count && i < entry.gpus.length; i++) {
+                GpuEntry gpu = entry.gpus[i];
+                gpu.observedAnomalies = anomalyModel.update(gpu.anomalyState, 0, gpus[i],
+                        entry.anomalyScores, entry.anomalyDeviations);
+            }
+        }
+    }
+
+    /**
+     * Stores the newest sample of a read batch
+     */
+    void update(HostEntry entry, HostSnapshot host, GpuSnapshot[] gpus, int count, long receivedMillis) {
+        lock.writeLock().lock();
+        try {
+            synchronized (entry) {
+                for (GpuEntry gpu : entry.gpus) {
+                    gpu.anomalies = gpu.observedAnomalies;
+                }
+            }
+            entry.host.copyFrom(host);
+            entry.receivedMillis = receivedMillis;
+            for (int i = 0; i < count && i < entry.gpus.length; i++) {
+                GpuEntry gpu = entry.gpus[i];
+                gpu.snapshot.copyFrom(gpus[i]);
+                gpu.snapshot.setDeviceIndex(i);
+                int clock = gpus[i].getCoreClock();
+                if (gpus[i].getUtilization() >= BUSY_UTILIZATION && clock > gpu.peakBusyClock) {
+                    gpu.peakBusyClock = clock;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param top how many GPUs to list as hottest and most throttled
+     */
+    public Summary summarize(int top, long nowMillis) {
+        Comparator<GpuView> byTemperature = Comparator.comparingInt(view -> view.temperature);
+        Comparator<GpuView> byThrottle = Comparator.comparingInt(view -> view.throttlePercent);
+        // Кучи на top элементов: наименьший в голове и вытесняется первым
+        PriorityQueue<GpuView> hottest = new PriorityQueue<>(top + 1, byTemperature);
+        PriorityQueue<GpuView> throttled = new PriorityQueue<>(top + 1, byThrottle);
+        List<GpuView> anomalous = new ArrayList<>();
+        Summary summary = new Summary();
+        lock.readLock().lock();
+        try {
+            for (HostEntry host : hosts.values()) {
+                boolean live = nowMillis - host.receivedMillis <= staleMillis;
+                summary.hosts++;
+                if (!live) {
+                    summary.staleHosts++;
+                    continue;
+                }
+                for (GpuEntry gpu : host.gpus) {
+                    summary.gpus++;
+                    GpuSnapshot snapshot = gpu.snapshot;
+                    if (snapshot.getPowerUsage() > 0) {
+                        summary.totalPowerWatts += snapshot.getPowerUsage();
+                    }
+                    if (snapshot.getPowerLimit() > 0) {
+                        summary.totalPowerLimitWatts += snapshot.getPowerLimit();
+                    }
+                    if (snapshot.getTemperature() >= 0) {
+                        offer(hottest, view(host, gpu), top, byTemperature);
+                    }
+                    int throttle = throttlePercent(gpu);
+                    if (throttle > 0) {
+                        offer(throttled, view(host, gpu), top, byThrottle);
+                    }
+                    if (gpu.anomalies != 0 && anomalous.size() < top) {
+                        anomalous.add(view(host, gpu));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        summary.hottest = descending(hottest, byTemperature);
+        summary.mostThrottled = descending(throttled, byThrottle);
+        anomalous.sort(ORDER);
+        summary.anomalous = anomalous;
+        return summary;
+    }
+
+    /**
+     * @return every known GPU, stale ones included
+     */
+    public List<GpuView> list(long nowMillis) {
+        List<GpuView> views = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (HostEntry host : hosts.values()) {
+                for (GpuEntry gpu : host.gpus) {
+                    GpuView view = view(host, gpu);
+                    view.stale = nowMillis - host.receivedMillis > staleMillis;
+                    views.add(view);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        views.sort(ORDER);
+        return views;
+    }
+
+    private static void offer(PriorityQueue<GpuView> heap, GpuView view, int top, Comparator<GpuView> order) {
+        if (heap.size() < top) {
+            heap.add(view);
+        } else if (top > 0 && order.compare(view, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(view);
+        }
+    }
+
+    private static List<GpuView> descending(PriorityQueue<GpuView> heap, Comparator<GpuView> order) {
+        List<GpuView> list = new ArrayList<>(heap);
+        list.sort(order.reversed());
+        return list;
+    }
+
+    private static int throttlePercent(GpuEntry gpu) {
+        GpuSnapshot snapshot = gpu.snapshot;
+        int clock = snapshot.getCoreClock();
+        if (gpu.peakBusyClock <= 0 || clock < 0 || snapshot.getUtilization() < BUSY_UTILIZATION) {
+            return 0;
+        }
+        return Math.max(0, (gpu.peakBusyClock - clock) * 100 / gpu.peakBusyClock);
+    }
+
+    private static GpuView view(HostEntry host, GpuEntry gpu) {
+        GpuView view = new GpuView();
+        GpuSnapshot snapshot = gpu.snapshot;
+        view.host = host.name;
+        view.address = host.address;
+        view.gpu = snapshot.getDeviceIndex();
+        view.name = gpu.name;
+        view.temperature = snapshot.getTemperature();
+        view.utilization = snapshot.getUtilization();
+        view.coreClock = snapshot.getCoreClock();
+        view.peakBusyClock = gpu.peakBusyClock;
+        view.throttlePercent = throttlePercent(gpu);
+        view.powerWatts = snapshot.getPowerUsage();
+        view.powerLimitWatts = snapshot.getPowerLimit();
+        view.memoryUsedMb = snapshot.getMemoryUsedMb();
+        view.memoryTotalMb = snapshot.getMemoryTotalMb();
+        view.fanSpeed = snapshot.getFanSpeed();
+        view.anomalies = gpu.anomalies;
+        view.receivedMillis = host.receivedMillis;
+        return view;
+    }
+
+    /**
+     * Fleet-wide aggregates over live hosts
+     */
+    public static final class Summary {
+        int hosts;
+        int staleHosts;
+        int gpus;
+        double totalPowerWatts;
+        long totalPowerLimitWatts;
+        List<GpuView> hottest;
+        List<GpuView> mostThrottled;
+        List<GpuView> anomalous;
+
+        public int getHosts() {
+            return hosts;
+        }
+
+        public int getStaleHosts() {
+            return staleHosts;
+        }
+
+        public int getGpus() {
+            return gpus;
+        }
+
+        public double getTotalPowerWatts() {
+            return totalPowerWatts;
+        }
+
+        public long getTotalPowerLimitWatts() {
+            return totalPowerLimitWatts;
+        }
+
+        public List<GpuView> getHottest() {
+            return hottest;
+        }
+
+        public List<GpuView> getMostThrottled() {
+            return mostThrottled;
+        }
+
+        /**
+         * @return live GPUs with a flagged anomaly, at most top of them
+         */
+        public List<GpuView> getAnomalous() {
+            return anomalous;
+        }
+    }
+
+    /**
+     * Copy of one GPU's state taken under the store lock
+     */
+    public static final class GpuView {
+        String host;
+        String address;
+        int gpu;
+        String name;
+        int temperature;
+        int utilization;
+        int coreClock;
+        int peakBusyClock;
+        int throttlePercent;
+        float powerWatts;
+        int powerLimitWatts;
+        int memoryUsedMb;
+        int memoryTotalMb;
+        int fanSpeed;
+        int anomalies;
+        long receivedMillis;
+        boolean stale;
+
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * @return IP address the agent connects from
+         */
+        public String getAddress() {
+            return address;
+        }
+
+        public int getGpu() {
+            return gpu;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getTemperature() {
+            return temperature;
+        }
+
+        public int getThrottlePercent() {
+            return throttlePercent;
+        }
+
+        public float getPowerWatts() {
+            return powerWatts;
+        }
+
+        public boolean isStale() {
+            return stale;
+        }
+
+        /**
+         * @return bit i set if {@link AnomalyModel.Stat} i is flagged
+         */
+        public int getAnomalies() {
+            return anomalies;
+        }
+    }
+
+    static final class HostEntry {
+        final String name;
+        final String address;
+        final HostSnapshot host = new HostSnapshot();
+        final GpuEntry[] gpus;
+        // Рабочие массивы модели аномалий, под монитором HostEntry
+        final float[] anomalyScores = new float[AnomalyModel.STAT_COUNT];
+        final float[] anomalyDeviations = new float[AnomalyModel.STAT_COUNT];
+        long receivedMillis;
+
+        HostEntry(String name, String address, int gpuCount, AnomalyModel anomalyModel) {
+            this.name = name;
+            this.address = address;
+            gpus = new GpuEntry[gpuCount];
+            for (int i = 0; i < gpuCount; i++) {
+                gpus[i] = new GpuEntry(i, anomalyModel.newState(1));
+            }
+        }
+    }
+
+    private static final class GpuEntry {
+        final GpuSnapshot snapshot;
+        final double[] anomalyState;
+        String name;
+        int peakBusyClock;
+        int anomalies;
+        // Флаги после последней выборки, под монитором HostEntry
+        int observedAnomalies;
+
+        GpuEntry(int index, double[] anomalyState) {
+            snapshot = new GpuSnapshot(index);
+            this.anomalyState = anomalyState;
+        }
+    }
+}
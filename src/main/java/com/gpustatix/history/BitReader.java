@@ -0,0 +1,55 @@
+package com.gpustatix.history;
+
+/**
+ * Reads bit fields written by {@link BitWriter}
+ */
+class BitReader {
+    private byte[] bytes;
+    private int offset;
+    private long position;
+    private long limit;
+
+    void wrap(byte[] bytes, int offset, long bitLength) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.position = 0;
+        this.limit = bitLength;
+    }
+
+    boolean hasRemaining() {
+        return position < limit;
+    }
+
+    boolean readBit() {
+        int b = bytes[offset + (int) (position >>> 3)];
+        boolean bit = (b & (0x80 >>> (position & 7))) != 0;
+        position++;
+        return bit;
+    }
+
+    long readBits(int count) {
+        long value = 0;
+        while (count > 0) {
+            int b = bytes[offset + (int) (position >>> 3)] & 0xff;
+            int available = 8 - (int) (position & 7);
+            int take = Math.min(available, count);
+            int chunk = (b >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            position += take;
+            count -= take;
+        }
+        return value;
+    }
+
+    /**
+     * Reads a unary prefix of at most {@code max} ones terminated by a zero
+     * @return number of ones read
+     */
+    int readPrefix(int max) {
+        int ones = 0;
+        while (ones < max && readBit()) {
+            ones++;
+        }
+        return ones;
+    }
+}
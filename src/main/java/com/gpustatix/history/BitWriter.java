@@ -0,0 +1,63 @@
+package com.gpustatix.history;
+
+import java.util.Arrays;
+
+/**
+ * Appends bit fields to a growable byte array, most significant bit first
+ */
+class BitWriter {
+    private byte[] bytes;
+    private long bitLength;
+
+    BitWriter(int initialBytes) {
+        bytes = new byte[Math.max(16, initialBytes)];
+    }
+
+    void reset() {
+        Arrays.fill(bytes, 0, (int) ((bitLength + 7) >>> 3), (byte) 0);
+        bitLength = 0;
+    }
+
+    long bitLength() {
+        return bitLength;
+    }
+
+    int byteLength() {
+        return (int) ((bitLength + 7) >>> 3);
+    }
+
+    byte[] array() {
+        return bytes;
+    }
+
+    void writeBit(boolean bit) {
+        ensure(1);
+        if (bit) {
+            bytes[(int) (bitLength >>> 3)] |= (byte) (0x80 >>> (bitLength & 7));
+        }
+        bitLength++;
+    }
+
+    /**
+     * Writes the lowest {@code count} bits of value
+     */
+    void writeBits(long value, int count) {
+        ensure(count);
+        while (count > 0) {
+            int index = (int) (bitLength >>> 3);
+            int free = 8 - (int) (bitLength & 7);
+            int take = Math.min(free, count);
+            int chunk = (int) ((value >>> (count - take)) & ((1L << take) - 1));
+            bytes[index] |= (byte) (chunk << (free - take));
+            bitLength += take;
+            count -= take;
+        }
+    }
+
+    private void ensure(int bits) {
+        long needed = (bitLength + bits + 7) >>> 3;
+        if (needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.max(needed, bytes.length * 2L));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.gpustatix.history;
+
+/**
+ * Streaming decoder for chunks written by {@link ChunkEncoder}.
+ * Call {@link #next()} until it returns false; values of the current sample are read in place.
+ */
+class ChunkDecoder {
+    private final Metric[] metrics;
+    private final BitReader in = new BitReader();
+    private final int[] bits;
+    private final int[] previousLeading;
+    private final int[] previousTrailing;
+    private int remaining;
+    private boolean first;
+    private long timestamp;
+    private long delta;
+
+    ChunkDecoder(Metric[] metrics) {
+        this.metrics = metrics;
+        bits = new int[metrics.length];
+        previousLeading = new int[metrics.length];
+        previousTrailing = new int[metrics.length];
+    }
+
+    void wrap(byte[] data, int offset, long bitLength, int count) {
+        in.wrap(data, offset, bitLength);
+        remaining = count;
+        first = true;
+    }
+
+    boolean next() {
+        if (remaining == 0) {
+            return false;
+        }
+        remaining--;
+        if (first) {
+            first = false;
+            timestamp = in.readBits(64);
+            delta = 0;
+            for (int i = 0; i < metrics.length; i++) {
+                bits[i] = (int) in.readBits(32);
+                previousLeading[i] = -1;
+            }
+            return true;
+        }
+
+        delta += readDeltaOfDelta();
+        timestamp += delta;
+        for (int i = 0; i < metrics.length; i++) {
+            if (metrics[i].isInteger()) {
+                readInteger(i);
+            } else {
+                readFloat(i);
+            }
+        }
+        return true;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @param column index into the metrics passed to the constructor
+     */
+    float getValue(int column) {
+        return metrics[column].isInteger() ? bits[column] : Float.intBitsToFloat(bits[column]);
+    }
+
+    private long readDeltaOfDelta() {
+        return switch (in.readPrefix(4)) {
+            case 0 -> 0;
+            case 1 -> signExtend(in.readBits(7), 7);
+            case 2 -> signExtend(in.readBits(9), 9);
+            case 3 -> signExtend(in.readBits(12), 12);
+            default -> in.readBits(64);
+        };
+    }
+
+    private void readInteger(int column) {
+        int width = switch (in.readPrefix(4)) {
+            case 0 -> 0;
+            case 1 -> 4;
+            case 2 -> 8;
+            case 3 -> 16;
+            default -> -1;
+        };
+        if (width == 0) {
+            return;
+        }
+        if (width < 0) {
+            bits[column] = (int) in.readBits(32);
+            return;
+        }
+        int zigzag = (int) in.readBits(width);
+        bits[column] += (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private void readFloat(int column) {
+        if (!in.readBit()) {
+            return;
+        }
+        int xor;
+        if (!in.readBit()) {
+            int length = 32 - previousLeading[column] - previousTrailing[column];
+            xor = (int) in.readBits(length) << previousTrailing[column];
+        } else {
+            int leading = (int) in.readBits(5);
+            int length = (int) in.readBits(5) + 1;
+            int trailing = 32 - leading - length;
+            xor = (int) in.readBits(length) << trailing;
+            previousLeading[column] = leading;
+            previousTrailing[column] = trailing;
+        }
+        bits[column] ^= xor;
+    }
+
+    private static long signExtend(long value, int width) {
+        long shift = 64 - width;
+        return (value << shift) >> shift;
+    }
+}
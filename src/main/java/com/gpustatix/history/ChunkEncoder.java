@@ -0,0 +1,155 @@
+package com.gpustatix.history;
+
+/**
+ * Gorilla-style encoder for one chunk of samples of one device.
+ * Timestamps are stored as delta-of-delta, float metrics as XOR against the previous value,
+ * integer metrics (temperatures, percentages, clocks) as zig-zag deltas in a few bit-width classes.
+ * Samples are encoded row by row, so the chunk can be decoded as a stream.
+ */
+class ChunkEncoder {
+    private final Metric[] metrics;
+    private final BitWriter out = new BitWriter(4096);
+
+    private int count;
+    private long firstTimestamp;
+    private long previousTimestamp;
+    private long previousDelta;
+    private final int[] previousBits;
+    private final int[] previousLeading;
+    private final int[] previousTrailing;
+
+    /**
+     * @param metrics columns of this chunk, in the order they are written
+     */
+    ChunkEncoder(Metric[] metrics) {
+        this.metrics = metrics;
+        previousBits = new int[metrics.length];
+        previousLeading = new int[metrics.length];
+        previousTrailing = new int[metrics.length];
+    }
+
+    void reset() {
+        out.reset();
+        count = 0;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return previousTimestamp;
+    }
+
+    BitWriter getOutput() {
+        return out;
+    }
+
+    /**
+     * @param values one value per column, same order as the metrics passed to the constructor
+     */
+    void add(long timestamp, float[] values) {
+        if (count == 0) {
+            firstTimestamp = timestamp;
+            out.writeBits(timestamp, 64);
+            for (int i = 0; i < metrics.length; i++) {
+                int bits = metrics[i].isInteger() ? (int) values[i] : Float.floatToRawIntBits(values[i]);
+                out.writeBits(bits, 32);
+                previousBits[i] = bits;
+                previousLeading[i] = -1;
+            }
+            previousDelta = 0;
+        } else {
+            long delta = timestamp - previousTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            previousDelta = delta;
+            for (int i = 0; i < metrics.length; i++) {
+                if (metrics[i].isInteger()) {
+                    writeInteger(i, (int) values[i]);
+                } else {
+                    writeFloat(i, Float.floatToRawIntBits(values[i]));
+                }
+            }
+        }
+        previousTimestamp = timestamp;
+        count++;
+    }
+
+    /**
+     * '0' - same interval; '10' 7 bits; '110' 9 bits; '1110' 12 bits; '1111' 64 bits, two's complement
+     */
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            out.writeBit(false);
+        } else if (dod >= -64 && dod <= 63) {
+            out.writeBits(0b10, 2);
+            out.writeBits(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            out.writeBits(0b110, 3);
+            out.writeBits(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(dod, 12);
+        } else {
+            // Полная ширина: разрыв во времени больше 24 дней не помещается в 32 бита
+            out.writeBits(0b1111, 4);
+            out.writeBits(dod, 64);
+        }
+    }
+
+    /**
+     * '0' - unchanged; '10' 4-bit zig-zag delta; '110' 8 bits; '1110' 16 bits; '1111' raw 32 bits
+     */
+    private void writeInteger(int column, int value) {
+        int delta = value - previousBits[column];
+        previousBits[column] = value;
+        int zigzag = (delta << 1) ^ (delta >> 31);
+        if (delta == 0) {
+            out.writeBit(false);
+        } else if ((zigzag >>> 4) == 0) {
+            out.writeBits(0b10, 2);
+            out.writeBits(zigzag, 4);
+        } else if ((zigzag >>> 8) == 0) {
+            out.writeBits(0b110, 3);
+            out.writeBits(zigzag, 8);
+        } else if ((zigzag >>> 16) == 0) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(zigzag, 16);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(value, 32);
+        }
+    }
+
+    /**
+     * '0' - identical; '10' - meaningful bits fit the previous window; '11' 5-bit leading, 5-bit length minus one, bits
+     */
+    private void writeFloat(int column, int bits) {
+        int xor = bits ^ previousBits[column];
+        previousBits[column] = bits;
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+        int leading = Math.min(31, Integer.numberOfLeadingZeros(xor));
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        if (previousLeading[column] >= 0 && leading >= previousLeading[column]
+                && trailing >= previousTrailing[column]) {
+            out.writeBits(0b10, 2);
+            int length = 32 - previousLeading[column] - previousTrailing[column];
+            out.writeBits(xor >>> previousTrailing[column], length);
+        } else {
+            out.writeBits(0b11, 2);
+            int length = 32 - leading - trailing;
+            out.writeBits(leading, 5);
+            out.writeBits(length - 1, 5);
+            out.writeBits(xor >>> trailing, length);
+            previousLeading[column] = leading;
+            previousTrailing[column] = trailing;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.gpustatix.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel aggregation over the segments of a {@link SampleLog}.
+ * Planning pushes the predicates down: segments outside the time range or without any wanted
+ * device are dropped, the remaining ones are narrowed to a record range through their sparse
+ * time index and cut into splits. Splits are scanned by a fork-join task tree, each leaf into its
+ * own {@link MetricAccumulator}, skipping index blocks whose device mask does not match;
+ * the partial results are merged on the way back up. Records of one tick are interleaved by
+ * device, so a single-device query still reads every block unless that device was absent
+ * for part of the log. Used by {@code --export --summary}.
+ */
+public class HistoryQueryEngine {
+    static final int SPLIT_RECORDS = 64 * LogSegment.INDEX_INTERVAL * 4;
+
+    private final SampleLog log;
+    private final ForkJoinPool pool;
+
+    public HistoryQueryEngine(SampleLog log) {
+        this(log, ForkJoinPool.commonPool());
+    }
+
+    public HistoryQueryEngine(SampleLog log, ForkJoinPool pool) {
+        this.log = log;
+        this.pool = pool;
+    }
+
+    /**
+     * Min/max/average of a metric per device over from <= ts <= to
+     * @param devices GPU indices and/or {@link MetricStore#HOST}; none means every device
+     */
+    public MetricAccumulator aggregate(Metric metric, long from, long to, int... devices) {
+        long mask = 0;
+        for (int device : devices) {
+            mask |= LogSegment.deviceBit(device);
+        }
+        if (devices.length == 0) {
+            mask = -1L;
+        }
+
+        List<Split> splits = plan(from, to, mask);
+        if (splits.isEmpty()) {
+            return new MetricAccumulator();
+        }
+        return pool.invoke(new ScanTask(splits, 0, splits.size(), from, to, mask, metric));
+    }
+
+    List<Split> plan(long from, long to, long mask) {
+        List<Split> splits = new ArrayList<>();
+        List<LogSegment> segments = log.segments();
+        for (int i = 0; i < segments.size(); i++) {
+            LogSegment segment = segments.get(i);
+            int count = segment.getCount();
+            if (count == 0 || (segment.getDeviceMask() & mask) == 0) {
+                continue;
+            }
+            if (segment.getLastTimestamp() < from || segment.timestampAt(0) > to) {
+                continue;
+            }
+            int first = segment.seek(from);
+            int end = to == Long.MAX_VALUE ? count : segment.seek(to + 1);
+            end = Math.min(end, count);
+            for (int start = first; start < end; start += SPLIT_RECORDS) {
+                splits.add(new Split(segment, start, Math.min(end, start + SPLIT_RECORDS)));
+            }
+        }
+        return splits;
+    }
+
+    /**
+     * Record range of one segment scanned by a single leaf task
+     */
+    static class Split {
+        final LogSegment segment;
+        final int from;
+        final int to;
+
+        Split(LogSegment segment, int from, int to) {
+            this.segment = segment;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static class ScanTask extends RecursiveTask<MetricAccumulator> {
+        private final List<Split> splits;
+        private final int low;
+        private final int high;
+        private final long fromTs;
+        private final long toTs;
+        private final long mask;
+        private final Metric metric;
+
+        ScanTask(List<Split> splits, int low, int high, long fromTs, long toTs, long mask, Metric metric) {
+            this.splits = splits;
+            this.low = low;
+            this.high = high;
+            this.fromTs = fromTs;
+            this.toTs = toTs;
+            this.mask = mask;
+            this.metric = metric;
+        }
+
+        @Override
+        protected MetricAccumulator compute() {
+            if (high - low == 1) {
+                Split split = splits.get(low);
+                MetricAccumulator accumulator = new MetricAccumulator();
+                split.segment.aggregate(split.from, split.to, fromTs, toTs, mask, metric, accumulator);
+                return accumulator;
+            }
+            int mid = (low + high) >>> 1;
+            ScanTask left = new ScanTask(splits, low, mid, fromTs, toTs, mask, metric);
+            ScanTask right = new ScanTask(splits, mid, high, fromTs, toTs, mask, metric);
+            left.fork();
+            MetricAccumulator result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+}
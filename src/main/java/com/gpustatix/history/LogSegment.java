@@ -0,0 +1,376 @@
+package com.gpustatix.history;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped segment of the sample log.
+ * <pre>
+ * header (64 bytes): magic, version, record size, metric count, capacity, sealed flag, record count, created,
+ *                    device mask
+ * sparse index: (timestamp, record number, device mask) for every INDEX_INTERVAL-th record
+ * records: {@link SampleRecord#SIZE} bytes each
+ * </pre>
+ * The record count in the header is only written when the segment is sealed; an unsealed
+ * segment is recovered by validating record checksums, starting at the last index entry.
+ * Device masks have bit (device + 1) set for every device with a record in the segment or
+ * index block (host = bit 0, GPUs from 62 up share bit 63). Every tick writes one record per
+ * device, so blocks are normally interleaved and hold all devices; the masks only let queries
+ * skip segments and blocks written while a device was absent (not yet present, removed, or
+ * missing from a replayed session).
+ */
+class LogSegment implements AutoCloseable {
+    static final long MAGIC = 0x4750555354415831L; // "GPUSTAX1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int INDEX_INTERVAL = 256;
+    private static final int INDEX_ENTRY_SIZE = 24;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int RECORD_SIZE_OFFSET = 12;
+    private static final int METRIC_COUNT_OFFSET = 16;
+    private static final int CAPACITY_OFFSET = 20;
+    private static final int SEALED_OFFSET = 24;
+    private static final int COUNT_OFFSET = 32;
+    private static final int CREATED_OFFSET = 40;
+    private static final int DEVICE_MASK_OFFSET = 48;
+
+    private final Path path;
+    private final int capacity;
+    private final int indexOffset;
+    private final int recordsOffset;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer crcView;
+    private final long firstTimestamp;
+    private volatile int count;
+    private volatile long lastTimestamp = Long.MIN_VALUE;
+    private long deviceMask;
+    private boolean sealed;
+
+    private LogSegment(Path path, MappedByteBuffer buffer, int capacity, long firstTimestamp) {
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.indexOffset = HEADER_SIZE;
+        this.recordsOffset = HEADER_SIZE + indexEntries(capacity) * INDEX_ENTRY_SIZE;
+        this.crcView = buffer.duplicate();
+        this.firstTimestamp = firstTimestamp;
+    }
+
+    static int indexEntries(int capacity) {
+        return (capacity + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+    }
+
+    static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) indexEntries(capacity) * INDEX_ENTRY_SIZE + (long) capacity * SampleRecord.SIZE;
+    }
+
+    /**
+     * Creates and preallocates a new segment
+     */
+    static LogSegment create(Path path, int capacity, long firstTimestamp) throws IOException {
+        MappedByteBuffer buffer = map(path, fileSize(capacity), true);
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(RECORD_SIZE_OFFSET, SampleRecord.SIZE);
+        buffer.putInt(METRIC_COUNT_OFFSET, Metric.count());
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(SEALED_OFFSET, 0);
+        buffer.putLong(COUNT_OFFSET, 0);
+        buffer.putLong(CREATED_OFFSET, System.currentTimeMillis());
+        buffer.putLong(DEVICE_MASK_OFFSET, 0L);
+        return new LogSegment(path, buffer, capacity, firstTimestamp);
+    }
+
+    /**
+     * Opens an existing segment, truncating a torn tail if it was not sealed
+     * @param writable map read-write (for the segment that continues to receive records)
+     */
+    static LogSegment open(Path path, long firstTimestamp, boolean writable) throws IOException {
+        MappedByteBuffer buffer = map(path, -1, writable);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("Not a sample log segment: " + path);
+        }
+        if (buffer.getInt(VERSION_OFFSET) != VERSION || buffer.getInt(RECORD_SIZE_OFFSET) != SampleRecord.SIZE) {
+            throw new IOException("Unsupported segment format: " + path);
+        }
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        LogSegment segment = new LogSegment(path, buffer, capacity, firstTimestamp);
+        segment.sealed = buffer.getInt(SEALED_OFFSET) == 1;
+        segment.deviceMask = buffer.getLong(DEVICE_MASK_OFFSET);
+        if (segment.sealed) {
+            segment.count = (int) buffer.getLong(COUNT_OFFSET);
+        } else {
+            segment.recover(writable);
+        }
+        if (segment.count > 0) {
+            segment.lastTimestamp = segment.timestampAt(segment.count - 1);
+        }
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, long size, boolean writable) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), writable ? "rw" : "r")) {
+            if (size > 0) {
+                file.setLength(size);
+            }
+            FileChannel channel = file.getChannel();
+            return channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+        }
+    }
+
+    /**
+     * Finds the end of valid data: starts at the last index entry whose record checks out
+     * and walks forward until a record fails its checksum
+     */
+    private void recover(boolean writable) {
+        int start = 0;
+        for (int entry = indexEntries(capacity) - 1; entry >= 0; entry--) {
+            int record = (int) buffer.getLong(indexOffset + entry * INDEX_ENTRY_SIZE + 8);
+            long ts = buffer.getLong(indexOffset + entry * INDEX_ENTRY_SIZE);
+            if (ts != 0 && record == entry * INDEX_INTERVAL && isValid(record)) {
+                start = record;
+                break;
+            }
+        }
+        int n = start;
+        while (n < capacity && isValid(n)) {
+            n++;
+        }
+        count = n;
+
+        if (writable && n < capacity && buffer.getLong(recordOffset(n)) != 0) {
+            System.err.println("Truncating torn record " + n + " in " + path.getFileName());
+            for (int i = 0; i < SampleRecord.SIZE; i += 8) {
+                buffer.putLong(recordOffset(n) + i, 0L);
+            }
+        }
+        // Индексные записи за пределами валидных данных недействительны
+        if (writable) {
+            for (int entry = (n + INDEX_INTERVAL - 1) / INDEX_INTERVAL; entry < indexEntries(capacity); entry++) {
+                buffer.putLong(indexOffset + entry * INDEX_ENTRY_SIZE, 0L);
+                buffer.putLong(indexOffset + entry * INDEX_ENTRY_SIZE + 8, 0L);
+                buffer.putLong(indexOffset + entry * INDEX_ENTRY_SIZE + 16, 0L);
+            }
+        }
+    }
+
+    private boolean isValid(int record) {
+        int offset = recordOffset(record);
+        if (buffer.getLong(offset + SampleRecord.TIMESTAMP_OFFSET) == 0) {
+            return false;
+        }
+        return checksum(offset) == buffer.getInt(offset + SampleRecord.CRC_OFFSET);
+    }
+
+    private int checksum(int offset) {
+        crc.reset();
+        crcView.limit(offset + SampleRecord.CRC_OFFSET).position(offset);
+        crc.update(crcView);
+        return (int) crc.getValue();
+    }
+
+    private int recordOffset(int record) {
+        return recordsOffset + record * SampleRecord.SIZE;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * @return true if the writer can continue this segment after a restart
+     */
+    boolean isAppendable() {
+        return !sealed && !isFull();
+    }
+
+    long timestampAt(int record) {
+        return buffer.getLong(recordOffset(record) + SampleRecord.TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * Writes one record; single writer only
+     * @param values one value per metric in ordinal order
+     */
+    void append(long timestamp, int device, float[] values) {
+        int n = count;
+        int offset = recordOffset(n);
+        buffer.putLong(offset + SampleRecord.TIMESTAMP_OFFSET, timestamp);
+        buffer.putShort(offset + SampleRecord.DEVICE_OFFSET, (short) device);
+        buffer.putShort(offset + SampleRecord.DEVICE_OFFSET + 2, (short) 0);
+        for (int m = 0; m < values.length; m++) {
+            buffer.putFloat(offset + SampleRecord.VALUES_OFFSET + m * 4, values[m]);
+        }
+        buffer.putInt(offset + SampleRecord.CRC_OFFSET, checksum(offset));
+        long bit = deviceBit(device);
+        int entry = indexOffset + (n / INDEX_INTERVAL) * INDEX_ENTRY_SIZE;
+        if (n % INDEX_INTERVAL == 0) {
+            buffer.putLong(entry + 16, bit);
+            buffer.putLong(entry + 8, n);
+            buffer.putLong(entry, timestamp);
+        } else {
+            long blockMask = buffer.getLong(entry + 16);
+            if ((blockMask & bit) == 0) {
+                buffer.putLong(entry + 16, blockMask | bit);
+            }
+        }
+        if ((deviceMask & bit) == 0) {
+            deviceMask |= bit;
+            buffer.putLong(DEVICE_MASK_OFFSET, deviceMask);
+        }
+        lastTimestamp = timestamp;
+        count = n + 1; // volatile: публикует запись читателям
+    }
+
+    /**
+     * Writes the final record count so the next open does not need recovery
+     */
+    void seal() {
+        buffer.putLong(COUNT_OFFSET, count);
+        buffer.putInt(SEALED_OFFSET, 1);
+        buffer.force();
+        sealed = true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * @return first record with timestamp >= from, found via the sparse index then a short binary search
+     */
+    int seek(long from) {
+        int n = count;
+        int entries = (n + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(indexOffset + mid * INDEX_ENTRY_SIZE) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int recordLow = Math.max(0, (low - 1) * INDEX_INTERVAL);
+        int recordHigh = Math.min(n, low * INDEX_INTERVAL);
+        while (recordLow < recordHigh) {
+            int mid = (recordLow + recordHigh) >>> 1;
+            if (timestampAt(mid) < from) {
+                recordLow = mid + 1;
+            } else {
+                recordHigh = mid;
+            }
+        }
+        return recordLow;
+    }
+
+    /**
+     * Visits records in [from, to] directly from the mapping
+     * @return false if the visitor asked to stop
+     */
+    boolean scan(long from, long to, SampleLog.RecordVisitor visitor, SampleRecord flyweight) {
+        int n = count;
+        for (int record = seek(from); record < n; record++) {
+            int offset = recordOffset(record);
+            if (buffer.getLong(offset + SampleRecord.TIMESTAMP_OFFSET) > to) {
+                break;
+            }
+            flyweight.wrap(buffer, offset);
+            if (!visitor.visit(flyweight)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long deviceBit(int device) {
+        return 1L << Math.min(63, Math.max(0, device + 1));
+    }
+
+    /**
+     * @return devices present in the segment; after a crash it may include devices of discarded records
+     */
+    long getDeviceMask() {
+        return deviceMask;
+    }
+
+    /**
+     * @return bytes actually written; the preallocated file is sparse beyond that
+     */
+    long getUsedBytes() {
+        return recordsOffset + (long) count * SampleRecord.SIZE;
+    }
+
+    /**
+     * Aggregates one metric over records [fromRecord, toRecord) with fromTs <= ts <= toTs whose device
+     * is in the mask. Index blocks without any wanted device are skipped without touching their records.
+     * Negative values (unavailable readings) and NaN are ignored.
+     */
+    void aggregate(int fromRecord, int toRecord, long fromTs, long toTs, long devices, Metric metric,
+                   MetricAccumulator accumulator) {
+        int valueOffset = SampleRecord.VALUES_OFFSET + metric.ordinal() * 4;
+        int record = fromRecord;
+        while (record < toRecord) {
+            int block = record / INDEX_INTERVAL;
+            int blockEnd = Math.min(toRecord, (block + 1) * INDEX_INTERVAL);
+            long blockMask = buffer.getLong(indexOffset + block * INDEX_ENTRY_SIZE + 16);
+            if ((blockMask & devices) == 0) {
+                accumulator.skippedBlock();
+                record = blockEnd;
+                continue;
+            }
+            for (; record < blockEnd; record++) {
+                int offset = recordOffset(record);
+                long ts = buffer.getLong(offset + SampleRecord.TIMESTAMP_OFFSET);
+                if (ts > toTs) {
+                    accumulator.scanned(record - fromRecord);
+                    return;
+                }
+                int device = buffer.getShort(offset + SampleRecord.DEVICE_OFFSET);
+                if (ts < fromTs || (deviceBit(device) & devices) == 0) {
+                    continue;
+                }
+                float value = buffer.getFloat(offset + valueOffset);
+                if (value >= 0) {
+                    accumulator.add(device, value);
+                }
+            }
+        }
+        accumulator.scanned(toRecord - fromRecord);
+    }
+
+    @Override
+    public void close() {
+        // MappedByteBuffer освобождается сборщиком мусора
+    }
+}
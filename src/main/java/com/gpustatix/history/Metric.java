@@ -0,0 +1,102 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+
+/**
+ * Metrics kept in history. GPU metrics are stored per device, host metrics once per machine.
+ */
+public enum Metric {
+    GPU_TEMPERATURE("gpu_temperature", "°C", false, true),
+    GPU_UTILIZATION("gpu_utilization", "%", false, true),
+    GPU_MEMORY_USED("gpu_memory_used", "MB", false, true),
+    GPU_CORE_CLOCK("gpu_core_clock", "MHz", false, true),
+    GPU_MEMORY_CLOCK("gpu_memory_clock", "MHz", false, true),
+    GPU_POWER("gpu_power", "W", false, false),
+    GPU_FAN_SPEED("gpu_fan_speed", "%", false, true),
+    GPU_FAN_RPM("gpu_fan_rpm", "RPM", false, true),
+    CPU_LOAD("cpu_load", "%", true, false),
+    CPU_FREQUENCY("cpu_frequency", "MHz", true, true),
+    CPU_TEMPERATURE("cpu_temperature", "°C", true, true),
+    RAM_USED("ram_used", "MB", true, true);
+
+    private static final Metric[] VALUES = values();
+
+    private final String key;
+    private final String unit;
+    private final boolean host;
+    private final boolean integer;
+
+    Metric(String key, String unit, boolean host, boolean integer) {
+        this.key = key;
+        this.unit = unit;
+        this.host = host;
+        this.integer = integer;
+    }
+
+    public static Metric byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    public static Metric byKey(String key) {
+        for (Metric metric : VALUES) {
+            if (metric.key.equals(key)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric: " + key);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public boolean isHost() {
+        return host;
+    }
+
+    /**
+     * @return true if the metric only takes whole values (temperatures, percentages, clocks)
+     */
+    public boolean isInteger() {
+        return integer;
+    }
+
+    /**
+     * @return the value of this GPU metric, negative if unavailable
+     */
+    public float read(GpuSnapshot gpu) {
+        return switch (this) {
+            case GPU_TEMPERATURE -> gpu.getTemperature();
+            case GPU_UTILIZATION -> gpu.getUtilization();
+            case GPU_MEMORY_USED -> gpu.getMemoryUsedMb();
+            case GPU_CORE_CLOCK -> gpu.getCoreClock();
+            case GPU_MEMORY_CLOCK -> gpu.getMemoryClock();
+            case GPU_POWER -> gpu.getPowerUsage();
+            case GPU_FAN_SPEED -> gpu.getFanSpeed();
+            case GPU_FAN_RPM -> gpu.getFanRpm();
+            default -> -1;
+        };
+    }
+
+    /**
+     * @return the value of this host metric, negative if unavailable
+     */
+    public float read(HostSnapshot host) {
+        return switch (this) {
+            case CPU_LOAD -> host.getCpuLoad();
+            case CPU_FREQUENCY -> host.getCpuFrequency();
+            case CPU_TEMPERATURE -> host.getCpuTemperature();
+            case RAM_USED -> host.getRamUsedMb();
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.gpustatix.history;
+
+import java.util.Arrays;
+
+/**
+ * Count/sum/min/max of one metric per device in flat primitive arrays, indexed by device + 1
+ * (host = 0). Each scan task fills its own instance; partial results are combined with {@link #merge}.
+ */
+public class MetricAccumulator {
+    /** Devices 0..61 are kept apart, higher indices share the last slot */
+    public static final int SLOTS = 64;
+
+    private final long[] counts = new long[SLOTS];
+    private final double[] sums = new double[SLOTS];
+    private final float[] mins = new float[SLOTS];
+    private final float[] maxs = new float[SLOTS];
+    private long scannedRecords;
+    private long skippedBlocks;
+
+    public MetricAccumulator() {
+        Arrays.fill(mins, Float.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Float.NEGATIVE_INFINITY);
+    }
+
+    static int slot(int device) {
+        return Math.min(SLOTS - 1, Math.max(0, device + 1));
+    }
+
+    void add(int device, float value) {
+        int slot = slot(device);
+        counts[slot]++;
+        sums[slot] += value;
+        if (value < mins[slot]) {
+            mins[slot] = value;
+        }
+        if (value > maxs[slot]) {
+            maxs[slot] = value;
+        }
+    }
+
+    void scanned(long records) {
+        scannedRecords += records;
+    }
+
+    void skippedBlock() {
+        skippedBlocks++;
+    }
+
+    public void merge(MetricAccumulator other) {
+        for (int i = 0; i < SLOTS; i++) {
+            counts[i] += other.counts[i];
+            sums[i] += other.sums[i];
+            mins[i] = Math.min(mins[i], other.mins[i]);
+            maxs[i] = Math.max(maxs[i], other.maxs[i]);
+        }
+        scannedRecords += other.scannedRecords;
+        skippedBlocks += other.skippedBlocks;
+    }
+
+    /**
+     * @param device GPU index or {@link MetricStore#HOST}
+     */
+    public long getCount(int device) {
+        return counts[slot(device)];
+    }
+
+    public float getMin(int device) {
+        int slot = slot(device);
+        return counts[slot] == 0 ? Float.NaN : mins[slot];
+    }
+
+    public float getMax(int device) {
+        int slot = slot(device);
+        return counts[slot] == 0 ? Float.NaN : maxs[slot];
+    }
+
+    public double getAverage(int device) {
+        int slot = slot(device);
+        return counts[slot] == 0 ? Double.NaN : sums[slot] / counts[slot];
+    }
+
+    /**
+     * @return value count over all devices
+     */
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return records read from the segments, including ones filtered out by time or device
+     */
+    public long getScannedRecords() {
+        return scannedRecords;
+    }
+
+    /**
+     * @return index blocks skipped because none of their records belongs to a wanted device
+     */
+    public long getSkippedBlocks() {
+        return skippedBlocks;
+    }
+}
@@ -0,0 +1,164 @@
+package com.gpustatix.history;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-size history of one metric: parallel long[] timestamps and float[] values.
+ * One thread appends without locking; any number of threads may read concurrently.
+ * Readers copy first and validate against the write counter afterwards, dropping
+ * whatever the writer may have overwritten in the meantime (seqlock style).
+ */
+public class MetricRing {
+    private static final VarHandle COUNT;
+
+    static {
+        try {
+            COUNT = MethodHandles.lookup().findVarHandle(MetricRing.class, "count", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long[] timestamps;
+    private final float[] values;
+    // Один слот сверх ёмкости - тот, что пишется сейчас, читателям не отдаётся
+    private final int slots;
+    // Total number of appended samples, published with release semantics
+    @SuppressWarnings("unused")
+    private volatile long count;
+
+    /**
+     * @param capacity number of samples kept, exactly; the buffers hold capacity + 1 slots
+     */
+    public MetricRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        slots = capacity + 1;
+        timestamps = new long[slots];
+        values = new float[slots];
+    }
+
+    /**
+     * @return number of samples kept once the ring is full
+     */
+    public int capacity() {
+        return slots - 1;
+    }
+
+    /**
+     * @return heap footprint of the buffers, (capacity + 1) * 12 bytes
+     */
+    public long memoryBytes() {
+        return slots * (8L + 4L);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % slots);
+    }
+
+    /**
+     * Appends a sample. Must only be called from the single writer thread,
+     * timestamps are expected to be non-decreasing.
+     */
+    public void append(long timestampMillis, float value) {
+        long n = (long) COUNT.getOpaque(this);
+        int slot = slot(n);
+        timestamps[slot] = timestampMillis;
+        values[slot] = value;
+        COUNT.setRelease(this, n + 1);
+        // Следующая запись в массивы не должна стать видимой раньше нового счётчика
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * @return number of samples currently held
+     */
+    public int size() {
+        return (int) Math.min((long) COUNT.getAcquire(this), slots - 1L);
+    }
+
+    /**
+     * @return timestamp of the oldest sample still held, or Long.MAX_VALUE if the ring is empty
+     */
+    public long getOldestTimestamp() {
+        long n = (long) COUNT.getAcquire(this);
+        if (n == 0) {
+            return Long.MAX_VALUE;
+        }
+        long oldest = Math.max(0, n - slots + 1);
+        return timestamps[slot(oldest)];
+    }
+
+    public long getLatestTimestamp() {
+        long n = (long) COUNT.getAcquire(this);
+        return n == 0 ? -1 : timestamps[slot(n - 1)];
+    }
+
+    /**
+     * @return the most recent value or NaN if nothing was recorded yet
+     */
+    public float getLatest() {
+        long n = (long) COUNT.getAcquire(this);
+        return n == 0 ? Float.NaN : values[slot(n - 1)];
+    }
+
+    /**
+     * Copies samples with from <= timestamp <= to into the given arrays, oldest first
+     * @return number of samples copied, at most the length of the arrays
+     */
+    public int read(long from, long to, long[] timestampsOut, float[] valuesOut) {
+        long end = (long) COUNT.getAcquire(this);
+        // Слот, который пишется сейчас, считаем недостоверным
+        long oldest = Math.max(0, end - slots + 1);
+        long first = lowerBound(oldest, end, from);
+
+        int max = Math.min(timestampsOut.length, valuesOut.length);
+        int copied = 0;
+        for (long seq = first; seq < end && copied < max; seq++) {
+            int slot = slot(seq);
+            long ts = timestamps[slot];
+            if (ts > to) {
+                break;
+            }
+            timestampsOut[copied] = ts;
+            valuesOut[copied] = values[slot];
+            copied++;
+        }
+
+        VarHandle.loadLoadFence();
+        long endAfter = (long) COUNT.getAcquire(this);
+        long validFrom = endAfter - slots + 1;
+        if (first < validFrom) {
+            // Писатель обогнал нас: отбрасываем начало, которое могло быть перезаписано
+            int overwritten = (int) Math.min(copied, validFrom - first);
+            System.arraycopy(timestampsOut, overwritten, timestampsOut, 0, copied - overwritten);
+            System.arraycopy(valuesOut, overwritten, valuesOut, 0, copied - overwritten);
+            copied -= overwritten;
+        }
+        // Бинарный поиск мог прочитать перезаписанные метки времени - отсекаем лишнее
+        int skip = 0;
+        while (skip < copied && timestampsOut[skip] < from) {
+            skip++;
+        }
+        if (skip > 0) {
+            System.arraycopy(timestampsOut, skip, timestampsOut, 0, copied - skip);
+            System.arraycopy(valuesOut, skip, valuesOut, 0, copied - skip);
+            copied -= skip;
+        }
+        return copied;
+    }
+
+    private long lowerBound(long low, long high, long from) {
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps[slot(mid)] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
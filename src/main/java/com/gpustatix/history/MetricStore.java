@@ -0,0 +1,119 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+
+import java.util.List;
+
+/**
+ * In-memory history of every metric of every GPU, one {@link MetricRing} per (device, metric).
+ * Memory is allocated up front: devices * metrics * capacity * 12 bytes, nothing per sample.
+ * Fed by the sampler thread, readable from any thread.
+ */
+public class MetricStore implements SampleListener {
+    public static final int DEFAULT_CAPACITY = 36_000; // 1 час при опросе раз в 100 мс
+    public static final int HOST = -1;
+
+    private final int deviceCount;
+    // [device + 1][metric], индекс 0 - метрики хоста
+    private final MetricRing[][] rings;
+
+    /**
+     * Creates a store with the capacity from history.capacity in config.properties
+     */
+    public MetricStore(int deviceCount) {
+        this(deviceCount, ConfigLoader.getInt("history.capacity", DEFAULT_CAPACITY));
+    }
+
+    public MetricStore(int deviceCount, int capacity) {
+        this.deviceCount = deviceCount;
+        rings = new MetricRing[deviceCount + 1][Metric.count()];
+        for (int d = 0; d <= deviceCount; d++) {
+            for (int m = 0; m < Metric.count(); m++) {
+                if (Metric.byOrdinal(m).isHost() == (d == 0)) {
+                    rings[d][m] = new MetricRing(capacity);
+                }
+            }
+        }
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    /**
+     * @return total heap used by all rings
+     */
+    public long getMemoryBytes() {
+        long total = 0;
+        for (MetricRing[] device : rings) {
+            for (MetricRing ring : device) {
+                if (ring != null) {
+                    total += ring.memoryBytes();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param device GPU index or {@link #HOST}
+     * @return the ring or null if the metric does not apply to that device
+     */
+    public MetricRing getRing(int device, Metric metric) {
+        if (device < HOST || device >= deviceCount) {
+            return null;
+        }
+        return rings[device + 1][metric.ordinal()];
+    }
+
+    public void append(int device, Metric metric, long timestampMillis, float value) {
+        MetricRing ring = getRing(device, metric);
+        if (ring != null) {
+            ring.append(timestampMillis, value);
+        }
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        long ts = host.getTimestampMillis();
+        for (int m = 0; m < Metric.count(); m++) {
+            Metric metric = Metric.byOrdinal(m);
+            if (metric.isHost()) {
+                rings[0][m].append(ts, metric.read(host));
+            }
+        }
+        for (GpuSnapshot gpu : gpus) {
+            int device = gpu.getDeviceIndex();
+            if (device < 0 || device >= deviceCount) {
+                continue;
+            }
+            MetricRing[] deviceRings = rings[device + 1];
+            for (int m = 0; m < Metric.count(); m++) {
+                MetricRing ring = deviceRings[m];
+                if (ring != null) {
+                    ring.append(gpu.getTimestampMillis(), Metric.byOrdinal(m).read(gpu));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the samples of one metric in [from, to] into the given arrays
+     * @return number of samples copied
+     */
+    public int read(int device, Metric metric, long from, long to, long[] timestampsOut, float[] valuesOut) {
+        MetricRing ring = getRing(device, metric);
+        return ring == null ? 0 : ring.read(from, to, timestampsOut, valuesOut);
+    }
+
+    /**
+     * @return the latest value or NaN if there is none
+     */
+    public float getLatest(int device, Metric metric) {
+        MetricRing ring = getRing(device, metric);
+        return ring == null ? Float.NaN : ring.getLatest();
+    }
+}
@@ -0,0 +1,168 @@
+package com.gpustatix.history;
+
+import java.util.Arrays;
+
+/**
+ * HDR-style log-linear histogram for non-negative values.
+ * Values are scaled to integers ({@code value * scale}); below 2 * {@value #SUB_BUCKETS} every integer
+ * has its own bucket, above that each power of two is split into {@value #SUB_BUCKETS} linear buckets,
+ * so quantiles are accurate to about 1.6% of the value. Recording is one index computation and an
+ * increment, merging is element-wise addition, and a quantile query walks a fixed number of buckets
+ * regardless of how many values were recorded.
+ */
+public class QuantileSketch {
+    static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private final double scale;
+    private final long highest;
+    private final long[] counts;
+    private long total;
+    private float min = Float.NaN;
+    private float max = Float.NaN;
+
+    /**
+     * @param scale values are multiplied by this before bucketing (1 for integers, 100 for 0.01 resolution)
+     * @param highestValue larger values are counted in the last bucket
+     */
+    public QuantileSketch(double scale, double highestValue) {
+        this.scale = scale;
+        this.highest = Math.max(2L * SUB_BUCKETS, (long) Math.ceil(highestValue * scale));
+        this.counts = new long[indexOf(highest) + 1];
+    }
+
+    /**
+     * Creates an empty sketch with the same layout, so the two can be merged
+     */
+    public QuantileSketch emptyCopy() {
+        return new QuantileSketch(scale, highest / scale);
+    }
+
+    static int indexOf(long v) {
+        if (v < 2 * SUB_BUCKETS) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+        return (exponent + 1) * SUB_BUCKETS + (int) ((v >>> exponent) - SUB_BUCKETS);
+    }
+
+    /**
+     * @return lower end of the scaled values that fall into the bucket
+     */
+    static long lowestValueAt(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << exponent;
+    }
+
+    static long bucketWidth(int index) {
+        return index < 2 * SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+    }
+
+    /**
+     * Records a value; negative values and NaN (unavailable readings) are ignored
+     */
+    public void record(float value) {
+        if (!(value >= 0)) {
+            return;
+        }
+        long v = Math.min(highest, (long) (value * scale));
+        counts[indexOf(v)]++;
+        total++;
+        if (!(value >= min)) {
+            min = value;
+        }
+        if (!(value <= max)) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the counts of another sketch with the same layout
+     */
+    public void merge(QuantileSketch other) {
+        if (other.counts.length != counts.length || other.scale != scale) {
+            throw new IllegalArgumentException("Sketches have different layouts");
+        }
+        if (other.total == 0) {
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        if (!(other.min >= min)) {
+            min = other.min;
+        }
+        if (!(other.max <= max)) {
+            max = other.max;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        min = Float.NaN;
+        max = Float.NaN;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public float getMin() {
+        return min;
+    }
+
+    public float getMax() {
+        return max;
+    }
+
+    /**
+     * @param q quantile in [0, 1], e.g. 0.99 or 0.01 for the "1% low"
+     * @return the value at that quantile (bucket midpoint, clamped to min/max), NaN if empty
+     */
+    public float quantile(double q) {
+        if (total == 0) {
+            return Float.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                double mid = lowestValueAt(i) + (bucketWidth(i) - 1) / 2.0;
+                float value = (float) (mid / scale);
+                return Math.max(min, Math.min(max, value));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return share of recorded values that are >= threshold (resolution of one bucket), 0 if empty
+     */
+    public double fractionAtOrAbove(float threshold) {
+        if (total == 0) {
+            return 0;
+        }
+        if (!(threshold > 0)) {
+            return 1;
+        }
+        int from = indexOf(Math.min(highest, (long) (threshold * scale)));
+        long above = 0;
+        for (int i = from; i < counts.length; i++) {
+            above += counts[i];
+        }
+        return (double) above / total;
+    }
+
+    /**
+     * @return heap used by the bucket array
+     */
+    public long memoryBytes() {
+        return (long) counts.length * Long.BYTES;
+    }
+}
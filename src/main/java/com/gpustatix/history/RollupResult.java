@@ -0,0 +1,112 @@
+package com.gpustatix.history;
+
+import java.util.Arrays;
+
+/**
+ * Time series answer of a rollup query: one point per step with min/max/avg/count/last
+ */
+public class RollupResult {
+    private final long stepMillis;
+    private long sourceResolutionMillis;
+    private int size;
+    private long[] timestamps = new long[64];
+    private float[] mins = new float[64];
+    private float[] maxs = new float[64];
+    private double[] sums = new double[64];
+    private int[] counts = new int[64];
+    private float[] lasts = new float[64];
+
+    public RollupResult(long stepMillis) {
+        this.stepMillis = Math.max(1, stepMillis);
+    }
+
+    public long getStepMillis() {
+        return stepMillis;
+    }
+
+    /**
+     * @return bucket width of the tier the answer was built from, 0 for raw samples
+     */
+    public long getSourceResolutionMillis() {
+        return sourceResolutionMillis;
+    }
+
+    void setSourceResolutionMillis(long sourceResolutionMillis) {
+        this.sourceResolutionMillis = sourceResolutionMillis;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int i) {
+        return timestamps[i];
+    }
+
+    public float getMin(int i) {
+        return mins[i];
+    }
+
+    public float getMax(int i) {
+        return maxs[i];
+    }
+
+    public float getAverage(int i) {
+        return counts[i] > 0 ? (float) (sums[i] / counts[i]) : Float.NaN;
+    }
+
+    public int getCount(int i) {
+        return counts[i];
+    }
+
+    public float getLast(int i) {
+        return lasts[i];
+    }
+
+    void truncate(int newSize) {
+        size = newSize;
+    }
+
+    void add(long timestamp, float value) {
+        if (value < 0 || Float.isNaN(value)) {
+            return;
+        }
+        merge(timestamp, value, value, value, 1, value);
+    }
+
+    /**
+     * Adds an aggregate, combining it with the last point if both fall into the same step.
+     * Input must arrive in time order.
+     */
+    void merge(long timestamp, float min, float max, double sum, int count, float last) {
+        if (count == 0) {
+            return;
+        }
+        long start = timestamp - Math.floorMod(timestamp, stepMillis);
+        if (size > 0 && timestamps[size - 1] == start) {
+            int i = size - 1;
+            mins[i] = Math.min(mins[i], min);
+            maxs[i] = Math.max(maxs[i], max);
+            sums[i] += sum;
+            counts[i] += count;
+            lasts[i] = last;
+            return;
+        }
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            lasts = Arrays.copyOf(lasts, capacity);
+        }
+        timestamps[size] = start;
+        mins[size] = min;
+        maxs[size] = max;
+        sums[size] = sum;
+        counts[size] = count;
+        lasts[size] = last;
+        size++;
+    }
+}
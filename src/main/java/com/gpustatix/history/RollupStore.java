@@ -0,0 +1,206 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raw history plus rollup tiers (by default 10s, 1min and 1h buckets).
+ * Every raw sample is streamed into all tiers as it arrives; queries pick the coarsest
+ * tier that still has the requested resolution and reaches back far enough.
+ */
+public class RollupStore implements SampleListener {
+    // ширина корзины : число корзин - 10 с за сутки, 1 мин за неделю, 1 ч за 30 дней
+    public static final String DEFAULT_TIERS = "10s:8640,1m:10080,1h:720";
+
+    private final MetricStore raw;
+    private final long[] tierMillis;
+    // [device + 1][metric][tier]
+    private final RollupTier[][][] tiers;
+
+    /**
+     * Creates the store with tiers from rollup.tiers in config.properties
+     */
+    public RollupStore(MetricStore raw) {
+        this(raw, ConfigLoader.getString("rollup.tiers", DEFAULT_TIERS));
+    }
+
+    /**
+     * @param tierSpec comma-separated width:retention pairs, e.g. "10s:8640,1m:10080"
+     */
+    public RollupStore(MetricStore raw, String tierSpec) {
+        this.raw = raw;
+        List<long[]> specs = parseTiers(tierSpec);
+        tierMillis = new long[specs.size()];
+        for (int t = 0; t < specs.size(); t++) {
+            tierMillis[t] = specs.get(t)[0];
+        }
+
+        int devices = raw.getDeviceCount();
+        tiers = new RollupTier[devices + 1][Metric.count()][];
+        for (int d = 0; d <= devices; d++) {
+            for (int m = 0; m < Metric.count(); m++) {
+                if (Metric.byOrdinal(m).isHost() == (d == 0)) {
+                    RollupTier[] levels = new RollupTier[specs.size()];
+                    for (int t = 0; t < levels.length; t++) {
+                        levels[t] = new RollupTier(specs.get(t)[0], (int) specs.get(t)[1]);
+                    }
+                    tiers[d][m] = levels;
+                }
+            }
+        }
+    }
+
+    public MetricStore getRaw() {
+        return raw;
+    }
+
+    public long getMemoryBytes() {
+        long total = raw.getMemoryBytes();
+        for (RollupTier[][] device : tiers) {
+            for (RollupTier[] levels : device) {
+                if (levels != null) {
+                    for (RollupTier tier : levels) {
+                        total += tier.memoryBytes();
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        raw.onSample(host, gpus);
+        long ts = host.getTimestampMillis();
+        for (int m = 0; m < Metric.count(); m++) {
+            Metric metric = Metric.byOrdinal(m);
+            if (metric.isHost()) {
+                float value = metric.read(host);
+                for (RollupTier tier : tiers[0][m]) {
+                    tier.add(ts, value);
+                }
+            }
+        }
+        for (GpuSnapshot gpu : gpus) {
+            int device = gpu.getDeviceIndex();
+            if (device < 0 || device >= raw.getDeviceCount()) {
+                continue;
+            }
+            RollupTier[][] deviceTiers = tiers[device + 1];
+            for (int m = 0; m < Metric.count(); m++) {
+                if (deviceTiers[m] == null) {
+                    continue;
+                }
+                float value = Metric.byOrdinal(m).read(gpu);
+                for (RollupTier tier : deviceTiers[m]) {
+                    tier.add(gpu.getTimestampMillis(), value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the series of one metric over [from, to] with points stepMillis apart
+     * @param device GPU index or {@link MetricStore#HOST}
+     */
+    public RollupResult query(int device, Metric metric, long from, long to, long stepMillis) {
+        RollupResult result = new RollupResult(stepMillis);
+        if (device < MetricStore.HOST || device >= raw.getDeviceCount()) {
+            return result;
+        }
+        RollupTier[] levels = tiers[device + 1][metric.ordinal()];
+        if (levels == null) {
+            return result;
+        }
+
+        RollupTier chosen = chooseTier(levels, raw.getRing(device, metric), from, stepMillis);
+        if (chosen == null) {
+            readRaw(device, metric, from, to, result);
+        } else {
+            result.setSourceResolutionMillis(chosen.getBucketMillis());
+            chosen.readInto(from, to, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the tier to answer from, or null to use raw samples
+     */
+    private RollupTier chooseTier(RollupTier[] levels, MetricRing rawRing, long from, long stepMillis) {
+        // Грубейший уровень с достаточным разрешением, который ещё помнит начало диапазона
+        for (int t = levels.length - 1; t >= 0; t--) {
+            RollupTier tier = levels[t];
+            if (tier.getBucketMillis() <= stepMillis && tier.getOldestTimestamp() <= from) {
+                return tier;
+            }
+        }
+        // Сырые данные покрывают диапазон, либо шаг мельче любого уровня
+        if (stepMillis < levels[0].getBucketMillis()
+                || (rawRing != null && rawRing.getOldestTimestamp() <= from)) {
+            return null;
+        }
+        // Никто не дотягивается до from - берём уровень с самым длинным хранением среди подходящих по шагу
+        for (int t = levels.length - 1; t >= 0; t--) {
+            if (levels[t].getBucketMillis() <= stepMillis) {
+                return levels[t];
+            }
+        }
+        return null;
+    }
+
+    private void readRaw(int device, Metric metric, long from, long to, RollupResult result) {
+        MetricRing ring = raw.getRing(device, metric);
+        if (ring == null) {
+            return;
+        }
+        long[] ts = new long[Math.min(ring.capacity(), 4096)];
+        float[] values = new float[ts.length];
+        long cursor = from;
+        while (cursor <= to) {
+            int n = ring.read(cursor, to, ts, values);
+            for (int i = 0; i < n; i++) {
+                result.add(ts[i], values[i]);
+            }
+            if (n < ts.length) {
+                break;
+            }
+            cursor = ts[n - 1] + 1;
+        }
+    }
+
+    private static List<long[]> parseTiers(String spec) {
+        List<long[]> result = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pieces = part.trim().split(":");
+            if (pieces.length != 2) {
+                throw new IllegalArgumentException("Invalid rollup tier: " + part);
+            }
+            result.add(new long[]{parseDuration(pieces[0].trim()), Long.parseLong(pieces[1].trim())});
+        }
+        result.sort((a, b) -> Long.compare(a[0], b[0]));
+        return result;
+    }
+
+    /**
+     * Parses durations like 500ms, 10s, 1m, 1h, 1d
+     * @throws NumberFormatException for a malformed number
+     */
+    public static long parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Long.parseLong(value.substring(0, value.length() - 2));
+        }
+        long number = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> number * 1000;
+            case 'm' -> number * 60_000;
+            case 'h' -> number * 3_600_000;
+            case 'd' -> number * 86_400_000;
+            default -> throw new IllegalArgumentException("Invalid duration: " + value);
+        };
+    }
+}
@@ -0,0 +1,232 @@
+package com.gpustatix.history;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * One downsampling level: fixed-width time buckets holding min/max/sum/count/last,
+ * kept in a ring of {@code retention} buckets. Single writer, lock-free readers,
+ * same publication scheme as {@link MetricRing} for closed buckets. The bucket being filled
+ * lives in the spare slot after the newest closed one and is republished on every sample
+ * under a seqlock, so reads include the most recent interval.
+ */
+public class RollupTier {
+    private static final VarHandle CLOSED;
+    private static final VarHandle OPEN_VERSION;
+    // Попыток прочитать открытую корзину, пока писатель её меняет
+    private static final int OPEN_READ_ATTEMPTS = 16;
+
+    static {
+        try {
+            CLOSED = MethodHandles.lookup().findVarHandle(RollupTier.class, "closed", long.class);
+            OPEN_VERSION = MethodHandles.lookup().findVarHandle(RollupTier.class, "openVersion", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long bucketMillis;
+    private final int retention;
+    private final long[] starts;
+    private final float[] mins;
+    private final float[] maxs;
+    private final double[] sums;
+    private final int[] counts;
+    private final float[] lasts;
+    @SuppressWarnings("unused")
+    private volatile long closed;
+    // Нечётное, пока писатель обновляет открытую корзину
+    @SuppressWarnings("unused")
+    private volatile long openVersion;
+
+    // Открытая корзина, видна только писателю
+    private long openStart = Long.MIN_VALUE;
+    private float openMin;
+    private float openMax;
+    private double openSum;
+    private int openCount;
+    private float openLast;
+
+    public RollupTier(long bucketMillis, int retention) {
+        this.bucketMillis = bucketMillis;
+        this.retention = retention;
+        // Последний слот - для открытой корзины
+        starts = new long[retention + 1];
+        mins = new float[retention + 1];
+        maxs = new float[retention + 1];
+        sums = new double[retention + 1];
+        counts = new int[retention + 1];
+        lasts = new float[retention + 1];
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getRetention() {
+        return retention;
+    }
+
+    /**
+     * @return time span this tier can hold
+     */
+    public long getRetentionMillis() {
+        return bucketMillis * retention;
+    }
+
+    public long memoryBytes() {
+        return (retention + 1) * (8L + 4 + 4 + 8 + 4 + 4);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % (retention + 1));
+    }
+
+    /**
+     * Feeds one raw sample. Negative values mean "not available" and are skipped.
+     */
+    public void add(long timestampMillis, float value) {
+        long start = timestampMillis - Math.floorMod(timestampMillis, bucketMillis);
+        if (start != openStart) {
+            if (openCount > 0 && start > openStart) {
+                close();
+            } else if (start < openStart) {
+                return; // Выборка из прошлого - корзина уже закрыта
+            }
+            openStart = start;
+            openCount = 0;
+            openSum = 0;
+            if (value < 0 || Float.isNaN(value)) {
+                publishOpen();
+                return;
+            }
+        }
+        if (value < 0 || Float.isNaN(value)) {
+            return;
+        }
+        if (openCount == 0) {
+            openMin = value;
+            openMax = value;
+        } else {
+            openMin = Math.min(openMin, value);
+            openMax = Math.max(openMax, value);
+        }
+        openSum += value;
+        openCount++;
+        openLast = value;
+        publishOpen();
+    }
+
+    /**
+     * Copies the open bucket into the slot after the newest closed one
+     */
+    private void publishOpen() {
+        long version = (long) OPEN_VERSION.getOpaque(this);
+        OPEN_VERSION.setOpaque(this, version + 1);
+        VarHandle.storeStoreFence();
+        int slot = slot((long) CLOSED.getOpaque(this));
+        starts[slot] = openStart;
+        mins[slot] = openMin;
+        maxs[slot] = openMax;
+        sums[slot] = openSum;
+        counts[slot] = openCount;
+        lasts[slot] = openLast;
+        OPEN_VERSION.setRelease(this, version + 2);
+    }
+
+    private void close() {
+        // Открытая корзина уже лежит в своём слоте - достаточно сдвинуть границу закрытых
+        long n = (long) CLOSED.getOpaque(this);
+        CLOSED.setRelease(this, n + 1);
+    }
+
+    /**
+     * @return start of the oldest closed bucket still held, or Long.MAX_VALUE if there is none
+     */
+    public long getOldestTimestamp() {
+        long n = (long) CLOSED.getAcquire(this);
+        if (n == 0) {
+            return Long.MAX_VALUE;
+        }
+        long oldest = Math.max(0, n - retention);
+        return starts[slot(oldest)];
+    }
+
+    /**
+     * Merges the buckets overlapping [from, to] into the result, re-bucketed at its step,
+     * including the one still being filled
+     */
+    public void readInto(long from, long to, RollupResult result) {
+        long end = readClosed(from, to, result);
+        readOpen(end, from, to, result);
+    }
+
+    /**
+     * @return number of closed buckets at the time of the read
+     */
+    private long readClosed(long from, long to, RollupResult result) {
+        long end = (long) CLOSED.getAcquire(this);
+        long oldest = Math.max(0, end - retention);
+        long low = oldest;
+        long high = end;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (starts[slot(mid)] + bucketMillis <= from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int mark = result.size();
+        for (long seq = low; seq < end; seq++) {
+            int slot = slot(seq);
+            long start = starts[slot];
+            if (start > to) {
+                break;
+            }
+            result.merge(start, mins[slot], maxs[slot], sums[slot], counts[slot], lasts[slot]);
+        }
+
+        VarHandle.loadLoadFence();
+        long endAfter = (long) CLOSED.getAcquire(this);
+        if (low < endAfter - retention) {
+            // Писатель перезаписал часть прочитанного - повторяем чтение
+            result.truncate(mark);
+            return readClosed(from, to, result);
+        }
+        return end;
+    }
+
+    private void readOpen(long closedEnd, long from, long to, RollupResult result) {
+        for (int attempt = 0; attempt < OPEN_READ_ATTEMPTS; attempt++) {
+            long version = (long) OPEN_VERSION.getAcquire(this);
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long end = (long) CLOSED.getAcquire(this);
+            if (end != closedEnd) {
+                // Корзина закрылась после чтения закрытых - она уже учтена или появится при следующем запросе
+                return;
+            }
+            int slot = slot(end);
+            long start = starts[slot];
+            float min = mins[slot];
+            float max = maxs[slot];
+            double sum = sums[slot];
+            int count = counts[slot];
+            float last = lasts[slot];
+            VarHandle.loadLoadFence();
+            if ((long) OPEN_VERSION.getAcquire(this) != version) {
+                continue;
+            }
+            // Между закрытием и первой выборкой новой корзины в слоте лежит вытесненная старая
+            boolean stale = end > 0 && start <= starts[slot(end - 1)];
+            if (!stale && count > 0 && start + bucketMillis > from && start <= to) {
+                result.merge(start, min, max, sum, count, last);
+            }
+            return;
+        }
+    }
+}
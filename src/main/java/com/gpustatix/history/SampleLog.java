@@ -0,0 +1,325 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent, append-only log of samples in memory-mapped segment files.
+ * The sampler thread only enqueues; a dedicated writer thread encodes records into the
+ * current segment, rolls to a new one when it is full and applies size/age retention.
+ * On startup the last segment is recovered and a torn final record is discarded.
+ */
+public class SampleLog implements SampleListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-log-writer";
+    private static final String SUFFIX = ".glog";
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long retentionBytes;
+    private final long retentionMillis;
+    private final long syncIntervalMillis;
+    private final long partitionMillis;
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Tick> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final float[] values = new float[Metric.count()];
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Будит писателя при закрытии; прерывание закрыло бы отображённый файл посреди записи
+    private static final Tick STOP = new Tick(null, null);
+    // После запуска писателя - только его поток
+    private LogSegment active;
+    private long lastSync;
+
+    /**
+     * Opens the log with settings from config.properties (log.dir, log.segment.records,
+     * log.segment.minutes, log.retention.mb, log.retention.hours, log.sync.interval.ms)
+     */
+    public SampleLog() throws IOException {
+        this(Paths.get(ConfigLoader.getString("log.dir", "data/log")),
+                ConfigLoader.getInt("log.segment.records", 1 << 20),
+                ConfigLoader.getLong("log.segment.minutes", 60) * 60_000L,
+                ConfigLoader.getLong("log.retention.mb", 2048) * 1024 * 1024,
+                ConfigLoader.getLong("log.retention.hours", 24 * 7) * 3_600_000L,
+                ConfigLoader.getLong("log.sync.interval.ms", 5000));
+    }
+
+    public SampleLog(Path directory, int segmentRecords, long retentionBytes, long retentionMillis,
+                     long syncIntervalMillis) throws IOException {
+        this(directory, segmentRecords, 0, retentionBytes, retentionMillis, syncIntervalMillis);
+    }
+
+    /**
+     * @param partitionMillis a new segment is started whenever a record falls into a later time partition
+     *                        of this length (0 = roll only when full), so each file covers one period
+     */
+    public SampleLog(Path directory, int segmentRecords, long partitionMillis, long retentionBytes,
+                     long retentionMillis, long syncIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.partitionMillis = partitionMillis;
+        this.retentionBytes = retentionBytes;
+        this.retentionMillis = retentionMillis;
+        this.syncIntervalMillis = syncIntervalMillis;
+        Files.createDirectories(directory);
+        openExisting(true);
+
+        writer = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::writeLoop);
+        writer.start();
+    }
+
+    private SampleLog(Path directory) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = 0;
+        this.partitionMillis = 0;
+        this.retentionBytes = 0;
+        this.retentionMillis = 0;
+        this.syncIntervalMillis = 0;
+        this.writer = null;
+        this.running = false;
+        if (Files.isDirectory(directory)) {
+            openExisting(false);
+        }
+    }
+
+    /**
+     * Opens the segments for {@link #scan} only, e.g. to export while another process is recording.
+     * Records appended after this call are not visible.
+     */
+    public static SampleLog openReadOnly(Path directory) throws IOException {
+        return new SampleLog(directory);
+    }
+
+    private void openExisting(boolean writable) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path entry : entries) {
+                files.add(entry);
+            }
+        }
+        files.sort((a, b) -> Long.compare(firstTimestampOf(a), firstTimestampOf(b)));
+        for (int i = 0; i < files.size(); i++) {
+            boolean last = i == files.size() - 1;
+            try {
+                LogSegment segment = LogSegment.open(files.get(i), firstTimestampOf(files.get(i)), writable && last);
+                segments.add(segment);
+                if (writable && last && segment.isAppendable()) {
+                    active = segment;
+                }
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable segment " + files.get(i) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static long firstTimestampOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return number of ticks dropped because the writer could not keep up
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        if (writer == null) {
+            throw new IllegalStateException("Sample log is opened read-only");
+        }
+        if (!queue.offer(new Tick(host, gpus))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Tick tick = queue.poll(syncIntervalMillis, TimeUnit.MILLISECONDS);
+                if (tick != null && tick != STOP) {
+                    write(tick);
+                }
+                long now = System.currentTimeMillis();
+                if (active != null && now - lastSync >= syncIntervalMillis) {
+                    active.force();
+                    lastSync = now;
+                }
+            } catch (InterruptedException e) {
+                // Поток не прерывают: close() будит его через STOP, очередь дописывается до конца
+            } catch (Exception e) {
+                System.err.println("Error writing sample log: " + e.getMessage());
+            }
+        }
+        // Запечатывает тот же поток, что писал: сегмент никогда не пишут двое
+        if (active != null) {
+            active.seal();
+        }
+    }
+
+    private void write(Tick tick) throws IOException {
+        long ts = tick.host.getTimestampMillis();
+        Arrays.fill(values, Float.NaN);
+        for (int m = 0; m < Metric.count(); m++) {
+            Metric metric = Metric.byOrdinal(m);
+            if (metric.isHost()) {
+                values[m] = metric.read(tick.host);
+            }
+        }
+        append(ts, MetricStore.HOST);
+
+        for (GpuSnapshot gpu : tick.gpus) {
+            Arrays.fill(values, Float.NaN);
+            for (int m = 0; m < Metric.count(); m++) {
+                Metric metric = Metric.byOrdinal(m);
+                if (!metric.isHost()) {
+                    values[m] = metric.read(gpu);
+                }
+            }
+            // Все строки одного тика получают время тика, чтобы время в сегменте не убывало
+            append(ts, gpu.getDeviceIndex());
+        }
+    }
+
+    private void append(long ts, int device) throws IOException {
+        if (active == null || active.isFull() || crossesPartition(ts)) {
+            roll(ts);
+        }
+        // Часы могли уйти назад - время внутри сегмента не должно убывать, иначе сломается индекс
+        active.append(Math.max(ts, active.getLastTimestamp()), device, values);
+    }
+
+    private boolean crossesPartition(long ts) {
+        return partitionMillis > 0 && active.getCount() > 0
+                && Math.floorDiv(ts, partitionMillis) != Math.floorDiv(active.getFirstTimestamp(), partitionMillis);
+    }
+
+    private void roll(long ts) throws IOException {
+        if (active != null) {
+            active.seal();
+        }
+        Path path = directory.resolve(ts + SUFFIX);
+        int suffix = 0;
+        while (Files.exists(path)) {
+            path = directory.resolve((ts + ++suffix) + SUFFIX);
+        }
+        active = LogSegment.create(path, segmentRecords, ts + suffix);
+        segments.add(active);
+        lastSync = System.currentTimeMillis();
+        applyRetention(ts);
+    }
+
+    private void applyRetention(long now) {
+        // Файлы сегментов разрежённые: считаем только записанные байты
+        long total = 0;
+        for (LogSegment segment : segments) {
+            total += segment.getUsedBytes();
+        }
+        while (segments.size() > 1) {
+            LogSegment oldest = segments.get(0);
+            boolean tooOld = retentionMillis > 0 && now - oldest.getLastTimestamp() > retentionMillis;
+            boolean tooBig = retentionBytes > 0 && total > retentionBytes;
+            if (!tooOld && !tooBig) {
+                break;
+            }
+            segments.remove(0);
+            total -= oldest.getUsedBytes();
+            oldest.close();
+            try {
+                Files.deleteIfExists(oldest.getPath());
+            } catch (IOException e) {
+                System.err.println("Failed to delete segment " + oldest.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return snapshot of the current segments in time order
+     */
+    List<LogSegment> segments() {
+        return new ArrayList<>(segments);
+    }
+
+    /**
+     * Visits every record with from <= timestamp <= to in time order, reading straight from the mappings.
+     * The record passed to the visitor is reused and only valid during the call.
+     */
+    public void scan(long from, long to, RecordVisitor visitor) {
+        SampleRecord flyweight = new SampleRecord();
+        List<LogSegment> snapshot = new ArrayList<>(segments);
+        for (int i = 0; i < snapshot.size(); i++) {
+            LogSegment segment = snapshot.get(i);
+            long nextFirst = i + 1 < snapshot.size() ? snapshot.get(i + 1).getFirstTimestamp() : Long.MAX_VALUE;
+            if (nextFirst < from || segment.getFirstTimestamp() > to) {
+                continue;
+            }
+            if (!segment.scan(from, to, visitor, flyweight)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            for (LogSegment segment : segments) {
+                segment.close();
+            }
+            return;
+        }
+        running = false;
+        // Очередь полна - писатель и так не спит и увидит running после неё
+        queue.offer(STOP);
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            System.err.println("Sample log is still writing its queue; the segment is sealed when it finishes");
+        }
+    }
+
+    /**
+     * Callback for {@link #scan}
+     */
+    public interface RecordVisitor {
+        /**
+         * @return false to stop the scan
+         */
+        boolean visit(SampleRecord record);
+    }
+
+    private static class Tick {
+        final HostSnapshot host;
+        final List<GpuSnapshot> gpus;
+
+        Tick(HostSnapshot host, List<GpuSnapshot> gpus) {
+            this.host = host;
+            this.gpus = gpus;
+        }
+    }
+}
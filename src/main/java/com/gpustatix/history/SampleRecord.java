@@ -0,0 +1,51 @@
+package com.gpustatix.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width on-disk sample: one row per device per tick.
+ * <pre>
+ * 0   long   timestamp (ms)
+ * 8   short  device (-1 = host)
+ * 10  short  reserved
+ * 12  float  values, one per {@link Metric} in ordinal order (NaN if not applicable)
+ * 60  int    CRC32C of bytes 0..59
+ * </pre>
+ * Instances are flyweights over a mapped buffer and are reused between records.
+ */
+public class SampleRecord {
+    public static final int SIZE = 64;
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int DEVICE_OFFSET = 8;
+    static final int VALUES_OFFSET = 12;
+    static final int CRC_OFFSET = 60;
+
+    static {
+        if (VALUES_OFFSET + Metric.count() * 4 > CRC_OFFSET) {
+            throw new ExceptionInInitializerError("Too many metrics for the record layout");
+        }
+    }
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    void wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    public long getTimestamp() {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * @return GPU index or {@link MetricStore#HOST}
+     */
+    public int getDevice() {
+        return buffer.getShort(offset + DEVICE_OFFSET);
+    }
+
+    public float getValue(Metric metric) {
+        return buffer.getFloat(offset + VALUES_OFFSET + metric.ordinal() * 4);
+    }
+}
@@ -0,0 +1,177 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+
+import java.util.List;
+
+/**
+ * Quantile sketches per device and metric over a ring of fixed time windows
+ * (sketch.window.seconds x sketch.windows, one hour of minutes by default).
+ * Each sample increments one bucket per metric; when a window ends, the oldest sketch
+ * is cleared and reused, so nothing is allocated after construction. Queries merge the
+ * requested number of recent windows, optionally across all GPUs, into a caller-owned sketch.
+ */
+public class SketchStore implements SampleListener {
+    /** Pseudo device for queries that merge every GPU */
+    public static final int ALL_GPUS = -2;
+    // values() копирует массив при каждом вызове
+    private static final Metric[] METRICS = Metric.values();
+
+    private final int deviceCount;
+    private final long windowMillis;
+    private final int windows;
+    // [устройство + 1][метрика][окно], индекс 0 - хост
+    private final QuantileSketch[][][] rings;
+    private long currentWindow = -1;
+
+    public SketchStore(int deviceCount) {
+        this(deviceCount, ConfigLoader.getLong("sketch.window.seconds", 60) * 1000,
+                ConfigLoader.getInt("sketch.windows", 60));
+    }
+
+    public SketchStore(int deviceCount, long windowMillis, int windows) {
+        this.deviceCount = deviceCount;
+        this.windowMillis = Math.max(1, windowMillis);
+        this.windows = Math.max(1, windows);
+        this.rings = new QuantileSketch[deviceCount + 1][Metric.count()][this.windows];
+        for (int d = 0; d <= deviceCount; d++) {
+            for (Metric metric : Metric.values()) {
+                if (metric.isHost() != (d == 0)) {
+                    continue;
+                }
+                for (int w = 0; w < this.windows; w++) {
+                    rings[d][metric.ordinal()][w] = newSketch(metric);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an empty sketch with the layout used for the metric; use it as the target of {@link #query}
+     */
+    public static QuantileSketch newSketch(Metric metric) {
+        double scale = metric.isInteger() ? 1 : 100;
+        double highest = switch (metric) {
+            case GPU_TEMPERATURE, CPU_TEMPERATURE -> 150;
+            case GPU_UTILIZATION, GPU_FAN_SPEED, CPU_LOAD -> 100;
+            case GPU_CORE_CLOCK, GPU_MEMORY_CLOCK, CPU_FREQUENCY -> 30_000;
+            case GPU_FAN_RPM -> 20_000;
+            case GPU_POWER -> 2_000;
+            case GPU_MEMORY_USED -> 1 << 20;
+            case RAM_USED -> 1 << 24;
+        };
+        return new QuantileSketch(scale, highest);
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public int getWindows() {
+        return windows;
+    }
+
+    @Override
+    public synchronized void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        long window = host.getTimestampMillis() / windowMillis;
+        if (window != currentWindow) {
+            rotate(window);
+        }
+        int slot = (int) (window % windows);
+        QuantileSketch[][] hostRings = rings[0];
+        for (Metric metric : METRICS) {
+            if (metric.isHost()) {
+                hostRings[metric.ordinal()][slot].record(metric.read(host));
+            }
+        }
+        for (int i = 0; i < gpus.size(); i++) {
+            GpuSnapshot gpu = gpus.get(i);
+            int d = gpu.getDeviceIndex();
+            if (d < 0 || d >= deviceCount) {
+                continue;
+            }
+            QuantileSketch[][] gpuRings = rings[d + 1];
+            for (Metric metric : METRICS) {
+                if (!metric.isHost()) {
+                    gpuRings[metric.ordinal()][slot].record(metric.read(gpu));
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the windows between the previous and the new one (all of them after a long gap)
+     */
+    private void rotate(long window) {
+        long stale = currentWindow < 0 || window < currentWindow ? windows : Math.min(windows, window - currentWindow);
+        for (long w = window - stale + 1; w <= window; w++) {
+            int slot = (int) Math.floorMod(w, (long) windows);
+            for (QuantileSketch[][] device : rings) {
+                for (QuantileSketch[] metric : device) {
+                    if (metric[slot] != null) {
+                        metric[slot].clear();
+                    }
+                }
+            }
+        }
+        currentWindow = window;
+    }
+
+    /**
+     * Merges the most recent windows of a metric into {@code into} (which is cleared first)
+     * @param device GPU index, {@link MetricStore#HOST} or {@link #ALL_GPUS}
+     * @param lastWindows how many windows to merge, the current (incomplete) one included
+     * @param into sketch created by {@link #newSketch} for the same metric
+     */
+    public synchronized void query(int device, Metric metric, int lastWindows, QuantileSketch into) {
+        into.clear();
+        if (currentWindow < 0) {
+            return;
+        }
+        int from;
+        int to;
+        if (metric.isHost()) {
+            from = 0;
+            to = 0;
+        } else if (device == ALL_GPUS) {
+            from = 1;
+            to = deviceCount;
+        } else if (device >= 0 && device < deviceCount) {
+            from = device + 1;
+            to = device + 1;
+        } else {
+            return;
+        }
+        int count = Math.min(lastWindows, windows);
+        for (int d = from; d <= to; d++) {
+            QuantileSketch[] ring = rings[d][metric.ordinal()];
+            for (int k = 0; k < count; k++) {
+                into.merge(ring[(int) Math.floorMod(currentWindow - k, (long) windows)]);
+            }
+        }
+    }
+
+    /**
+     * @return heap used by all bucket arrays
+     */
+    public long getMemoryBytes() {
+        long total = 0;
+        for (QuantileSketch[][] device : rings) {
+            for (QuantileSketch[] metric : device) {
+                for (QuantileSketch sketch : metric) {
+                    if (sketch != null) {
+                        total += sketch.memoryBytes();
+                    }
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,505 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Long-term, compressed telemetry recording: one file per device per UTC day
+ * ({@code gpu0-20240131.gtr}, {@code host-20240131.gtr}), each a sequence of chunks
+ * encoded by {@link ChunkEncoder}. A chunk is appended when it holds recording.chunk.samples
+ * samples or the day changes, so at most one chunk per device is lost on a crash.
+ * Files older than recording.retention.days are deleted.
+ *
+ * <p>Chunk layout (little-endian): magic int, version short, metric count short,
+ * sample count int, payload bit length int, first ts long, last ts long, device int,
+ * CRC32C of the payload int, then the payload bytes.</p>
+ */
+public class TelemetryRecording implements SampleListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-recorder";
+    static final String SUFFIX = ".gtr";
+    static final int CHUNK_MAGIC = 0x4B435447; // "GTCK"
+    static final short VERSION = 2;
+    static final int HEADER_SIZE = 40;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final Metric[] GPU_METRICS = columns(false);
+    private static final Metric[] HOST_METRICS = columns(true);
+
+    private final Path directory;
+    private final int chunkSamples;
+    private final int retentionDays;
+    private final Map<Integer, DeviceWriter> writers = new HashMap<>();
+    private final BlockingQueue<Tick> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Будит писателя при закрытии; прерывание закрыло бы FileChannel до сброса последнего чанка
+    private static final Tick STOP = new Tick(null, null);
+
+    /**
+     * Settings from config.properties (recording.dir, recording.chunk.samples, recording.retention.days)
+     */
+    public TelemetryRecording() throws IOException {
+        this(Paths.get(ConfigLoader.getString("recording.dir", "data/recording")),
+                ConfigLoader.getInt("recording.chunk.samples", 600),
+                ConfigLoader.getInt("recording.retention.days", 30));
+    }
+
+    public TelemetryRecording(Path directory, int chunkSamples, int retentionDays) throws IOException {
+        this.directory = directory;
+        this.chunkSamples = Math.max(2, chunkSamples);
+        this.retentionDays = retentionDays;
+        Files.createDirectories(directory);
+        applyRetention(LocalDate.now(ZoneOffset.UTC));
+
+        writer = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::writeLoop);
+        writer.start();
+    }
+
+    static Metric[] columns(boolean host) {
+        List<Metric> result = new ArrayList<>();
+        for (Metric metric : Metric.values()) {
+            if (metric.isHost() == host) {
+                result.add(metric);
+            }
+        }
+        return result.toArray(new Metric[0]);
+    }
+
+    static Metric[] columnsFor(int device) {
+        return device == MetricStore.HOST ? HOST_METRICS : GPU_METRICS;
+    }
+
+    static String fileName(int device, LocalDate day) {
+        String prefix = device == MetricStore.HOST ? "host" : "gpu" + device;
+        return prefix + "-" + day.format(DAY) + SUFFIX;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return number of ticks dropped because the writer could not keep up
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        if (!queue.offer(new Tick(host, gpus))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Tick tick = queue.poll(1, TimeUnit.SECONDS);
+                if (tick != null && tick != STOP) {
+                    write(tick);
+                }
+            } catch (InterruptedException e) {
+                // Поток не прерывают: close() будит его через STOP, очередь дописывается до конца
+            } catch (Exception e) {
+                System.err.println("Error writing telemetry recording: " + e.getMessage());
+            }
+        }
+        for (DeviceWriter deviceWriter : writers.values()) {
+            try {
+                deviceWriter.flush();
+                deviceWriter.close();
+            } catch (IOException e) {
+                System.err.println("Error closing telemetry recording: " + e.getMessage());
+            }
+        }
+    }
+
+    private void write(Tick tick) throws IOException {
+        long ts = tick.host.getTimestampMillis();
+        DeviceWriter hostWriter = writerFor(MetricStore.HOST);
+        for (int i = 0; i < HOST_METRICS.length; i++) {
+            hostWriter.values[i] = HOST_METRICS[i].read(tick.host);
+        }
+        hostWriter.append(ts);
+
+        for (GpuSnapshot gpu : tick.gpus) {
+            DeviceWriter gpuWriter = writerFor(gpu.getDeviceIndex());
+            for (int i = 0; i < GPU_METRICS.length; i++) {
+                gpuWriter.values[i] = GPU_METRICS[i].read(gpu);
+            }
+            gpuWriter.append(ts);
+        }
+    }
+
+    private DeviceWriter writerFor(int device) {
+        return writers.computeIfAbsent(device, DeviceWriter::new);
+    }
+
+    private void applyRetention(LocalDate today) {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDate oldest = today.minusDays(retentionDays - 1);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path entry : entries) {
+                LocalDate day = dayOf(entry);
+                if (day != null && day.isBefore(oldest)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to apply recording retention: " + e.getMessage());
+        }
+    }
+
+    static LocalDate dayOf(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.lastIndexOf('-');
+        if (dash < 0 || !name.endsWith(SUFFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(dash + 1, name.length() - SUFFIX.length()), DAY);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Streams the recorded samples of one device with from <= timestamp <= to, in time order.
+     * Only chunks already appended to disk are visible.
+     * @param device GPU index or {@link MetricStore#HOST}
+     */
+    public Cursor cursor(int device, long from, long to) {
+        return new Cursor(directory, device, from, to);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        // Очередь полна - писатель и так не спит и увидит running после неё
+        queue.offer(STOP);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encoder state and open file of a single device; touched only by the writer thread
+     */
+    private class DeviceWriter {
+        final int device;
+        final ChunkEncoder encoder;
+        final float[] values;
+        FileChannel channel;
+        LocalDate day;
+        long lastTimestamp = Long.MIN_VALUE;
+
+        DeviceWriter(int device) {
+            this.device = device;
+            Metric[] metrics = columnsFor(device);
+            this.encoder = new ChunkEncoder(metrics);
+            this.values = new float[metrics.length];
+        }
+
+        void append(long ts) throws IOException {
+            // Время внутри чанка не должно убывать, иначе delta-of-delta раздувается
+            ts = Math.max(ts, lastTimestamp);
+            LocalDate tsDay = Instant.ofEpochMilli(ts).atZone(ZoneOffset.UTC).toLocalDate();
+            if (!tsDay.equals(day)) {
+                flush();
+                close();
+                open(tsDay);
+            }
+            encoder.add(ts, values);
+            lastTimestamp = ts;
+            if (encoder.getCount() >= chunkSamples) {
+                flush();
+            }
+        }
+
+        void open(LocalDate newDay) throws IOException {
+            day = newDay;
+            Path path = directory.resolve(fileName(device, newDay));
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long valid = validLength(channel);
+            if (valid < channel.size()) {
+                System.err.println("Truncating torn chunk in " + path + " at " + valid);
+                channel.truncate(valid);
+            }
+            channel.position(valid);
+            if (device == MetricStore.HOST) {
+                applyRetention(newDay);
+            }
+        }
+
+        void flush() throws IOException {
+            if (encoder.getCount() == 0 || channel == null) {
+                return;
+            }
+            BitWriter out = encoder.getOutput();
+            crc.reset();
+            crc.update(out.array(), 0, out.byteLength());
+            header.clear();
+            header.putInt(CHUNK_MAGIC)
+                    .putShort(VERSION)
+                    .putShort((short) columnsFor(device).length)
+                    .putInt(encoder.getCount())
+                    .putInt((int) out.bitLength())
+                    .putLong(encoder.getFirstTimestamp())
+                    .putLong(encoder.getLastTimestamp())
+                    .putInt(device)
+                    .putInt((int) crc.getValue());
+            header.flip();
+            ByteBuffer payload = ByteBuffer.wrap(out.array(), 0, out.byteLength());
+            while (header.hasRemaining() || payload.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, payload});
+            }
+            encoder.reset();
+        }
+
+        void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Walks the chunk headers and returns the length of the intact prefix of the file
+     */
+    static long validLength(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0;
+        long size = channel.size();
+        while (position + HEADER_SIZE <= size) {
+            head.clear();
+            channel.read(head, position);
+            if (head.getInt(0) != CHUNK_MAGIC) {
+                break;
+            }
+            long bytes = (head.getInt(12) + 7L) >>> 3;
+            if (position + HEADER_SIZE + bytes > size) {
+                break;
+            }
+            position += HEADER_SIZE + bytes;
+        }
+        return position;
+    }
+
+    /**
+     * Streaming reader over the recording of one device. Decodes one chunk at a time,
+     * so memory use does not depend on the length of the range.
+     */
+    public static class Cursor implements AutoCloseable {
+        private final int device;
+        private final long from;
+        private final long to;
+        private final List<Path> files = new ArrayList<>();
+        private final Metric[] metrics;
+        private final int[] columnByOrdinal = new int[Metric.count()];
+        private final ChunkDecoder decoder;
+        private final ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private byte[] payload = new byte[4096];
+        private int fileIndex = -1;
+        private FileChannel channel;
+        private long position;
+        private boolean chunkOpen;
+
+        Cursor(Path directory, int device, long from, long to) {
+            this.device = device;
+            this.from = from;
+            this.to = to;
+            this.metrics = columnsFor(device);
+            this.decoder = new ChunkDecoder(metrics);
+            Arrays.fill(columnByOrdinal, -1);
+            for (int i = 0; i < metrics.length; i++) {
+                columnByOrdinal[metrics[i].ordinal()] = i;
+            }
+
+            LocalDate fromDay = Instant.ofEpochMilli(Math.max(0, from)).atZone(ZoneOffset.UTC).toLocalDate();
+            LocalDate toDay = to >= 253402300799999L ? LocalDate.MAX
+                    : Instant.ofEpochMilli(to).atZone(ZoneOffset.UTC).toLocalDate();
+            String prefix = (device == MetricStore.HOST ? "host" : "gpu" + device) + "-";
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*" + SUFFIX)) {
+                for (Path entry : entries) {
+                    LocalDate day = dayOf(entry);
+                    if (day != null && !day.isBefore(fromDay) && !day.isAfter(toDay)) {
+                        files.add(entry);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to list recording files: " + e.getMessage());
+            }
+            files.sort((a, b) -> dayOf(a).compareTo(dayOf(b)));
+        }
+
+        /**
+         * Advances to the next sample in range
+         * @return false when the range is exhausted
+         */
+        public boolean next() {
+            while (true) {
+                while (chunkOpen && decoder.next()) {
+                    long ts = decoder.getTimestamp();
+                    if (ts > to) {
+                        closeFile();
+                        fileIndex = files.size();
+                        return false;
+                    }
+                    if (ts >= from) {
+                        return true;
+                    }
+                }
+                chunkOpen = false;
+                try {
+                    if (!openNextChunk()) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading telemetry recording: " + e.getMessage());
+                    closeFile();
+                }
+            }
+        }
+
+        public long getTimestamp() {
+            return decoder.getTimestamp();
+        }
+
+        /**
+         * @return value of the metric in the current sample, NaN if the device does not record it
+         */
+        public float getValue(Metric metric) {
+            int column = columnByOrdinal[metric.ordinal()];
+            return column < 0 ? Float.NaN : decoder.getValue(column);
+        }
+
+        public int getDevice() {
+            return device;
+        }
+
+        private boolean openNextChunk() throws IOException {
+            while (true) {
+                if (channel == null) {
+                    if (++fileIndex >= files.size()) {
+                        return false;
+                    }
+                    channel = FileChannel.open(files.get(fileIndex), StandardOpenOption.READ);
+                    position = 0;
+                }
+                head.clear();
+                if (channel.read(head, position) < HEADER_SIZE || head.getInt(0) != CHUNK_MAGIC) {
+                    closeFile();
+                    continue;
+                }
+                short version = head.getShort(4);
+                int count = head.getInt(8);
+                int bitLength = head.getInt(12);
+                long first = head.getLong(16);
+                long last = head.getLong(24);
+                int checksum = head.getInt(36);
+                int bytes = (int) ((bitLength + 7L) >>> 3);
+                long chunkStart = position + HEADER_SIZE;
+                position = chunkStart + bytes;
+                if (version != VERSION) {
+                    // Чанки первой версии писали большие скачки времени в 32 бита
+                    System.err.println("Skipping chunk of version " + version + " in " + files.get(fileIndex));
+                    continue;
+                }
+                if (last < from) {
+                    continue;
+                }
+                if (first > to) {
+                    closeFile();
+                    fileIndex = files.size();
+                    return false;
+                }
+
+                if (payload.length < bytes) {
+                    payload = new byte[Math.max(bytes, payload.length * 2)];
+                }
+                ByteBuffer target = ByteBuffer.wrap(payload, 0, bytes);
+                while (target.hasRemaining()) {
+                    if (channel.read(target, chunkStart + target.position()) < 0) {
+                        break;
+                    }
+                }
+                crc.reset();
+                crc.update(payload, 0, bytes);
+                if (target.hasRemaining() || (int) crc.getValue() != checksum) {
+                    System.err.println("Skipping corrupt chunk in " + files.get(fileIndex));
+                    continue;
+                }
+                decoder.wrap(payload, 0, bitLength, count);
+                chunkOpen = true;
+                return true;
+            }
+        }
+
+        private void closeFile() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                channel = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            closeFile();
+            fileIndex = files.size();
+            chunkOpen = false;
+        }
+    }
+
+    private static class Tick {
+        final HostSnapshot host;
+        final List<GpuSnapshot> gpus;
+
+        Tick(HostSnapshot host, List<GpuSnapshot> gpus) {
+            this.host = host;
+            this.gpus = gpus;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.gpustatix.net;
+
+/**
+ * Number formatting straight into byte arrays for the text exposition formats,
+ * without going through Long.toString or Float.toString
+ */
+final class Ascii {
+    /**
+     * Longest output of {@link #putFixed}: 19 digits and a point
+     */
+    static final int MAX_FIXED_LENGTH = 21;
+
+    private Ascii() {
+    }
+
+    /**
+     * Writes value / 10^decimals with exactly that many decimals, e.g. (1234, 3) as 1.234
+     * @param value non-negative value
+     * @return position after the last written byte
+     */
+    static int putFixed(byte[] dst, int pos, long value, int decimals) {
+        int start = pos;
+        long v = value;
+        int digits = 0;
+        do {
+            dst[pos++] = (byte) ('0' + v % 10);
+            v /= 10;
+            digits++;
+            if (digits == decimals) {
+                dst[pos++] = '.';
+            }
+        } while (v > 0 || digits <= decimals);
+        // Цифры записаны в обратном порядке
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte b = dst[i];
+            dst[i] = dst[j];
+            dst[j] = b;
+        }
+        return pos;
+    }
+}
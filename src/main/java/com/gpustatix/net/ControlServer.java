@@ -0,0 +1,435 @@
+package com.gpustatix.net;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.MetricRing;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.RollupResult;
+import com.gpustatix.history.RollupStore;
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.ActuatorQueue;
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.ThreadAffinity;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Local HTTP/JSON API for GPU settings, applied through the shared {@link ActuatorQueue}.
+ * <pre>
+ * GET  /settings  {"core_clock_offset":-1,"memory_clock_offset":-1,"power_limit":-1,"fan_speed":-1,"temp_limit":85}
+ * POST /settings  {"fan_speed":70,"power_limit":180}
+ *   200 {"results":[{"setting":"fan_speed","requested":70,"applied":70,"queue_ms":0.1,"apply_ms":412.8,"coalesced":1},..],"total_ms":..}
+ * </pre>
+ * GET reports the last values applied through the queue, -1 for settings not changed since start.
+ * Changes not applied within control.timeout.ms are answered with 202 and stay queued;
+ * a change the driver rejects is answered with 500 and an "error" in its result.
+ * <p>
+ * With an in-memory history the recent values of one metric are also served, one point per step
+ * as [start, avg, min, max]; the answer comes from the coarsest rollup tier that fits the step,
+ * or from raw samples when no step is given:
+ * <pre>
+ * GET  /history?metric=gpu_temperature&amp;device=0&amp;seconds=3600&amp;step=1m
+ *   200 {"metric":"gpu_temperature","device":0,"step_ms":60000,"source_ms":60000,"points":[[1700000000000,61.2,58.0,64.0],..]}
+ * </pre>
+ * The period ends at the newest sample, so a replayed session is answered the same way.
+ * <p>
+ * Meant for localhost only: requests must name a loopback Host (no DNS rebinding) and POST
+ * requires Content-Type application/json, which a cross-site form cannot send.
+ */
+public class ControlServer implements AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-control-http";
+    private static final int MAX_BODY = 4096;
+
+    private final ActuatorQueue queue;
+    private final RollupStore history;
+    private final long timeoutMs;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Settings from config.properties (control.bind, control.port, control.timeout.ms)
+     */
+    public ControlServer(ActuatorQueue queue) throws IOException {
+        this(queue, null);
+    }
+
+    /**
+     * @param history in-memory history served on /history, null to leave it out
+     */
+    public ControlServer(ActuatorQueue queue, RollupStore history) throws IOException {
+        this(queue, history, new InetSocketAddress(ConfigLoader.getString("control.bind", "127.0.0.1"),
+                ConfigLoader.getInt("control.port", 9879)), ConfigLoader.getLong("control.timeout.ms", 30_000));
+    }
+
+    public ControlServer(ActuatorQueue queue, RollupStore history, InetSocketAddress address, long timeoutMs)
+            throws IOException {
+        this.queue = queue;
+        this.history = history;
+        this.timeoutMs = timeoutMs;
+        if (!address.getAddress().isLoopbackAddress()) {
+            System.err.println("Warning: control API bound to non-loopback address " + address);
+        }
+        server = HttpServer.create(address, 0);
+        // Изменения всё равно применяются по одному; потоки нужны только ожидающим ответа
+        executor = Executors.newFixedThreadPool(4, ThreadAffinity.threadFactory(THREAD_NAME));
+        server.setExecutor(executor);
+        server.createContext("/settings", this::handle);
+        if (history != null) {
+            server.createContext("/history", this::handleHistory);
+        }
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                send(exchange, 403, "{\"error\":\"Host must be localhost\"}");
+                return;
+            }
+            if (!exchange.getRequestURI().getPath().equals("/settings")) {
+                send(exchange, 404, "{\"error\":\"Not found\"}");
+                return;
+            }
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> send(exchange, 200, current());
+                case "POST" -> update(exchange);
+                default -> {
+                    exchange.getResponseHeaders().set("Allow", "GET, POST");
+                    send(exchange, 405, "{\"error\":\"GET or POST only\"}");
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleHistory(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                send(exchange, 403, "{\"error\":\"Host must be localhost\"}");
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, "{\"error\":\"GET only\"}");
+                return;
+            }
+            String answer;
+            try {
+                answer = history(parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "{\"error\":\"" + e.getMessage().replace("\"", "'") + "\"}");
+                return;
+            }
+            send(exchange, 200, answer);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String history(Map<String, String> params) {
+        String key = params.get("metric");
+        if (key == null) {
+            throw new IllegalArgumentException("metric is required");
+        }
+        Metric metric = Metric.byKey(key);
+        int device = metric.isHost() ? MetricStore.HOST : parseNumber(params.getOrDefault("device", "0"), "device");
+        long seconds = parseNumber(params.getOrDefault("seconds", "60"), "seconds");
+        long step;
+        try {
+            // Без шага - сырые выборки
+            step = params.containsKey("step") ? RollupStore.parseDuration(params.get("step")) : 1;
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("step must be a duration like 10s or 1m");
+        }
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be positive");
+        }
+        MetricRing ring = history.getRaw().getRing(device, metric);
+        if (ring == null) {
+            throw new IllegalArgumentException("No device " + device);
+        }
+
+        long to = ring.getLatestTimestamp();
+        RollupResult result = to >= 0 ? history.query(device, metric, to - seconds * 1000, to, step)
+                : new RollupResult(step);
+        StringBuilder json = new StringBuilder("{\"metric\":\"").append(metric.getKey())
+                .append("\",\"device\":").append(device)
+                .append(",\"step_ms\":").append(result.getStepMillis())
+                .append(",\"source_ms\":").append(result.getSourceResolutionMillis())
+                .append(",\"points\":[");
+        for (int i = 0; i < result.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('[').append(result.getTimestamp(i)).append(',').append(result.getAverage(i))
+                    .append(',').append(result.getMin(i)).append(',').append(result.getMax(i)).append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static int parseNumber(String value, String name) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 0) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a non-negative integer");
+        }
+    }
+
+    /**
+     * Splits a raw query string; parameter names and values here never need percent-decoding
+     */
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+
+    private static boolean isLocalHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        String name = host.toLowerCase(Locale.ROOT);
+        if (name.startsWith("[")) {
+            name = name.substring(0, name.indexOf(']') + 1);
+        } else if (name.indexOf(':') >= 0) {
+            name = name.substring(0, name.indexOf(':'));
+        }
+        return name.equals("localhost") || name.equals("127.0.0.1") || name.equals("[::1]");
+    }
+
+    private String current() {
+        StringBuilder json = new StringBuilder("{");
+        for (ActuatorCommand command : ActuatorCommand.values()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(command.getKey()).append("\":").append(queue.getLastApplied(command));
+        }
+        return json.append('}').toString();
+    }
+
+    private void update(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("application/json")) {
+            send(exchange, 415, "{\"error\":\"Content-Type must be application/json\"}");
+            return;
+        }
+        Map<ActuatorCommand, Integer> changes;
+        try {
+            changes = parseSettings(readBody(exchange));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, "{\"error\":\"" + e.getMessage().replace("\"", "'") + "\"}");
+            return;
+        }
+
+        long started = System.nanoTime();
+        List<CompletableFuture<ActuatorQueue.Result>> futures = new ArrayList<>(changes.size());
+        for (Map.Entry<ActuatorCommand, Integer> change : changes.entrySet()) {
+            futures.add(queue.submit(change.getKey(), change.getValue()));
+        }
+        StringBuilder json = new StringBuilder("{\"results\":[");
+        boolean pending = false;
+        boolean failed = false;
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int i = 0;
+        for (Map.Entry<ActuatorCommand, Integer> change : changes.entrySet()) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"setting\":\"").append(change.getKey().getKey())
+                    .append("\",\"requested\":").append(change.getValue());
+            try {
+                ActuatorQueue.Result result = futures.get(i).get(Math.max(deadline - System.nanoTime(), 0),
+                        TimeUnit.NANOSECONDS);
+                json.append(",\"applied\":").append(result.getApplied());
+                json.append(",\"queue_ms\":").append(millis(result.getQueueNanos()));
+                json.append(",\"apply_ms\":").append(millis(result.getApplyNanos()));
+                json.append(",\"coalesced\":").append(result.getCoalesced());
+            } catch (TimeoutException e) {
+                pending = true;
+                json.append(",\"pending\":true");
+            } catch (ExecutionException e) {
+                failed = true;
+                json.append(",\"error\":\"").append(errorText(e.getCause())).append('"');
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending = true;
+                json.append(",\"pending\":true");
+            }
+            json.append('}');
+            i++;
+        }
+        json.append("],\"total_ms\":").append(millis(System.nanoTime() - started)).append('}');
+        send(exchange, failed ? 500 : pending ? 202 : 200, json.toString());
+    }
+
+    /**
+     * Driver messages as a JSON string body: quotes, backslashes and line breaks replaced
+     */
+    private static String errorText(Throwable failure) {
+        String message = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+        StringBuilder text = new StringBuilder(message.length());
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            text.append(c == '"' ? '\'' : c == '\\' ? '/' : c < 0x20 ? ' ' : c);
+        }
+        return text.toString();
+    }
+
+    private static String millis(long nanos) {
+        // Десятые доли миллисекунды без Double.toString
+        long tenths = (nanos + 50_000) / 100_000;
+        return (tenths / 10) + "." + (tenths % 10);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Parses a flat JSON object of setting names to integers, e.g. {"fan_speed":70}
+     */
+    static Map<ActuatorCommand, Integer> parseSettings(String body) {
+        Map<ActuatorCommand, Integer> changes = new LinkedHashMap<>();
+        int[] pos = {0};
+        skipSpaces(body, pos);
+        expect(body, pos, '{');
+        skipSpaces(body, pos);
+        if (peek(body, pos) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                skipSpaces(body, pos);
+                String key = readString(body, pos);
+                ActuatorCommand command = ActuatorCommand.byKey(key);
+                if (command == null) {
+                    throw new IllegalArgumentException("Unknown setting: " + key);
+                }
+                skipSpaces(body, pos);
+                expect(body, pos, ':');
+                skipSpaces(body, pos);
+                int value = readInt(body, pos);
+                if (value < command.getMin() || value > command.getMax()) {
+                    throw new IllegalArgumentException(key + " must be between " + command.getMin()
+                            + " and " + command.getMax());
+                }
+                changes.put(command, value);
+                skipSpaces(body, pos);
+                char c = peek(body, pos);
+                pos[0]++;
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new IllegalArgumentException("Expected , or } at " + (pos[0] - 1));
+                }
+            }
+        }
+        skipSpaces(body, pos);
+        if (pos[0] != body.length()) {
+            throw new IllegalArgumentException("Unexpected data after the object");
+        }
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("No settings given");
+        }
+        return changes;
+    }
+
+    private static char peek(String s, int[] pos) {
+        if (pos[0] >= s.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON");
+        }
+        return s.charAt(pos[0]);
+    }
+
+    private static void expect(String s, int[] pos, char c) {
+        if (peek(s, pos) != c) {
+            throw new IllegalArgumentException("Expected " + c + " at " + pos[0]);
+        }
+        pos[0]++;
+    }
+
+    private static void skipSpaces(String s, int[] pos) {
+        while (pos[0] < s.length() && Character.isWhitespace(s.charAt(pos[0]))) {
+            pos[0]++;
+        }
+    }
+
+    private static String readString(String s, int[] pos) {
+        expect(s, pos, '"');
+        int end = s.indexOf('"', pos[0]);
+        if (end < 0) {
+            throw new IllegalArgumentException("Unterminated string");
+        }
+        // Имена настроек - латиница без экранирования
+        String value = s.substring(pos[0], end);
+        pos[0] = end + 1;
+        return value;
+    }
+
+    private static int readInt(String s, int[] pos) {
+        int start = pos[0];
+        if (pos[0] < s.length() && s.charAt(pos[0]) == '-') {
+            pos[0]++;
+        }
+        while (pos[0] < s.length() && Character.isDigit(s.charAt(pos[0]))) {
+            pos[0]++;
+        }
+        try {
+            return Integer.parseInt(s.substring(start, pos[0]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected an integer at " + start);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,394 @@
+package com.gpustatix.net;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleJson;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Live feed for browsers: GET / returns a small page that plots the stream,
+ * GET /events is a Server-Sent Events stream with one "sample" event per tick
+ * (same JSON as the headless NDJSON output).
+ * <p>
+ * Each sample is serialized once on the sampler thread into a direct buffer that every
+ * connection writes from, so the cost per viewer is one write call per tick. A single selector
+ * thread owns all sockets; a viewer that falls behind loses its oldest queued events
+ * (sse.client.buffer) instead of growing a backlog.
+ */
+public class LiveFeedServer implements SampleListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-sse";
+    private static final String PAGE_RESOURCE = "/web/live.html";
+    private static final int MAX_REQUEST = 4096;
+
+    private final InetSocketAddress address;
+    private final int maxClients;
+    private final int clientBuffer;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    // Готовые ответы, общие для всех соединений
+    private final ByteBuffer pageResponse;
+    private final ByteBuffer streamPrelude;
+    private final ByteBuffer notFound = response("404 Not Found", "text/plain", "Not found\n".getBytes(StandardCharsets.US_ASCII));
+    private final ByteBuffer notAllowed = response("405 Method Not Allowed", "text/plain", "GET only\n".getBytes(StandardCharsets.US_ASCII));
+
+    // Только поток сэмплера
+    private final StringBuilder json = new StringBuilder(1024);
+    // Передача события потоку селектора: важно только последнее
+    private final AtomicReference<ByteBuffer> pending = new AtomicReference<>();
+
+    // Дальше - только поток селектора
+    private final List<Client> clients = new ArrayList<>();
+    private ByteBuffer latest;
+
+    /**
+     * Settings from config.properties (sse.bind, sse.port, sse.max.clients, sse.client.buffer)
+     */
+    public LiveFeedServer(GpuBackend backend) throws IOException {
+        this(backend, new InetSocketAddress(ConfigLoader.getString("sse.bind", "0.0.0.0"),
+                        ConfigLoader.getInt("sse.port", 9878)),
+                ConfigLoader.getInt("sse.max.clients", 512), ConfigLoader.getInt("sse.client.buffer", 16));
+    }
+
+    public LiveFeedServer(GpuBackend backend, InetSocketAddress address, int maxClients, int clientBuffer)
+            throws IOException {
+        this.maxClients = maxClients;
+        this.clientBuffer = Math.max(clientBuffer, 2);
+        pageResponse = response("200 OK", "text/html; charset=utf-8", loadPage());
+
+        StringBuilder devices = new StringBuilder("HTTP/1.1 200 OK\r\n"
+                + "Content-Type: text/event-stream\r\n"
+                + "Cache-Control: no-cache\r\n"
+                + "Connection: keep-alive\r\n"
+                + "X-Accel-Buffering: no\r\n\r\n"
+                + "retry: 2000\n\n"
+                + "event: devices\ndata: [");
+        for (int i = 0; i < backend.getDeviceCount(); i++) {
+            if (i > 0) {
+                devices.append(',');
+            }
+            devices.append("{\"index\":").append(i).append(",\"name\":\"")
+                    .append(escape(backend.getDeviceName(i))).append("\"}");
+        }
+        devices.append("]\n\n");
+        streamPrelude = direct(devices.toString().getBytes(StandardCharsets.UTF_8));
+
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        this.address = (InetSocketAddress) server.getLocalAddress();
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        thread = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::selectLoop);
+        thread.start();
+    }
+
+    private static byte[] loadPage() throws IOException {
+        try (InputStream in = LiveFeedServer.class.getResourceAsStream(PAGE_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Resource " + PAGE_RESOURCE + " is missing");
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    private static ByteBuffer response(String status, String contentType, byte[] body) {
+        byte[] head = ("HTTP/1.1 " + status + "\r\nContent-Type: " + contentType + "\r\nContent-Length: "
+                + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(head.length + body.length);
+        buffer.put(head).put(body).flip();
+        return buffer;
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                default -> {
+                    if (c >= ' ') {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * @return events skipped for viewers that did not keep up
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        json.setLength(0);
+        json.append("event: sample\ndata: ");
+        SampleJson.append(json, host, gpus).append("\n\n");
+        // В JSON выборки только ASCII - кодируем без промежуточного массива
+        ByteBuffer event = ByteBuffer.allocateDirect(json.length());
+        for (int i = 0; i < json.length(); i++) {
+            event.put((byte) json.charAt(i));
+        }
+        event.flip();
+        pending.set(event);
+        selector.wakeup();
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(client);
+                        }
+                    }
+                }
+                ByteBuffer event = pending.getAndSet(null);
+                if (event != null) {
+                    broadcast(event);
+                }
+            } catch (IOException e) {
+                System.err.println("Live feed error: " + e.getMessage());
+            }
+        }
+        for (Client client : new ArrayList<>(clients)) {
+            disconnect(client);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        if (clients.size() >= maxClients) {
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+    }
+
+    private void read(Client client) {
+        int read;
+        try {
+            read = client.channel.read(client.in);
+        } catch (IOException e) {
+            disconnect(client);
+            return;
+        }
+        if (read < 0) {
+            disconnect(client);
+            return;
+        }
+        if (client.state != State.REQUEST) {
+            // После запроса браузер ничего не шлёт; лишнее отбрасываем
+            client.in.clear();
+            return;
+        }
+        int end = headerEnd(client.in);
+        if (end < 0) {
+            if (!client.in.hasRemaining()) {
+                disconnect(client);
+            }
+            return;
+        }
+        String request = new String(client.in.array(), 0, end, StandardCharsets.US_ASCII);
+        client.in.clear();
+        String[] requestLine = request.substring(0, Math.max(request.indexOf('\r'), 0)).split(" ");
+        String target = requestLine.length > 1 ? requestLine[1] : "";
+        int query = target.indexOf('?');
+        if (query >= 0) {
+            target = target.substring(0, query);
+        }
+        if (!requestLine[0].equals("GET")) {
+            respond(client, notAllowed);
+        } else if (target.equals("/events")) {
+            client.state = State.STREAM;
+            enqueue(client, streamPrelude);
+            if (latest != null) {
+                // Страница сразу рисует последнее значение, не дожидаясь такта
+                enqueue(client, latest);
+            }
+        } else if (target.equals("/") || target.equals("/index.html")) {
+            respond(client, pageResponse);
+        } else {
+            respond(client, notFound);
+        }
+    }
+
+    /**
+     * @return length of the request up to and including the empty line, -1 if incomplete
+     */
+    private static int headerEnd(ByteBuffer in) {
+        byte[] data = in.array();
+        for (int i = 3; i < in.position(); i++) {
+            if (data[i] == '\n' && data[i - 1] == '\r' && data[i - 2] == '\n' && data[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void respond(Client client, ByteBuffer response) {
+        client.state = State.CLOSING;
+        enqueue(client, response);
+    }
+
+    private void broadcast(ByteBuffer event) {
+        latest = event;
+        for (int c = clients.size() - 1; c >= 0; c--) {
+            Client client = clients.get(c);
+            if (client.state == State.STREAM) {
+                enqueue(client, event);
+            }
+        }
+    }
+
+    private void enqueue(Client client, ByteBuffer data) {
+        ArrayDeque<ByteBuffer> queue = client.queue;
+        if (queue.size() >= clientBuffer) {
+            // Переполнение: выбрасываем самое старое событие, которое ещё не начали отправлять
+            ByteBuffer head = queue.pollFirst();
+            if (client.headPos > 0 || head == streamPrelude) {
+                queue.pollFirst();
+                queue.addFirst(head);
+            }
+            dropped.incrementAndGet();
+        }
+        queue.addLast(data);
+        if (queue.size() == 1) {
+            write(client);
+        }
+    }
+
+    private void write(Client client) {
+        ArrayDeque<ByteBuffer> queue = client.queue;
+        try {
+            while (!queue.isEmpty()) {
+                ByteBuffer data = queue.peekFirst();
+                // Буфер общий: границы выставляются заново перед каждой записью
+                data.limit(data.capacity());
+                data.position(client.headPos);
+                client.channel.write(data);
+                if (data.hasRemaining()) {
+                    client.headPos = data.position();
+                    break;
+                }
+                queue.pollFirst();
+                client.headPos = 0;
+            }
+        } catch (IOException e) {
+            disconnect(client);
+            return;
+        }
+        if (queue.isEmpty() && client.state == State.CLOSING) {
+            disconnect(client);
+            return;
+        }
+        int interest = queue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        if (client.key.interestOps() != interest) {
+            client.key.interestOps(interest);
+        }
+    }
+
+    private void disconnect(Client client) {
+        clients.remove(client);
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            selector.close();
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Error closing live feed: " + e.getMessage());
+        }
+    }
+
+    private enum State { REQUEST, STREAM, CLOSING }
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(MAX_REQUEST);
+        final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        SelectionKey key;
+        State state = State.REQUEST;
+        // Сколько байт первого буфера очереди уже отправлено
+        int headPos;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.gpustatix.net;
+
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the latest sample on /metrics in OpenMetrics text format.
+ * The exposition is rendered once per sample on the sampler thread into a recycled byte buffer;
+ * scrapes only copy those bytes to the socket, so any number of scrapers never reach NVML
+ * and do not allocate per request.
+ */
+public class PrometheusEndpoint implements SampleListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-metrics-http";
+    private static final String OPENMETRICS_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final String TEXT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final byte[] EOF = "# EOF\n".getBytes(StandardCharsets.US_ASCII);
+    private static final long MB = 1024L * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // {gpu="0",name="...",pci="..."} для каждой видеокарты, собраны один раз
+    private final byte[][] gpuLabels;
+    private volatile Exposition current = new Exposition(EOF.length);
+    private Exposition spare = new Exposition(4096);
+
+    /**
+     * Starts the server with settings from config.properties (metrics.bind, metrics.port)
+     */
+    public PrometheusEndpoint(GpuBackend backend) throws IOException {
+        this(backend, new InetSocketAddress(ConfigLoader.getString("metrics.bind", "0.0.0.0"),
+                ConfigLoader.getInt("metrics.port", 9877)));
+    }
+
+    public PrometheusEndpoint(GpuBackend backend, InetSocketAddress address) throws IOException {
+        int count = backend.getDeviceCount();
+        gpuLabels = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            gpuLabels[i] = ("{gpu=\"" + i + "\",name=\"" + escape(backend.getDeviceName(i))
+                    + "\",pci=\"" + escape(backend.getPciAddress(i)) + "\"}").getBytes(StandardCharsets.UTF_8);
+        }
+        System.arraycopy(EOF, 0, current.data, 0, EOF.length);
+        current.length = EOF.length;
+
+        server = HttpServer.create(address, 0);
+        // Ответ - готовые байты, двух потоков хватает на любое число скрейперов
+        executor = Executors.newFixedThreadPool(2, ThreadAffinity.threadFactory(THREAD_NAME));
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        Exposition target = spare;
+        if (target.readers.get() != 0) {
+            // Медленный скрейпер ещё отправляет этот буфер - рисуем в новый
+            target = new Exposition(target.data.length);
+        }
+        target.length = 0;
+        render(target, host, gpus);
+
+        Exposition previous = current;
+        current = target;
+        spare = previous;
+    }
+
+    private void render(Exposition out, HostSnapshot host, List<GpuSnapshot> gpus) {
+        long ts = host.getTimestampMillis();
+        gauge(out, "gpustatix_sample_timestamp_seconds", "Time of the last sample", "seconds");
+        out.append("gpustatix_sample_timestamp_seconds ").appendFixed(ts, 3).newLine();
+
+        gpuGauge(out, gpus, "gpustatix_gpu_temperature_celsius", "GPU core temperature", "celsius", Field.TEMPERATURE);
+        gpuGauge(out, gpus, "gpustatix_gpu_utilization_percent", "GPU utilization", "percent", Field.UTILIZATION);
+        gpuGauge(out, gpus, "gpustatix_gpu_memory_used_bytes", "Used VRAM", "bytes", Field.MEMORY_USED);
+        gpuGauge(out, gpus, "gpustatix_gpu_memory_total_bytes", "Total VRAM", "bytes", Field.MEMORY_TOTAL);
+        gpuGauge(out, gpus, "gpustatix_gpu_core_clock_hertz", "Graphics clock", "hertz", Field.CORE_CLOCK);
+        gpuGauge(out, gpus, "gpustatix_gpu_memory_clock_hertz", "Memory clock", "hertz", Field.MEMORY_CLOCK);
+        gpuGauge(out, gpus, "gpustatix_gpu_power_watts", "Board power draw", "watts", Field.POWER);
+        gpuGauge(out, gpus, "gpustatix_gpu_power_limit_watts", "Board power limit", "watts", Field.POWER_LIMIT);
+        gpuGauge(out, gpus, "gpustatix_gpu_fan_speed_percent", "Fan duty cycle", "percent", Field.FAN_SPEED);
+        gpuGauge(out, gpus, "gpustatix_gpu_fan_speed_rpm", "Fan speed", "rpm", Field.FAN_RPM);
+
+        hostGauge(out, "gpustatix_cpu_load_percent", "CPU load", "percent", Math.round(host.getCpuLoad() * 10), 1);
+        hostGauge(out, "gpustatix_cpu_frequency_hertz", "CPU clock", "hertz", scaled(host.getCpuFrequency(), 1_000_000), 0);
+        hostGauge(out, "gpustatix_cpu_temperature_celsius", "CPU package temperature", "celsius", host.getCpuTemperature(), 0);
+        hostGauge(out, "gpustatix_memory_used_bytes", "Used RAM", "bytes", scaled(host.getRamUsedMb(), MB), 0);
+        hostGauge(out, "gpustatix_memory_total_bytes", "Total RAM", "bytes", scaled(host.getRamTotalMb(), MB), 0);
+        out.append(EOF);
+    }
+
+    private static long scaled(int value, long factor) {
+        return value < 0 ? -1 : value * factor;
+    }
+
+    private static void gauge(Exposition out, String name, String help, String unit) {
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append("# UNIT ").append(name).append(' ').append(unit).newLine();
+        out.append("# HELP ").append(name).append(' ').append(help).newLine();
+    }
+
+    private void gpuGauge(Exposition out, List<GpuSnapshot> gpus, String name, String help, String unit, Field field) {
+        gauge(out, name, help, unit);
+        for (int i = 0; i < gpus.size() && i < gpuLabels.length; i++) {
+            // Недоступные значения не публикуем вовсе, а не как -1
+            long value = field.get(gpus.get(i));
+            if (value >= 0) {
+                out.append(name).append(gpuLabels[i]).append(' ').appendFixed(value, field.decimals).newLine();
+            }
+        }
+    }
+
+    private static void hostGauge(Exposition out, String name, String help, String unit, long value, int decimals) {
+        gauge(out, name, help, unit);
+        if (value >= 0) {
+            out.append(name).append(' ').appendFixed(value, decimals).newLine();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            // Ответ без тела (HEAD, 405) завершает обмен сразу; если запрос к этому моменту
+            // не дочитан, HttpServer закрывает соединение, которое клиент уже вернул в пул
+            exchange.getRequestBody().close();
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+            exchange.getResponseHeaders().set("Content-Type", openMetrics ? OPENMETRICS_TYPE : TEXT_TYPE);
+
+            Exposition exposition = acquire();
+            try {
+                if (method.equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, exposition.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(exposition.data, 0, exposition.length);
+            } finally {
+                exposition.readers.decrementAndGet();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Pins the current exposition so the sampler does not render over it while it is being sent
+     */
+    private Exposition acquire() {
+        while (true) {
+            Exposition exposition = current;
+            exposition.readers.incrementAndGet();
+            if (exposition == current) {
+                return exposition;
+            }
+            // Буфер успели сменить между чтением и захватом
+            exposition.readers.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private enum Field {
+        TEMPERATURE(0), UTILIZATION(0), MEMORY_USED(0), MEMORY_TOTAL(0), CORE_CLOCK(0), MEMORY_CLOCK(0),
+        POWER(3), POWER_LIMIT(0), FAN_SPEED(0), FAN_RPM(0);
+
+        final int decimals;
+
+        Field(int decimals) {
+            this.decimals = decimals;
+        }
+
+        /**
+         * @return the value scaled by 10^decimals, -1 if unavailable
+         */
+        long get(GpuSnapshot gpu) {
+            return switch (this) {
+                case TEMPERATURE -> gpu.getTemperature();
+                case UTILIZATION -> gpu.getUtilization();
+                case MEMORY_USED -> scaled(gpu.getMemoryUsedMb(), MB);
+                case MEMORY_TOTAL -> scaled(gpu.getMemoryTotalMb(), MB);
+                case CORE_CLOCK -> scaled(gpu.getCoreClock(), 1_000_000);
+                case MEMORY_CLOCK -> scaled(gpu.getMemoryClock(), 1_000_000);
+                case POWER -> gpu.getPowerUsage() < 0 ? -1 : Math.round(gpu.getPowerUsage() * 1000);
+                case POWER_LIMIT -> gpu.getPowerLimit();
+                case FAN_SPEED -> gpu.getFanSpeed();
+                case FAN_RPM -> gpu.getFanRpm();
+            };
+        }
+    }
+
+    /**
+     * Growable ASCII byte buffer; readers counts scrapes currently sending it
+     */
+    private static final class Exposition {
+        final AtomicInteger readers = new AtomicInteger();
+        byte[] data;
+        int length;
+
+        Exposition(int capacity) {
+            data = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+            }
+        }
+
+        Exposition append(String ascii) {
+            int n = ascii.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                data[length++] = (byte) ascii.charAt(i);
+            }
+            return this;
+        }
+
+        Exposition append(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, data, length, bytes.length);
+            length += bytes.length;
+            return this;
+        }
+
+        Exposition append(char c) {
+            ensure(1);
+            data[length++] = (byte) c;
+            return this;
+        }
+
+        Exposition newLine() {
+            return append('\n');
+        }
+
+        Exposition appendFixed(long value, int decimals) {
+            ensure(Ascii.MAX_FIXED_LENGTH);
+            length = Ascii.putFixed(data, length, value, decimals);
+            return this;
+        }
+    }
+}
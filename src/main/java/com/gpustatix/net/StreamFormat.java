@@ -0,0 +1,70 @@
+package com.gpustatix.net;
+
+import com.gpustatix.history.Metric;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the Unix socket stream ({@link UnixStreamServer}, {@link UnixStreamClient}), big-endian.
+ * <pre>
+ * client -> server, at any time:
+ *   subscribe: u8 1, u64 device mask (bit n = GPU n, bit 63 = host), u16 metric mask (bit = Metric ordinal)
+ * server -> client, every frame starts with u16 length of the rest:
+ *   devices:   u8 3, u8 count, per GPU u16 + UTF-8 name; sent before the first key frame
+ *   key/delta: u8 1 (key) or 2 (delta), i64 timestamp ms, u8 section count, sections:
+ *     u8 device (255 = host), u16 mask of the fields that follow, in Metric order:
+ *       integer metric: zigzag varint of (value - previous value), previous = 0 in a key frame
+ *       float metric:   f32
+ * </pre>
+ * A delta frame carries only the fields that changed since the previous sample, and only sections
+ * with at least one such field; a frame without sections still marks the tick.
+ */
+final class StreamFormat {
+    static final byte SUBSCRIBE = 1;
+    static final int SUBSCRIBE_LENGTH = 1 + 8 + 2;
+
+    static final byte FRAME_KEY = 1;
+    static final byte FRAME_DELTA = 2;
+    static final byte FRAME_DEVICES = 3;
+
+    static final int HOST_DEVICE = 255;
+    static final long HOST_BIT = 1L << 63;
+    static final int MAX_DEVICES = 63;
+
+    private StreamFormat() {
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+
+    static int getVarInt(ByteBuffer buffer) {
+        int zigzag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            zigzag |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    /**
+     * @return the mask with all metrics of the given kind
+     */
+    static int allMetrics(boolean host) {
+        int mask = 0;
+        for (int i = 0; i < Metric.count(); i++) {
+            if (Metric.byOrdinal(i).isHost() == host) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+}
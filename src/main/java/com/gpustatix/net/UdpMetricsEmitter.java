@@ -0,0 +1,303 @@
+package com.gpustatix.net;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pushes every sample to a local StatsD or Telegraf/InfluxDB agent over UDP.
+ * Lines are packed into datagrams of at most udp.mtu bytes in one reused direct buffer and sent
+ * at the end of the tick on a non-blocking channel: a datagram the kernel cannot take right now
+ * is counted as dropped instead of stalling the sampler.
+ */
+public class UdpMetricsEmitter implements SampleListener, AutoCloseable {
+    public enum Format { STATSD, INFLUX }
+
+    static final int MIN_MTU = 64;
+    static final int MAX_MTU = 65507;
+
+    // Метрики, которые отправляются для каждой видеокарты и для хоста
+    private static final Metric[] GPU_METRICS;
+    private static final Metric[] HOST_METRICS;
+
+    static {
+        int gpuCount = 0;
+        for (int i = 0; i < Metric.count(); i++) {
+            if (!Metric.byOrdinal(i).isHost()) {
+                gpuCount++;
+            }
+        }
+        GPU_METRICS = new Metric[gpuCount];
+        HOST_METRICS = new Metric[Metric.count() - gpuCount];
+        for (int i = 0, g = 0, h = 0; i < Metric.count(); i++) {
+            Metric metric = Metric.byOrdinal(i);
+            if (metric.isHost()) {
+                HOST_METRICS[h++] = metric;
+            } else {
+                GPU_METRICS[g++] = metric;
+            }
+        }
+    }
+
+    private final DatagramChannel channel;
+    private final Format format;
+    private final ByteBuffer packet;
+    private final byte[] line = new byte[1024];
+    private final byte[][] keys = new byte[Metric.count()][];
+    // statsd: "gpustatix.gpu0." / influx: "gpustatix,host=...,device=0,name=..."
+    private final byte[][] gpuPrefixes;
+    private final byte[] hostPrefix;
+    private int lineLength;
+    private int prefixLength;
+    private long datagrams;
+    private long dropped;
+    private boolean errorReported;
+
+    /**
+     * Settings from config.properties (udp.host, udp.port, udp.format, udp.mtu, udp.prefix)
+     */
+    public UdpMetricsEmitter(GpuBackend backend) throws IOException {
+        this(backend, new InetSocketAddress(ConfigLoader.getString("udp.host", "127.0.0.1"),
+                        ConfigLoader.getInt("udp.port", 8125)),
+                Format.valueOf(ConfigLoader.getString("udp.format", "statsd").toUpperCase(Locale.ROOT)),
+                ConfigLoader.getInt("udp.mtu", 1432),
+                ConfigLoader.getString("udp.prefix", "gpustatix"));
+    }
+
+    /**
+     * @param target agent address, resolved once here
+     * @param mtu largest datagram payload, {@value #MIN_MTU}..{@value #MAX_MTU}; 1432 stays below
+     *            the usual 1500 byte Ethernet MTU. Lines longer than this are dropped and counted.
+     * @param prefix StatsD bucket prefix or InfluxDB measurement name
+     * @throws IllegalArgumentException if mtu is out of range
+     */
+    public UdpMetricsEmitter(GpuBackend backend, InetSocketAddress target, Format format, int mtu, String prefix)
+            throws IOException {
+        if (target.isUnresolved()) {
+            throw new UnknownHostException(target.getHostString());
+        }
+        if (mtu < MIN_MTU || mtu > MAX_MTU) {
+            throw new IllegalArgumentException("udp.mtu must be between " + MIN_MTU + " and " + MAX_MTU + ": " + mtu);
+        }
+        this.format = format;
+        packet = ByteBuffer.allocateDirect(mtu);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Metric.byOrdinal(i).getKey().getBytes(StandardCharsets.US_ASCII);
+        }
+
+        int count = backend.getDeviceCount();
+        gpuPrefixes = new byte[count][];
+        if (format == Format.STATSD) {
+            for (int i = 0; i < count; i++) {
+                gpuPrefixes[i] = ascii(prefix + ".gpu" + i + ".");
+            }
+            hostPrefix = ascii(prefix + ".host.");
+        } else {
+            String host = ",host=" + escapeTag(localHostName());
+            for (int i = 0; i < count; i++) {
+                gpuPrefixes[i] = (escapeMeasurement(prefix) + host + ",device=" + i
+                        + ",name=" + escapeTag(backend.getDeviceName(i))).getBytes(StandardCharsets.UTF_8);
+            }
+            hostPrefix = (escapeMeasurement(prefix) + host + ",device=host").getBytes(StandardCharsets.UTF_8);
+        }
+
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(target);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    private static String escapeMeasurement(String value) {
+        return value.replace(",", "\\,").replace(" ", "\\ ");
+    }
+
+    private static String escapeTag(String value) {
+        String tag = value == null || value.isEmpty() ? "unknown" : value;
+        if (tag.length() > 128) {
+            tag = tag.substring(0, 128); // строка должна поместиться в буфер line
+        }
+        return tag.replace(",", "\\,").replace("=", "\\=").replace(" ", "\\ ");
+    }
+
+    public long getDatagramCount() {
+        return datagrams;
+    }
+
+    /**
+     * @return datagrams (and oversized lines) that could not be sent
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        long timestamp = host.getTimestampMillis();
+        for (int i = 0; i < gpus.size() && i < gpuPrefixes.length; i++) {
+            GpuSnapshot gpu = gpus.get(i);
+            if (format == Format.STATSD) {
+                for (Metric metric : GPU_METRICS) {
+                    statsdLine(gpuPrefixes[i], metric, metric.read(gpu));
+                }
+            } else {
+                beginLine(gpuPrefixes[i]);
+                for (Metric metric : GPU_METRICS) {
+                    influxField(metric, metric.read(gpu));
+                }
+                endInfluxLine(timestamp);
+            }
+        }
+        if (format == Format.STATSD) {
+            for (Metric metric : HOST_METRICS) {
+                statsdLine(hostPrefix, metric, metric.read(host));
+            }
+        } else {
+            beginLine(hostPrefix);
+            for (Metric metric : HOST_METRICS) {
+                influxField(metric, metric.read(host));
+            }
+            endInfluxLine(timestamp);
+        }
+        flush();
+    }
+
+    /**
+     * gpustatix.gpu0.gpu_temperature:62|g
+     */
+    private void statsdLine(byte[] prefix, Metric metric, float value) {
+        if (value < 0) {
+            return;
+        }
+        beginLine(prefix);
+        put(keys[metric.ordinal()]);
+        put((byte) ':');
+        putValue(metric, value);
+        put((byte) '|');
+        put((byte) 'g');
+        put((byte) '\n');
+        commitLine();
+    }
+
+    /**
+     * gpustatix,host=h,device=0,name=X gpu_temperature=62i,gpu_power=151.3 1700000000000000000
+     */
+    private void influxField(Metric metric, float value) {
+        if (value < 0) {
+            return;
+        }
+        put(lineLength == prefixLength ? (byte) ' ' : (byte) ',');
+        put(keys[metric.ordinal()]);
+        put((byte) '=');
+        putValue(metric, value);
+        if (metric.isInteger()) {
+            put((byte) 'i');
+        }
+    }
+
+    private void endInfluxLine(long timestampMillis) {
+        if (lineLength == prefixLength) {
+            // Ни одного поля - такая строка недопустима
+            return;
+        }
+        put((byte) ' ');
+        lineLength = Ascii.putFixed(line, lineLength, timestampMillis, 0);
+        for (int i = 0; i < 6; i++) {
+            put((byte) '0'); // миллисекунды в наносекунды
+        }
+        put((byte) '\n');
+        commitLine();
+    }
+
+    private void beginLine(byte[] prefix) {
+        lineLength = 0;
+        put(prefix);
+        prefixLength = lineLength;
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, line, lineLength, bytes.length);
+        lineLength += bytes.length;
+    }
+
+    private void put(byte b) {
+        line[lineLength++] = b;
+    }
+
+    private void putValue(Metric metric, float value) {
+        if (metric.isInteger()) {
+            lineLength = Ascii.putFixed(line, lineLength, (long) value, 0);
+        } else {
+            lineLength = Ascii.putFixed(line, lineLength, Math.round(value * 10.0), 1);
+        }
+    }
+
+    /**
+     * Moves the finished line into the datagram, sending the datagram first if the line does not fit
+     */
+    private void commitLine() {
+        if (lineLength > packet.remaining()) {
+            flush();
+            if (lineLength > packet.remaining()) {
+                dropped++;
+                return;
+            }
+        }
+        packet.put(line, 0, lineLength);
+    }
+
+    private void flush() {
+        if (packet.position() == 0) {
+            return;
+        }
+        packet.flip();
+        try {
+            // Неблокирующий канал: датаграмма уходит целиком или не уходит вовсе
+            if (channel.write(packet) > 0) {
+                datagrams++;
+            } else {
+                dropped++;
+            }
+        } catch (IOException e) {
+            // ICMP port unreachable, если агент не запущен
+            dropped++;
+            if (!errorReported) {
+                errorReported = true;
+                System.err.println("UDP metrics are not delivered: " + e);
+            }
+        }
+        packet.clear();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
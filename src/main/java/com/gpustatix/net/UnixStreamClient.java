@@ -0,0 +1,202 @@
+package com.gpustatix.net;
+
+import com.gpustatix.history.Metric;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Blocking client of {@link UnixStreamServer}.
+ * <pre>
+ * try (UnixStreamClient client = UnixStreamClient.connect(Path.of("/tmp/gpustatix.sock"))) {
+ *     client.subscribe(UnixStreamClient.devices(0), UnixStreamClient.metrics(Metric.GPU_TEMPERATURE));
+ *     while (client.next()) {
+ *         float temp = client.getValue(0, Metric.GPU_TEMPERATURE);
+ *     }
+ * }
+ * </pre>
+ * Not thread-safe; values stay valid until the next call to {@link #next()}.
+ */
+public class UnixStreamClient implements AutoCloseable {
+    public static final int HOST = -1;
+    public static final long ALL_DEVICES = -1L;
+    public static final int ALL_METRICS = (1 << Metric.count()) - 1;
+    private static final int METRICS = Metric.count();
+
+    private final SocketChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private String[] deviceNames = new String[0];
+    private float[] values = new float[METRICS];
+    private int[] changed = new int[1];
+    private long timestampMillis;
+
+    private UnixStreamClient(SocketChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    public static UnixStreamClient connect(Path socket) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new UnixStreamClient(channel);
+    }
+
+    /**
+     * @param devices GPU indices, {@link #HOST} for CPU and RAM
+     */
+    public static long devices(int... devices) {
+        long mask = 0;
+        for (int device : devices) {
+            mask |= device == HOST ? StreamFormat.HOST_BIT : 1L << device;
+        }
+        return mask;
+    }
+
+    public static int metrics(Metric... metrics) {
+        int mask = 0;
+        for (Metric metric : metrics) {
+            mask |= 1 << metric.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Replaces the subscription; the server answers with the device list and a key frame on its next tick
+     */
+    public void subscribe(long deviceMask, int metricMask) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(StreamFormat.SUBSCRIBE_LENGTH);
+        request.put(StreamFormat.SUBSCRIBE);
+        request.putLong(deviceMask);
+        request.putShort((short) metricMask);
+        request.flip();
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+    }
+
+    /**
+     * Blocks until the next tick has been received and applied
+     * @return false once the server has closed the connection
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (!fill(2)) {
+                return false;
+            }
+            int length = buffer.getShort() & 0xFFFF;
+            if (!fill(length)) {
+                return false;
+            }
+            int end = buffer.position() + length;
+            byte type = buffer.get();
+            switch (type) {
+                case StreamFormat.FRAME_DEVICES -> readDevices();
+                case StreamFormat.FRAME_KEY, StreamFormat.FRAME_DELTA -> readSample(type == StreamFormat.FRAME_KEY);
+                default -> { }
+            }
+            // Неизвестные кадры пропускаются целиком
+            buffer.position(end);
+            if (type != StreamFormat.FRAME_DEVICES) {
+                return true;
+            }
+        }
+    }
+
+    private boolean fill(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            buffer.compact();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                if (buffer.hasRemaining()) {
+                    throw new EOFException("Stream ended in the middle of a frame");
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readDevices() {
+        int count = buffer.get() & 0xFF;
+        deviceNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            deviceNames[i] = new String(name, StandardCharsets.UTF_8);
+        }
+        values = new float[(count + 1) * METRICS];
+        Arrays.fill(values, -1);
+        changed = new int[count + 1];
+    }
+
+    private void readSample(boolean key) {
+        timestampMillis = buffer.getLong();
+        Arrays.fill(changed, 0);
+        int sections = buffer.get() & 0xFF;
+        for (int s = 0; s < sections; s++) {
+            int device = buffer.get() & 0xFF;
+            int slot = device == StreamFormat.HOST_DEVICE ? deviceNames.length : device;
+            int fields = buffer.getShort() & 0xFFFF;
+            changed[slot] = fields;
+            for (int m = 0; m < METRICS; m++) {
+                if ((fields & (1 << m)) == 0) {
+                    continue;
+                }
+                int i = slot * METRICS + m;
+                if (Metric.byOrdinal(m).isInteger()) {
+                    int delta = StreamFormat.getVarInt(buffer);
+                    values[i] = key ? delta : (int) values[i] + delta;
+                } else {
+                    values[i] = buffer.getFloat();
+                }
+            }
+        }
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getDeviceCount() {
+        return deviceNames.length;
+    }
+
+    public String getDeviceName(int device) {
+        return deviceNames[device];
+    }
+
+    /**
+     * @param device GPU index or {@link #HOST}
+     * @return the latest value, negative if unavailable or not subscribed
+     */
+    public float getValue(int device, Metric metric) {
+        int slot = device == HOST ? deviceNames.length : device;
+        return values[slot * METRICS + metric.ordinal()];
+    }
+
+    /**
+     * @return true if the value arrived with the last tick, i.e. changed or the tick was a key frame
+     */
+    public boolean hasChanged(int device, Metric metric) {
+        int slot = device == HOST ? deviceNames.length : device;
+        return (changed[slot] & (1 << metric.ordinal())) != 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
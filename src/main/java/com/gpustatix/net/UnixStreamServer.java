@@ -0,0 +1,448 @@
+package com.gpustatix.net;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.utils.ConfigLoader;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams samples to local processes over a Unix domain socket (see {@link StreamFormat}).
+ * One selector thread owns all sockets. Each tick is encoded once per distinct subscription
+ * and that buffer is written to every client subscribed the same way; a client that has not
+ * taken the previous frame by the next tick is disconnected rather than queued for.
+ */
+public class UnixStreamServer implements SampleListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-uds";
+    private static final int METRICS = Metric.count();
+    private static final int GPU_METRIC_MASK = StreamFormat.allMetrics(false);
+    private static final int HOST_METRIC_MASK = StreamFormat.allMetrics(true);
+    // Заголовок кадра плюс по секции на каждое устройство (3 байта + до 5 байт на поле)
+    private static final int FRAME_CAPACITY = 12 + (StreamFormat.MAX_DEVICES + 1) * (3 + 5 * 16);
+
+    private final Path path;
+    private final int maxClients;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final String[] deviceNames;
+    private final int hostSlot;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    // Передача выборки от сэмплера потоку селектора
+    private final Object lock = new Object();
+    private final float[] incoming;
+    private long incomingTimestamp;
+    private boolean hasNew;
+
+    // Дальше - только поток селектора
+    private final float[] current;
+    private final float[] previous;
+    private final int[] changed;
+    private final List<Client> clients = new ArrayList<>();
+    private final Map<Subscription, Group> groups = new HashMap<>();
+    private long timestamp;
+    private long tick;
+    private boolean first = true;
+
+    /**
+     * Settings from config.properties (uds.path, uds.max.clients)
+     */
+    public UnixStreamServer(GpuBackend backend) throws IOException {
+        this(backend, Paths.get(ConfigLoader.getString("uds.path", "/tmp/gpustatix.sock")),
+                ConfigLoader.getInt("uds.max.clients", 64));
+    }
+
+    public UnixStreamServer(GpuBackend backend, Path path, int maxClients) throws IOException {
+        this.path = path;
+        this.maxClients = maxClients;
+        int count = Math.min(backend.getDeviceCount(), StreamFormat.MAX_DEVICES);
+        deviceNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            deviceNames[i] = backend.getDeviceName(i);
+        }
+        hostSlot = count;
+        incoming = new float[(count + 1) * METRICS];
+        current = new float[incoming.length];
+        previous = new float[incoming.length];
+        changed = new int[count + 1];
+
+        removeStaleSocket(path);
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(path);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(address);
+        server.configureBlocking(false);
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        thread = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::selectLoop);
+        thread.start();
+    }
+
+    /**
+     * Deletes a socket file left by a crashed instance, refuses to take over a live one
+     */
+    private static void removeStaleSocket(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        boolean live;
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+            live = true;
+        } catch (IOException e) {
+            live = false;
+        }
+        if (live) {
+            throw new IOException("Socket " + path + " is in use by another process");
+        }
+        Files.deleteIfExists(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return clients disconnected because they did not keep up
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        synchronized (lock) {
+            for (int i = 0; i < gpus.size() && i < hostSlot; i++) {
+                GpuSnapshot gpu = gpus.get(i);
+                for (int m = 0; m < METRICS; m++) {
+                    if ((GPU_METRIC_MASK & (1 << m)) != 0) {
+                        incoming[i * METRICS + m] = Metric.byOrdinal(m).read(gpu);
+                    }
+                }
+            }
+            for (int m = 0; m < METRICS; m++) {
+                if ((HOST_METRIC_MASK & (1 << m)) != 0) {
+                    incoming[hostSlot * METRICS + m] = Metric.byOrdinal(m).read(host);
+                }
+            }
+            incomingTimestamp = host.getTimestampMillis();
+            hasNew = true;
+        }
+        selector.wakeup();
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) {
+                            read(client);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(client);
+                        }
+                    }
+                }
+                broadcast();
+            } catch (IOException e) {
+                System.err.println("Stream server error: " + e.getMessage());
+            }
+        }
+        for (Client client : new ArrayList<>(clients)) {
+            disconnect(client);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        if (clients.size() >= maxClients) {
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+    }
+
+    private void read(Client client) {
+        try {
+            if (client.channel.read(client.in) < 0) {
+                disconnect(client);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(client);
+            return;
+        }
+        if (client.in.hasRemaining()) {
+            return;
+        }
+        client.in.flip();
+        if (client.in.get() != StreamFormat.SUBSCRIBE) {
+            // Не наш протокол
+            disconnect(client);
+            return;
+        }
+        long deviceMask = client.in.getLong();
+        int metricMask = client.in.getShort() & 0xFFFF;
+        client.in.clear();
+        client.subscription = new Subscription(deviceMask, metricMask);
+        client.needsKey = true;
+    }
+
+    /**
+     * Encodes the newest sample, if any, and hands it to every subscribed client
+     */
+    private void broadcast() {
+        synchronized (lock) {
+            if (!hasNew) {
+                return;
+            }
+            System.arraycopy(incoming, 0, current, 0, incoming.length);
+            timestamp = incomingTimestamp;
+            hasNew = false;
+        }
+        tick++;
+        for (int slot = 0; slot <= hostSlot; slot++) {
+            int mask = 0;
+            for (int m = 0; m < METRICS; m++) {
+                int i = slot * METRICS + m;
+                if (first || Float.floatToRawIntBits(current[i]) != Float.floatToRawIntBits(previous[i])) {
+                    mask |= 1 << m;
+                }
+            }
+            changed[slot] = mask;
+        }
+
+        for (int c = clients.size() - 1; c >= 0; c--) {
+            Client client = clients.get(c);
+            if (client.subscription == null) {
+                continue;
+            }
+            if (client.outPos < client.outEnd) {
+                // Предыдущий кадр ещё не ушёл: не копим очередь, отключаем
+                dropped.incrementAndGet();
+                System.err.println("Dropping slow stream client");
+                disconnect(client);
+                continue;
+            }
+            ByteBuffer frame;
+            if (client.needsKey) {
+                client.needsKey = false;
+                frame = client.own;
+                frame.clear();
+                encodeDevices(frame);
+                encodeFrame(frame, StreamFormat.FRAME_KEY, client.subscription);
+            } else {
+                Group group = groups.get(client.subscription);
+                if (group == null) {
+                    group = new Group();
+                    groups.put(client.subscription, group);
+                }
+                if (group.tick != tick) {
+                    group.tick = tick;
+                    group.buffer.clear();
+                    encodeFrame(group.buffer, StreamFormat.FRAME_DELTA, client.subscription);
+                }
+                frame = group.buffer;
+            }
+            client.out = frame;
+            client.outPos = 0;
+            client.outEnd = frame.position();
+            write(client);
+        }
+        if (groups.size() > clients.size()) {
+            groups.values().removeIf(group -> group.tick != tick);
+        }
+        System.arraycopy(current, 0, previous, 0, current.length);
+        first = false;
+    }
+
+    private void encodeDevices(ByteBuffer out) {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(StreamFormat.FRAME_DEVICES);
+        out.put((byte) deviceNames.length);
+        for (String name : deviceNames) {
+            byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, 255);
+            out.putShort((short) length);
+            out.put(bytes, 0, length);
+        }
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+
+    private void encodeFrame(ByteBuffer out, byte type, Subscription subscription) {
+        boolean key = type == StreamFormat.FRAME_KEY;
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(type);
+        out.putLong(timestamp);
+        int countPosition = out.position();
+        out.put((byte) 0);
+        int sections = 0;
+        for (int slot = 0; slot <= hostSlot; slot++) {
+            boolean host = slot == hostSlot;
+            long bit = host ? StreamFormat.HOST_BIT : 1L << slot;
+            if ((subscription.deviceMask & bit) == 0) {
+                continue;
+            }
+            int fields = subscription.metricMask & (host ? HOST_METRIC_MASK : GPU_METRIC_MASK);
+            if (!key) {
+                fields &= changed[slot];
+            }
+            if (fields == 0) {
+                continue;
+            }
+            out.put((byte) (host ? StreamFormat.HOST_DEVICE : slot));
+            out.putShort((short) fields);
+            for (int m = 0; m < METRICS; m++) {
+                if ((fields & (1 << m)) == 0) {
+                    continue;
+                }
+                int i = slot * METRICS + m;
+                if (Metric.byOrdinal(m).isInteger()) {
+                    StreamFormat.putVarInt(out, (int) current[i] - (key ? 0 : (int) previous[i]));
+                } else {
+                    out.putFloat(current[i]);
+                }
+            }
+            sections++;
+        }
+        out.put(countPosition, (byte) sections);
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+
+    private void write(Client client) {
+        if (client.out == null || client.outPos >= client.outEnd) {
+            return;
+        }
+        ByteBuffer out = client.out;
+        // Буфер группы общий: границы выставляются заново перед каждой записью
+        out.limit(client.outEnd);
+        out.position(client.outPos);
+        try {
+            client.channel.write(out);
+        } catch (IOException e) {
+            disconnect(client);
+            return;
+        }
+        client.outPos = out.position();
+        int interest = client.outPos < client.outEnd
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (client.key.interestOps() != interest) {
+            client.key.interestOps(interest);
+        }
+    }
+
+    private void disconnect(Client client) {
+        clients.remove(client);
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            selector.close();
+            server.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Error closing stream server: " + e.getMessage());
+        }
+    }
+
+    private static final class Subscription {
+        final long deviceMask;
+        final int metricMask;
+
+        Subscription(long deviceMask, int metricMask) {
+            this.deviceMask = deviceMask;
+            this.metricMask = metricMask;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Subscription other && other.deviceMask == deviceMask && other.metricMask == metricMask;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(deviceMask) * 31 + metricMask;
+        }
+    }
+
+    /**
+     * Delta frame of the current tick shared by all clients with the same subscription
+     */
+    private static final class Group {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME_CAPACITY);
+        long tick;
+    }
+
+    private final class Client {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(StreamFormat.SUBSCRIBE_LENGTH);
+        // Ключевой кадр с именами устройств - свой для каждого клиента
+        final ByteBuffer own = ByteBuffer.allocate(FRAME_CAPACITY + 4 + deviceNames.length * 257);
+        SelectionKey key;
+        Subscription subscription;
+        boolean needsKey;
+        ByteBuffer out;
+        int outPos;
+        int outEnd;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
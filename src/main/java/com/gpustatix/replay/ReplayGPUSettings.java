@@ -0,0 +1,156 @@
+package com.gpustatix.replay;
+
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.GPUSettings;
+import com.gpustatix.utils.GpuProcess;
+import com.gpustatix.utils.GpuSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link GPUSettings} backed by a recorded session instead of NVML, so the UI and the
+ * control code run unchanged on machines without a GPU.
+ * Getters return device 0 of the frame replayed last; setters never touch hardware,
+ * they only notify the actuator listener (a {@link SessionRecorder} can record the replay again).
+ */
+public class ReplayGPUSettings extends GPUSettings {
+    private final ReplayGpuBackend backend;
+    private volatile int tempLimit = 100;
+    private volatile int commandedFanSpeed = -1;
+
+    public ReplayGPUSettings(ReplayGpuBackend backend) {
+        super(false);
+        this.backend = backend;
+    }
+
+    private GpuSnapshot current() {
+        GpuSnapshot snapshot = new GpuSnapshot(0);
+        backend.sample(0, snapshot);
+        return snapshot;
+    }
+
+    @Override
+    public String getGpuVendor() {
+        return "Replay";
+    }
+
+    @Override
+    public String getGpuName() {
+        return backend.getDeviceCount() > 0 ? backend.getDeviceName(0) : "Unknown";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return backend.getDeviceCount() > 0;
+    }
+
+    @Override
+    public int getTempLimit() {
+        return tempLimit;
+    }
+
+    @Override
+    public int getGpuTemperature() {
+        return Math.max(0, current().getTemperature());
+    }
+
+    @Override
+    public int getGpuMemoryUsage() {
+        return Math.max(0, current().getMemoryUsagePercent());
+    }
+
+    @Override
+    public String getGpuUtilization() {
+        int utilization = current().getUtilization();
+        return utilization < 0 ? "Unknown" : String.valueOf(utilization);
+    }
+
+    @Override
+    public int getGpuMemoryUsedMb() {
+        return current().getMemoryUsedMb();
+    }
+
+    @Override
+    public int getGpuMemoryTotalMb() {
+        return current().getMemoryTotalMb();
+    }
+
+    @Override
+    public float getPowerUsage() {
+        return current().getPowerUsage();
+    }
+
+    @Override
+    public int getCoreClock() {
+        return Math.max(0, current().getCoreClock());
+    }
+
+    @Override
+    public int getMemoryClock() {
+        return Math.max(0, current().getMemoryClock());
+    }
+
+    @Override
+    public int getPowerLimit() {
+        return Math.max(0, current().getPowerLimit());
+    }
+
+    @Override
+    public int getFanSpeed() {
+        int fanSpeed = current().getFanSpeed();
+        return fanSpeed >= 0 ? fanSpeed : Math.max(0, commandedFanSpeed);
+    }
+
+    @Override
+    public List<GpuProcess> getGpuProcesses() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public int getNumberOfFans() {
+        return 1;
+    }
+
+    @Override
+    public void setCoreClock(int value) {
+        fireCommand(ActuatorCommand.CORE_CLOCK, value);
+    }
+
+    @Override
+    public void setMemoryClock(int value) {
+        fireCommand(ActuatorCommand.MEMORY_CLOCK, value);
+    }
+
+    @Override
+    public void setPowerLimitNVML(int value) {
+        fireCommand(ActuatorCommand.POWER_LIMIT, value);
+    }
+
+    @Override
+    public void setFanSpeedGradually(int targetValue, boolean isInitialSetting) {
+        fireCommand(ActuatorCommand.FAN_SPEED, targetValue);
+        commandedFanSpeed = Math.max(0, Math.min(100, targetValue));
+    }
+
+    @Override
+    public void setTempLimit(int newTempLimit) {
+        fireCommand(ActuatorCommand.TEMP_LIMIT, newTempLimit);
+        tempLimit = newTempLimit;
+    }
+
+    /**
+     * None: the corrective fan and clock commands of the live code are part of the recording
+     * and are replayed as separate frames
+     */
+    @Override
+    protected Map<ActuatorCommand, Integer> tempLimitCorrections() {
+        return Map.of();
+    }
+
+    @Override
+    public void shutdown() {
+        // Нечего восстанавливать: железо не трогали
+    }
+}
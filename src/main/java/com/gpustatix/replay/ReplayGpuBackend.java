@@ -0,0 +1,70 @@
+package com.gpustatix.replay;
+
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+
+import java.util.List;
+
+/**
+ * Backend whose devices are the ones of a recorded session.
+ * {@link #sample} returns the readings of the frame {@link ReplaySampler} replayed last.
+ */
+public class ReplayGpuBackend implements GpuBackend {
+    private final String[] deviceNames;
+    private final String[] pciAddresses;
+    private final GpuSnapshot[] latest;
+    private final boolean[] seen;
+
+    public ReplayGpuBackend(SessionReader reader) {
+        int count = reader.getDeviceCount();
+        deviceNames = new String[count];
+        pciAddresses = new String[count];
+        latest = new GpuSnapshot[count];
+        seen = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            deviceNames[i] = reader.getDeviceName(i);
+            pciAddresses[i] = reader.getPciAddress(i);
+            latest[i] = new GpuSnapshot(i);
+        }
+    }
+
+    /**
+     * Makes the given frame the current readings
+     */
+    synchronized void update(List<GpuSnapshot> gpus) {
+        for (int i = 0; i < gpus.size() && i < latest.length; i++) {
+            latest[i].copyFrom(gpus.get(i));
+            seen[i] = true;
+        }
+    }
+
+    @Override
+    public int getDeviceCount() {
+        return deviceNames.length;
+    }
+
+    @Override
+    public String getDeviceName(int device) {
+        return deviceNames[device];
+    }
+
+    @Override
+    public String getPciAddress(int device) {
+        return pciAddresses[device];
+    }
+
+    @Override
+    public synchronized boolean sample(int device, GpuSnapshot snapshot) {
+        if (device < 0 || device >= latest.length || !seen[device]) {
+            snapshot.clear();
+            return false;
+        }
+        snapshot.copyFrom(latest[device]);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Файл сессии принадлежит ReplaySampler
+    }
+}
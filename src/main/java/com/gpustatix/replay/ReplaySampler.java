@@ -0,0 +1,186 @@
+package com.gpustatix.replay;
+
+import com.gpustatix.utils.GpuSampler;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drop-in {@link GpuSampler} that plays a recorded session back instead of polling hardware.
+ * Samples go to the usual listeners and commands to the {@link ReplayGPUSettings} setters,
+ * in recorded order, paced by the recorded timestamps at 1x, Nx or as fast as possible.
+ */
+public class ReplaySampler extends GpuSampler {
+    public static final String THREAD_NAME = "gpustatix-replay";
+
+    private final SessionReader reader;
+    private final ReplayGpuBackend backend;
+    private volatile ReplayGPUSettings settings;
+    private volatile Runnable onFinished;
+    private volatile double speed;
+    private volatile boolean running;
+    // Заново привязать время записи к часам после старта или смены скорости
+    private volatile boolean reanchor = true;
+    private Thread thread;
+    private long samples;
+    private long commands;
+
+    /**
+     * @param speed playback speed, 1 = real time, 0 or less = as fast as possible
+     */
+    public ReplaySampler(SessionReader reader, ReplayGpuBackend backend, double speed) {
+        super(backend, null, Math.max(1, reader.getIntervalMs()));
+        this.reader = reader;
+        this.backend = backend;
+        this.speed = speed;
+    }
+
+    /**
+     * Parses a --speed argument: "max", "4", "4x" or "0.5x"
+     * @return the speed, 0 for max
+     */
+    public static double parseSpeed(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.equals("max")) {
+            return 0;
+        }
+        if (trimmed.endsWith("x")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return Double.parseDouble(trimmed);
+    }
+
+    /**
+     * Replayed commands are dispatched to these settings, null to skip them
+     */
+    public void setSettings(ReplayGPUSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Called on the replay thread once the session has been played to the end
+     */
+    public void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    public SessionReader getReader() {
+        return reader;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+        reanchor = true;
+    }
+
+    /**
+     * Continues playback from the current position
+     */
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        reanchor = true;
+        thread = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::replayLoop);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            if (thread != Thread.currentThread()) {
+                try {
+                    thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * Replays frames up to and including the next sample on the calling thread, without pacing
+     */
+    @Override
+    public void sampleOnce() {
+        int frame;
+        while ((frame = reader.next()) != SessionReader.END) {
+            deliver(frame);
+            if (frame == SessionReader.SAMPLE) {
+                return;
+            }
+        }
+    }
+
+    private void replayLoop() {
+        long anchorTimestamp = 0;
+        long anchorNanos = 0;
+        long startNanos = System.nanoTime();
+        int frame;
+        while (running && (frame = reader.next()) != SessionReader.END) {
+            double currentSpeed = speed;
+            if (currentSpeed > 0) {
+                if (reanchor) {
+                    reanchor = false;
+                    anchorTimestamp = reader.getTimestampMillis();
+                    anchorNanos = System.nanoTime();
+                }
+                long due = anchorNanos
+                        + (long) ((reader.getTimestampMillis() - anchorTimestamp) * 1_000_000L / currentSpeed);
+                long wait;
+                while (running && !reanchor && (wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (!running) {
+                    break;
+                }
+            }
+            try {
+                deliver(frame);
+            } catch (Exception e) {
+                System.err.println("Error while replaying: " + e.getMessage());
+            }
+        }
+        if (!running) {
+            return;
+        }
+        running = false;
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        System.err.println("Replay of " + reader.getFile() + " finished: " + samples + " samples, "
+                + commands + " commands in " + elapsedMillis + " ms ("
+                + samples * 1000 / elapsedMillis + " samples/s)");
+        Runnable callback = onFinished;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    private void deliver(int frame) {
+        if (frame == SessionReader.SAMPLE) {
+            samples++;
+            backend.update(reader.getGpus());
+            publish(reader.getHost(), reader.getGpus());
+        } else {
+            commands++;
+            ReplayGPUSettings target = settings;
+            if (target != null && reader.getCommandDevice() == 0) {
+                target.apply(reader.getCommand(), reader.getCommandValue());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+        reader.close();
+    }
+}
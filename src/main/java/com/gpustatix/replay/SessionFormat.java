@@ -0,0 +1,31 @@
+package com.gpustatix.replay;
+
+import com.gpustatix.utils.SampleCodec;
+
+/**
+ * Layout of a recorded session (.gss), big-endian:
+ * <pre>
+ * header:  int magic "GSES", short version, long startMillis, int intervalMs, short deviceCount,
+ *          per device: short+UTF-8 name, short+UTF-8 PCI address
+ * sample:  byte 1, varint dt, varint gpuCount, 5 host fields, 10 fields per GPU
+ * command: byte 2, varint dt, varint device, byte command ordinal, varint value
+ * </pre>
+ * dt is the zigzag delta to the previous frame's timestamp in ms. Sample fields, in
+ * {@link SampleCodec} order, are zigzag deltas to the same field of the previous sample frame,
+ * so a steady GPU costs one byte per field.
+ */
+final class SessionFormat {
+    static final int MAGIC = 0x47534553; // "GSES"
+    static final short VERSION = 1;
+    static final String SUFFIX = ".gss";
+
+    static final byte FRAME_SAMPLE = 1;
+    static final byte FRAME_COMMAND = 2;
+
+    // Верхняя граница длины кадра: тип, dt, число GPU и поля хоста плюс по 50 байт на GPU
+    static final int MAX_GPU_FRAME_BYTES = SampleCodec.GPU_FIELDS * SampleCodec.MAX_INT_VARINT_BYTES;
+    static final int MAX_FRAME_HEADER_BYTES = 1 + 10 + 5 + SampleCodec.HOST_FIELDS * SampleCodec.MAX_INT_VARINT_BYTES;
+
+    private SessionFormat() {
+    }
+}
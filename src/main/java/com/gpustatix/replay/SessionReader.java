@@ -0,0 +1,238 @@
+package com.gpustatix.replay;
+
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleCodec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sequential reader of a session written by {@link SessionRecorder}.
+ * A truncated last frame (recorder killed mid-write) simply ends the session.
+ */
+public class SessionReader implements AutoCloseable {
+    public static final int END = -1;
+    public static final int SAMPLE = SessionFormat.FRAME_SAMPLE;
+    public static final int COMMAND = SessionFormat.FRAME_COMMAND;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long startMillis;
+    private final int intervalMs;
+    private final String[] deviceNames;
+    private final String[] pciAddresses;
+    private final int firstFrame;
+    private final int[] hostFields = new int[SampleCodec.HOST_FIELDS];
+    private int[] gpuFields = new int[0];
+    private long timestampMillis;
+
+    private HostSnapshot host;
+    private List<GpuSnapshot> gpus = Collections.emptyList();
+    private int commandDevice;
+    private ActuatorCommand command;
+    private int commandValue;
+
+    public SessionReader(Path file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Session file is too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < 20 || buffer.getInt() != SessionFormat.MAGIC) {
+                throw new IOException("Not a session recording: " + file);
+            }
+            short version = buffer.getShort();
+            if (version != SessionFormat.VERSION) {
+                throw new IOException("Unsupported session version " + version + ": " + file);
+            }
+            startMillis = buffer.getLong();
+            intervalMs = buffer.getInt();
+            int count = buffer.getShort();
+            deviceNames = new String[count];
+            pciAddresses = new String[count];
+            for (int i = 0; i < count; i++) {
+                deviceNames[i] = getString();
+                pciAddresses[i] = getString();
+            }
+            firstFrame = buffer.position();
+            timestampMillis = startMillis;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException io ? io : new IOException("Corrupt session header: " + file, e);
+        }
+    }
+
+    private String getString() {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return wall clock time the recording started
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public int getIntervalMs() {
+        return intervalMs;
+    }
+
+    public int getDeviceCount() {
+        return deviceNames.length;
+    }
+
+    public String getDeviceName(int device) {
+        return deviceNames[device];
+    }
+
+    public String getPciAddress(int device) {
+        return pciAddresses[device];
+    }
+
+    /**
+     * Advances to the next frame
+     * @return {@link #SAMPLE}, {@link #COMMAND} or {@link #END}
+     */
+    public int next() {
+        if (!buffer.hasRemaining()) {
+            return END;
+        }
+        int start = buffer.position();
+        try {
+            byte type = buffer.get();
+            long timestamp = timestampMillis + SampleCodec.getVarLong(buffer);
+            switch (type) {
+                case SessionFormat.FRAME_SAMPLE -> readSample(timestamp);
+                case SessionFormat.FRAME_COMMAND -> readCommand();
+                default -> throw new IllegalStateException("unknown frame type " + type);
+            }
+            timestampMillis = timestamp;
+            return type;
+        } catch (BufferUnderflowException e) {
+            // Запись оборвалась посреди кадра
+            buffer.position(buffer.limit());
+            return END;
+        } catch (IllegalStateException e) {
+            System.err.println("Corrupt session frame at offset " + start + " in " + file + ": " + e.getMessage());
+            buffer.position(buffer.limit());
+            return END;
+        }
+    }
+
+    private void readSample(long timestamp) {
+        int count = (int) SampleCodec.getVarLong(buffer);
+        if (count < 0 || count > 1024) {
+            throw new IllegalStateException("bad GPU count " + count);
+        }
+        if (gpuFields.length < count * SampleCodec.GPU_FIELDS) {
+            gpuFields = Arrays.copyOf(gpuFields, count * SampleCodec.GPU_FIELDS);
+        }
+        for (int i = 0; i < SampleCodec.HOST_FIELDS; i++) {
+            hostFields[i] += (int) SampleCodec.getVarLong(buffer);
+        }
+        for (int i = 0; i < count * SampleCodec.GPU_FIELDS; i++) {
+            gpuFields[i] += (int) SampleCodec.getVarLong(buffer);
+        }
+
+        // Свежие объекты на каждый кадр: слушатели могут их хранить, как и у GpuSampler
+        HostSnapshot nextHost = new HostSnapshot();
+        nextHost.setTimestampMillis(timestamp);
+        SampleCodec.toHost(hostFields, nextHost);
+        List<GpuSnapshot> nextGpus = new ArrayList<>(count);
+        for (int g = 0; g < count; g++) {
+            GpuSnapshot gpu = new GpuSnapshot(g);
+            gpu.setTimestampMillis(timestamp);
+            SampleCodec.toGpu(gpuFields, g * SampleCodec.GPU_FIELDS, gpu);
+            nextGpus.add(gpu);
+        }
+        host = nextHost;
+        gpus = nextGpus;
+    }
+
+    private void readCommand() {
+        int device = (int) SampleCodec.getVarLong(buffer);
+        ActuatorCommand next = ActuatorCommand.fromOrdinal(buffer.get());
+        int value = (int) SampleCodec.getVarLong(buffer);
+        if (next == null) {
+            throw new IllegalStateException("unknown command");
+        }
+        commandDevice = device;
+        command = next;
+        commandValue = value;
+    }
+
+    /**
+     * @return timestamp of the current frame
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return host readings of the last sample frame, a new object per frame
+     */
+    public HostSnapshot getHost() {
+        return host;
+    }
+
+    /**
+     * @return GPU readings of the last sample frame, new objects per frame
+     */
+    public List<GpuSnapshot> getGpus() {
+        return gpus;
+    }
+
+    public int getCommandDevice() {
+        return commandDevice;
+    }
+
+    public ActuatorCommand getCommand() {
+        return command;
+    }
+
+    public int getCommandValue() {
+        return commandValue;
+    }
+
+    /**
+     * Goes back to the first frame
+     */
+    public void rewind() {
+        buffer.position(firstFrame);
+        timestampMillis = startMillis;
+        Arrays.fill(hostFields, 0);
+        Arrays.fill(gpuFields, 0);
+        host = null;
+        gpus = Collections.emptyList();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
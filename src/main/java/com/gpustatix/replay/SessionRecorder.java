@@ -0,0 +1,250 @@
+package com.gpustatix.replay;
+
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.ActuatorListener;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.gpustatix.utils.SampleCodec;
+import com.gpustatix.utils.SampleListener;
+import com.gpustatix.utils.ThreadAffinity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the raw sample stream and every actuator command into one session file,
+ * in the order they happened, for {@link ReplaySampler}.
+ * Callers only enqueue; a writer thread delta-encodes the frames (see {@link SessionFormat}).
+ */
+public class SessionRecorder implements SampleListener, ActuatorListener, AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-session-writer";
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    // Будит писателя при закрытии; прерывание закрыло бы канал до последнего flush()
+    private static final Object STOP = new Object();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final int[] hostFields = new int[SampleCodec.HOST_FIELDS];
+    private final int[] previousHost = new int[SampleCodec.HOST_FIELDS];
+    private final Thread writer;
+    private volatile boolean running = true;
+    private int[] gpuFields = new int[0];
+    private int[] previousGpus = new int[0];
+    private long previousTimestamp;
+    private long lastFlush;
+    private long framesWritten;
+    private long bytesWritten;
+
+    /**
+     * Creates (or truncates) the session file and writes its header
+     * @param backend backend being sampled, for the device names
+     * @param intervalMs sampling interval, informational
+     */
+    public SessionRecorder(Path file, GpuBackend backend, int intervalMs) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        previousTimestamp = System.currentTimeMillis();
+        writeHeader(backend, intervalMs);
+
+        writer = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::writeLoop);
+        writer.start();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return number of samples and commands dropped because the writer could not keep up
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void onSample(HostSnapshot host, List<GpuSnapshot> gpus) {
+        if (!queue.offer(new Tick(host, gpus))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onCommand(int device, ActuatorCommand command, int value) {
+        if (!queue.offer(new Command(System.currentTimeMillis(), device, command, value))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeHeader(GpuBackend backend, int intervalMs) throws IOException {
+        int count = backend.getDeviceCount();
+        buffer.putInt(SessionFormat.MAGIC);
+        buffer.putShort(SessionFormat.VERSION);
+        buffer.putLong(previousTimestamp);
+        buffer.putInt(intervalMs);
+        buffer.putShort((short) count);
+        for (int i = 0; i < count; i++) {
+            putString(backend.getDeviceName(i));
+            putString(backend.getPciAddress(i));
+        }
+        flush();
+    }
+
+    private void putString(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 1024);
+        buffer.putShort((short) length);
+        buffer.put(bytes, 0, length);
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Object event = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event instanceof Tick tick) {
+                    encodeSample(tick.host, tick.gpus);
+                } else if (event instanceof Command command) {
+                    encodeCommand(command);
+                }
+                long now = System.currentTimeMillis();
+                if (buffer.position() > 0 && (event == null || now - lastFlush >= FLUSH_INTERVAL_MILLIS)) {
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                // Поток не прерывают: close() будит его через STOP, очередь дописывается до конца
+            } catch (Exception e) {
+                System.err.println("Error writing session recording: " + e.getMessage());
+            }
+        }
+        try {
+            flush();
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing session recording: " + e.getMessage());
+        }
+    }
+
+    private void encodeSample(HostSnapshot host, List<GpuSnapshot> gpus) throws IOException {
+        int count = gpus.size();
+        ensureCapacity(SessionFormat.MAX_FRAME_HEADER_BYTES + count * SessionFormat.MAX_GPU_FRAME_BYTES);
+        if (gpuFields.length < count * SampleCodec.GPU_FIELDS) {
+            // Новая GPU начинает с нулей, как и у читателя
+            gpuFields = new int[count * SampleCodec.GPU_FIELDS];
+            previousGpus = Arrays.copyOf(previousGpus, gpuFields.length);
+        }
+
+        buffer.put(SessionFormat.FRAME_SAMPLE);
+        putTimestamp(host.getTimestampMillis());
+        SampleCodec.putVarLong(buffer, count);
+        SampleCodec.hostFields(host, hostFields);
+        for (int i = 0; i < SampleCodec.HOST_FIELDS; i++) {
+            SampleCodec.putVarLong(buffer, hostFields[i] - previousHost[i]);
+            previousHost[i] = hostFields[i];
+        }
+        for (int g = 0; g < count; g++) {
+            int offset = g * SampleCodec.GPU_FIELDS;
+            SampleCodec.gpuFields(gpus.get(g), gpuFields, offset);
+            for (int i = offset; i < offset + SampleCodec.GPU_FIELDS; i++) {
+                SampleCodec.putVarLong(buffer, gpuFields[i] - previousGpus[i]);
+                previousGpus[i] = gpuFields[i];
+            }
+        }
+        framesWritten++;
+    }
+
+    private void encodeCommand(Command command) throws IOException {
+        ensureCapacity(SessionFormat.MAX_FRAME_HEADER_BYTES);
+        buffer.put(SessionFormat.FRAME_COMMAND);
+        putTimestamp(command.timestampMillis);
+        SampleCodec.putVarLong(buffer, command.device);
+        buffer.put((byte) command.command.ordinal());
+        SampleCodec.putVarLong(buffer, command.value);
+        framesWritten++;
+    }
+
+    private void putTimestamp(long timestampMillis) {
+        SampleCodec.putVarLong(buffer, timestampMillis - previousTimestamp);
+        previousTimestamp = timestampMillis;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+        lastFlush = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes out everything queued so far and closes the file
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Очередь полна - писатель и так не спит и увидит running после неё
+        queue.offer(STOP);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.err.println("Session recorded to " + file + ": " + framesWritten + " frames, "
+                + bytesWritten + " bytes" + (dropped.get() > 0 ? ", " + dropped.get() + " dropped" : ""));
+    }
+
+    private static final class Tick {
+        final HostSnapshot host;
+        final List<GpuSnapshot> gpus;
+
+        Tick(HostSnapshot host, List<GpuSnapshot> gpus) {
+            this.host = host;
+            this.gpus = gpus;
+        }
+    }
+
+    private static final class Command {
+        final long timestampMillis;
+        final int device;
+        final ActuatorCommand command;
+        final int value;
+
+        Command(long timestampMillis, int device, ActuatorCommand command, int value) {
+            this.timestampMillis = timestampMillis;
+            this.device = device;
+            this.command = command;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.gpustatix.ui;
+
+import com.gpustatix.utils.CgroupUsage;
+import com.gpustatix.utils.ProcessCollector;
+import com.gpustatix.utils.ThreadAffinity;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * CPU and GPU usage per cgroup (container), refreshed once per second while the panel is visible.
+ * The /proc scan runs on its own thread so a host with thousands of processes never blocks the EDT.
+ */
+public class ContainersPanel extends JPanel {
+    public static final String THREAD_NAME = "gpustatix-cgroups";
+
+    private static final String[] COLUMNS = {"Container", "Processes", "CPU %", "GPU %", "VRAM (MB)", "GPU procs", "cgroup"};
+    // Сначала по видеопамяти, затем по загрузке GPU и CPU
+    private static final Comparator<CgroupUsage> ORDER = Comparator.comparingInt(CgroupUsage::getGpuMemoryMb)
+            .thenComparingInt(CgroupUsage::getGpuUtilization)
+            .thenComparingDouble(CgroupUsage::getCpuPercent)
+            .reversed();
+
+    private final ProcessCollector collector;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(ThreadAffinity.threadFactory(THREAD_NAME));
+    private final AtomicBoolean scanning = new AtomicBoolean();
+    private final ContainersTableModel model = new ContainersTableModel();
+    private final JCheckBox containersOnly = new JCheckBox("Containers only", true);
+    private final JLabel summaryLabel = new JLabel(" ");
+    private final Timer refreshTimer;
+    private List<CgroupUsage> latest = Collections.emptyList();
+    private List<CgroupUsage> rows = Collections.emptyList();
+
+    public ContainersPanel(ProcessCollector collector) {
+        super(new BorderLayout(5, 5));
+        this.collector = collector;
+        setBackground(Color.BLACK);
+        setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        containersOnly.setBackground(Color.BLACK);
+        containersOnly.setForeground(Color.WHITE);
+        containersOnly.addActionListener(e -> display(latest));
+        JPanel selectors = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        selectors.setBackground(Color.BLACK);
+        selectors.add(containersOnly);
+
+        JTable table = new JTable(model);
+        table.setBackground(Color.BLACK);
+        table.setForeground(Color.GREEN);
+        table.setGridColor(new Color(50, 50, 50));
+        table.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.getViewport().setBackground(Color.BLACK);
+
+        summaryLabel.setForeground(Color.WHITE);
+
+        add(selectors, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(summaryLabel, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(1000, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    private void refresh() {
+        // Предыдущий проход ещё идёт - пропускаем тик
+        if (!scanning.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                List<CgroupUsage> usage = collector.collectCgroups();
+                SwingUtilities.invokeLater(() -> display(usage));
+            } catch (Exception e) {
+                System.err.println("Failed to collect cgroup usage: " + e.getMessage());
+            } finally {
+                scanning.set(false);
+            }
+        });
+    }
+
+    private void display(List<CgroupUsage> usage) {
+        latest = usage;
+        List<CgroupUsage> visible = new ArrayList<>(usage.size());
+        int containers = 0;
+        for (CgroupUsage cgroup : usage) {
+            if (cgroup.isContainer()) {
+                containers++;
+            }
+            if (cgroup.isContainer() || !containersOnly.isSelected()) {
+                visible.add(cgroup);
+            }
+        }
+        visible.sort(ORDER);
+        rows = visible;
+        model.fireTableDataChanged();
+        summaryLabel.setText(String.format("%d containers, %d cgroups, %d processes tracked",
+                containers, usage.size(), collector.getTrackedCount()));
+    }
+
+    /**
+     * Stops the refresh timer and the scan thread
+     */
+    public void dispose() {
+        refreshTimer.stop();
+        executor.shutdownNow();
+    }
+
+    private class ContainersTableModel extends AbstractTableModel {
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            CgroupUsage usage = rows.get(row);
+            return switch (column) {
+                case 0 -> usage.getLabel();
+                case 1 -> usage.getProcesses();
+                case 2 -> String.format("%.1f", usage.getCpuPercent());
+                case 3 -> usage.getGpuProcesses() == 0 ? "-"
+                        : usage.getGpuUtilization() < 0 ? "n/a" : String.valueOf(usage.getGpuUtilization());
+                case 4 -> usage.getGpuProcesses() == 0 ? "-" : String.valueOf(usage.getGpuMemoryMb());
+                case 5 -> usage.getGpuProcesses();
+                default -> usage.getPath();
+            };
+        }
+    }
+}
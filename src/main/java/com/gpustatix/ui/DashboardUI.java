@@ -1,6 +1,13 @@
 package com.gpustatix.ui;
 
+import com.gpustatix.history.RollupStore;
+import com.gpustatix.history.SketchStore;
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.ActuatorQueue;
 import com.gpustatix.utils.GPUSettings;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSampler;
+import com.gpustatix.utils.ProcessCollector;
 
 import javax.swing.*;
 import java.awt.*;
@@ -13,15 +20,43 @@ import java.util.concurrent.TimeUnit;
 
 public class DashboardUI extends JFrame {
     private final GPUSettings gpuSettings;
+    private final ActuatorQueue actuators;
+    private final boolean ownsActuators;
     private MonitoringOverlay overlay;
     private final ExecutorService executor;
     private final ExecutorService uiUpdateExecutor;
     private boolean isRunning = true;
     private int pollingIntervalMs = 1000; // Default 1 second
     private final JTabbedPane tabbedPane;
+    private StatsPanel statsPanel;
+    private ContainersPanel containersPanel;
 
     public DashboardUI(GPUSettings gpuSettings) {
+        this(gpuSettings, null);
+    }
+
+    /**
+     * @param sampler shared sampler feeding the statistics tab, null to hide the tab
+     */
+    public DashboardUI(GPUSettings gpuSettings, GpuSampler sampler) {
+        this(gpuSettings, sampler, null);
+    }
+
+    /**
+     * @param actuators queue shared with the control API, null to use a queue of its own
+     */
+    public DashboardUI(GPUSettings gpuSettings, GpuSampler sampler, ActuatorQueue actuators) {
+        this(gpuSettings, sampler, actuators, null);
+    }
+
+    /**
+     * @param history in-memory history for the averages on the statistics tab, null to leave them out
+     */
+    public DashboardUI(GPUSettings gpuSettings, GpuSampler sampler, ActuatorQueue actuators, RollupStore history) {
         this.gpuSettings = gpuSettings;
+        // Все изменения, в том числе кривой вентилятора, идут через одну очередь
+        ownsActuators = actuators == null;
+        this.actuators = ownsActuators ? new ActuatorQueue(gpuSettings) : actuators;
 
         setTitle("GPUStatix");
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE); // Changed to DISPOSE_ON_CLOSE to handle cleanup
@@ -157,6 +192,11 @@ public class DashboardUI extends JFrame {
         
         // Add panels to tabbed pane
         tabbedPane.addTab("Settings", settingsPanel);
+        if (sampler != null) {
+            tabbedPane.addTab("Stats", createStatsPanel(sampler, history));
+            containersPanel = new ContainersPanel(new ProcessCollector(sampler.getBackend()));
+            tabbedPane.addTab("Containers", containersPanel);
+        }
         
         add(tabbedPane, BorderLayout.CENTER);
 
@@ -173,6 +213,21 @@ public class DashboardUI extends JFrame {
         getContentPane().setBackground(Color.BLACK);
     }
 
+    /**
+     * Вкладка с перцентилями метрик; скетчи обновляются потоком опроса
+     */
+    private StatsPanel createStatsPanel(GpuSampler sampler, RollupStore history) {
+        GpuBackend backend = sampler.getBackend();
+        String[] names = new String[backend.getDeviceCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = backend.getDeviceName(i);
+        }
+        SketchStore sketches = new SketchStore(names.length);
+        sampler.addListener(sketches);
+        statsPanel = new StatsPanel(sketches, history, names, gpuSettings::getTempLimit);
+        return statsPanel;
+    }
+
     /**
      * Создаёт панель с меткой и текстовым полем для отображения и ввода значений
      *
@@ -219,13 +274,19 @@ public class DashboardUI extends JFrame {
 
 
     private void updateGpuSetting(String label, int value) {
-        switch (label) {
-            case "Core Clock" -> gpuSettings.setCoreClock(value);
-            case "Memory Clock" -> gpuSettings.setMemoryClock(value);
-            case "Power Limit" -> gpuSettings.setPowerLimitNVML(value);
-            case "Fan Speed" -> gpuSettings.setFanSpeed(value);
-            case "Temp Limit" -> gpuSettings.setTempLimit(value);
-            default -> System.err.println("Unsupported setting: " + label);
+        ActuatorCommand command = switch (label) {
+            case "Core Clock" -> ActuatorCommand.CORE_CLOCK;
+            case "Memory Clock" -> ActuatorCommand.MEMORY_CLOCK;
+            case "Power Limit" -> ActuatorCommand.POWER_LIMIT;
+            case "Fan Speed" -> ActuatorCommand.FAN_SPEED;
+            case "Temp Limit" -> ActuatorCommand.TEMP_LIMIT;
+            default -> null;
+        };
+        if (command == null) {
+            System.err.println("Unsupported setting: " + label);
+        } else {
+            // Применяется в потоке актуатора, EDT не ждёт nvidia-settings
+            actuators.submit(command, value);
         }
     }
 
@@ -252,7 +313,7 @@ public class DashboardUI extends JFrame {
         try {
             if (fanCurveWindow == null || !fanCurveWindow.isDisplayable()) {
                 // Create new window
-                fanCurveWindow = new FanCurveWindow(gpuSettings);
+                fanCurveWindow = new FanCurveWindow(gpuSettings, actuators);
                 
                 // Position window relative to main window
                 try {
@@ -361,6 +422,13 @@ public class DashboardUI extends JFrame {
     public void shutdown() {
         isRunning = false;
         
+        if (statsPanel != null) {
+            statsPanel.dispose();
+        }
+        if (containersPanel != null) {
+            containersPanel.dispose();
+        }
+        
         // Close overlay if open
         if (overlay != null && overlay.isVisible()) {
             overlay.dispose();
@@ -380,6 +448,10 @@ public class DashboardUI extends JFrame {
                 fanCurveWindow = null;
             }
         }
+        // После остановки кривой, чтобы её безопасная скорость успела примениться
+        if (ownsActuators) {
+            actuators.close();
+        }
         
         // Shutdown executors gracefully
         executor.shutdown();
@@ -1,6 +1,9 @@
 package com.gpustatix.ui;
 
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.ActuatorQueue;
 import com.gpustatix.utils.GPUSettings;
+import com.gpustatix.utils.ThreadAffinity;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,6 +14,7 @@ import java.awt.geom.Point2D;
 import java.io.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +46,8 @@ public class FanCurveChart extends JPanel {
     
     // GPU settings reference
     private final GPUSettings gpuSettings;
+    // Fan speed changes share the queue with the settings tab and the control API
+    private final ActuatorQueue actuators;
     
     // Current temperature and fan speed for monitoring
     private int currentTemp = 0;
@@ -92,10 +98,12 @@ public class FanCurveChart extends JPanel {
     
     /**
      * Constructor for FanCurveChart
-     * @param gpuSettings GPU settings instance to control fan speed
+     * @param gpuSettings GPU settings instance to read the temperature from
+     * @param actuators queue the fan speed changes are applied through
      */
-    public FanCurveChart(GPUSettings gpuSettings) {
+    public FanCurveChart(GPUSettings gpuSettings, ActuatorQueue actuators) {
         this.gpuSettings = gpuSettings;
+        this.actuators = actuators;
         
         // Set a much larger size for better precision
         setPreferredSize(new Dimension(800, 600));
@@ -227,7 +235,7 @@ public class FanCurveChart extends JPanel {
             int temp = gpuSettings.getGpuTemperature();
             int fan = calculateFanSpeedForTemperature(temp);
             if (fan >= 0) {
-                gpuSettings.setFanSpeed(fan);
+                setFanSpeed(fan);
             }
         }
     }
@@ -241,7 +249,8 @@ public class FanCurveChart extends JPanel {
         }
         
         isMonitoring = true;
-        monitoringExecutor = Executors.newSingleThreadScheduledExecutor();
+        monitoringExecutor = Executors.newSingleThreadScheduledExecutor(
+                ThreadAffinity.threadFactory("gpustatix-fan-control", false));
         monitoringExecutor.scheduleAtFixedRate(this::updateMonitoring, 0, intervalMs, TimeUnit.MILLISECONDS);
     }
     
@@ -282,10 +291,10 @@ public class FanCurveChart extends JPanel {
                     // If we have a reasonable temperature, calculate a safe fan speed
                     if (currentTemp > 0 && currentTemp < 100) {
                         int safeFanSpeed = Math.max(30, currentTemp - 40); // Simple calculation: at least 30%, more at higher temps
-                        gpuSettings.setFanSpeed(safeFanSpeed);
+                        setFanSpeed(safeFanSpeed);
                     } else {
                         // Use a safe default if temperature reading is questionable
-                        gpuSettings.setFanSpeed(50);
+                        setFanSpeed(50);
                     }
                 } catch (Exception ex) {
                     System.err.println("Failed to restore default fan control: " + ex.getMessage());
@@ -311,7 +320,7 @@ public class FanCurveChart extends JPanel {
                 } else {
                     // Temperature is unusually high, might be a sensor error
                     System.err.println("Potentially dangerous temperature reading! Defaulting to max fan speed.");
-                    gpuSettings.setFanSpeed(100); // Set fans to 100% for safety
+                    setFanSpeed(100); // Set fans to 100% for safety
                     SwingUtilities.invokeLater(this::repaint);
                     return;
                 }
@@ -322,17 +331,12 @@ public class FanCurveChart extends JPanel {
             
             // Apply fan speed with error checking
             if (currentFan >= 0) {
-                try {
-                    gpuSettings.setFanSpeed(currentFan);
-                } catch (Exception e) {
-                    System.err.println("Failed to set fan speed: " + e.getMessage());
-                    // Try again with a safe default
-                    try {
-                        gpuSettings.setFanSpeed(70); // Set a safe default fan speed
-                    } catch (Exception ex) {
-                        System.err.println("Critical: Failed to set default fan speed: " + ex.getMessage());
+                setFanSpeed(currentFan).whenComplete((result, failure) -> {
+                    if (failure != null) {
+                        // Try again with a safe default
+                        setFanSpeed(70);
                     }
-                }
+                });
             }
             
             // Update UI on EDT
@@ -342,14 +346,16 @@ public class FanCurveChart extends JPanel {
             e.printStackTrace();
             
             // Try to ensure fans are running in case of error
-            try {
-                gpuSettings.setFanSpeed(70); // Set a safe default in case of errors
-            } catch (Exception ex) {
-                // Critical error handling - log but don't rethrow
-                System.err.println("Critical error setting fan speed during error recovery: " + ex.getMessage());
-            }
+            setFanSpeed(70); // Set a safe default in case of errors
         }
     }
+
+    /**
+     * Queues a fan speed change; the queue logs a change the driver rejects
+     */
+    private CompletableFuture<ActuatorQueue.Result> setFanSpeed(int value) {
+        return actuators.submit(ActuatorCommand.FAN_SPEED, value);
+    }
     
     /**
      * Calculate fan speed for a given temperature based on the current curve
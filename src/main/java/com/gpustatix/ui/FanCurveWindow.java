@@ -1,5 +1,10 @@
 package com.gpustatix.ui;
 
+import com.gpustatix.export.ExportFormat;
+import com.gpustatix.export.SampleExporter;
+import com.gpustatix.history.SampleLog;
+import com.gpustatix.utils.ActuatorQueue;
+import com.gpustatix.utils.ConfigLoader;
 import com.gpustatix.utils.GPUSettings;
 
 import javax.swing.*;
@@ -13,6 +18,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 /**
@@ -29,9 +35,10 @@ public class FanCurveWindow extends JFrame {
 
     /**
      * Constructor
-     * @param gpuSettings GPU settings to control fan speeds
+     * @param gpuSettings GPU settings to read the temperature from
+     * @param actuators queue the fan speed changes are applied through
      */
-    public FanCurveWindow(GPUSettings gpuSettings) {
+    public FanCurveWindow(GPUSettings gpuSettings, ActuatorQueue actuators) {
         this.gpuSettings = gpuSettings;
         
         // Window setup
@@ -46,7 +53,7 @@ public class FanCurveWindow extends JFrame {
         mainPanel.setBackground(new Color(30, 30, 35));
         
         // Create fan curve chart
-        fanCurveChart = new FanCurveChart(gpuSettings);
+        fanCurveChart = new FanCurveChart(gpuSettings, actuators);
         fanCurveChart.setBorder(BorderFactory.createLineBorder(new Color(70, 70, 70)));
         
         // Create control panel
@@ -184,12 +191,17 @@ public class FanCurveWindow extends JFrame {
         loadItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, KeyEvent.CTRL_DOWN_MASK));
         loadItem.addActionListener(e -> loadCurve());
         
+        JMenuItem exportItem = new JMenuItem("Export...", KeyEvent.VK_E);
+        exportItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_E, KeyEvent.CTRL_DOWN_MASK));
+        exportItem.addActionListener(e -> exportHistory());
+        
         JMenuItem exitItem = new JMenuItem("Close Window", KeyEvent.VK_X);
         exitItem.addActionListener(e -> dispose());
         
         fileMenu.add(saveItem);
         fileMenu.add(saveAsItem);
         fileMenu.add(loadItem);
+        fileMenu.add(exportItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         
@@ -317,6 +329,70 @@ public class FanCurveWindow extends JFrame {
         }
     }
     
+    /**
+     * Export recorded GPU history for a chosen time range to CSV, NDJSON or columnar file.
+     * The export runs in the background and reads the sample log directly from disk.
+     */
+    private void exportHistory() {
+        String[] ranges = {"Last hour", "Last 24 hours", "Last 7 days", "Everything"};
+        long[] rangeMillis = {3_600_000L, 24 * 3_600_000L, 7 * 24 * 3_600_000L, Long.MAX_VALUE};
+        JComboBox<String> rangeBox = new JComboBox<>(ranges);
+        rangeBox.setSelectedIndex(1);
+        JComboBox<ExportFormat> formatBox = new JComboBox<>(ExportFormat.values());
+        
+        JPanel optionsPanel = new JPanel(new GridLayout(2, 2, 5, 5));
+        optionsPanel.add(new JLabel("Time range:"));
+        optionsPanel.add(rangeBox);
+        optionsPanel.add(new JLabel("Format:"));
+        optionsPanel.add(formatBox);
+        
+        int result = JOptionPane.showConfirmDialog(this, optionsPanel, "Export History",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        ExportFormat format = (ExportFormat) formatBox.getSelectedItem();
+        long range = rangeMillis[rangeBox.getSelectedIndex()];
+        
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export History");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            format.name() + " Files (*." + format.getExtension() + ")", format.getExtension()));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File target = fileChooser.getSelectedFile();
+        if (!target.getName().toLowerCase().endsWith("." + format.getExtension())) {
+            target = new File(target.getAbsolutePath() + "." + format.getExtension());
+        }
+        
+        File exportFile = target;
+        long to = System.currentTimeMillis();
+        long from = range == Long.MAX_VALUE ? 0 : to - range;
+        showStatus("Exporting history to " + exportFile.getName() + "...");
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                try (SampleLog log = SampleLog.openReadOnly(Paths.get(ConfigLoader.getString("log.dir", "data/log")))) {
+                    return new SampleExporter(log, format, SampleExporter.ALL_DEVICES)
+                        .export(from, to, exportFile.toPath());
+                }
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    showStatus("Exported " + get() + " rows to " + exportFile.getName());
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(FanCurveWindow.this,
+                        "Error exporting history: " + cause.getMessage(),
+                        "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
     /**
      * Show instructions dialog
      */
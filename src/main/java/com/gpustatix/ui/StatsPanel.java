@@ -0,0 +1,202 @@
+package com.gpustatix.ui;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.MetricRing;
+import com.gpustatix.history.QuantileSketch;
+import com.gpustatix.history.RollupResult;
+import com.gpustatix.history.RollupStore;
+import com.gpustatix.history.SketchStore;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.function.IntSupplier;
+
+/**
+ * Percentile statistics of every metric over a selectable recent period,
+ * read from a {@link SketchStore} once per second while the panel is visible.
+ * The exact average comes from the rollup tiers of the in-memory history when one is given.
+ */
+public class StatsPanel extends JPanel {
+    private static final String[] COLUMNS = {"Metric", "Avg", "p50", "p95", "p99", "p99.9", "1% low", "Max", "Samples"};
+    private static final int[] PERIOD_MINUTES = {1, 5, 15, 60};
+
+    private final SketchStore sketches;
+    private final RollupStore history;
+    private final int deviceCount;
+    private final IntSupplier tempLimit;
+    private final Metric[] metrics = Metric.values();
+    // Результаты запросов переиспользуются между обновлениями
+    private final QuantileSketch[] results = new QuantileSketch[metrics.length];
+    private final float[][] values = new float[metrics.length][COLUMNS.length - 1];
+    private final StatsTableModel model = new StatsTableModel();
+    private final JComboBox<String> deviceBox;
+    private final JComboBox<String> periodBox;
+    private final JLabel throttleLabel = new JLabel(" ");
+    private final Timer refreshTimer;
+
+    /**
+     * @param deviceNames names of the GPUs, in device index order
+     * @param tempLimit current temperature limit in °C, used for the time-above-limit figure
+     */
+    public StatsPanel(SketchStore sketches, String[] deviceNames, IntSupplier tempLimit) {
+        this(sketches, null, deviceNames, tempLimit);
+    }
+
+    /**
+     * @param history in-memory history for the Avg column, null to leave it empty
+     */
+    public StatsPanel(SketchStore sketches, RollupStore history, String[] deviceNames, IntSupplier tempLimit) {
+        super(new BorderLayout(5, 5));
+        this.sketches = sketches;
+        this.history = history;
+        this.deviceCount = deviceNames.length;
+        this.tempLimit = tempLimit;
+        for (int m = 0; m < metrics.length; m++) {
+            results[m] = SketchStore.newSketch(metrics[m]);
+        }
+        setBackground(Color.BLACK);
+        setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        String[] devices = new String[deviceNames.length + 1];
+        devices[0] = "All GPUs";
+        for (int i = 0; i < deviceNames.length; i++) {
+            devices[i + 1] = "GPU " + i + ": " + deviceNames[i];
+        }
+        deviceBox = new JComboBox<>(devices);
+
+        long windowMinutes = Math.max(1, sketches.getWindowMillis() / 60_000);
+        periodBox = new JComboBox<>();
+        for (int minutes : PERIOD_MINUTES) {
+            if (minutes / windowMinutes <= sketches.getWindows()) {
+                periodBox.addItem("Last " + (minutes < 60 ? minutes + " min" : minutes / 60 + " h"));
+            }
+        }
+        deviceBox.addActionListener(e -> refresh());
+        periodBox.addActionListener(e -> refresh());
+
+        JPanel selectors = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        selectors.setBackground(Color.BLACK);
+        selectors.add(deviceBox);
+        selectors.add(periodBox);
+
+        JTable table = new JTable(model);
+        table.setBackground(Color.BLACK);
+        table.setForeground(Color.GREEN);
+        table.setGridColor(new Color(50, 50, 50));
+        table.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.getViewport().setBackground(Color.BLACK);
+
+        throttleLabel.setForeground(Color.WHITE);
+
+        add(selectors, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(throttleLabel, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(1000, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    private void refresh() {
+        int device = deviceBox.getSelectedIndex() <= 0 ? SketchStore.ALL_GPUS : deviceBox.getSelectedIndex() - 1;
+        int minutes = PERIOD_MINUTES[Math.max(0, periodBox.getSelectedIndex())];
+        int windows = (int) Math.max(1, minutes * 60_000L / sketches.getWindowMillis());
+
+        for (int m = 0; m < metrics.length; m++) {
+            QuantileSketch sketch = results[m];
+            sketches.query(metrics[m].isHost() ? MetricStore.HOST : device, metrics[m], windows, sketch);
+            float[] row = values[m];
+            row[0] = average(metrics[m].isHost() ? MetricStore.HOST : device, metrics[m], minutes * 60_000L);
+            row[1] = sketch.quantile(0.50);
+            row[2] = sketch.quantile(0.95);
+            row[3] = sketch.quantile(0.99);
+            row[4] = sketch.quantile(0.999);
+            row[5] = sketch.quantile(0.01);
+            row[6] = sketch.getMax();
+            row[7] = sketch.getCount();
+        }
+        model.fireTableRowsUpdated(0, metrics.length - 1);
+
+        int limit = tempLimit.getAsInt();
+        QuantileSketch temperature = results[Metric.GPU_TEMPERATURE.ordinal()];
+        if (limit > 0 && temperature.getCount() > 0) {
+            throttleLabel.setText(String.format("Time at or above temp limit (%d °C): %.1f%%",
+                    limit, temperature.fractionAtOrAbove(limit) * 100));
+        } else {
+            throttleLabel.setText(" ");
+        }
+    }
+
+    /**
+     * Average over the period ending at the newest sample, from the coarsest rollup tier that covers it
+     * @param device GPU index, {@link MetricStore#HOST} or {@link SketchStore#ALL_GPUS}
+     */
+    private float average(int device, Metric metric, long periodMillis) {
+        if (history == null) {
+            return Float.NaN;
+        }
+        int first = device == SketchStore.ALL_GPUS ? 0 : device;
+        int last = device == SketchStore.ALL_GPUS ? deviceCount - 1 : device;
+        double sum = 0;
+        long count = 0;
+        for (int d = first; d <= last; d++) {
+            MetricRing ring = history.getRaw().getRing(d, metric);
+            long to = ring != null ? ring.getLatestTimestamp() : -1;
+            if (to < 0) {
+                continue;
+            }
+            RollupResult result = history.query(d, metric, to - periodMillis, to, periodMillis);
+            for (int i = 0; i < result.size(); i++) {
+                sum += (double) result.getAverage(i) * result.getCount(i);
+                count += result.getCount(i);
+            }
+        }
+        return count > 0 ? (float) (sum / count) : Float.NaN;
+    }
+
+    /**
+     * Stops the refresh timer
+     */
+    public void dispose() {
+        refreshTimer.stop();
+    }
+
+    private class StatsTableModel extends AbstractTableModel {
+        @Override
+        public int getRowCount() {
+            return metrics.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0) {
+                return metrics[row].getKey() + " (" + metrics[row].getUnit() + ")";
+            }
+            float value = values[row][column - 1];
+            if (Float.isNaN(value)) {
+                return "-";
+            }
+            // Среднее целочисленной метрики показываем с дробной частью
+            if (column == COLUMNS.length - 1 || (metrics[row].isInteger() && column != 1)) {
+                return String.valueOf(Math.round(value));
+            }
+            return String.format("%.2f", value);
+        }
+    }
+}
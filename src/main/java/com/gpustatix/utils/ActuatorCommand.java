@@ -0,0 +1,74 @@
+package com.gpustatix.utils;
+
+/**
+ * Control actions issued through {@link GPUSettings} setters
+ */
+public enum ActuatorCommand {
+    CORE_CLOCK("core_clock_offset", "core clock offset", "MHz", -1000, 3000),
+    MEMORY_CLOCK("memory_clock_offset", "memory clock offset", "MHz", -2000, 6000),
+    POWER_LIMIT("power_limit", "power limit", "W", 1, 1000),
+    FAN_SPEED("fan_speed", "fan speed", "%", 0, 100),
+    TEMP_LIMIT("temp_limit", "temperature limit", "°C", 50, 100);
+
+    // values() копирует массив при каждом вызове
+    private static final ActuatorCommand[] VALUES = values();
+
+    private final String key;
+    private final String label;
+    private final String unit;
+    private final int min;
+    private final int max;
+
+    ActuatorCommand(String key, String label, String unit, int min, int max) {
+        this.key = key;
+        this.label = label;
+        this.unit = unit;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Name used by the control API
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Smallest value accepted from remote callers; the driver may narrow it further
+     */
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return the command with the given API name, null if unknown
+     */
+    public static ActuatorCommand byKey(String key) {
+        for (ActuatorCommand command : VALUES) {
+            if (command.key.equals(key)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the command with the given ordinal, null if out of range
+     */
+    public static ActuatorCommand fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.gpustatix.utils;
+
+/**
+ * Receives every control command passed to {@link GPUSettings}, before it is applied.
+ * Called on the thread that issued the command (usually the EDT), so implementations must not block.
+ */
+public interface ActuatorListener {
+
+    /**
+     * @param device device the command targets
+     * @param command what is being changed
+     * @param value requested value in the command's unit
+     */
+    void onCommand(int device, ActuatorCommand command, int value);
+}
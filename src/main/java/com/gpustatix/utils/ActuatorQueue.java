@@ -0,0 +1,216 @@
+package com.gpustatix.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Applies control changes one at a time on a dedicated thread, so the GUI and the control API
+ * never drive nvidia-settings or NVML concurrently and the EDT never waits on them.
+ * While a setting is queued, newer writes to it replace its value instead of queueing again:
+ * a slider or a script retrying in a loop costs one driver call, not one per request.
+ * A change the driver rejects completes its futures exceptionally; the corrections a new
+ * temp limit calls for are queued behind it like any other change.
+ */
+public class ActuatorQueue implements AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-actuator";
+    private static final int COMMANDS = ActuatorCommand.values().length;
+
+    private final GPUSettings settings;
+    private final Thread thread;
+    private final Object lock = new Object();
+    // Очередь ожидающих команд в порядке первой записи, не больше одной на настройку
+    private final ArrayDeque<ActuatorCommand> order = new ArrayDeque<>();
+    private final Pending[] pending = new Pending[COMMANDS];
+    private final int[] lastApplied = new int[COMMANDS];
+    private boolean running = true;
+
+    public ActuatorQueue(GPUSettings settings) {
+        this.settings = settings;
+        Arrays.fill(lastApplied, -1);
+        lastApplied[ActuatorCommand.TEMP_LIMIT.ordinal()] = settings.getTempLimit();
+        thread = ThreadAffinity.threadFactory(THREAD_NAME).newThread(this::run);
+        thread.start();
+    }
+
+    /**
+     * Queues a change; a queued change of the same setting is coalesced into this one
+     * @return completes once the value (or a newer one for the same setting) has been applied,
+     *         exceptionally if the driver rejected it
+     */
+    public CompletableFuture<Result> submit(ActuatorCommand command, int value) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        synchronized (lock) {
+            if (!running) {
+                future.completeExceptionally(new IllegalStateException("Actuator queue is closed"));
+                return future;
+            }
+            Pending entry = pending[command.ordinal()];
+            if (entry == null) {
+                entry = new Pending(command);
+                pending[command.ordinal()] = entry;
+                order.addLast(command);
+                lock.notify();
+            }
+            entry.value = value;
+            entry.waiters.add(new Waiter(value, System.nanoTime(), future));
+        }
+        return future;
+    }
+
+    /**
+     * @return the last value applied through this queue, -1 if none yet
+     */
+    public int getLastApplied(ActuatorCommand command) {
+        synchronized (lock) {
+            return lastApplied[command.ordinal()];
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Pending entry;
+            synchronized (lock) {
+                while (running && order.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                if (order.isEmpty()) {
+                    return;
+                }
+                // После снятия записи новые запросы к этой настройке встают в очередь заново
+                entry = pending[order.pollFirst().ordinal()];
+                pending[entry.command.ordinal()] = null;
+            }
+
+            long started = System.nanoTime();
+            Throwable failure = null;
+            Map<ActuatorCommand, Integer> corrections = Map.of();
+            try {
+                corrections = settings.apply(entry.command, entry.value);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to apply " + entry.command.getLabel() + ": " + e.getMessage());
+                failure = e;
+            }
+            long finished = System.nanoTime();
+            if (failure == null) {
+                synchronized (lock) {
+                    lastApplied[entry.command.ordinal()] = entry.value;
+                }
+            }
+            // До ответа ждущим: кто получил результат, уже видит поправки в очереди
+            for (Map.Entry<ActuatorCommand, Integer> correction : corrections.entrySet()) {
+                submit(correction.getKey(), correction.getValue());
+            }
+            for (Waiter waiter : entry.waiters) {
+                if (failure != null) {
+                    waiter.future.completeExceptionally(failure);
+                } else {
+                    waiter.future.complete(new Result(entry.command, waiter.requested, entry.value,
+                            started - waiter.submittedNanos, finished - started, entry.waiters.size()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops after the changes already queued have been applied
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notify();
+        }
+        try {
+            thread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Outcome of one submitted change
+     */
+    public static final class Result {
+        private final ActuatorCommand command;
+        private final int requested;
+        private final int applied;
+        private final long queueNanos;
+        private final long applyNanos;
+        private final int coalesced;
+
+        Result(ActuatorCommand command, int requested, int applied, long queueNanos, long applyNanos, int coalesced) {
+            this.command = command;
+            this.requested = requested;
+            this.applied = applied;
+            this.queueNanos = queueNanos;
+            this.applyNanos = applyNanos;
+            this.coalesced = coalesced;
+        }
+
+        public ActuatorCommand getCommand() {
+            return command;
+        }
+
+        public int getRequested() {
+            return requested;
+        }
+
+        /**
+         * @return value sent to the driver, differs from the requested one if a newer write replaced it
+         */
+        public int getApplied() {
+            return applied;
+        }
+
+        /**
+         * @return time spent waiting behind other changes
+         */
+        public long getQueueNanos() {
+            return queueNanos;
+        }
+
+        /**
+         * @return time the driver call took
+         */
+        public long getApplyNanos() {
+            return applyNanos;
+        }
+
+        /**
+         * @return number of writes merged into this driver call
+         */
+        public int getCoalesced() {
+            return coalesced;
+        }
+    }
+
+    private static final class Pending {
+        final ActuatorCommand command;
+        final List<Waiter> waiters = new ArrayList<>(2);
+        int value;
+
+        Pending(ActuatorCommand command) {
+            this.command = command;
+        }
+    }
+
+    private static final class Waiter {
+        final int requested;
+        final long submittedNanos;
+        final CompletableFuture<Result> future;
+
+        Waiter(int requested, long submittedNanos, CompletableFuture<Result> future) {
+            this.requested = requested;
+            this.submittedNanos = submittedNanos;
+            this.future = future;
+        }
+    }
+}
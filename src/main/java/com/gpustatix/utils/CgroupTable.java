@@ -0,0 +1,136 @@
+package com.gpustatix.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns cgroup paths to small ids and accumulates per-cgroup usage during one /proc scan.
+ * Ids of cgroups that had no live process in a scan are released and reused, so the table
+ * stays as large as the set of cgroups currently in use.
+ */
+class CgroupTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> paths = new ArrayList<>();
+    private int[] freeIds = new int[16];
+    private int freeCount;
+
+    // Счётчики текущего прохода, индекс - id cgroup
+    private long[] cpuJiffies = new long[16];
+    private int[] processes = new int[16];
+    private long[] gpuMemoryBytes = new long[16];
+    private int[] gpuUtilization = new int[16];
+    private int[] gpuProcesses = new int[16];
+
+    int intern(String path) {
+        Integer existing = ids.get(path);
+        if (existing != null) {
+            return existing;
+        }
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+            paths.set(id, path);
+        } else {
+            id = paths.size();
+            paths.add(path);
+            ensureCapacity(id + 1);
+        }
+        ids.put(path, id);
+        return id;
+    }
+
+    String pathOf(int id) {
+        return paths.get(id);
+    }
+
+    /**
+     * @return one past the largest id in use
+     */
+    int limit() {
+        return paths.size();
+    }
+
+    void beginScan() {
+        int n = paths.size();
+        Arrays.fill(cpuJiffies, 0, n, 0);
+        Arrays.fill(processes, 0, n, 0);
+        Arrays.fill(gpuMemoryBytes, 0, n, 0);
+        Arrays.fill(gpuUtilization, 0, n, 0);
+        Arrays.fill(gpuProcesses, 0, n, 0);
+    }
+
+    void addProcess(int id, long deltaJiffies) {
+        cpuJiffies[id] += deltaJiffies;
+        processes[id]++;
+    }
+
+    /**
+     * @param smUtilization per-process SM utilization in percent, -1 if unknown
+     */
+    void addGpuProcess(int id, long memoryBytes, int smUtilization) {
+        gpuMemoryBytes[id] += memoryBytes;
+        if (smUtilization < 0 || gpuUtilization[id] < 0) {
+            gpuUtilization[id] = -1;
+        } else {
+            gpuUtilization[id] += smUtilization;
+        }
+        gpuProcesses[id]++;
+    }
+
+    /**
+     * Releases every cgroup without a process in this scan. Processes still cached
+     * in the PID table were all seen, so no live slot refers to a released id.
+     */
+    void endScan() {
+        for (int id = 0; id < paths.size(); id++) {
+            String path = paths.get(id);
+            if (path != null && processes[id] == 0) {
+                ids.remove(path);
+                paths.set(id, null);
+                if (freeCount == freeIds.length) {
+                    freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+                }
+                freeIds[freeCount++] = id;
+            }
+        }
+    }
+
+    boolean isLive(int id) {
+        return paths.get(id) != null;
+    }
+
+    long cpuJiffiesOf(int id) {
+        return cpuJiffies[id];
+    }
+
+    int processesOf(int id) {
+        return processes[id];
+    }
+
+    long gpuMemoryBytesOf(int id) {
+        return gpuMemoryBytes[id];
+    }
+
+    int gpuUtilizationOf(int id) {
+        return gpuUtilization[id];
+    }
+
+    int gpuProcessesOf(int id) {
+        return gpuProcesses[id];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= processes.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, processes.length * 2);
+        cpuJiffies = Arrays.copyOf(cpuJiffies, newLength);
+        processes = Arrays.copyOf(processes, newLength);
+        gpuMemoryBytes = Arrays.copyOf(gpuMemoryBytes, newLength);
+        gpuUtilization = Arrays.copyOf(gpuUtilization, newLength);
+        gpuProcesses = Arrays.copyOf(gpuProcesses, newLength);
+    }
+}
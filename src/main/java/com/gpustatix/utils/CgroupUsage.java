@@ -0,0 +1,138 @@
+package com.gpustatix.utils;
+
+/**
+ * CPU and GPU usage of all processes in one cgroup over the last collection interval.
+ * On container hosts each container runs in its own cgroup, so this is the per-container view.
+ */
+public class CgroupUsage {
+    private final String path;
+    private final String label;
+    private final int processes;
+    private final float cpuPercent;
+    private final int gpuUtilization;
+    private final int gpuMemoryMb;
+    private final int gpuProcesses;
+
+    public CgroupUsage(String path, int processes, float cpuPercent, int gpuUtilization, int gpuMemoryMb,
+                       int gpuProcesses) {
+        this.path = path;
+        this.label = label(path);
+        this.processes = processes;
+        this.cpuPercent = cpuPercent;
+        this.gpuUtilization = gpuUtilization;
+        this.gpuMemoryMb = gpuMemoryMb;
+        this.gpuProcesses = gpuProcesses;
+    }
+
+    /**
+     * @return cgroup path relative to the cgroup root, "/" for the root cgroup
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return short name: runtime and 12-character container id for containers, the last path element otherwise
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public int getProcesses() {
+        return processes;
+    }
+
+    /**
+     * @return CPU usage in percent of one core
+     */
+    public float getCpuPercent() {
+        return cpuPercent;
+    }
+
+    /**
+     * @return sum of the SM utilization of its GPU processes in percent of one GPU, -1 if unknown
+     */
+    public int getGpuUtilization() {
+        return gpuUtilization;
+    }
+
+    public int getGpuMemoryMb() {
+        return gpuMemoryMb;
+    }
+
+    /**
+     * @return number of its processes with a GPU context
+     */
+    public int getGpuProcesses() {
+        return gpuProcesses;
+    }
+
+    public boolean isContainer() {
+        // Для нераспознанных cgroup метка совпадает с последним элементом пути
+        return !path.equals("/") && !label.equals(lastElement(path));
+    }
+
+    /**
+     * Recognizes the cgroup names of the common container runtimes:
+     * docker-ID.scope, cri-containerd-ID.scope, crio-ID.scope, libpod-ID.scope (systemd driver)
+     * and /docker/ID, /kubepods/.../ID (cgroupfs driver)
+     */
+    static String label(String path) {
+        if (path.equals("/")) {
+            return "host";
+        }
+        String name = lastElement(path);
+        if (name.endsWith(".scope")) {
+            name = name.substring(0, name.length() - ".scope".length());
+        }
+        if (name.startsWith("docker-")) {
+            return "docker " + shortId(name.substring("docker-".length()));
+        }
+        if (name.startsWith("cri-containerd-")) {
+            return "containerd " + shortId(name.substring("cri-containerd-".length()));
+        }
+        if (name.startsWith("crio-")) {
+            return "cri-o " + shortId(name.substring("crio-".length()));
+        }
+        if (name.startsWith("libpod-")) {
+            return "podman " + shortId(name.substring("libpod-".length()));
+        }
+        if (isContainerId(name)) {
+            if (path.contains("kubepods")) {
+                return "k8s " + shortId(name);
+            }
+            if (path.contains("/docker/")) {
+                return "docker " + shortId(name);
+            }
+        }
+        return lastElement(path);
+    }
+
+    private static String lastElement(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 && slash < path.length() - 1 ? path.substring(slash + 1) : path;
+    }
+
+    private static boolean isContainerId(String name) {
+        if (name.length() < 32) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String shortId(String id) {
+        return id.length() > 12 ? id.substring(0, 12) : id;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s %4d %6.1f%% %s", label, processes, cpuPercent,
+                gpuProcesses > 0 ? (gpuUtilization >= 0 ? gpuUtilization + "% " : "") + gpuMemoryMb + "MB" : "-");
+    }
+}
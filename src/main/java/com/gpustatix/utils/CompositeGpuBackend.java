@@ -0,0 +1,71 @@
+package com.gpustatix.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Presents several backends as one, numbering their devices consecutively
+ */
+public class CompositeGpuBackend implements GpuBackend {
+    private final List<GpuBackend> backends;
+    private final int[] backendOfDevice;
+    private final int[] localIndexOfDevice;
+
+    public CompositeGpuBackend(List<GpuBackend> backends) {
+        this.backends = new ArrayList<>(backends);
+        int total = 0;
+        for (GpuBackend backend : backends) {
+            total += backend.getDeviceCount();
+        }
+        backendOfDevice = new int[total];
+        localIndexOfDevice = new int[total];
+        int device = 0;
+        for (int b = 0; b < this.backends.size(); b++) {
+            for (int i = 0; i < this.backends.get(b).getDeviceCount(); i++) {
+                backendOfDevice[device] = b;
+                localIndexOfDevice[device] = i;
+                device++;
+            }
+        }
+    }
+
+    @Override
+    public int getDeviceCount() {
+        return backendOfDevice.length;
+    }
+
+    @Override
+    public String getDeviceName(int device) {
+        return backends.get(backendOfDevice[device]).getDeviceName(localIndexOfDevice[device]);
+    }
+
+    @Override
+    public String getPciAddress(int device) {
+        return backends.get(backendOfDevice[device]).getPciAddress(localIndexOfDevice[device]);
+    }
+
+    @Override
+    public boolean sample(int device, GpuSnapshot snapshot) {
+        boolean ok = backends.get(backendOfDevice[device]).sample(localIndexOfDevice[device], snapshot);
+        snapshot.setDeviceIndex(device);
+        return ok;
+    }
+
+    @Override
+    public List<GpuProcess> getProcesses(int device) {
+        List<GpuProcess> local = backends.get(backendOfDevice[device]).getProcesses(localIndexOfDevice[device]);
+        List<GpuProcess> result = new ArrayList<>(local.size());
+        for (GpuProcess process : local) {
+            result.add(new GpuProcess(process.getPid(), device, process.getUsedMemoryBytes(),
+                    process.getSmUtilization()));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        for (GpuBackend backend : backends) {
+            backend.close();
+        }
+    }
+}
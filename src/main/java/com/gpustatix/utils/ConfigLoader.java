@@ -0,0 +1,84 @@
+package com.gpustatix.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Application settings: config.properties from the classpath, overridden by
+ * ./config.properties in the working directory and then by -Dgpustatix.* system properties
+ */
+public final class ConfigLoader {
+    private static final String CONFIG_FILE = "config.properties";
+    private static final String SYSTEM_PREFIX = "gpustatix.";
+
+    private static Properties properties;
+
+    private ConfigLoader() {
+    }
+
+    private static synchronized Properties load() {
+        if (properties == null) {
+            Properties props = new Properties();
+            try (InputStream in = ConfigLoader.class.getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+                if (in != null) {
+                    props.load(in);
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading bundled " + CONFIG_FILE + ": " + e.getMessage());
+            }
+
+            File local = new File(CONFIG_FILE);
+            if (local.isFile()) {
+                try (InputStream in = new FileInputStream(local)) {
+                    props.load(in);
+                } catch (IOException e) {
+                    System.err.println("Error loading " + local.getAbsolutePath() + ": " + e.getMessage());
+                }
+            }
+            properties = props;
+        }
+        return properties;
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(SYSTEM_PREFIX + key);
+        if (value == null) {
+            value = load().getProperty(key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
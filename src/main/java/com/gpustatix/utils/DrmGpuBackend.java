@@ -0,0 +1,253 @@
+package com.gpustatix.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GPU backend for AMD (amdgpu) and Intel (i915/xe) cards, read straight from the DRM sysfs interface.
+ * Every attribute is opened once and re-read in place on each sample.
+ */
+public class DrmGpuBackend implements GpuBackend {
+    private final List<DrmCard> cards = new ArrayList<>();
+
+    /**
+     * @param topology PCI topology, its sysfs root is also used to find class/drm
+     */
+    public DrmGpuBackend(GpuTopology topology) {
+        Path drmDir = topology.getSysfsRoot().resolve("class/drm");
+        if (!Files.isDirectory(drmDir)) {
+            return;
+        }
+
+        List<Path> cardDirs = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(drmDir, "card*")) {
+            for (Path entry : entries) {
+                // card0, card1... но не коннекторы вроде card0-DP-1
+                if (entry.getFileName().toString().substring(4).matches("\\d+")) {
+                    cardDirs.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error while scanning DRM cards: " + e.getMessage());
+        }
+        cardDirs.sort((a, b) -> Integer.compare(cardNumber(a), cardNumber(b)));
+
+        for (Path cardDir : cardDirs) {
+            Path deviceDir = cardDir.resolve("device");
+            String address = pciAddress(deviceDir);
+            GpuTopology.PciGpu pci = topology.findByAddress(address);
+            int vendorId = pci != null ? pci.getVendorId() : readVendor(deviceDir);
+            if (vendorId != GpuTopology.VENDOR_AMD && vendorId != GpuTopology.VENDOR_INTEL) {
+                continue;
+            }
+            cards.add(new DrmCard(cardDir, deviceDir, address, vendorId, pci));
+        }
+    }
+
+    @Override
+    public int getDeviceCount() {
+        return cards.size();
+    }
+
+    @Override
+    public String getDeviceName(int device) {
+        return cards.get(device).name;
+    }
+
+    @Override
+    public String getPciAddress(int device) {
+        return cards.get(device).address;
+    }
+
+    @Override
+    public boolean sample(int device, GpuSnapshot snapshot) {
+        snapshot.clear();
+        snapshot.setTimestampMillis(System.currentTimeMillis());
+        return cards.get(device).sample(snapshot);
+    }
+
+    @Override
+    public void close() {
+        for (DrmCard card : cards) {
+            card.close();
+        }
+    }
+
+    private static int cardNumber(Path cardDir) {
+        return Integer.parseInt(cardDir.getFileName().toString().substring(4));
+    }
+
+    private static String pciAddress(Path deviceDir) {
+        try {
+            return deviceDir.toRealPath().getFileName().toString();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static int readVendor(Path deviceDir) {
+        try {
+            String value = Files.readString(deviceDir.resolve("vendor")).trim();
+            return Integer.parseInt(value.replace("0x", ""), 16);
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Path findHwmon(Path deviceDir) {
+        Path hwmonDir = deviceDir.resolve("hwmon");
+        if (!Files.isDirectory(hwmonDir)) {
+            return null;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(hwmonDir, "hwmon*")) {
+            for (Path entry : entries) {
+                return entry;
+            }
+        } catch (IOException e) {
+            System.err.println("Error while looking up hwmon: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Open attribute handles of one card
+     */
+    private static class DrmCard {
+        private static final long BYTES_PER_MB = 1024 * 1024;
+
+        private final String address;
+        private final String name;
+        private final List<SysfsAttribute> attributes = new ArrayList<>();
+
+        private final SysfsAttribute busyPercent;
+        private final SysfsAttribute vramUsed;
+        private final SysfsAttribute vramTotal;
+        private final SysfsAttribute sclk;
+        private final SysfsAttribute mclk;
+        private final SysfsAttribute gtFrequency;
+        private final SysfsAttribute temperature;
+        private final SysfsAttribute fanRpm;
+        private final SysfsAttribute pwm;
+        private final SysfsAttribute powerAverage;
+        private final SysfsAttribute powerInput;
+        private final SysfsAttribute powerCap;
+        private final SysfsAttribute energy;
+
+        // i915 reports only cumulative energy, power is derived from the delta
+        private long lastEnergyMicroJoules = -1;
+        private long lastEnergyNanos;
+
+        DrmCard(Path cardDir, Path deviceDir, String address, int vendorId, GpuTopology.PciGpu pci) {
+            this.address = address;
+
+            busyPercent = open(deviceDir.resolve("gpu_busy_percent"));
+            vramUsed = open(deviceDir.resolve("mem_info_vram_used"));
+            vramTotal = open(deviceDir.resolve("mem_info_vram_total"));
+            sclk = open(deviceDir.resolve("pp_dpm_sclk"));
+            mclk = open(deviceDir.resolve("pp_dpm_mclk"));
+            gtFrequency = open(cardDir.resolve("gt_act_freq_mhz"));
+
+            Path hwmon = findHwmon(deviceDir);
+            Path base = hwmon != null ? hwmon : deviceDir.resolve("hwmon/missing");
+            temperature = open(base.resolve("temp1_input"));
+            fanRpm = open(base.resolve("fan1_input"));
+            pwm = open(base.resolve("pwm1"));
+            powerAverage = open(base.resolve("power1_average"));
+            powerInput = open(base.resolve("power1_input"));
+            powerCap = open(base.resolve("power1_cap"));
+            energy = open(base.resolve("energy1_input"));
+
+            String productName;
+            try (SysfsAttribute product = new SysfsAttribute(deviceDir.resolve("product_name"))) {
+                productName = product.readString();
+            }
+            String vendorName = vendorId == GpuTopology.VENDOR_AMD ? "AMD" : "Intel";
+            if (!productName.isEmpty()) {
+                name = vendorName + " " + productName;
+            } else {
+                int deviceId = pci != null ? pci.getDeviceId() : 0;
+                name = String.format("%s GPU [%04x:%04x]", vendorName, vendorId, deviceId);
+            }
+        }
+
+        private SysfsAttribute open(Path path) {
+            SysfsAttribute attribute = new SysfsAttribute(path);
+            attributes.add(attribute);
+            return attribute;
+        }
+
+        boolean sample(GpuSnapshot snapshot) {
+            long temp = temperature.readLong(-1);
+            if (temp >= 0) {
+                snapshot.setTemperature((int) (temp / 1000)); // millidegrees
+            }
+
+            snapshot.setUtilization((int) busyPercent.readLong(GpuSnapshot.UNAVAILABLE));
+
+            long used = vramUsed.readLong(-1);
+            long total = vramTotal.readLong(-1);
+            if (used >= 0) {
+                snapshot.setMemoryUsedMb((int) (used / BYTES_PER_MB));
+            }
+            if (total > 0) {
+                snapshot.setMemoryTotalMb((int) (total / BYTES_PER_MB));
+            }
+
+            long coreClock = sclk.readActiveLevel(-1);
+            if (coreClock < 0) {
+                coreClock = gtFrequency.readLong(-1);
+            }
+            snapshot.setCoreClock((int) coreClock);
+            snapshot.setMemoryClock((int) mclk.readActiveLevel(GpuSnapshot.UNAVAILABLE));
+
+            snapshot.setFanRpm((int) fanRpm.readLong(GpuSnapshot.UNAVAILABLE));
+            long pwmValue = pwm.readLong(-1);
+            if (pwmValue >= 0) {
+                snapshot.setFanSpeed((int) Math.round(pwmValue * 100.0 / 255.0));
+            }
+
+            // microwatts
+            long power = powerAverage.readLong(-1);
+            if (power < 0) {
+                power = powerInput.readLong(-1);
+            }
+            if (power >= 0) {
+                snapshot.setPowerUsage(power / 1_000_000f);
+            } else {
+                snapshot.setPowerUsage(powerFromEnergy());
+            }
+            long cap = powerCap.readLong(-1);
+            if (cap > 0) {
+                snapshot.setPowerLimit((int) (cap / 1_000_000));
+            }
+
+            return snapshot.getTemperature() >= 0 || snapshot.getUtilization() >= 0 || snapshot.getCoreClock() >= 0;
+        }
+
+        private float powerFromEnergy() {
+            long microJoules = energy.readLong(-1);
+            if (microJoules < 0) {
+                return GpuSnapshot.UNAVAILABLE;
+            }
+            long now = System.nanoTime();
+            float watts = GpuSnapshot.UNAVAILABLE;
+            if (lastEnergyMicroJoules >= 0 && now > lastEnergyNanos && microJoules >= lastEnergyMicroJoules) {
+                // µJ / ns * 1000 = W
+                watts = (microJoules - lastEnergyMicroJoules) * 1000f / (now - lastEnergyNanos);
+            }
+            lastEnergyMicroJoules = microJoules;
+            lastEnergyNanos = now;
+            return watts;
+        }
+
+        void close() {
+            for (SysfsAttribute attribute : attributes) {
+                attribute.close();
+            }
+        }
+    }
+}
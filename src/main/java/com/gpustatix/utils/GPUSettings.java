@@ -3,8 +3,13 @@ package com.gpustatix.utils;
 import com.sun.jna.*;
 import com.sun.jna.ptr.*;
 import com.sun.jna.Structure;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -26,16 +31,35 @@ public class GPUSettings {
     private int gpuMemoryUsage = 0;
     private String gpuUtilization = "Unknown";
     private Pointer device;
+    private final List<ActuatorListener> actuatorListeners = new CopyOnWriteArrayList<>();
+    // Метка времени NVML (мкс) последней прочитанной выборки загрузки по процессам
+    private long lastProcessSampleMicros;
 
     public GPUSettings() {
+        this(true, true);
+    }
+
+    /**
+     * @param initializeNvml false for subclasses that are not backed by a real device (session replay)
+     */
+    protected GPUSettings(boolean initializeNvml) {
+        this(initializeNvml, initializeNvml);
+    }
+
+    private GPUSettings(boolean initializeNvml, boolean initializeFanSpeed) {
+        if (!initializeNvml) {
+            return;
+        }
         try {
             NVML.INSTANCE.nvmlInit();
             PointerByReference deviceRef = new PointerByReference();
             int result = NVML.INSTANCE.nvmlDeviceGetHandleByIndex(0, deviceRef);
             if (result == NVML.NVML_SUCCESS) {
                 device = deviceRef.getValue();
-                // Initialize fan speed based on current temperature
-                initializeFanSpeed();
+                if (initializeFanSpeed) {
+                    // Initialize fan speed based on current temperature
+                    initializeFanSpeed();
+                }
             } else {
                 System.err.println("Failed to get NVML device handle. Error code: " + result);
             }
@@ -44,6 +68,14 @@ public class GPUSettings {
         }
     }
     
+    /**
+     * Settings backed by NVML that leave the fan control state alone until a fan speed is set,
+     * for processes that only sample or apply explicit changes (headless mode)
+     */
+    public static GPUSettings withoutFanInitialization() {
+        return new GPUSettings(true, false);
+    }
+
     /**
      * Initialize fan speed based on current temperature
      */
@@ -70,7 +102,11 @@ public class GPUSettings {
         } catch (Exception e) {
             System.err.println("Error initializing fan speed: " + e.getMessage());
             // Default fallback
-            setFanSpeedGradually(40, true);
+            try {
+                setFanSpeedGradually(40, true);
+            } catch (IllegalStateException ex) {
+                System.err.println("Error setting the fallback fan speed: " + ex.getMessage());
+            }
         }
     }
 
@@ -248,6 +284,56 @@ public class GPUSettings {
         return gpuUtilization;
     }
 
+    /**
+     * @return true if an NVML device handle was obtained
+     */
+    public boolean isAvailable() {
+        return device != null;
+    }
+
+    /**
+     * Returns used VRAM in MB via NVML, -1 if NVML is not available
+     */
+    public int getGpuMemoryUsedMb() {
+        if (device != null) {
+            NVML.nvmlMemory memInfo = new NVML.nvmlMemory();
+            if (NVML.INSTANCE.nvmlDeviceGetMemoryInfo(device, memInfo) == NVML.NVML_SUCCESS) {
+                return (int) (memInfo.used / (1024 * 1024));
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns total VRAM in MB via NVML, -1 if NVML is not available
+     */
+    public int getGpuMemoryTotalMb() {
+        if (device != null) {
+            NVML.nvmlMemory memInfo = new NVML.nvmlMemory();
+            if (NVML.INSTANCE.nvmlDeviceGetMemoryInfo(device, memInfo) == NVML.NVML_SUCCESS) {
+                return (int) (memInfo.total / (1024 * 1024));
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns current board power draw in watts, -1 if unavailable
+     */
+    public float getPowerUsage() {
+        try {
+            if (device != null) {
+                IntByReference powerRef = new IntByReference();
+                if (NVML.INSTANCE.nvmlDeviceGetPowerUsage(device, powerRef) == NVML.NVML_SUCCESS) {
+                    return powerRef.getValue() / 1000f; // милливатты
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to get power usage: " + e.getMessage());
+        }
+        return -1;
+    }
+
     public int getCoreClock() {
         try {
             IntByReference clockRef = new IntByReference();
@@ -292,6 +378,87 @@ public class GPUSettings {
         return fanSpeed;
     }
 
+    /**
+     * Returns compute and graphics processes running on the GPU with their VRAM usage
+     */
+    public List<GpuProcess> getGpuProcesses() {
+        List<GpuProcess> processes = new ArrayList<>();
+        if (device == null) {
+            return processes;
+        }
+        try {
+            collectProcesses(true, processes);
+            collectProcesses(false, processes);
+            if (!processes.isEmpty()) {
+                addProcessUtilization(processes);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to get GPU processes: " + e.getMessage());
+        }
+        return processes;
+    }
+
+    /**
+     * Replaces the entries with copies carrying SM utilization since the previous call.
+     * NVML keeps a short buffer of per-process samples; a process without samples was idle.
+     */
+    private synchronized void addProcessUtilization(List<GpuProcess> processes) {
+        IntByReference count = new IntByReference(0);
+        int result = NVML.INSTANCE.nvmlDeviceGetProcessUtilization(device, null, count, lastProcessSampleMicros);
+        Map<Integer, Integer> utilization = new HashMap<>();
+        if (result == NVML.NVML_ERROR_INSUFFICIENT_SIZE && count.getValue() > 0) {
+            NVML.nvmlProcessUtilizationSample first = new NVML.nvmlProcessUtilizationSample();
+            NVML.nvmlProcessUtilizationSample[] samples =
+                    (NVML.nvmlProcessUtilizationSample[]) first.toArray(count.getValue());
+            result = NVML.INSTANCE.nvmlDeviceGetProcessUtilization(device, samples[0], count, lastProcessSampleMicros);
+            if (result == NVML.NVML_SUCCESS) {
+                for (int i = 0; i < count.getValue(); i++) {
+                    samples[i].read();
+                    utilization.merge(samples[i].pid, samples[i].smUtil, Math::max);
+                    lastProcessSampleMicros = Math.max(lastProcessSampleMicros, samples[i].timeStamp);
+                }
+            }
+        }
+        // NOT_FOUND - новых выборок нет, все процессы простаивали; прочие ошибки - не поддерживается
+        boolean known = result == NVML.NVML_SUCCESS || result == NVML.NVML_ERROR_NOT_FOUND;
+        for (int i = 0; i < processes.size(); i++) {
+            GpuProcess process = processes.get(i);
+            int sm = known ? utilization.getOrDefault(process.getPid(), 0) : -1;
+            processes.set(i, new GpuProcess(process.getPid(), process.getDeviceIndex(),
+                    process.getUsedMemoryBytes(), sm));
+        }
+    }
+
+    private void collectProcesses(boolean compute, List<GpuProcess> processes) {
+        int capacity = 64;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            NVML.nvmlProcessInfo first = new NVML.nvmlProcessInfo();
+            NVML.nvmlProcessInfo[] infos = (NVML.nvmlProcessInfo[]) first.toArray(capacity);
+            IntByReference count = new IntByReference(capacity);
+            int result = compute
+                    ? NVML.INSTANCE.nvmlDeviceGetComputeRunningProcesses(device, count, infos[0])
+                    : NVML.INSTANCE.nvmlDeviceGetGraphicsRunningProcesses(device, count, infos[0]);
+            if (result == NVML.NVML_ERROR_INSUFFICIENT_SIZE) {
+                capacity = count.getValue() + 16; // Процессы могли появиться между вызовами
+                continue;
+            }
+            if (result != NVML.NVML_SUCCESS) {
+                return;
+            }
+            outer:
+            for (int i = 0; i < count.getValue(); i++) {
+                infos[i].read();
+                for (GpuProcess existing : processes) {
+                    if (existing.getPid() == infos[i].pid) {
+                        continue outer;
+                    }
+                }
+                processes.add(new GpuProcess(infos[i].pid, 0, infos[i].usedGpuMemory));
+            }
+            return;
+        }
+    }
+
     public void shutdown() {
         try {
             // Restore fan control to auto mode if we've modified it
@@ -320,7 +487,49 @@ public class GPUSettings {
         }
     }
 
+    /**
+     * Registers a listener notified of every control command
+     */
+    public void addActuatorListener(ActuatorListener listener) {
+        actuatorListeners.add(listener);
+    }
+
+    public void removeActuatorListener(ActuatorListener listener) {
+        actuatorListeners.remove(listener);
+    }
+
+    protected void fireCommand(ActuatorCommand command, int value) {
+        for (ActuatorListener listener : actuatorListeners) {
+            listener.onCommand(0, command, value);
+        }
+    }
+
+    /**
+     * Calls the setter matching a command
+     * @return further changes the command calls for, in the order to apply them: the fan and clock
+     *         corrections of a new temp limit. They are returned rather than applied, so the caller
+     *         sends them through the same path as any other change.
+     * @throws IllegalStateException if the driver did not accept the change
+     */
+    public Map<ActuatorCommand, Integer> apply(ActuatorCommand command, int value) {
+        switch (command) {
+            case CORE_CLOCK -> setCoreClock(value);
+            case MEMORY_CLOCK -> setMemoryClock(value);
+            case POWER_LIMIT -> setPowerLimitNVML(value);
+            case FAN_SPEED -> setFanSpeed(value);
+            case TEMP_LIMIT -> {
+                setTempLimit(value);
+                return tempLimitCorrections();
+            }
+        }
+        return Map.of();
+    }
+
+    /**
+     * @throws IllegalStateException if nvidia-settings did not accept the offset
+     */
     public void setCoreClock(int value) {
+        fireCommand(ActuatorCommand.CORE_CLOCK, value);
         String command = "sudo nvidia-settings -a '[gpu:0]/GPUGraphicsClockOffset[3]=" + value + "'";
         String result = executeCommand(command);
 
@@ -331,10 +540,15 @@ public class GPUSettings {
             System.err.println("Failed to set core clock via nvidia-settings. Output:");
             System.err.println(command);
             System.err.println(result.isEmpty() ? "<no output>" : result);
+            throw new IllegalStateException("nvidia-settings did not set the core clock offset");
         }
     }
 
+    /**
+     * @throws IllegalStateException if nvidia-settings did not accept the offset
+     */
     public void setMemoryClock(int value) {
+        fireCommand(ActuatorCommand.MEMORY_CLOCK, value);
         String command = "sudo nvidia-settings -a '[gpu:0]/GPUMemoryTransferRateOffset[3]=" + value + "'";
         String result = executeCommand(command);
 
@@ -345,25 +559,29 @@ public class GPUSettings {
             System.err.println("Failed to set memory clock via nvidia-settings. Output:");
             System.err.println(command);
             System.err.println(result.isEmpty() ? "<no output>" : result);
+            throw new IllegalStateException("nvidia-settings did not set the memory clock offset");
         }
     }
 
+    /**
+     * @throws IllegalStateException if there is no NVML device or NVML refused the limit
+     */
     public void setPowerLimitNVML(int value) {
-        try {
-            int result = NVML.INSTANCE.nvmlDeviceSetPowerManagementLimit(device, value * 1000);
-            if (result != NVML.NVML_SUCCESS) {
-                System.err.println("Failed to set power limit via NVML. Error code: " + result);
-            } else {
-                powerLimit = value;
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to set power limit via NVML: " + e.getMessage());
+        fireCommand(ActuatorCommand.POWER_LIMIT, value);
+        if (device == null) {
+            throw new IllegalStateException("No NVML device to set the power limit on");
+        }
+        int result = NVML.INSTANCE.nvmlDeviceSetPowerManagementLimit(device, value * 1000);
+        if (result != NVML.NVML_SUCCESS) {
+            throw new IllegalStateException("NVML did not set the power limit, error code " + result);
         }
+        powerLimit = value;
     }
 
     /**
      * Sets the fan speed with validation
      * @param value Target fan speed percentage (0-100)
+     * @throws IllegalStateException if fan control could not be enabled or a fan did not take the speed
      */
     public void setFanSpeed(int value) {
         setFanSpeedGradually(value, false);
@@ -375,6 +593,7 @@ public class GPUSettings {
      * @param isInitialSetting Whether this is the initial setting at startup
      */
     public void setFanSpeedGradually(int targetValue, boolean isInitialSetting) {
+        fireCommand(ActuatorCommand.FAN_SPEED, targetValue);
         // Validate input
         int validatedValue = Math.max(0, Math.min(100, targetValue));
         
@@ -397,9 +616,8 @@ public class GPUSettings {
             enableFanControl();
         }
         
-        // If control couldn't be enabled, return
         if (!fanControlEnabled) {
-            return;
+            throw new IllegalStateException("nvidia-settings did not enable fan control");
         }
         
         // Get current fan speed if unknown
@@ -477,9 +695,13 @@ public class GPUSettings {
      * @param value Fan speed percentage (0-100)
      */
     private void applyFanSpeed(int value) {
+        int fans = getNumberOfFans();
+        if (fans == 0) {
+            throw new IllegalStateException("nvidia-settings reported no fans");
+        }
         // Apply to all fans
         boolean success = true;
-        for (int fan = 0; fan < getNumberOfFans(); fan++) {
+        for (int fan = 0; fan < fans; fan++) {
             String command = "nvidia-settings -a '[fan:" + fan + "]/GPUTargetFanSpeed=" + value + "'";
             String result = executeCommand(command);
 
@@ -493,10 +715,11 @@ public class GPUSettings {
             }
         }
         
-        if (success) {
-            previousFanSpeed = fanSpeed;
-            fanSpeed = value;
+        if (!success) {
+            throw new IllegalStateException("nvidia-settings did not set the fan speed to " + value + "%");
         }
+        previousFanSpeed = fanSpeed;
+        fanSpeed = value;
     }
 
 
@@ -520,10 +743,20 @@ public class GPUSettings {
         return fanCount;
     }
 
+    /**
+     * Only stores the limit; the corrective changes come from {@link #tempLimitCorrections()}
+     */
     public void setTempLimit(int newTempLimit) {
+        fireCommand(ActuatorCommand.TEMP_LIMIT, newTempLimit);
         tempLimit = newTempLimit;
         System.out.println("Setting temperature limit to " + tempLimit + "°C.");
+    }
 
+    /**
+     * Fan and clock changes that bring the current temperature back under the limit
+     */
+    protected Map<ActuatorCommand, Integer> tempLimitCorrections() {
+        Map<ActuatorCommand, Integer> corrections = new LinkedHashMap<>();
         // Get current GPU temperature
         int currentTemp = getGpuTemperature();
         if (currentTemp >= tempLimit) {
@@ -545,10 +778,7 @@ public class GPUSettings {
             }
             
             // Ensure fan speed stays within limits
-            newFanSpeed = Math.min(100, newFanSpeed);
-            
-            // Apply fan speed change gradually
-            setFanSpeedGradually(newFanSpeed, false);
+            corrections.put(ActuatorCommand.FAN_SPEED, Math.min(100, newFanSpeed));
 
             // Reduce clocks if temperature is still too high (over threshold + 3°C)
             if (currentTemp >= tempLimit + 3) {
@@ -566,20 +796,20 @@ public class GPUSettings {
                     newMemoryClock = 0; // Minimum memory clock
                 }
 
-                setCoreClock(newCoreClock);
-                setMemoryClock(newMemoryClock);
+                corrections.put(ActuatorCommand.CORE_CLOCK, newCoreClock);
+                corrections.put(ActuatorCommand.MEMORY_CLOCK, newMemoryClock);
 
-                System.out.println("Core clock reduced to " + newCoreClock + " MHz.");
-                System.out.println("Memory clock reduced to " + newMemoryClock + " MHz.");
+                System.out.println("Reducing core clock to " + newCoreClock + " MHz.");
+                System.out.println("Reducing memory clock to " + newMemoryClock + " MHz.");
             }
         } else if (currentTemp < tempLimit - 10 && fanSpeed > 50) {
             // Temperature is well below limit and fans are running fast - gradually reduce
             System.out.println("Temperature is well below limit (" + currentTemp + "°C). Reducing fan speed.");
-            int newFanSpeed = fanSpeed - 5;
-            setFanSpeedGradually(newFanSpeed, false);
+            corrections.put(ActuatorCommand.FAN_SPEED, fanSpeed - 5);
         } else {
             System.out.println("Temperature is within safe limits (" + currentTemp + "°C). No action required.");
         }
+        return corrections;
     }
 
 
@@ -610,9 +840,37 @@ interface NVML extends Library {
         }
     }
 
+    // Process info structure (v1 layout) for NVML
+    class nvmlProcessInfo extends Structure {
+        public int pid;
+        public long usedGpuMemory; // bytes
+
+        @Override
+        protected List<String> getFieldOrder() {
+            return Arrays.asList("pid", "usedGpuMemory");
+        }
+    }
+
+    // Per-process utilization sample for NVML
+    class nvmlProcessUtilizationSample extends Structure {
+        public int pid;
+        public long timeStamp; // microseconds
+        public int smUtil;
+        public int memUtil;
+        public int encUtil;
+        public int decUtil;
+
+        @Override
+        protected List<String> getFieldOrder() {
+            return Arrays.asList("pid", "timeStamp", "smUtil", "memUtil", "encUtil", "decUtil");
+        }
+    }
+
     NVML INSTANCE = Native.load("libnvidia-ml.so", NVML.class);
 
     int NVML_SUCCESS = 0;
+    int NVML_ERROR_NOT_FOUND = 6;
+    int NVML_ERROR_INSUFFICIENT_SIZE = 7;
     int NVML_TEMPERATURE_GPU = 0;
     int NVML_CLOCK_GRAPHICS = 0;
     int NVML_CLOCK_MEM = 1;
@@ -633,6 +891,8 @@ interface NVML extends Library {
 
     int nvmlDeviceGetPowerManagementLimit(Pointer device, IntByReference power);
 
+    int nvmlDeviceGetPowerUsage(Pointer device, IntByReference power);
+
     int nvmlDeviceGetFanSpeed(Pointer device, IntByReference fanSpeed);
 
     int nvmlDeviceSetApplicationsClocks(Pointer device, int clockType, int frequency);
@@ -643,4 +903,11 @@ interface NVML extends Library {
     int nvmlDeviceGetMemoryInfo(Pointer device, nvmlMemory memory);
     
     int nvmlDeviceGetUtilizationRates(Pointer device, nvmlUtilization utilization);
+
+    int nvmlDeviceGetComputeRunningProcesses(Pointer device, IntByReference infoCount, nvmlProcessInfo infos);
+
+    int nvmlDeviceGetGraphicsRunningProcesses(Pointer device, IntByReference infoCount, nvmlProcessInfo infos);
+
+    int nvmlDeviceGetProcessUtilization(Pointer device, nvmlProcessUtilizationSample utilization,
+                                        IntByReference processSamplesCount, long lastSeenTimeStamp);
 }
@@ -0,0 +1,41 @@
+package com.gpustatix.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Source of GPU readings. NVML and the DRM sysfs interface both implement it,
+ * so everything downstream of the sampler works the same for every vendor.
+ */
+public interface GpuBackend extends AutoCloseable {
+
+    /**
+     * @return number of GPUs this backend reads
+     */
+    int getDeviceCount();
+
+    String getDeviceName(int device);
+
+    /**
+     * @return PCI address of the device (e.g. 0000:01:00.0) or an empty string if unknown
+     */
+    String getPciAddress(int device);
+
+    /**
+     * Reads the current values of one device into the given snapshot
+     * @param device index within this backend
+     * @param snapshot snapshot to fill, its previous values are discarded
+     * @return false if the device could not be read at all
+     */
+    boolean sample(int device, GpuSnapshot snapshot);
+
+    /**
+     * Lists processes using the device. Backends without per-process accounting return an empty list.
+     */
+    default List<GpuProcess> getProcesses(int device) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    void close();
+}
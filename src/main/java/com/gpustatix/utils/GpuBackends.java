@@ -0,0 +1,58 @@
+package com.gpustatix.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the backends matching the GPUs found in the PCI topology
+ */
+public final class GpuBackends {
+
+    private GpuBackends() {
+    }
+
+    /**
+     * Opens backends for every supported GPU; NVML is initialized only if an NVIDIA card is present
+     */
+    public static GpuBackend detect(GpuTopology topology) {
+        return detect(topology, null);
+    }
+
+    /**
+     * Same as {@link #detect(GpuTopology)} but reuses the GPUSettings instance the UI already holds
+     * @param gpuSettings existing NVML settings or null to create one when needed
+     */
+    public static GpuBackend detect(GpuTopology topology, GPUSettings gpuSettings) {
+        List<GpuBackend> backends = new ArrayList<>();
+
+        if (topology.hasVendor(GpuTopology.VENDOR_NVIDIA) || gpuSettings != null) {
+            String address = "";
+            for (GpuTopology.PciGpu gpu : topology.getGpus()) {
+                if (gpu.getVendorId() == GpuTopology.VENDOR_NVIDIA) {
+                    address = gpu.getAddress();
+                    break;
+                }
+            }
+            boolean owns = gpuSettings == null;
+            // Собственные настройки только читают датчики и не берут управление вентилятором
+            GPUSettings settings = owns ? GPUSettings.withoutFanInitialization() : gpuSettings;
+            if (settings.isAvailable()) {
+                backends.add(new NvmlGpuBackend(settings, address, owns));
+            } else if (owns) {
+                settings.shutdown();
+            }
+        }
+
+        if (topology.hasVendor(GpuTopology.VENDOR_AMD) || topology.hasVendor(GpuTopology.VENDOR_INTEL)) {
+            DrmGpuBackend drm = new DrmGpuBackend(topology);
+            if (drm.getDeviceCount() > 0) {
+                backends.add(drm);
+            }
+        }
+
+        if (backends.size() == 1) {
+            return backends.get(0);
+        }
+        return new CompositeGpuBackend(backends);
+    }
+}
@@ -0,0 +1,48 @@
+package com.gpustatix.utils;
+
+/**
+ * A process holding a context on a GPU
+ */
+public class GpuProcess {
+    private final int pid;
+    private final int deviceIndex;
+    private final long usedMemoryBytes;
+    private final int smUtilization;
+
+    public GpuProcess(int pid, int deviceIndex, long usedMemoryBytes) {
+        this(pid, deviceIndex, usedMemoryBytes, -1);
+    }
+
+    /**
+     * @param smUtilization share of the GPU's SM time used by the process in percent, -1 if unknown
+     */
+    public GpuProcess(int pid, int deviceIndex, long usedMemoryBytes, int smUtilization) {
+        this.pid = pid;
+        this.deviceIndex = deviceIndex;
+        this.usedMemoryBytes = usedMemoryBytes;
+        this.smUtilization = smUtilization;
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    public int getDeviceIndex() {
+        return deviceIndex;
+    }
+
+    public long getUsedMemoryBytes() {
+        return usedMemoryBytes;
+    }
+
+    public int getUsedMemoryMb() {
+        return (int) (usedMemoryBytes / (1024 * 1024));
+    }
+
+    /**
+     * @return SM utilization of this process since the previous query in percent, -1 if unknown
+     */
+    public int getSmUtilization() {
+        return smUtilization;
+    }
+}
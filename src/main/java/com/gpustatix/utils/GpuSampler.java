@@ -0,0 +1,115 @@
+package com.gpustatix.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples all GPUs of a backend plus the host and hands the result to the listeners
+ */
+public class GpuSampler implements AutoCloseable {
+    public static final String THREAD_NAME = "gpustatix-sampler";
+
+    private final GpuBackend backend;
+    private final HostSampler hostSampler;
+    private final List<SampleListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService executor;
+    private int intervalMs;
+
+    public GpuSampler(GpuBackend backend, HostSampler hostSampler, int intervalMs) {
+        this.backend = backend;
+        this.hostSampler = hostSampler;
+        this.intervalMs = intervalMs;
+    }
+
+    public GpuBackend getBackend() {
+        return backend;
+    }
+
+    public int getIntervalMs() {
+        return intervalMs;
+    }
+
+    public void addListener(SampleListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SampleListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts sampling on a dedicated thread, restarting it if already running
+     */
+    public synchronized void start() {
+        stop();
+        executor = Executors.newSingleThreadScheduledExecutor(ThreadAffinity.threadFactory(THREAD_NAME));
+        executor.scheduleAtFixedRate(this::sampleSafely, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void setIntervalMs(int intervalMs) {
+        this.intervalMs = intervalMs;
+        if (executor != null) {
+            start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * Takes one sample on the calling thread and notifies the listeners
+     */
+    public void sampleOnce() {
+        HostSnapshot host = hostSampler.sample();
+        int count = backend.getDeviceCount();
+        List<GpuSnapshot> gpus = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GpuSnapshot snapshot = new GpuSnapshot(i);
+            backend.sample(i, snapshot);
+            snapshot.setDeviceIndex(i);
+            gpus.add(snapshot);
+        }
+        publish(host, gpus);
+    }
+
+    /**
+     * Hands one tick to the listeners; subclasses that produce samples themselves (replay) call it directly
+     */
+    protected void publish(HostSnapshot host, List<GpuSnapshot> gpus) {
+        List<GpuSnapshot> readOnly = Collections.unmodifiableList(gpus);
+        for (SampleListener listener : listeners) {
+            listener.onSample(host, readOnly);
+        }
+    }
+
+    private void sampleSafely() {
+        try {
+            sampleOnce();
+        } catch (Exception e) {
+            // Исключение отменило бы scheduleAtFixedRate
+            System.err.println("Error while sampling: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+}
@@ -0,0 +1,195 @@
+package com.gpustatix.utils;
+
+/**
+ * One reading of a single GPU, filled in by a {@link GpuBackend}.
+ * Values the backend cannot read stay at -1.
+ */
+public class GpuSnapshot {
+    public static final int UNAVAILABLE = -1;
+
+    private int deviceIndex;
+    private long timestampMillis;
+    private int temperature = UNAVAILABLE;
+    private int utilization = UNAVAILABLE;
+    private int memoryUsedMb = UNAVAILABLE;
+    private int memoryTotalMb = UNAVAILABLE;
+    private int coreClock = UNAVAILABLE;
+    private int memoryClock = UNAVAILABLE;
+    private float powerUsage = UNAVAILABLE;
+    private int powerLimit = UNAVAILABLE;
+    private int fanSpeed = UNAVAILABLE;
+    private int fanRpm = UNAVAILABLE;
+
+    public GpuSnapshot(int deviceIndex) {
+        this.deviceIndex = deviceIndex;
+    }
+
+    /**
+     * Resets all readings before the snapshot is reused for the next sample
+     */
+    public void clear() {
+        temperature = UNAVAILABLE;
+        utilization = UNAVAILABLE;
+        memoryUsedMb = UNAVAILABLE;
+        memoryTotalMb = UNAVAILABLE;
+        coreClock = UNAVAILABLE;
+        memoryClock = UNAVAILABLE;
+        powerUsage = UNAVAILABLE;
+        powerLimit = UNAVAILABLE;
+        fanSpeed = UNAVAILABLE;
+        fanRpm = UNAVAILABLE;
+    }
+
+    public void copyFrom(GpuSnapshot other) {
+        deviceIndex = other.deviceIndex;
+        timestampMillis = other.timestampMillis;
+        temperature = other.temperature;
+        utilization = other.utilization;
+        memoryUsedMb = other.memoryUsedMb;
+        memoryTotalMb = other.memoryTotalMb;
+        coreClock = other.coreClock;
+        memoryClock = other.memoryClock;
+        powerUsage = other.powerUsage;
+        powerLimit = other.powerLimit;
+        fanSpeed = other.fanSpeed;
+        fanRpm = other.fanRpm;
+    }
+
+    public int getDeviceIndex() {
+        return deviceIndex;
+    }
+
+    public void setDeviceIndex(int deviceIndex) {
+        this.deviceIndex = deviceIndex;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public void setTimestampMillis(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * @return temperature in °C
+     */
+    public int getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(int temperature) {
+        this.temperature = temperature;
+    }
+
+    /**
+     * @return GPU utilization in percent
+     */
+    public int getUtilization() {
+        return utilization;
+    }
+
+    public void setUtilization(int utilization) {
+        this.utilization = utilization;
+    }
+
+    public int getMemoryUsedMb() {
+        return memoryUsedMb;
+    }
+
+    public void setMemoryUsedMb(int memoryUsedMb) {
+        this.memoryUsedMb = memoryUsedMb;
+    }
+
+    public int getMemoryTotalMb() {
+        return memoryTotalMb;
+    }
+
+    public void setMemoryTotalMb(int memoryTotalMb) {
+        this.memoryTotalMb = memoryTotalMb;
+    }
+
+    /**
+     * @return used VRAM in percent, or -1 if the total is unknown
+     */
+    public int getMemoryUsagePercent() {
+        if (memoryUsedMb < 0 || memoryTotalMb <= 0) {
+            return UNAVAILABLE;
+        }
+        return (int) ((memoryUsedMb * 100L) / memoryTotalMb);
+    }
+
+    /**
+     * @return current core clock in MHz
+     */
+    public int getCoreClock() {
+        return coreClock;
+    }
+
+    public void setCoreClock(int coreClock) {
+        this.coreClock = coreClock;
+    }
+
+    /**
+     * @return current memory clock in MHz
+     */
+    public int getMemoryClock() {
+        return memoryClock;
+    }
+
+    public void setMemoryClock(int memoryClock) {
+        this.memoryClock = memoryClock;
+    }
+
+    /**
+     * @return board power draw in watts
+     */
+    public float getPowerUsage() {
+        return powerUsage;
+    }
+
+    public void setPowerUsage(float powerUsage) {
+        this.powerUsage = powerUsage;
+    }
+
+    /**
+     * @return power limit in watts
+     */
+    public int getPowerLimit() {
+        return powerLimit;
+    }
+
+    public void setPowerLimit(int powerLimit) {
+        this.powerLimit = powerLimit;
+    }
+
+    /**
+     * @return fan speed in percent
+     */
+    public int getFanSpeed() {
+        return fanSpeed;
+    }
+
+    public void setFanSpeed(int fanSpeed) {
+        this.fanSpeed = fanSpeed;
+    }
+
+    public int getFanRpm() {
+        return fanRpm;
+    }
+
+    public void setFanRpm(int fanRpm) {
+        this.fanRpm = fanRpm;
+    }
+
+    @Override
+    public String toString() {
+        return "GPU" + deviceIndex +
+                " " + temperature + "°C" +
+                " " + utilization + "%" +
+                " " + memoryUsedMb + "/" + memoryTotalMb + "MB" +
+                " " + coreClock + "/" + memoryClock + "MHz" +
+                " " + powerUsage + "W" +
+                " fan " + fanSpeed + "%";
+    }
+}
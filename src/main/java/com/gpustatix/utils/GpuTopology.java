@@ -0,0 +1,282 @@
+package com.gpustatix.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cached view of the display controllers on the PCI bus.
+ * The sysfs tree is walked once, on construction; all queries are answered from memory.
+ */
+public class GpuTopology {
+    public static final String DEFAULT_SYSFS_ROOT = "/sys";
+    public static final String SYSFS_ROOT_PROPERTY = "gpustatix.sysfs.root";
+
+    public static final int VENDOR_NVIDIA = 0x10de;
+    public static final int VENDOR_AMD = 0x1002;
+    public static final int VENDOR_INTEL = 0x8086;
+
+    // PCI base class 0x03 - display controller (VGA, XGA, 3D, other)
+    private static final int PCI_CLASS_DISPLAY = 0x03;
+    // APU carve-outs rarely exceed this, dedicated Radeon boards never go below it
+    private static final long AMD_INTEGRATED_VRAM_LIMIT = 1024L * 1024 * 1024;
+
+    private static volatile GpuTopology system;
+
+    private final Path sysfsRoot;
+    private final List<PciGpu> gpus;
+
+    /**
+     * Scans the given sysfs root (normally /sys, a fake tree in tests)
+     * @param sysfsRoot directory that contains bus/pci/devices
+     */
+    public GpuTopology(Path sysfsRoot) {
+        this.sysfsRoot = sysfsRoot;
+        this.gpus = Collections.unmodifiableList(scan(sysfsRoot.resolve("bus/pci/devices")));
+    }
+
+    /**
+     * Returns the topology of this machine, scanned on first use.
+     * The root can be overridden with -Dgpustatix.sysfs.root=...
+     */
+    public static GpuTopology getSystem() {
+        GpuTopology topology = system;
+        if (topology == null) {
+            synchronized (GpuTopology.class) {
+                topology = system;
+                if (topology == null) {
+                    String root = System.getProperty(SYSFS_ROOT_PROPERTY, DEFAULT_SYSFS_ROOT);
+                    topology = new GpuTopology(Paths.get(root));
+                    system = topology;
+                }
+            }
+        }
+        return topology;
+    }
+
+    public Path getSysfsRoot() {
+        return sysfsRoot;
+    }
+
+    public List<PciGpu> getGpus() {
+        return gpus;
+    }
+
+    public boolean hasDiscreteGpu() {
+        for (PciGpu gpu : gpus) {
+            if (!gpu.isIntegrated()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasIntegratedGpu() {
+        for (PciGpu gpu : gpus) {
+            if (gpu.isIntegrated()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasVendor(int vendorId) {
+        for (PciGpu gpu : gpus) {
+            if (gpu.getVendorId() == vendorId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks up a controller by its PCI address, e.g. 0000:01:00.0
+     * @return the controller or null if it is not a display controller
+     */
+    public PciGpu findByAddress(String address) {
+        for (PciGpu gpu : gpus) {
+            if (gpu.getAddress().equalsIgnoreCase(address)) {
+                return gpu;
+            }
+        }
+        return null;
+    }
+
+    private static List<PciGpu> scan(Path devicesDir) {
+        List<PciGpu> result = new ArrayList<>();
+        if (!Files.isDirectory(devicesDir)) {
+            System.err.println("PCI sysfs directory not found: " + devicesDir);
+            return result;
+        }
+
+        try (DirectoryStream<Path> devices = Files.newDirectoryStream(devicesDir)) {
+            for (Path device : devices) {
+                int pciClass = readHex(device.resolve("class"), -1);
+                if (pciClass < 0 || (pciClass >> 16) != PCI_CLASS_DISPLAY) {
+                    continue;
+                }
+
+                String address = device.getFileName().toString();
+                int vendorId = readHex(device.resolve("vendor"), 0);
+                int deviceId = readHex(device.resolve("device"), 0);
+                int numaNode = (int) readLong(device.resolve("numa_node"), -1);
+                boolean bootVga = readLong(device.resolve("boot_vga"), 0) == 1;
+                long vramTotal = readLong(device.resolve("mem_info_vram_total"), -1);
+                String driver = readDriver(device.resolve("driver"));
+
+                boolean integrated = isIntegrated(address, vendorId, vramTotal);
+                result.add(new PciGpu(address, vendorId, deviceId, pciClass, numaNode,
+                        bootVga, driver, integrated, device));
+            }
+        } catch (IOException e) {
+            System.err.println("Error while scanning PCI devices: " + e.getMessage());
+        }
+
+        result.sort((a, b) -> a.getAddress().compareTo(b.getAddress()));
+        return result;
+    }
+
+    /**
+     * Intel iGPUs live on the root bus (Arc cards sit behind a bridge),
+     * AMD APUs are told apart by their small VRAM carve-out, NVIDIA is always discrete.
+     */
+    private static boolean isIntegrated(String address, int vendorId, long vramTotal) {
+        return switch (vendorId) {
+            case VENDOR_INTEL -> busNumber(address) == 0;
+            case VENDOR_AMD -> vramTotal > 0 && vramTotal <= AMD_INTEGRATED_VRAM_LIMIT;
+            default -> false;
+        };
+    }
+
+    private static int busNumber(String address) {
+        // domain:bus:slot.function
+        String[] parts = address.split(":");
+        if (parts.length < 3) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(parts[1], 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readDriver(Path driverLink) {
+        try {
+            if (Files.isSymbolicLink(driverLink)) {
+                return Files.readSymbolicLink(driverLink).getFileName().toString();
+            }
+        } catch (IOException e) {
+            // Драйвер не загружен
+        }
+        return "";
+    }
+
+    private static int readHex(Path file, int defaultValue) {
+        try {
+            String value = Files.readString(file).trim();
+            if (value.startsWith("0x") || value.startsWith("0X")) {
+                value = value.substring(2);
+            }
+            return Integer.parseInt(value, 16);
+        } catch (IOException | NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long readLong(Path file, long defaultValue) {
+        try {
+            return Long.parseLong(Files.readString(file).trim());
+        } catch (IOException | NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A single display controller as seen on the PCI bus
+     */
+    public static class PciGpu {
+        private final String address;
+        private final int vendorId;
+        private final int deviceId;
+        private final int pciClass;
+        private final int numaNode;
+        private final boolean bootVga;
+        private final String driver;
+        private final boolean integrated;
+        private final Path sysfsPath;
+
+        PciGpu(String address, int vendorId, int deviceId, int pciClass, int numaNode,
+               boolean bootVga, String driver, boolean integrated, Path sysfsPath) {
+            this.address = address;
+            this.vendorId = vendorId;
+            this.deviceId = deviceId;
+            this.pciClass = pciClass;
+            this.numaNode = numaNode;
+            this.bootVga = bootVga;
+            this.driver = driver;
+            this.integrated = integrated;
+            this.sysfsPath = sysfsPath;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public int getVendorId() {
+            return vendorId;
+        }
+
+        public int getDeviceId() {
+            return deviceId;
+        }
+
+        public int getPciClass() {
+            return pciClass;
+        }
+
+        /**
+         * @return NUMA node of the device, -1 on single-node machines
+         */
+        public int getNumaNode() {
+            return numaNode;
+        }
+
+        public boolean isBootVga() {
+            return bootVga;
+        }
+
+        public String getDriver() {
+            return driver;
+        }
+
+        public boolean isIntegrated() {
+            return integrated;
+        }
+
+        public Path getSysfsPath() {
+            return sysfsPath;
+        }
+
+        public String getVendorName() {
+            return switch (vendorId) {
+                case VENDOR_NVIDIA -> "NVIDIA";
+                case VENDOR_AMD -> "AMD";
+                case VENDOR_INTEL -> "Intel";
+                default -> "Unknown";
+            };
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s [%04x:%04x] numa=%d %s",
+                    address, getVendorName(), vendorId, deviceId, numaNode,
+                    integrated ? "integrated" : "discrete");
+        }
+    }
+}
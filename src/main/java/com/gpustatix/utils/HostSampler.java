@@ -0,0 +1,198 @@
+package com.gpustatix.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link Processor} and {@link RAM}.
+ * CPU load is computed from the /proc/stat delta between two calls instead of sleeping,
+ * and all files are kept open between samples.
+ */
+public class HostSampler implements AutoCloseable {
+    private final SysfsAttribute procStat;
+    private final SysfsAttribute meminfo;
+    private final List<SysfsAttribute> cpuFrequencies = new ArrayList<>();
+    private final SysfsAttribute cpuTemperature;
+
+    private long previousIdle = -1;
+    private long previousTotal = -1;
+
+    public HostSampler() {
+        this(Paths.get("/proc"), Paths.get(System.getProperty(GpuTopology.SYSFS_ROOT_PROPERTY,
+                GpuTopology.DEFAULT_SYSFS_ROOT)));
+    }
+
+    /**
+     * @param procRoot procfs mount point, normally /proc
+     * @param sysfsRoot sysfs mount point, normally /sys
+     */
+    public HostSampler(Path procRoot, Path sysfsRoot) {
+        procStat = new SysfsAttribute(procRoot.resolve("stat"));
+        meminfo = new SysfsAttribute(procRoot.resolve("meminfo"));
+
+        Path cpuDir = sysfsRoot.resolve("devices/system/cpu");
+        if (Files.isDirectory(cpuDir)) {
+            try (DirectoryStream<Path> cpus = Files.newDirectoryStream(cpuDir, "cpu[0-9]*")) {
+                for (Path cpu : cpus) {
+                    Path freq = cpu.resolve("cpufreq/scaling_cur_freq");
+                    if (Files.exists(freq)) {
+                        cpuFrequencies.add(new SysfsAttribute(freq, 64));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error while scanning CPU frequencies: " + e.getMessage());
+            }
+        }
+
+        cpuTemperature = new SysfsAttribute(findCpuTemperature(sysfsRoot.resolve("class/hwmon")), 64);
+    }
+
+    /**
+     * Takes a reading. The first call has no previous /proc/stat values and reports no CPU load.
+     */
+    public HostSnapshot sample() {
+        HostSnapshot snapshot = new HostSnapshot();
+        sample(snapshot);
+        return snapshot;
+    }
+
+    public void sample(HostSnapshot snapshot) {
+        snapshot.setTimestampMillis(System.currentTimeMillis());
+        readCpuLoad(snapshot);
+        readMemory(snapshot);
+
+        long totalKHz = 0;
+        int count = 0;
+        for (SysfsAttribute freq : cpuFrequencies) {
+            long value = freq.readLong(-1);
+            if (value > 0) {
+                totalKHz += value;
+                count++;
+            }
+        }
+        snapshot.setCpuFrequency(count > 0 ? (int) (totalKHz / count / 1000) : -1);
+
+        long temp = cpuTemperature.readLong(-1);
+        snapshot.setCpuTemperature(temp >= 0 ? (int) (temp / 1000) : -1);
+    }
+
+    private void readCpuLoad(HostSnapshot snapshot) {
+        ByteBuffer data = procStat.read();
+        if (data == null) {
+            return;
+        }
+        // Первая строка: "cpu  user nice system idle iowait irq softirq steal ..."
+        int i = 3;
+        int limit = data.limit();
+        long total = 0;
+        long idle = 0;
+        int column = 0;
+        while (i < limit && data.get(i) != '\n') {
+            while (i < limit && data.get(i) == ' ') {
+                i++;
+            }
+            int start = i;
+            while (i < limit && data.get(i) >= '0' && data.get(i) <= '9') {
+                i++;
+            }
+            if (i == start) {
+                break;
+            }
+            long value = SysfsAttribute.parseLong(data, start, i, 0);
+            // guest/guest_nice are already counted in user/nice
+            if (column < 8) {
+                total += value;
+            }
+            if (column == 3 || column == 4) {
+                idle += value;
+            }
+            column++;
+        }
+
+        if (previousTotal >= 0 && total > previousTotal) {
+            long deltaTotal = total - previousTotal;
+            long deltaIdle = idle - previousIdle;
+            snapshot.setCpuLoad(100f * (1f - (float) deltaIdle / deltaTotal));
+        }
+        previousTotal = total;
+        previousIdle = idle;
+    }
+
+    private void readMemory(HostSnapshot snapshot) {
+        ByteBuffer data = meminfo.read();
+        if (data == null) {
+            return;
+        }
+        long totalKb = findField(data, "MemTotal:");
+        long availableKb = findField(data, "MemAvailable:");
+        if (totalKb > 0) {
+            snapshot.setRamTotalMb((int) (totalKb / 1024));
+            if (availableKb >= 0) {
+                snapshot.setRamUsedMb((int) ((totalKb - availableKb) / 1024));
+            }
+        }
+    }
+
+    /**
+     * Finds "key value" at the start of a line and parses the value
+     */
+    static long findField(ByteBuffer data, String key) {
+        int limit = data.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            boolean match = lineStart + key.length() <= limit;
+            for (int k = 0; match && k < key.length(); k++) {
+                match = data.get(lineStart + k) == key.charAt(k);
+            }
+            int lineEnd = lineStart;
+            while (lineEnd < limit && data.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (match) {
+                return SysfsAttribute.parseLong(data, lineStart + key.length(), lineEnd, -1);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Looks for the k10temp (AMD) or coretemp (Intel) sensor, temp1 is Tctl / Package id 0
+     */
+    private static Path findCpuTemperature(Path hwmonRoot) {
+        if (Files.isDirectory(hwmonRoot)) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(hwmonRoot, "hwmon*")) {
+                for (Path hwmon : entries) {
+                    String name;
+                    try {
+                        name = Files.readString(hwmon.resolve("name")).trim();
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    if (name.equals("k10temp") || name.equals("coretemp") || name.equals("zenpower")) {
+                        return hwmon.resolve("temp1_input");
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error while looking up CPU sensor: " + e.getMessage());
+            }
+        }
+        return hwmonRoot.resolve("missing");
+    }
+
+    @Override
+    public void close() {
+        procStat.close();
+        meminfo.close();
+        cpuTemperature.close();
+        for (SysfsAttribute freq : cpuFrequencies) {
+            freq.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.gpustatix.utils;
+
+/**
+ * CPU and RAM readings taken alongside each GPU sample
+ */
+public class HostSnapshot {
+    private long timestampMillis;
+    private float cpuLoad = -1;
+    private int cpuFrequency = -1;
+    private int cpuTemperature = -1;
+    private int ramUsedMb = -1;
+    private int ramTotalMb = -1;
+
+    public void copyFrom(HostSnapshot other) {
+        timestampMillis = other.timestampMillis;
+        cpuLoad = other.cpuLoad;
+        cpuFrequency = other.cpuFrequency;
+        cpuTemperature = other.cpuTemperature;
+        ramUsedMb = other.ramUsedMb;
+        ramTotalMb = other.ramTotalMb;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public void setTimestampMillis(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * @return CPU load in percent over the last sampling interval
+     */
+    public float getCpuLoad() {
+        return cpuLoad;
+    }
+
+    public void setCpuLoad(float cpuLoad) {
+        this.cpuLoad = cpuLoad;
+    }
+
+    /**
+     * @return average core frequency in MHz
+     */
+    public int getCpuFrequency() {
+        return cpuFrequency;
+    }
+
+    public void setCpuFrequency(int cpuFrequency) {
+        this.cpuFrequency = cpuFrequency;
+    }
+
+    /**
+     * @return package temperature in °C (Tctl on AMD, Package id 0 on Intel)
+     */
+    public int getCpuTemperature() {
+        return cpuTemperature;
+    }
+
+    public void setCpuTemperature(int cpuTemperature) {
+        this.cpuTemperature = cpuTemperature;
+    }
+
+    public int getRamUsedMb() {
+        return ramUsedMb;
+    }
+
+    public void setRamUsedMb(int ramUsedMb) {
+        this.ramUsedMb = ramUsedMb;
+    }
+
+    public int getRamTotalMb() {
+        return ramTotalMb;
+    }
+
+    public void setRamTotalMb(int ramTotalMb) {
+        this.ramTotalMb = ramTotalMb;
+    }
+
+    @Override
+    public String toString() {
+        return "CPU " + Math.round(cpuLoad) + "% " + cpuFrequency + "MHz " + cpuTemperature + "°C" +
+                "   RAM: " + ramUsedMb + "/" + ramTotalMb + "MB";
+    }
+}
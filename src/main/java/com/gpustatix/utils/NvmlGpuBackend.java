@@ -0,0 +1,81 @@
+package com.gpustatix.utils;
+
+import java.util.List;
+
+/**
+ * Adapts {@link GPUSettings} (NVML, device 0) to the {@link GpuBackend} interface
+ */
+public class NvmlGpuBackend implements GpuBackend {
+    private final GPUSettings gpuSettings;
+    private final String pciAddress;
+    private final boolean ownsSettings;
+
+    /**
+     * @param gpuSettings already initialized settings, shared with the UI
+     * @param pciAddress PCI address from the topology, may be empty
+     */
+    public NvmlGpuBackend(GPUSettings gpuSettings, String pciAddress) {
+        this(gpuSettings, pciAddress, false);
+    }
+
+    NvmlGpuBackend(GPUSettings gpuSettings, String pciAddress, boolean ownsSettings) {
+        this.gpuSettings = gpuSettings;
+        this.pciAddress = pciAddress;
+        this.ownsSettings = ownsSettings;
+    }
+
+    public GPUSettings getGpuSettings() {
+        return gpuSettings;
+    }
+
+    @Override
+    public int getDeviceCount() {
+        return gpuSettings.isAvailable() ? 1 : 0;
+    }
+
+    @Override
+    public String getDeviceName(int device) {
+        return gpuSettings.getGpuName();
+    }
+
+    @Override
+    public String getPciAddress(int device) {
+        return pciAddress;
+    }
+
+    @Override
+    public boolean sample(int device, GpuSnapshot snapshot) {
+        snapshot.clear();
+        snapshot.setTimestampMillis(System.currentTimeMillis());
+        if (!gpuSettings.isAvailable()) {
+            return false;
+        }
+
+        snapshot.setTemperature(gpuSettings.getGpuTemperature());
+        try {
+            snapshot.setUtilization(Integer.parseInt(gpuSettings.getGpuUtilization().trim()));
+        } catch (NumberFormatException e) {
+            // Загрузка неизвестна
+        }
+        snapshot.setMemoryUsedMb(gpuSettings.getGpuMemoryUsedMb());
+        snapshot.setMemoryTotalMb(gpuSettings.getGpuMemoryTotalMb());
+        snapshot.setCoreClock(gpuSettings.getCoreClock());
+        snapshot.setMemoryClock(gpuSettings.getMemoryClock());
+        snapshot.setPowerUsage(gpuSettings.getPowerUsage());
+        snapshot.setPowerLimit(gpuSettings.getPowerLimit());
+        snapshot.setFanSpeed(gpuSettings.getFanSpeed());
+        return true;
+    }
+
+    @Override
+    public List<GpuProcess> getProcesses(int device) {
+        return gpuSettings.getGpuProcesses();
+    }
+
+    @Override
+    public void close() {
+        if (ownsSettings) {
+            gpuSettings.shutdown();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.gpustatix.utils;
+
+/**
+ * Open-addressing hash table keyed by PID with primitive per-process state.
+ * Holds no objects per entry, so tracking thousands of processes costs no garbage.
+ */
+class PidTable {
+    private static final int EMPTY = 0; // PID 0 никогда не встречается в /proc
+
+    private int[] pids;
+    private long[] jiffies;
+    private long[] startTimes;
+    private long[] deltas;
+    private long[] lastSeen;
+    private int[] cgroups;
+    private int size;
+    private int mask;
+
+    PidTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        pids = new int[capacity];
+        jiffies = new long[capacity];
+        startTimes = new long[capacity];
+        deltas = new long[capacity];
+        lastSeen = new long[capacity];
+        cgroups = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return pids.length;
+    }
+
+    /**
+     * Records the cumulative CPU time of a process and returns the slot it is stored in.
+     * The delta since the previous call is kept in the slot; a reused PID (new start time) starts over
+     * and forgets its cgroup.
+     */
+    int update(int pid, long startTime, long totalJiffies, long tick) {
+        if ((size + 1) * 4 > pids.length * 3) {
+            rehash(pids.length * 2);
+        }
+        int slot = find(pid);
+        if (pids[slot] == pid && startTimes[slot] == startTime) {
+            deltas[slot] = Math.max(0, totalJiffies - jiffies[slot]);
+        } else {
+            if (pids[slot] == EMPTY) {
+                size++;
+            }
+            pids[slot] = pid;
+            startTimes[slot] = startTime;
+            // Первое наблюдение: нагрузка и cgroup неизвестны
+            deltas[slot] = 0;
+            cgroups[slot] = -1;
+        }
+        jiffies[slot] = totalJiffies;
+        lastSeen[slot] = tick;
+        return slot;
+    }
+
+    /**
+     * @return slot of the PID or -1 if it is not tracked
+     */
+    int slotOf(int pid) {
+        int slot = find(pid);
+        return pids[slot] == pid ? slot : -1;
+    }
+
+    int pidAt(int slot) {
+        return pids[slot];
+    }
+
+    long deltaAt(int slot) {
+        return deltas[slot];
+    }
+
+    /**
+     * @return cgroup id cached for the process, -1 if not resolved yet
+     */
+    int cgroupAt(int slot) {
+        return cgroups[slot];
+    }
+
+    void setCgroupAt(int slot, int cgroup) {
+        cgroups[slot] = cgroup;
+    }
+
+    /**
+     * Drops every process that was not updated during the given tick
+     */
+    void removeStale(long tick) {
+        int slot = 0;
+        while (slot < pids.length) {
+            if (pids[slot] != EMPTY && lastSeen[slot] != tick) {
+                removeAt(slot);
+                // На место удалённого мог сдвинуться другой элемент - проверяем слот ещё раз
+            } else {
+                slot++;
+            }
+        }
+    }
+
+    private int find(int pid) {
+        int slot = mix(pid) & mask;
+        while (pids[slot] != EMPTY && pids[slot] != pid) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Backward-shift deletion keeps probe chains intact without tombstones
+     */
+    private void removeAt(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (pids[next] != EMPTY) {
+            int ideal = mix(pids[next]) & mask;
+            // Сдвигаем элемент, если дыра лежит между его идеальной позицией и текущей
+            boolean shift = hole <= next
+                    ? (ideal <= hole || ideal > next)
+                    : (ideal <= hole && ideal > next);
+            if (shift) {
+                pids[hole] = pids[next];
+                jiffies[hole] = jiffies[next];
+                startTimes[hole] = startTimes[next];
+                deltas[hole] = deltas[next];
+                lastSeen[hole] = lastSeen[next];
+                cgroups[hole] = cgroups[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        pids[hole] = EMPTY;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldPids = pids;
+        long[] oldJiffies = jiffies;
+        long[] oldStartTimes = startTimes;
+        long[] oldDeltas = deltas;
+        long[] oldLastSeen = lastSeen;
+        int[] oldCgroups = cgroups;
+        allocate(capacity);
+        for (int i = 0; i < oldPids.length; i++) {
+            if (oldPids[i] != EMPTY) {
+                int slot = find(oldPids[i]);
+                pids[slot] = oldPids[i];
+                jiffies[slot] = oldJiffies[i];
+                startTimes[slot] = oldStartTimes[i];
+                deltas[slot] = oldDeltas[i];
+                lastSeen[slot] = oldLastSeen[i];
+                cgroups[slot] = oldCgroups[i];
+                size++;
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
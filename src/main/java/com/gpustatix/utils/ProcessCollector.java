@@ -0,0 +1,433 @@
+package com.gpustatix.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the processes using the most CPU and joins them with the GPU process list.
+ * Each call reads /proc/[pid]/stat of every process and compares it with the previous call;
+ * per-PID state lives in a primitive hash table and dead PIDs are dropped on every scan.
+ * <p>
+ * Every scan also sums CPU and GPU usage per cgroup, i.e. per container. The cgroup of a PID is
+ * read from /proc/[pid]/cgroup once and cached in the PID table; the cache entry is dropped
+ * when the PID is reused by a process with a different start time.
+ */
+public class ProcessCollector {
+    // USER_HZ, 100 on every mainstream Linux architecture
+    private static final int CLOCK_TICKS_PER_SECOND = 100;
+    // Раз в столько проходов cgroup процесса перечитывается: runc переносит процесс в cgroup контейнера после fork
+    private static final int CGROUP_REFRESH_SCANS = 64;
+
+    private final Path procRoot;
+    private final File procDir;
+    private final GpuBackend backend;
+    private final PidTable table = new PidTable(1024);
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+    private final ByteBuffer commBuffer = ByteBuffer.allocate(64);
+    private final ByteBuffer cgroupBuffer = ByteBuffer.allocate(4096);
+    private final CgroupTable cgroups = new CgroupTable();
+    private volatile List<CgroupUsage> cgroupUsage = Collections.emptyList();
+
+    private int[] heapPids = new int[0];
+    private long[] heapDeltas = new long[0];
+    private int heapSize;
+
+    private long tick;
+    private long lastScanNanos;
+
+    public ProcessCollector(GpuBackend backend) {
+        this(Paths.get("/proc"), backend);
+    }
+
+    /**
+     * @param procRoot procfs mount point, normally /proc
+     * @param backend GPU backend for the process join, may be null
+     */
+    public ProcessCollector(Path procRoot, GpuBackend backend) {
+        this.procRoot = procRoot;
+        this.procDir = procRoot.toFile();
+        this.backend = backend;
+    }
+
+    /**
+     * Number of processes seen during the last scan
+     */
+    public int getTrackedCount() {
+        return table.size();
+    }
+
+    /**
+     * Scans /proc and returns the top CPU consumers followed by any GPU processes not among them.
+     * The first call only establishes the baseline and reports zero CPU usage.
+     * @param topN number of CPU consumers to report
+     */
+    public List<ProcessUsage> collect(int topN) {
+        double elapsedSeconds = scan(topN);
+
+        // Извлекаем из кучи в порядке убывания
+        int count = heapSize;
+        int[] topPids = new int[count];
+        long[] topDeltas = new long[count];
+        for (int i = count - 1; i >= 0; i--) {
+            topPids[i] = heapPids[0];
+            topDeltas[i] = heapDeltas[0];
+            popHeap();
+        }
+
+        List<GpuProcess> gpuProcesses = listGpuProcesses();
+        aggregateCgroups(gpuProcesses, elapsedSeconds);
+        List<ProcessUsage> result = new ArrayList<>(count + gpuProcesses.size());
+        for (int i = 0; i < count; i++) {
+            GpuProcess gpu = findGpuProcess(gpuProcesses, topPids[i]);
+            result.add(usage(topPids[i], topDeltas[i], elapsedSeconds, gpu));
+        }
+        for (GpuProcess gpu : gpuProcesses) {
+            if (!containsPid(result, gpu.getPid())) {
+                int slot = table.slotOf(gpu.getPid());
+                long delta = slot >= 0 ? table.deltaAt(slot) : 0;
+                result.add(usage(gpu.getPid(), delta, elapsedSeconds, gpu));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scans /proc and returns the usage of every cgroup with at least one process.
+     * The first call only establishes the baseline and reports zero CPU usage.
+     */
+    public List<CgroupUsage> collectCgroups() {
+        double elapsedSeconds = scan(0);
+        aggregateCgroups(listGpuProcesses(), elapsedSeconds);
+        return cgroupUsage;
+    }
+
+    /**
+     * @return per-cgroup usage computed by the last {@link #collect} or {@link #collectCgroups} call
+     */
+    public List<CgroupUsage> getCgroupUsage() {
+        return cgroupUsage;
+    }
+
+    /**
+     * @return seconds since the previous scan, 0 for the first one
+     */
+    private double scan(int topN) {
+        long now = System.nanoTime();
+        double elapsedSeconds = lastScanNanos > 0 ? (now - lastScanNanos) / 1e9 : 0;
+        lastScanNanos = now;
+        tick++;
+
+        resetHeap(topN);
+        cgroups.beginScan();
+        String[] entries = procDir.list();
+        if (entries != null) {
+            for (String entry : entries) {
+                int pid = parsePid(entry);
+                if (pid > 0) {
+                    scanProcess(pid, entry);
+                }
+            }
+        }
+        table.removeStale(tick);
+        return elapsedSeconds;
+    }
+
+    private void scanProcess(int pid, String entry) {
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(procRoot.resolve(entry).resolve("stat"), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // читаем целиком
+            }
+        } catch (IOException e) {
+            return; // Процесс завершился между list() и open()
+        }
+        buffer.flip();
+
+        // comm может содержать пробелы и скобки, поля начинаются после последней ')'
+        int limit = buffer.limit();
+        int i = limit - 1;
+        while (i >= 0 && buffer.get(i) != ')') {
+            i--;
+        }
+        if (i < 0) {
+            return;
+        }
+        i += 2;
+
+        // Поле 3 (state) идёт первым; utime - 14, stime - 15, starttime - 22
+        long utime = 0;
+        long stime = 0;
+        long startTime = 0;
+        int field = 3;
+        while (i < limit && field <= 22) {
+            int start = i;
+            while (i < limit && buffer.get(i) != ' ') {
+                i++;
+            }
+            if (field == 14) {
+                utime = SysfsAttribute.parseLong(buffer, start, i, 0);
+            } else if (field == 15) {
+                stime = SysfsAttribute.parseLong(buffer, start, i, 0);
+            } else if (field == 22) {
+                startTime = SysfsAttribute.parseLong(buffer, start, i, 0);
+            }
+            field++;
+            i++;
+        }
+
+        int slot = table.update(pid, startTime, utime + stime, tick);
+        offerHeap(pid, table.deltaAt(slot));
+
+        int cgroup = table.cgroupAt(slot);
+        if (cgroup < 0 || (pid + tick) % CGROUP_REFRESH_SCANS == 0) {
+            cgroup = readCgroup(entry, cgroup);
+            table.setCgroupAt(slot, cgroup);
+        }
+        if (cgroup >= 0) {
+            cgroups.addProcess(cgroup, table.deltaAt(slot));
+        }
+    }
+
+    /**
+     * @return id of the cgroup the process is in, or the given previous id if it cannot be read
+     */
+    private int readCgroup(String entry, int previous) {
+        cgroupBuffer.clear();
+        try (FileChannel channel = FileChannel.open(procRoot.resolve(entry).resolve("cgroup"), StandardOpenOption.READ)) {
+            while (cgroupBuffer.hasRemaining() && channel.read(cgroupBuffer) > 0) {
+                // читаем целиком
+            }
+        } catch (IOException e) {
+            return previous;
+        }
+        String path = parseCgroup(new String(cgroupBuffer.array(), 0, cgroupBuffer.position(), StandardCharsets.UTF_8));
+        return path != null ? cgroups.intern(path) : previous;
+    }
+
+    /**
+     * Picks the cgroup path from /proc/[pid]/cgroup: the cgroup v2 line ("0::/path") if it is not the root,
+     * otherwise the v1 cpu or memory hierarchy, which the container runtimes always set
+     * @return null if the content has no usable line
+     */
+    static String parseCgroup(String content) {
+        String unified = null;
+        String controller = null;
+        String other = null;
+        int start = 0;
+        while (start < content.length()) {
+            int end = content.indexOf('\n', start);
+            if (end < 0) {
+                end = content.length();
+            }
+            int first = content.indexOf(':', start);
+            int second = first >= 0 && first < end ? content.indexOf(':', first + 1) : -1;
+            if (second >= 0 && second < end) {
+                String path = content.substring(second + 1, end);
+                if (path.endsWith(" (deleted)")) {
+                    path = path.substring(0, path.length() - " (deleted)".length());
+                }
+                if (second == first + 1) {
+                    unified = path;
+                } else if (hasController(content, first + 1, second, "cpu")
+                        || hasController(content, first + 1, second, "memory")) {
+                    if (controller == null) {
+                        controller = path;
+                    }
+                } else if (other == null) {
+                    other = path;
+                }
+            }
+            start = end + 1;
+        }
+        if (unified != null && !unified.equals("/")) {
+            return unified;
+        }
+        if (controller != null) {
+            return controller;
+        }
+        return unified != null ? unified : other;
+    }
+
+    private static boolean hasController(String content, int start, int end, String name) {
+        int i = start;
+        while (i < end) {
+            int comma = content.indexOf(',', i);
+            if (comma < 0 || comma > end) {
+                comma = end;
+            }
+            if (comma - i == name.length() && content.startsWith(name, i)) {
+                return true;
+            }
+            i = comma + 1;
+        }
+        return false;
+    }
+
+    private void aggregateCgroups(List<GpuProcess> gpuProcesses, double elapsedSeconds) {
+        for (GpuProcess gpu : gpuProcesses) {
+            int slot = table.slotOf(gpu.getPid());
+            int cgroup = slot >= 0 ? table.cgroupAt(slot) : -1;
+            if (cgroup >= 0) {
+                cgroups.addGpuProcess(cgroup, gpu.getUsedMemoryBytes(), gpu.getSmUtilization());
+            }
+        }
+        List<CgroupUsage> result = new ArrayList<>();
+        for (int id = 0; id < cgroups.limit(); id++) {
+            if (cgroups.isLive(id) && cgroups.processesOf(id) > 0) {
+                result.add(new CgroupUsage(cgroups.pathOf(id), cgroups.processesOf(id),
+                        cpuPercent(cgroups.cpuJiffiesOf(id), elapsedSeconds),
+                        cgroups.gpuUtilizationOf(id),
+                        (int) (cgroups.gpuMemoryBytesOf(id) / (1024 * 1024)),
+                        cgroups.gpuProcessesOf(id)));
+            }
+        }
+        cgroups.endScan();
+        cgroupUsage = Collections.unmodifiableList(result);
+    }
+
+    private static float cpuPercent(long deltaJiffies, double elapsedSeconds) {
+        return elapsedSeconds > 0 ? (float) (deltaJiffies * 100.0 / CLOCK_TICKS_PER_SECOND / elapsedSeconds) : 0f;
+    }
+
+    private ProcessUsage usage(int pid, long deltaJiffies, double elapsedSeconds, GpuProcess gpu) {
+        return new ProcessUsage(pid, readComm(pid), cpuPercent(deltaJiffies, elapsedSeconds),
+                gpu != null ? gpu.getDeviceIndex() : -1,
+                gpu != null ? gpu.getUsedMemoryMb() : 0);
+    }
+
+    private String readComm(int pid) {
+        commBuffer.clear();
+        try (FileChannel channel = FileChannel.open(procRoot.resolve(Integer.toString(pid)).resolve("comm"), StandardOpenOption.READ)) {
+            channel.read(commBuffer);
+        } catch (IOException e) {
+            return "?";
+        }
+        int length = commBuffer.position();
+        while (length > 0 && commBuffer.get(length - 1) == '\n') {
+            length--;
+        }
+        return new String(commBuffer.array(), 0, length);
+    }
+
+    private List<GpuProcess> listGpuProcesses() {
+        if (backend == null) {
+            return Collections.emptyList();
+        }
+        List<GpuProcess> processes = new ArrayList<>();
+        for (int device = 0; device < backend.getDeviceCount(); device++) {
+            processes.addAll(backend.getProcesses(device));
+        }
+        return processes;
+    }
+
+    private static GpuProcess findGpuProcess(List<GpuProcess> processes, int pid) {
+        for (GpuProcess process : processes) {
+            if (process.getPid() == pid) {
+                return process;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsPid(List<ProcessUsage> usages, int pid) {
+        for (ProcessUsage usage : usages) {
+            if (usage.getPid() == pid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int parsePid(String name) {
+        int pid = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            pid = pid * 10 + (c - '0');
+        }
+        return pid;
+    }
+
+    // Куча минимумов размера topN: в корне наименьший из лучших
+
+    private void resetHeap(int topN) {
+        if (heapPids.length != topN) {
+            heapPids = new int[topN];
+            heapDeltas = new long[topN];
+        }
+        heapSize = 0;
+    }
+
+    private void offerHeap(int pid, long delta) {
+        if (heapPids.length == 0) {
+            return;
+        }
+        if (heapSize < heapPids.length) {
+            int i = heapSize++;
+            heapPids[i] = pid;
+            heapDeltas[i] = delta;
+            siftUp(i);
+        } else if (delta > heapDeltas[0]) {
+            heapPids[0] = pid;
+            heapDeltas[0] = delta;
+            siftDown(0);
+        }
+    }
+
+    private void popHeap() {
+        heapSize--;
+        heapPids[0] = heapPids[heapSize];
+        heapDeltas[0] = heapDeltas[heapSize];
+        siftDown(0);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapDeltas[parent] <= heapDeltas[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) {
+                break;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < heapSize && heapDeltas[right] < heapDeltas[left]) {
+                smallest = right;
+            }
+            if (heapDeltas[i] <= heapDeltas[smallest]) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int pid = heapPids[a];
+        heapPids[a] = heapPids[b];
+        heapPids[b] = pid;
+        long delta = heapDeltas[a];
+        heapDeltas[a] = heapDeltas[b];
+        heapDeltas[b] = delta;
+    }
+}
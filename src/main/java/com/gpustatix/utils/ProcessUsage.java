@@ -0,0 +1,56 @@
+package com.gpustatix.utils;
+
+/**
+ * CPU usage of one process over the last collection interval, joined with its GPU usage
+ */
+public class ProcessUsage {
+    private final int pid;
+    private final String name;
+    private final float cpuPercent;
+    private final int gpuDevice;
+    private final int gpuMemoryMb;
+
+    public ProcessUsage(int pid, String name, float cpuPercent, int gpuDevice, int gpuMemoryMb) {
+        this.pid = pid;
+        this.name = name;
+        this.cpuPercent = cpuPercent;
+        this.gpuDevice = gpuDevice;
+        this.gpuMemoryMb = gpuMemoryMb;
+    }
+
+    public int getPid() {
+        return pid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return CPU usage in percent of one core, like top reports it
+     */
+    public float getCpuPercent() {
+        return cpuPercent;
+    }
+
+    /**
+     * @return index of the GPU the process runs on, -1 if it has no GPU context
+     */
+    public int getGpuDevice() {
+        return gpuDevice;
+    }
+
+    public int getGpuMemoryMb() {
+        return gpuMemoryMb;
+    }
+
+    public boolean usesGpu() {
+        return gpuDevice >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%7d %-16s %6.1f%% %s", pid, name, cpuPercent,
+                usesGpu() ? "GPU" + gpuDevice + " " + gpuMemoryMb + "MB" : "-");
+    }
+}
@@ -0,0 +1,89 @@
+package com.gpustatix.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sample fields as ints and the zigzag varints they are delta-encoded with, shared by
+ * session recordings and the fleet stream. Floats travel as raw bits, so a steady reading
+ * costs one byte per field whatever its type.
+ * <pre>
+ * host: cpu load, cpu frequency, cpu temperature, ram used, ram total
+ * gpu:  temperature, utilization, memory used, memory total, core clock, memory clock,
+ *       power, power limit, fan speed, fan rpm
+ * </pre>
+ */
+public final class SampleCodec {
+    public static final int HOST_FIELDS = 5;
+    public static final int GPU_FIELDS = 10;
+    // Наибольшая длина varint для значения int после зигзага
+    public static final int MAX_INT_VARINT_BYTES = 5;
+
+    private SampleCodec() {
+    }
+
+    public static void hostFields(HostSnapshot host, int[] into) {
+        into[0] = Float.floatToRawIntBits(host.getCpuLoad());
+        into[1] = host.getCpuFrequency();
+        into[2] = host.getCpuTemperature();
+        into[3] = host.getRamUsedMb();
+        into[4] = host.getRamTotalMb();
+    }
+
+    public static void toHost(int[] fields, HostSnapshot host) {
+        host.setCpuLoad(Float.intBitsToFloat(fields[0]));
+        host.setCpuFrequency(fields[1]);
+        host.setCpuTemperature(fields[2]);
+        host.setRamUsedMb(fields[3]);
+        host.setRamTotalMb(fields[4]);
+    }
+
+    public static void gpuFields(GpuSnapshot gpu, int[] into, int offset) {
+        into[offset] = gpu.getTemperature();
+        into[offset + 1] = gpu.getUtilization();
+        into[offset + 2] = gpu.getMemoryUsedMb();
+        into[offset + 3] = gpu.getMemoryTotalMb();
+        into[offset + 4] = gpu.getCoreClock();
+        into[offset + 5] = gpu.getMemoryClock();
+        into[offset + 6] = Float.floatToRawIntBits(gpu.getPowerUsage());
+        into[offset + 7] = gpu.getPowerLimit();
+        into[offset + 8] = gpu.getFanSpeed();
+        into[offset + 9] = gpu.getFanRpm();
+    }
+
+    public static void toGpu(int[] fields, int offset, GpuSnapshot gpu) {
+        gpu.setTemperature(fields[offset]);
+        gpu.setUtilization(fields[offset + 1]);
+        gpu.setMemoryUsedMb(fields[offset + 2]);
+        gpu.setMemoryTotalMb(fields[offset + 3]);
+        gpu.setCoreClock(fields[offset + 4]);
+        gpu.setMemoryClock(fields[offset + 5]);
+        gpu.setPowerUsage(Float.intBitsToFloat(fields[offset + 6]));
+        gpu.setPowerLimit(fields[offset + 7]);
+        gpu.setFanSpeed(fields[offset + 8]);
+        gpu.setFanRpm(fields[offset + 9]);
+    }
+
+    public static void putVarLong(ByteBuffer buffer, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+
+    /**
+     * @throws IllegalStateException if no byte ends the varint within 64 bits
+     */
+    public static long getVarLong(ByteBuffer buffer) {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
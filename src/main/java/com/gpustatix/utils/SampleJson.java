@@ -0,0 +1,59 @@
+package com.gpustatix.utils;
+
+import java.util.List;
+
+/**
+ * JSON form of one sample, shared by the headless NDJSON output and the live feed:
+ * {"ts":..,"cpu":{"load","freq","temp"},"ram":{"used","total"},"gpus":[{"index","temp",..}]}
+ */
+public final class SampleJson {
+
+    private SampleJson() {
+    }
+
+    /**
+     * Appends the sample as a single line without a trailing newline
+     */
+    public static StringBuilder append(StringBuilder line, HostSnapshot host, List<GpuSnapshot> gpus) {
+        line.append("{\"ts\":").append(host.getTimestampMillis());
+        line.append(",\"cpu\":{\"load\":");
+        appendDecimal(line, host.getCpuLoad());
+        line.append(",\"freq\":").append(host.getCpuFrequency());
+        line.append(",\"temp\":").append(host.getCpuTemperature());
+        line.append("},\"ram\":{\"used\":").append(host.getRamUsedMb());
+        line.append(",\"total\":").append(host.getRamTotalMb());
+        line.append("},\"gpus\":[");
+        for (int i = 0; i < gpus.size(); i++) {
+            GpuSnapshot gpu = gpus.get(i);
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append("{\"index\":").append(gpu.getDeviceIndex());
+            line.append(",\"temp\":").append(gpu.getTemperature());
+            line.append(",\"util\":").append(gpu.getUtilization());
+            line.append(",\"mem_used\":").append(gpu.getMemoryUsedMb());
+            line.append(",\"mem_total\":").append(gpu.getMemoryTotalMb());
+            line.append(",\"sclk\":").append(gpu.getCoreClock());
+            line.append(",\"mclk\":").append(gpu.getMemoryClock());
+            line.append(",\"power\":");
+            appendDecimal(line, gpu.getPowerUsage());
+            line.append(",\"power_limit\":").append(gpu.getPowerLimit());
+            line.append(",\"fan\":").append(gpu.getFanSpeed());
+            line.append(",\"fan_rpm\":").append(gpu.getFanRpm());
+            line.append('}');
+        }
+        return line.append("]}");
+    }
+
+    /**
+     * Appends a value with one decimal without going through Float.toString
+     */
+    private static void appendDecimal(StringBuilder line, float value) {
+        if (value < 0) {
+            line.append(-1);
+            return;
+        }
+        long tenths = Math.round(value * 10.0);
+        line.append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
@@ -0,0 +1,16 @@
+package com.gpustatix.utils;
+
+import java.util.List;
+
+/**
+ * Receives every sample taken by {@link GpuSampler}.
+ * Called on the sampler thread, so implementations must not block.
+ */
+public interface SampleListener {
+
+    /**
+     * @param host CPU and RAM readings of this tick
+     * @param gpus one snapshot per device, indexed by device number; not modified after the call
+     */
+    void onSample(HostSnapshot host, List<GpuSnapshot> gpus);
+}
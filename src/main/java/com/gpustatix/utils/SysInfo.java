@@ -4,65 +4,47 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Objects;
 
 public class SysInfo {
+    private static GpuBackend gpuBackend;
 
-    public static boolean checkIntegrated() {
-        GPUSettings gpu = new GPUSettings();
-        String gpuName = gpu.getGpuName().trim();
-
-        if (Objects.equals(gpu.getGpuVendor(), "NVIDIA")){
-            return false;
-        }
-
-        if (gpuName.isEmpty()) {
-            System.out.println("GPU name is empty. Assuming integrated graphics.");
-            return true; // Если GPU не определен, предположим, что это интегрированная графика
-        }
-
-        String[] lineparts = gpuName.split(" ");
-        if (lineparts.length > 1) {
-            if (lineparts[0].trim().equalsIgnoreCase("NVIDIA")) {
-                return false; // Если это NVIDIA, значит дискретная
-            }
-        }
-
-        try {
-            Process process = new ProcessBuilder("lspci").start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                // Проверяем наличие интегрированной графики Intel
-                if (line.toLowerCase().contains("vga compatible controller") || line.toLowerCase().contains("3d controller")) {
-                    if (line.toLowerCase().contains("intel")) {
-                        return true; // Найдена интегрированная графика Intel
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error while running lspci: " + e.getMessage());
+    private static synchronized GpuBackend getGpuBackend() {
+        if (gpuBackend == null) {
+            gpuBackend = GpuBackends.detect(GpuTopology.getSystem());
         }
+        return gpuBackend;
+    }
 
-        System.out.println("Integrated GPU not detected. Assuming discrete graphics.");
-        return false; // Если ничего не найдено, предполагаем дискретную
+    /**
+     * Answers from the cached PCI topology, no NVML or lspci involved
+     * @return true if there is no discrete GPU in the system
+     */
+    public static boolean checkIntegrated() {
+        return !GpuTopology.getSystem().hasDiscreteGpu();
     }
 
     public static String displaySystemInfo() {
-        GPUSettings settings = new GPUSettings();
         Processor cpu = new Processor();
         RAM ram = new RAM();
         StringBuilder info = new StringBuilder();
         info.append(cpu).append("\n");
-        if (checkIntegrated()){
-            info.append("INTEGRATED\n");
+        GpuTopology topology = GpuTopology.getSystem();
+        GpuBackend backend = topology.getGpus().isEmpty() ? null : getGpuBackend();
+        if (backend == null || backend.getDeviceCount() == 0) {
+            // Ни один бэкенд не читает эти видеокарты
+            info.append(topology.hasIntegratedGpu() ? "INTEGRATED\n" : "NO GPU\n");
         }
         else{
-            info.append("GPU" + "    " + settings.getGpuTemperature()  + "°C"+ "    " +
-                    settings.getGpuUtilization() + "%" + "\n" +
-                    "MEM " + settings.getGpuMemoryUsage() + " MB" + "\n"
-            );
+            GpuSnapshot snapshot = new GpuSnapshot(0);
+            for (int i = 0; i < backend.getDeviceCount(); i++) {
+                backend.sample(i, snapshot);
+                GpuTopology.PciGpu gpu = topology.findByAddress(backend.getPciAddress(i));
+                String label = gpu != null && gpu.isIntegrated() ? "iGPU" : "GPU";
+                info.append(label + "    " + snapshot.getTemperature() + "°C" + "    " +
+                        snapshot.getUtilization() + "%" + "\n" +
+                        "MEM " + snapshot.getMemoryUsedMb() + " MB" + "\n"
+                );
+            }
         }
         info.append(ram);
         return info.toString();
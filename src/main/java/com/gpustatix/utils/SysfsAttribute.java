@@ -0,0 +1,168 @@
+package com.gpustatix.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A sysfs/procfs attribute kept open between reads.
+ * sysfs regenerates the value on every read at offset 0, so the same channel
+ * is re-read with a positional read instead of opening the file each time.
+ */
+public class SysfsAttribute implements AutoCloseable {
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private FileChannel channel;
+    private boolean missing;
+
+    public SysfsAttribute(Path path) {
+        this(path, BUFFER_SIZE);
+    }
+
+    public SysfsAttribute(Path path, int bufferSize) {
+        this.path = path;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean exists() {
+        return !missing && Files.exists(path);
+    }
+
+    /**
+     * Reads the attribute into the internal buffer.
+     * A missing file is remembered and never opened again; other errors (EAGAIN, EBUSY from a driver)
+     * only fail this read and the file is reopened on the next one.
+     * @return the buffer flipped for reading, or null if the file is unreadable
+     */
+    public ByteBuffer read() {
+        if (missing) {
+            return null;
+        }
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            }
+            buffer.clear();
+            long position = 0;
+            int n;
+            while (buffer.hasRemaining() && (n = channel.read(buffer, position)) > 0) {
+                position += n;
+            }
+            buffer.flip();
+            return buffer;
+        } catch (NoSuchFileException e) {
+            // Атрибута нет у этого драйвера - больше не пытаемся
+            missing = true;
+            close();
+            return null;
+        } catch (IOException e) {
+            // Временная ошибка драйвера - повторим на следующем чтении
+            close();
+            return null;
+        }
+    }
+
+    /**
+     * Parses the leading decimal number of the attribute
+     * @return the value or defaultValue if the attribute is absent
+     */
+    public long readLong(long defaultValue) {
+        ByteBuffer data = read();
+        if (data == null) {
+            return defaultValue;
+        }
+        return parseLong(data, 0, data.limit(), defaultValue);
+    }
+
+    /**
+     * Finds the line marked with '*' in a pp_dpm_* style table ("1: 1800Mhz *")
+     * @return the clock of the active level or defaultValue
+     */
+    public long readActiveLevel(long defaultValue) {
+        ByteBuffer data = read();
+        if (data == null) {
+            return defaultValue;
+        }
+        int lineStart = 0;
+        int limit = data.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i == limit || data.get(i) == '\n') {
+                boolean active = false;
+                int colon = -1;
+                for (int j = lineStart; j < i; j++) {
+                    byte b = data.get(j);
+                    if (b == '*') {
+                        active = true;
+                    } else if (b == ':' && colon < 0) {
+                        colon = j;
+                    }
+                }
+                if (active && colon >= 0) {
+                    return parseLong(data, colon + 1, i, defaultValue);
+                }
+                lineStart = i + 1;
+            }
+        }
+        return defaultValue;
+    }
+
+    public String readString() {
+        ByteBuffer data = read();
+        if (data == null) {
+            return "";
+        }
+        return new String(data.array(), 0, data.limit()).trim();
+    }
+
+    /**
+     * Parses a decimal number starting at the first digit in [from, to), without allocating
+     */
+    public static long parseLong(ByteBuffer data, int from, int to, long defaultValue) {
+        int i = from;
+        while (i < to && (data.get(i) == ' ' || data.get(i) == '\t')) {
+            i++;
+        }
+        boolean negative = false;
+        if (i < to && data.get(i) == '-') {
+            negative = true;
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < to) {
+            byte b = data.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            i++;
+        }
+        if (digits == 0) {
+            return defaultValue;
+        }
+        return negative ? -value : value;
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.gpustatix.utils;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps GPUStatix threads on housekeeping cores.
+ * When affinity.cpus is set, every thread created through {@link #threadFactory(String)}
+ * pins itself to those CPUs with sched_setaffinity and optionally lowers its priority (affinity.nice).
+ */
+public final class ThreadAffinity {
+    private static final int PRIO_PROCESS = 0;
+
+    private static volatile BitSet configuredCpus;
+    private static volatile boolean loaded;
+    private static volatile boolean failed;
+
+    private ThreadAffinity() {
+    }
+
+    interface LibC extends Library {
+        LibC INSTANCE = Native.load("c", LibC.class);
+
+        int sched_setaffinity(int pid, NativeLong cpusetsize, long[] mask);
+
+        int setpriority(int which, int who, int prio);
+    }
+
+    /**
+     * Daemon thread factory for sampler, actuator and writer threads
+     * @param name thread name
+     */
+    public static ThreadFactory threadFactory(String name) {
+        return threadFactory(name, true);
+    }
+
+    public static ThreadFactory threadFactory(String name, boolean daemon) {
+        return r -> {
+            Thread thread = new Thread(() -> {
+                applyToCurrentThread();
+                r.run();
+            }, name);
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+
+    /**
+     * @return true if a CPU set is configured
+     */
+    public static boolean isEnabled() {
+        return getConfiguredCpus() != null;
+    }
+
+    /**
+     * Pins the calling thread to the configured CPUs and applies the configured nice level
+     * @return false if nothing is configured or the kernel refused
+     */
+    public static boolean applyToCurrentThread() {
+        BitSet cpus = getConfiguredCpus();
+        if (cpus == null || failed) {
+            return false;
+        }
+        boolean ok = pinCurrentThread(cpus);
+        int nice = ConfigLoader.getInt("affinity.nice", Integer.MIN_VALUE);
+        if (ok && nice != Integer.MIN_VALUE) {
+            ok = setCurrentThreadNice(nice);
+        }
+        return ok;
+    }
+
+    /**
+     * sched_setaffinity with pid 0 applies to the calling thread only
+     */
+    public static boolean pinCurrentThread(BitSet cpus) {
+        long[] mask = Arrays.copyOf(cpus.toLongArray(), Math.max(1, (cpus.length() + 63) / 64));
+        try {
+            int result = LibC.INSTANCE.sched_setaffinity(0, new NativeLong(mask.length * 8L), mask);
+            if (result != 0) {
+                System.err.println("sched_setaffinity failed for " + Thread.currentThread().getName() +
+                        ", errno " + Native.getLastError());
+                return false;
+            }
+            return true;
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+            System.err.println("Thread pinning is not available: " + e.getMessage());
+            failed = true;
+            return false;
+        }
+    }
+
+    /**
+     * On Linux setpriority(PRIO_PROCESS, 0) changes the nice value of the calling thread only
+     */
+    public static boolean setCurrentThreadNice(int nice) {
+        try {
+            if (LibC.INSTANCE.setpriority(PRIO_PROCESS, 0, nice) != 0) {
+                System.err.println("setpriority(" + nice + ") failed, errno " + Native.getLastError());
+                return false;
+            }
+            return true;
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+            System.err.println("setpriority is not available: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parses a CPU list in the kernel's format, e.g. "0-1,6"
+     * @return the set or null if the list is empty
+     */
+    public static BitSet parseCpuList(String list) {
+        if (list == null || list.isBlank()) {
+            return null;
+        }
+        BitSet cpus = new BitSet();
+        for (String part : list.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            if (dash > 0) {
+                cpus.set(Integer.parseInt(part.substring(0, dash).trim()),
+                        Integer.parseInt(part.substring(dash + 1).trim()) + 1);
+            } else {
+                cpus.set(Integer.parseInt(part));
+            }
+        }
+        return cpus.isEmpty() ? null : cpus;
+    }
+
+    private static BitSet getConfiguredCpus() {
+        if (!loaded) {
+            synchronized (ThreadAffinity.class) {
+                if (!loaded) {
+                    try {
+                        configuredCpus = parseCpuList(ConfigLoader.getString("affinity.cpus", null));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Invalid affinity.cpus: " + e.getMessage());
+                    }
+                    loaded = true;
+                }
+            }
+        }
+        return configuredCpus;
+    }
+
+    /**
+     * Measures how late periodic wakeups are on the calling thread
+     * @param periodMicros wakeup period
+     * @param wakeups number of wakeups to measure
+     */
+    public static JitterStats measureJitter(int periodMicros, int wakeups) {
+        long[] lateness = new long[wakeups];
+        long period = periodMicros * 1000L;
+        long deadline = System.nanoTime() + period;
+        for (int i = 0; i < wakeups; i++) {
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                LockSupport.parkNanos(deadline - now);
+            }
+            lateness[i] = now - deadline;
+            deadline += period;
+            if (deadline < now) {
+                deadline = now + period; // не накапливаем отставание
+            }
+        }
+        return new JitterStats(lateness);
+    }
+
+    /**
+     * Measures wakeup jitter on a fresh thread, first unpinned, then pinned with the configured settings,
+     * and prints both results
+     */
+    public static void reportJitter(PrintStream out) {
+        if (!isEnabled()) {
+            out.println("Thread affinity is not configured (affinity.cpus)");
+            return;
+        }
+        final JitterStats[] results = new JitterStats[2];
+        Thread probe = new Thread(() -> {
+            results[0] = measureJitter(1000, 500);
+            if (applyToCurrentThread()) {
+                results[1] = measureJitter(1000, 500);
+            }
+        }, "gpustatix-jitter-probe");
+        probe.start();
+        try {
+            probe.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        out.println("Wakeup jitter before pinning: " + results[0]);
+        out.println("Wakeup jitter after pinning to " + ConfigLoader.getString("affinity.cpus", "") +
+                ": " + (results[1] != null ? results[1] : "pinning failed"));
+    }
+
+    /**
+     * Lateness distribution of timed wakeups, in microseconds
+     */
+    public static class JitterStats {
+        private final double mean;
+        private final double p99;
+        private final double max;
+
+        JitterStats(long[] latenessNanos) {
+            long[] sorted = latenessNanos.clone();
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long value : sorted) {
+                sum += value;
+            }
+            mean = sorted.length > 0 ? sum / 1000.0 / sorted.length : 0;
+            p99 = sorted.length > 0 ? sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)] / 1000.0 : 0;
+            max = sorted.length > 0 ? sorted[sorted.length - 1] / 1000.0 : 0;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("mean %.1f us, p99 %.1f us, max %.1f us", mean, p99, max);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertEngineTest {
+    private static void sample(AlertEngine engine, long timestamp, int... temperatures) {
+        HostSnapshot host = new HostSnapshot();
+        host.setTimestampMillis(timestamp);
+        List<GpuSnapshot> gpus = new ArrayList<>();
+        for (int i = 0; i < temperatures.length; i++) {
+            GpuSnapshot gpu = new GpuSnapshot(i);
+            gpu.setTemperature(temperatures[i]);
+            gpus.add(gpu);
+        }
+        engine.onSample(host, gpus);
+    }
+
+    @Test
+    void firesThenResolvesThroughTheDispatchThread() {
+        List<AlertEvent> seen = Collections.synchronizedList(new ArrayList<>());
+        AlertActions.register("engine-test-record", argument -> seen::add);
+        AlertEngine engine = new AlertEngine(List.of(
+                RuleParser.parseRule("hot: gpu_temperature > 85 for 2s -> engine-test-record")), 2, 16);
+
+        sample(engine, 0, 90, 50);
+        sample(engine, 1000, 90, 50);
+        sample(engine, 2000, 91, 50);
+        assertEquals(1, engine.getFiringCount());
+        sample(engine, 3000, 80, 50);
+        engine.close();
+
+        assertEquals(2, seen.size());
+        assertEquals(AlertEvent.State.FIRING, seen.get(0).getState());
+        assertEquals(0, seen.get(0).getDevice());
+        assertEquals(2000, seen.get(0).getTimestampMillis());
+        assertEquals(91f, seen.get(0).getValues()[0]);
+        assertEquals(AlertEvent.State.RESOLVED, seen.get(1).getState());
+        assertEquals(3000, seen.get(1).getTimestampMillis());
+        assertEquals(1, engine.getFiredCount());
+        assertEquals(0, engine.getFiringCount());
+        assertEquals(0, engine.getDroppedCount());
+    }
+
+    @Test
+    void dropsWhenTheQueueIsFullAndDrainsOnClose() throws InterruptedException {
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<AlertEvent> seen = Collections.synchronizedList(new ArrayList<>());
+        AlertActions.register("engine-test-slow", argument -> event -> {
+            busy.countDown();
+            release.await();
+            seen.add(event);
+        });
+        AlertEngine engine = new AlertEngine(List.of(
+                RuleParser.parseRule("flap: gpu_temperature > 85 -> engine-test-slow")), 1, 1);
+
+        // Первый переход занимает поток действий
+        sample(engine, 0, 90);
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        // Второй ждёт в очереди на одно место, остальные три отбрасываются
+        for (int i = 1; i <= 4; i++) {
+            sample(engine, i * 1000L, i % 2 == 0 ? 90 : 80);
+        }
+        assertEquals(3, engine.getDroppedCount());
+        release.countDown();
+        engine.close();
+
+        assertEquals(2, seen.size(), "close hands the queued transition to its action");
+        assertEquals(AlertEvent.State.FIRING, seen.get(0).getState());
+        assertEquals(AlertEvent.State.RESOLVED, seen.get(1).getState());
+        assertEquals(1000, seen.get(1).getTimestampMillis());
+    }
+
+    @Test
+    void webhookStandInReceivesBothTransitions() throws IOException {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/alerts", exchange -> {
+            received.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            AlertEngine engine = new AlertEngine(List.of(RuleParser.parseRule(
+                    "hot: gpu_temperature > 85 -> log, webhook:http://127.0.0.1:" + server.getAddress().getPort()
+                            + "/alerts")), 1, 16);
+            sample(engine, 0, 90);
+            sample(engine, 1000, 70);
+            engine.close();
+        } finally {
+            server.stop(0);
+        }
+
+        assertEquals(2, received.size());
+        assertTrue(received.get(0).contains("\"state\":\"firing\""), received.get(0));
+        assertTrue(received.get(1).contains("\"state\":\"resolved\""), received.get(1));
+    }
+}
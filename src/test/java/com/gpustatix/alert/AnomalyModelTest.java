@@ -0,0 +1,75 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.utils.GpuSnapshot;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnomalyModelTest {
+    private static final int FAN_RPM = 1 << AnomalyModel.Stat.FAN_RPM.ordinal();
+    private static final int FAN_SPEED = 1 << AnomalyModel.Stat.FAN_SPEED.ordinal();
+    private static final int TEMP_VS_FAN = 1 << AnomalyModel.Stat.TEMP_VS_FAN.ordinal();
+
+    private final AnomalyModel model = new AnomalyModel(100, 10, 4, 20, 5);
+    private final double[] state = model.newState(1);
+    private final float[] scores = new float[AnomalyModel.STAT_COUNT];
+    private final float[] deviations = new float[AnomalyModel.STAT_COUNT];
+
+    private int feed(int samples, int fanSpeed, int fanRpm) {
+        int flags = 0;
+        for (int i = 0; i < samples; i++) {
+            GpuSnapshot gpu = new GpuSnapshot(0);
+            gpu.setUtilization(95);
+            gpu.setTemperature(70 + i % 2);
+            gpu.setPowerUsage(200 + i % 3);
+            gpu.setFanSpeed(fanSpeed < 0 ? fanSpeed : fanSpeed + i % 2);
+            gpu.setFanRpm(fanRpm < 0 ? fanRpm : fanRpm + 10 * (i % 3));
+            flags = model.update(state, 0, gpu, scores, deviations);
+        }
+        return flags;
+    }
+
+    @Test
+    void percentOnlyFanIsJudgedInPercent() {
+        // NVML не сообщает обороты: раньше падение на 20 % мерилось порогом 150 об/мин
+        assertEquals(0, feed(200, 60, GpuSnapshot.UNAVAILABLE));
+        int flags = feed(50, 40, GpuSnapshot.UNAVAILABLE);
+
+        assertEquals(FAN_SPEED, flags & (FAN_SPEED | FAN_RPM));
+        assertEquals(-20, deviations[AnomalyModel.Stat.FAN_SPEED.ordinal()], 1);
+        assertTrue(Float.isNaN(scores[AnomalyModel.Stat.FAN_RPM.ordinal()]));
+    }
+
+    @Test
+    void missingUtilizationKeepsTheFlags() {
+        feed(200, 60, GpuSnapshot.UNAVAILABLE);
+        assertEquals(FAN_SPEED, feed(50, 40, GpuSnapshot.UNAVAILABLE) & FAN_SPEED);
+
+        GpuSnapshot unknownLoad = new GpuSnapshot(0);
+        unknownLoad.setTemperature(70);
+        unknownLoad.setFanSpeed(40);
+        assertEquals(FAN_SPEED, model.update(state, 0, unknownLoad, scores, deviations) & FAN_SPEED);
+        assertTrue(Float.isNaN(scores[AnomalyModel.Stat.FAN_SPEED.ordinal()]));
+    }
+
+    @Test
+    void smallPercentShiftIsNotFlagged() {
+        assertEquals(0, feed(200, 60, GpuSnapshot.UNAVAILABLE));
+        assertEquals(0, feed(100, 57, GpuSnapshot.UNAVAILABLE) & FAN_SPEED);
+    }
+
+    @Test
+    void rpmShiftBelowItsLimitIsNotFlaggedButALargeOneIs() {
+        assertEquals(0, feed(200, 50, 1500));
+        assertEquals(0, feed(100, 50, 1400) & FAN_RPM);
+        assertEquals(FAN_RPM, feed(100, 50, 1200) & (FAN_RPM | FAN_SPEED));
+    }
+
+    @Test
+    void fanRegressionKeepsItsFirstUnit() {
+        assertEquals(0, feed(200, 50, 1500));
+        // Тахометр пропал: проценты не подставляются в регрессию по оборотам
+        assertEquals(0, feed(200, 50, GpuSnapshot.UNAVAILABLE) & TEMP_VS_FAN);
+        assertTrue(Float.isNaN(scores[AnomalyModel.Stat.TEMP_VS_FAN.ordinal()]));
+    }
+}
@@ -0,0 +1,70 @@
+package com.gpustatix.alert;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandActionTest {
+    @TempDir
+    Path dir;
+
+    private Path script() throws IOException {
+        // Записывает окружение события в файл из первого аргумента и выходит с кодом из второго
+        Path script = dir.resolve("alert.sh");
+        Files.writeString(script, """
+                #!/bin/sh
+                printf '%s|%s|%s|%s\\n' "$GPUSTATIX_ALERT" "$GPUSTATIX_STATE" "$GPUSTATIX_DEVICE" "$GPUSTATIX_MESSAGE" > "$1"
+                printf '%s' "$GPUSTATIX_EVENT" >> "$1"
+                exit "$2"
+                """);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwx------"));
+        return script;
+    }
+
+    private static AlertEvent event() {
+        AlertRule rule = RuleParser.parseRule("hot: gpu_temperature > 85");
+        return new AlertEvent(rule, 0, AlertEvent.State.FIRING, 1_700_000_000_000L, new float[]{91});
+    }
+
+    @Test
+    void passesTheEventInTheEnvironment() throws Exception {
+        Path out = dir.resolve("out.txt");
+        AlertEvent event = event();
+
+        new CommandAction(script() + " " + out + " 0", 10_000).execute(event);
+
+        String[] lines = Files.readString(out).split("\n", 2);
+        assertEquals("hot|firing|0|" + event.describe(), lines[0]);
+        assertEquals(event.toJson(), lines[1]);
+    }
+
+    @Test
+    void nonZeroExitIsAFailure() throws IOException {
+        CommandAction action = new CommandAction(script() + " " + dir.resolve("out.txt") + " 3", 10_000);
+
+        IOException e = assertThrows(IOException.class, () -> action.execute(event()));
+        assertTrue(e.getMessage().endsWith("exited with 3"), e.getMessage());
+    }
+
+    @Test
+    void programOverTheTimeoutIsKilled() {
+        CommandAction action = new CommandAction("sleep 10", 200);
+
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class, () -> action.execute(event()));
+        assertTrue(e.getMessage().endsWith("did not finish in 200 ms"), e.getMessage());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+
+    @Test
+    void splitsOnWhitespaceWithoutAShell() {
+        assertEquals("command:/usr/local/bin/page --gpu 0", new CommandAction("  /usr/local/bin/page   --gpu\t0 ", 1).toString());
+        assertThrows(IllegalArgumentException.class, () -> new CommandAction(" ", 1));
+    }
+}
@@ -0,0 +1,122 @@
+package com.gpustatix.alert;
+
+import com.gpustatix.history.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleEvaluatorTest {
+    private static final int TEMPERATURE = Metric.GPU_TEMPERATURE.ordinal();
+    private static final int POWER = Metric.GPU_POWER.ordinal();
+
+    private final float[] values = new float[Signals.COUNT];
+
+    private AlertEvent.State feed(RuleEvaluator evaluator, long timestamp, float temperature) {
+        Arrays.fill(values, Float.NaN);
+        values[TEMPERATURE] = temperature;
+        return evaluator.update(timestamp, values);
+    }
+
+    @Test
+    void firesExactlyWhenTheHoldTimeHasPassed() {
+        RuleEvaluator evaluator = new RuleEvaluator(RuleParser.parseRule("hot: gpu_temperature > 85 for 30s"), 0);
+
+        assertNull(feed(evaluator, 0, 86));
+        assertNull(feed(evaluator, 29_999, 90));
+        assertEquals(AlertEvent.State.FIRING, feed(evaluator, 30_000, 90));
+        assertNull(feed(evaluator, 31_000, 90), "fires once");
+        assertEquals(AlertEvent.State.RESOLVED, feed(evaluator, 32_000, 85));
+        assertFalse(evaluator.isFiring());
+    }
+
+    @Test
+    void thresholdItselfDoesNotHoldForStrictComparison() {
+        RuleEvaluator strict = new RuleEvaluator(RuleParser.parseRule("a: gpu_temperature > 85"), 0);
+        RuleEvaluator inclusive = new RuleEvaluator(RuleParser.parseRule("b: gpu_temperature >= 85"), 0);
+
+        assertNull(feed(strict, 0, 85));
+        assertEquals(AlertEvent.State.FIRING, feed(inclusive, 0, 85));
+    }
+
+    @Test
+    void dipRestartsTheHoldTime() {
+        RuleEvaluator evaluator = new RuleEvaluator(RuleParser.parseRule("hot: gpu_temperature > 85 for 10s"), 0);
+
+        assertNull(feed(evaluator, 0, 90));
+        assertNull(feed(evaluator, 5_000, 80));
+        assertNull(feed(evaluator, 6_000, 90));
+        assertNull(feed(evaluator, 15_999, 90));
+        assertEquals(AlertEvent.State.FIRING, feed(evaluator, 16_000, 90));
+    }
+
+    @Test
+    void unavailableReadingNeitherResolvesNorCounts() {
+        RuleEvaluator evaluator = new RuleEvaluator(RuleParser.parseRule("hot: gpu_temperature > 85 for 10s"), 0);
+
+        assertNull(feed(evaluator, 0, 90));
+        assertNull(feed(evaluator, 5_000, Float.NaN));
+        // Отсчёт идёт от первой выборки: пропуск не сбрасывает его
+        assertEquals(AlertEvent.State.FIRING, feed(evaluator, 10_000, 90));
+        assertNull(feed(evaluator, 11_000, Float.NaN));
+        assertTrue(evaluator.isFiring());
+    }
+
+    @Test
+    void zeroHoldFiresOnTheFirstMatchingSample() {
+        RuleEvaluator evaluator = new RuleEvaluator(RuleParser.parseRule("hot: gpu_temperature > 85"), 0);
+
+        assertEquals(AlertEvent.State.FIRING, feed(evaluator, 0, 86));
+        assertEquals(AlertEvent.State.RESOLVED, feed(evaluator, 1, 10));
+    }
+
+    @Test
+    void averageWindowSmoothsASpike() {
+        RuleEvaluator evaluator = new RuleEvaluator(RuleParser.parseRule("avg: avg(gpu_temperature, 3s) > 80"), 0);
+
+        assertNull(feed(evaluator, 0, 70));
+        assertNull(feed(evaluator, 1000, 70));
+        // (70 + 70 + 100) / 3 = 80, не больше порога
+        assertNull(feed(evaluator, 2000, 100));
+        // Первая выборка выпала: (70 + 100 + 100) / 3 = 90
+        assertEquals(AlertEvent.State.FIRING, feed(evaluator, 3000, 100));
+        assertArrayEquals(new float[]{90}, evaluator.observedValues());
+    }
+
+    @Test
+    void minWindowWithHoldNeedsTheWholeWindowAbove() {
+        RuleEvaluator evaluator = new RuleEvaluator(RuleParser.parseRule("min: min(gpu_temperature, 2s) > 85 for 1s"), 0);
+
+        assertNull(feed(evaluator, 0, 80));
+        assertNull(feed(evaluator, 1000, 90));
+        // 80 выпадает из окна только в 2000
+        assertNull(feed(evaluator, 2000, 90));
+        assertNull(feed(evaluator, 2999, 90));
+        assertEquals(AlertEvent.State.FIRING, feed(evaluator, 3000, 90));
+    }
+
+    @Test
+    void maxWindowResolvesOnlyAfterThePeakExpires() {
+        RuleEvaluator evaluator = new RuleEvaluator(RuleParser.parseRule("max: max(gpu_temperature, 5s) >= 95"), 0);
+
+        assertEquals(AlertEvent.State.FIRING, feed(evaluator, 0, 95));
+        assertNull(feed(evaluator, 4_999, 60));
+        assertEquals(AlertEvent.State.RESOLVED, feed(evaluator, 5_000, 60));
+    }
+
+    @Test
+    void everyConditionMustHold() {
+        RuleEvaluator evaluator = new RuleEvaluator(
+                RuleParser.parseRule("both: gpu_temperature > 85 and avg(gpu_power, 2s) < 50"), 0);
+
+        Arrays.fill(values, Float.NaN);
+        values[TEMPERATURE] = 90;
+        values[POWER] = 100;
+        assertNull(evaluator.update(0, values));
+        values[POWER] = 10;
+        // Среднее мощности (100 + 10) / 2 всё ещё не ниже 50
+        assertNull(evaluator.update(1000, values));
+        assertEquals(AlertEvent.State.FIRING, evaluator.update(2000, values));
+    }
+}
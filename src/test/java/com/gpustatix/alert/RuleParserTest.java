@@ -0,0 +1,104 @@
+package com.gpustatix.alert;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleParserTest {
+    @Test
+    void parsesConditionsHoldAndActions() {
+        AlertRule rule = RuleParser.parseRule(
+                "fan_stuck: fan_command >= 80 and gpu_fan_rpm < 500 for 10s -> log, command:/usr/local/bin/fan-alert --now");
+
+        assertEquals("fan_stuck", rule.getName());
+        assertEquals(2, rule.getConditionCount());
+        assertEquals(10_000, rule.getHoldMillis());
+        assertEquals(2, rule.getActions().size());
+        assertTrue(rule.getActions().get(0) instanceof LogAction);
+        assertEquals("command:/usr/local/bin/fan-alert --now", rule.getActions().get(1).toString());
+        assertFalse(rule.isHost());
+        assertEquals("fan_command >= 80 and gpu_fan_rpm < 500 for 10s", rule.getExpression());
+    }
+
+    @Test
+    void expressionsRoundTrip() {
+        // Правило и его нормализованная запись
+        String[][] cases = {
+                {"hot: gpu_temperature > 85", "gpu_temperature > 85"},
+                {"hot: gpu_temperature>85.5 for 30s", "gpu_temperature > 85.50 for 30s"},
+                {"avg: avg( gpu_power , 60s ) > 300", "avg(gpu_power, 1m) > 300"},
+                {"min: min(gpu_fan_rpm, 1500ms) <= 0", "min(gpu_fan_rpm, 1500ms) <= 0"},
+                {"max: max(cpu_temperature, 2h) != -1 for 90m", "max(cpu_temperature, 2h) != -1 for 90m"},
+                {"pct: gpu_memory_percent == 100% AND gpu_power_percent < 5 FOR 1h", "gpu_memory_percent == 100 and gpu_power_percent < 5 for 1h"},
+        };
+        for (String[] c : cases) {
+            assertEquals(c[1], RuleParser.parseRule(c[0]).getExpression(), c[0]);
+        }
+    }
+
+    @Test
+    void hostOnlyRulesAreRecognized() {
+        assertTrue(RuleParser.parseRule("cpu: cpu_load > 90 and ram_used > 1000").isHost());
+        assertFalse(RuleParser.parseRule("mixed: cpu_load > 90 and gpu_utilization < 5").isHost());
+    }
+
+    @Test
+    void defaultsToLogAndSharesIdenticalActions() {
+        List<AlertRule> rules = RuleParser.parse(List.of(
+                "# комментарий",
+                "",
+                "a: gpu_temperature > 80",
+                "b: gpu_temperature > 90 -> log"));
+
+        assertEquals(2, rules.size());
+        assertTrue(rules.get(0).getActions().get(0) instanceof LogAction);
+        assertSame(rules.get(0).getActions().get(0), rules.get(1).getActions().get(0));
+    }
+
+    @Test
+    void durations() {
+        assertEquals(500, RuleParser.parseDuration("500ms"));
+        assertEquals(30_000, RuleParser.parseDuration("30s"));
+        assertEquals(600_000, RuleParser.parseDuration("10m"));
+        assertEquals(3_600_000, RuleParser.parseDuration("1h"));
+        assertEquals(0, RuleParser.parseDuration("0s"));
+        for (String invalid : new String[]{"", "10", "1d", "-5s", "1.5s", "s"}) {
+            assertThrows(IllegalArgumentException.class, () -> RuleParser.parseDuration(invalid), invalid);
+        }
+        assertEquals("1500ms", RuleParser.formatDuration(1500));
+        assertEquals("90s", RuleParser.formatDuration(90_000));
+        assertEquals("2h", RuleParser.formatDuration(7_200_000));
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        String[] invalid = {
+                "no colon here",
+                ": gpu_temperature > 1",
+                "bad name: gpu_temperature > 1",
+                "empty:",
+                "op: gpu_temperature => 1",
+                "unknown: gpu_voltage > 1",
+                "zero: avg(gpu_power, 0s) > 1",
+                "window: avg(gpu_power) > 1",
+                "hold: gpu_temperature > 1 for ever",
+                "action: gpu_temperature > 1 -> log,",
+                "kind: gpu_temperature > 1 -> pager",
+                "webhook: gpu_temperature > 1 -> webhook:ftp://host/x",
+        };
+        for (String line : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> RuleParser.parseRule(line), line);
+        }
+    }
+
+    @Test
+    void errorsNameTheLine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> RuleParser.parse(List.of(
+                "a: gpu_temperature > 80",
+                "# ok",
+                "a: gpu_temperature > 90")));
+        assertTrue(e.getMessage().startsWith("line 3: duplicate rule name a"), e.getMessage());
+    }
+}
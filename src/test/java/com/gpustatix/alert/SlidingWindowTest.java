@@ -0,0 +1,79 @@
+package com.gpustatix.alert;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowTest {
+    @Test
+    void sampleExactlyOneSpanOldIsEvicted() {
+        // Окно (now - span, now]: выборка ровно span назад уже не входит
+        AverageWindow average = new AverageWindow(1000);
+        ExtremumWindow max = new ExtremumWindow(1000, true);
+        assertEquals(10f, average.update(0, 10));
+        assertEquals(10f, max.update(0, 10));
+        assertEquals(15f, average.update(999, 20));
+        assertEquals(20f, max.update(999, 5 + 15));
+        assertEquals(20f, average.update(1000, 20));
+        assertEquals(20f, max.update(1000, 1));
+        assertEquals(10.5f, average.update(1999, 1));
+        assertEquals(1f, max.update(1999, 1));
+    }
+
+    @Test
+    void averageSkipsUnavailableReadings() {
+        AverageWindow window = new AverageWindow(10_000);
+        assertTrue(Float.isNaN(window.update(0, Float.NaN)));
+        assertEquals(4f, window.update(1000, 4));
+        assertEquals(4f, window.update(2000, Float.NaN));
+        assertEquals(5f, window.update(3000, 6));
+        // Все выборки вышли из окна, а новая недоступна
+        assertTrue(Float.isNaN(window.update(20_000, Float.NaN)));
+        assertEquals(7f, window.update(21_000, 7));
+    }
+
+    @Test
+    void averageMatchesARecomputedMeanWhileGrowing() {
+        AverageWindow window = new AverageWindow(5_000);
+        for (int t = 0; t < 20_000; t += 10) {
+            float value = (t * 7919) % 101;
+            float average = window.update(t, value);
+            double sum = 0;
+            int count = 0;
+            for (int s = Math.max(0, t - 4_990); s <= t; s += 10) {
+                sum += (s * 7919) % 101;
+                count++;
+            }
+            assertEquals(sum / count, average, 1e-3, "at " + t);
+        }
+    }
+
+    @Test
+    void extremaMatchABruteForceScan() {
+        ExtremumWindow min = new ExtremumWindow(300, false);
+        ExtremumWindow max = new ExtremumWindow(300, true);
+        float[] values = new float[200];
+        for (int i = 0; i < values.length; i++) {
+            // Повторы и плато проверяют сравнение с равными значениями
+            values[i] = (i * 37) % 11 / 2;
+            float expectedMin = Float.MAX_VALUE;
+            float expectedMax = -Float.MAX_VALUE;
+            for (int j = Math.max(0, i - 29); j <= i; j++) {
+                expectedMin = Math.min(expectedMin, values[j]);
+                expectedMax = Math.max(expectedMax, values[j]);
+            }
+            assertEquals(expectedMin, min.update(i * 10L, values[i]), "min at " + i);
+            assertEquals(expectedMax, max.update(i * 10L, values[i]), "max at " + i);
+        }
+    }
+
+    @Test
+    void extremumKeepsTheOlderValueUntilItExpires() {
+        ExtremumWindow max = new ExtremumWindow(100, true);
+        assertEquals(50f, max.update(0, 50));
+        assertEquals(50f, max.update(50, Float.NaN));
+        assertEquals(50f, max.update(99, 10));
+        assertEquals(10f, max.update(100, Float.NaN));
+        assertTrue(Float.isNaN(max.update(199, Float.NaN)));
+    }
+}
@@ -0,0 +1,87 @@
+package com.gpustatix.alert;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookActionTest {
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private volatile int status = 204;
+    private HttpServer server;
+
+    @BeforeEach
+    void startStandIn() throws IOException {
+        // Локальная подмена приёмника вебхуков
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/alerts", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            received.add(exchange.getRequestMethod() + " " + exchange.getRequestHeaders().getFirst("Content-Type")
+                    + " " + body);
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStandIn() {
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/alerts";
+    }
+
+    private static AlertEvent event(AlertEvent.State state) {
+        AlertRule rule = RuleParser.parseRule("hot: gpu_temperature > 85 for 10s");
+        return new AlertEvent(rule, 1, state, 1_700_000_000_000L, new float[]{90.5f});
+    }
+
+    @Test
+    void postsTheEventAsJson() throws Exception {
+        new WebhookAction(url(), Duration.ofSeconds(5)).execute(event(AlertEvent.State.FIRING));
+
+        String request = received.take();
+        assertTrue(request.startsWith("POST application/json {"), request);
+        assertTrue(request.contains("\"rule\":\"hot\",\"state\":\"firing\",\"device\":1,\"ts\":1700000000000"), request);
+        assertTrue(request.contains("\"values\":{\"gpu_temperature\":90.50}"), request);
+    }
+
+    @Test
+    void statusOutsideTwoHundredsIsAFailure() {
+        for (int code : new int[]{500, 404, 302}) {
+            status = code;
+            IOException e = assertThrows(IOException.class,
+                    () -> new WebhookAction(url(), Duration.ofSeconds(5)).execute(event(AlertEvent.State.RESOLVED)));
+            assertTrue(e.getMessage().endsWith("answered " + code), e.getMessage());
+        }
+        assertEquals(3, received.size(), "each event reached the stand-in once");
+    }
+
+    @Test
+    void unreachableStandInIsAFailure() {
+        String address = url();
+        server.stop(0);
+
+        assertThrows(IOException.class,
+                () -> new WebhookAction(address, Duration.ofSeconds(2)).execute(event(AlertEvent.State.FIRING)));
+    }
+
+    @Test
+    void onlyHttpUrlsAreAccepted() {
+        for (String url : new String[]{"", "   ", "ftp://127.0.0.1/alerts", "file:///tmp/alerts", "127.0.0.1:9090"}) {
+            assertThrows(IllegalArgumentException.class, () -> new WebhookAction(url, Duration.ofSeconds(1)), url);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.gpustatix.batch;
+
+import com.gpustatix.db.JdbcSampleSink;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactionWatermarkTest {
+    private static final long HOUR = HourlyAggregateReader.HOUR_MILLIS;
+    private static int databases;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void createSchema() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:compaction" + (databases++) + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(h2);
+        for (String sql : JdbcSampleSink.schemaSql(JdbcSampleSink.TABLE)) {
+            jdbc.execute(sql);
+        }
+        for (String sql : HourlyAggregateWriter.schemaSql()) {
+            jdbc.execute(sql);
+        }
+    }
+
+    private void raw(int device, long ts) {
+        jdbc.update("INSERT INTO " + JdbcSampleSink.TABLE + " (ts, device) VALUES (?, ?)", ts, device);
+    }
+
+    private void compacted(int device, long hour, int rawRows) {
+        jdbc.update("INSERT INTO " + HourlyAggregateWriter.LEDGER_TABLE + " (device, hour_ts, raw_rows) VALUES (?, ?, ?)",
+                device, hour, rawRows);
+    }
+
+    private long rawCount(int device) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + JdbcSampleSink.TABLE + " WHERE device = ?",
+                Long.class, device);
+    }
+
+    @Test
+    void hourWithLateRowsIsAggregatedAgain() {
+        for (long hour = 0; hour < 3; hour++) {
+            raw(0, hour * HOUR + 10);
+            raw(0, hour * HOUR + 20);
+            compacted(0, hour * HOUR, 2);
+        }
+        raw(0, 3 * HOUR + 5);
+        // Строка пришла после того, как её час был агрегирован
+        raw(0, HOUR + 30);
+
+        Map<String, ExecutionContext> partitions = new DeviceRangePartitioner(jdbc, 4 * HOUR, 0, 24).partition(4);
+
+        assertEquals(2, partitions.size());
+        ExecutionContext late = partitions.get("device0-late-" + HOUR);
+        assertNotNull(late);
+        assertEquals(HOUR, late.getLong(DeviceRangePartitioner.FROM));
+        assertEquals(2 * HOUR, late.getLong(DeviceRangePartitioner.TO));
+        ExecutionContext next = partitions.get("device0-" + 3 * HOUR);
+        assertNotNull(next);
+        assertEquals(4 * HOUR, next.getLong(DeviceRangePartitioner.TO));
+    }
+
+    @Test
+    void lateHoursBeforeTheRecheckStartAreLeftToRetention() {
+        raw(0, 10);
+        raw(0, 20);
+        compacted(0, 0, 1);
+
+        Map<String, ExecutionContext> partitions = new DeviceRangePartitioner(jdbc, HOUR, HOUR, 24).partition(4);
+
+        assertTrue(partitions.isEmpty());
+    }
+
+    @Test
+    void retentionStopsAtTheCompactionWatermarkOfEachDevice() throws Exception {
+        for (long hour = 0; hour < 4; hour++) {
+            raw(0, hour * HOUR + 1);
+            raw(1, hour * HOUR + 1);
+        }
+        compacted(0, 0, 1);
+        compacted(0, HOUR, 1);
+
+        RawRetentionTasklet tasklet = new RawRetentionTasklet(jdbc, 3 * HOUR, false);
+        StepContribution contribution = new StepContribution(new StepExecution("rawRetention", new JobExecution(1L)));
+        int calls = 0;
+        while (tasklet.execute(contribution, null) == RepeatStatus.CONTINUABLE) {
+            assertTrue(++calls < 10);
+        }
+
+        assertEquals(2, rawCount(0), "hours after the watermark are kept");
+        assertEquals(4, rawCount(1), "a device without compacted hours is kept");
+        assertEquals(2, contribution.getWriteCount());
+    }
+}
@@ -0,0 +1,66 @@
+package com.gpustatix.cli;
+
+import com.gpustatix.export.SampleExporter;
+import com.gpustatix.history.HistoryQueryEngine;
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.SampleLog;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportCommandTest {
+    @TempDir
+    Path dir;
+
+    private void record() throws IOException {
+        try (SampleLog log = new SampleLog(dir, 4096, 0, 0, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                HostSnapshot host = new HostSnapshot();
+                host.setTimestampMillis(1000 + i * 1000L);
+                host.setCpuLoad(50);
+                GpuSnapshot gpu0 = new GpuSnapshot(0);
+                gpu0.setTemperature(40 + i);
+                GpuSnapshot gpu1 = new GpuSnapshot(1);
+                gpu1.setTemperature(70);
+                log.onSample(host, List.of(gpu0, gpu1));
+            }
+        }
+    }
+
+    private String summary(Metric metric, long from, long to, int device) throws IOException {
+        StringWriter out = new StringWriter();
+        try (SampleLog log = SampleLog.openReadOnly(dir)) {
+            ExportCommand.writeSummary(new HistoryQueryEngine(log), metric, from, to, device, out);
+        }
+        return out.toString();
+    }
+
+    @Test
+    void summaryHasOneLinePerDeviceWithValues() throws IOException {
+        record();
+        assertEquals("device,count,min,avg,max\n0,10,40.0,44.5,49.0\n1,10,70.0,70.0,70.0\n",
+                summary(Metric.GPU_TEMPERATURE, 0, Long.MAX_VALUE, SampleExporter.ALL_DEVICES));
+        // Интервал и устройство сужают выборку
+        assertEquals("device,count,min,avg,max\n0,3,42.0,43.0,44.0\n",
+                summary(Metric.GPU_TEMPERATURE, 3000, 5000, 0));
+        assertEquals("device,count,min,avg,max\n-1,10,50.0,50.0,50.0\n",
+                summary(Metric.CPU_LOAD, 0, Long.MAX_VALUE, MetricStore.HOST));
+        assertEquals("device,count,min,avg,max\n", summary(Metric.GPU_TEMPERATURE, 20_000, 30_000, 0));
+    }
+
+    @Test
+    void parsesEpochIsoAndLocalTimes() {
+        assertEquals(1_706_695_200_000L, ExportCommand.parseTime("1706695200000"));
+        assertEquals(1_706_695_200_000L, ExportCommand.parseTime("2024-01-31T10:00:00Z"));
+        assertTrue(ExportCommand.parseTime("2024-01-31") <= ExportCommand.parseTime("2024-01-31T10:00:00"));
+    }
+}
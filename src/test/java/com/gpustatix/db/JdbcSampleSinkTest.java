@@ -0,0 +1,138 @@
+package com.gpustatix.db;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcSampleSinkTest {
+    private static final int SPILL_RECORD_SIZE = 12 + Metric.count() * 4;
+
+    @TempDir
+    Path dir;
+
+    private static void feed(JdbcSampleSink sink, int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            HostSnapshot host = new HostSnapshot();
+            host.setTimestampMillis(1000L * t);
+            host.setCpuLoad(12.5f);
+            GpuSnapshot gpu = new GpuSnapshot(0);
+            gpu.setTimestampMillis(1000L * t);
+            gpu.setTemperature(60 + t);
+            gpu.setPowerUsage(150.25f);
+            sink.onSample(host, List.of(gpu));
+        }
+    }
+
+    @Test
+    void writesFullAndPartialBatchesToH2() throws SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sink;DB_CLOSE_DELAY=-1");
+        // 7 тиков по 2 строки: три полных пакета по 4 и один неполный
+        JdbcSampleSink sink = new JdbcSampleSink(h2, 4, 10, 64, dir.resolve("spill.bin"), 1 << 20);
+        feed(sink, 7);
+        sink.close();
+
+        assertEquals(14, sink.getWrittenCount());
+        assertEquals(0, sink.getDroppedCount());
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM gpu_sample")) {
+                assertTrue(rs.next());
+                assertEquals(14, rs.getInt(1));
+            }
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT gpu_temperature, gpu_power, cpu_load FROM gpu_sample WHERE device = 0 AND ts = 6000")) {
+                assertTrue(rs.next());
+                assertEquals(66f, rs.getFloat(1));
+                assertEquals(150.25f, rs.getFloat(2));
+                rs.getFloat(3);
+                assertTrue(rs.wasNull(), "host metric is NULL in a GPU row");
+            }
+        }
+    }
+
+    @Test
+    void spillsToDiskWhileTheDatabaseIsDown() throws Exception {
+        Path spill = dir.resolve("spill.bin");
+        JdbcSampleSink sink = new JdbcSampleSink(new UnreachableDataSource(), 4, 10, 64, spill, 1 << 20);
+        feed(sink, 5);
+        sink.close();
+
+        assertEquals(0, sink.getWrittenCount());
+        assertEquals(10, sink.getSpilledCount());
+        assertEquals(0, sink.getDroppedCount());
+        assertEquals(10L * SPILL_RECORD_SIZE, Files.size(spill));
+    }
+
+    @Test
+    void dropsAndCountsBeyondTheSpillLimit() {
+        Path spill = dir.resolve("spill.bin");
+        JdbcSampleSink sink = new JdbcSampleSink(new UnreachableDataSource(), 4, 10, 64, spill,
+                3L * SPILL_RECORD_SIZE);
+        feed(sink, 5);
+        sink.close();
+
+        assertEquals(3, sink.getSpilledCount());
+        assertEquals(7, sink.getDroppedCount());
+    }
+
+    private static class UnreachableDataSource implements DataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            throw new SQLException("connection refused");
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("not a wrapper");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gpustatix.db;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleQueueTest {
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertEquals(8, new SampleQueue(5, 2).capacity());
+        assertEquals(8, new SampleQueue(8, 2).capacity());
+        assertEquals(16, new SampleQueue(9, 2).capacity());
+    }
+
+    @Test
+    void rejectsRowsWhenFullAndAcceptsAfterDrain() {
+        SampleQueue queue = new SampleQueue(4, 2);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i, i, new float[]{i, -i}));
+        }
+        assertFalse(queue.offer(4, 4, new float[]{4, -4}));
+        assertEquals(4, queue.size());
+
+        long[] timestamps = new long[8];
+        short[] devices = new short[8];
+        float[] values = new float[16];
+        assertEquals(3, queue.drainTo(timestamps, devices, values, 0, 3));
+        assertTrue(queue.offer(5, 5, new float[]{5, -5}));
+        assertEquals(2, queue.drainTo(timestamps, devices, values, 3, 8));
+        assertTrue(queue.isEmpty());
+
+        assertArrayEquals(new long[]{0, 1, 2, 3, 5, 0, 0, 0}, timestamps);
+        assertEquals(5, devices[4]);
+        assertEquals(3f, values[6]);
+        assertEquals(-5f, values[9]);
+    }
+
+    @Test
+    void keepsOrderAcrossManyWraps() {
+        SampleQueue queue = new SampleQueue(8, 1);
+        long[] timestamps = new long[3];
+        short[] devices = new short[3];
+        float[] values = new float[3];
+        long next = 0;
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(queue.offer(round * 3L + i, -1, new float[]{round * 3 + i}));
+            }
+            assertEquals(3, queue.drainTo(timestamps, devices, values, 0, 3));
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next, timestamps[i]);
+                assertEquals(next, (long) values[i]);
+                assertEquals(-1, devices[i]);
+                next++;
+            }
+        }
+    }
+}
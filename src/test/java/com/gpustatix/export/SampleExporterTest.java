@@ -0,0 +1,246 @@
+package com.gpustatix.export;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.history.MetricStore;
+import com.gpustatix.history.SampleLog;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleExporterTest {
+    // Больше одной группы строк колоночного формата (8192)
+    private static final int TICKS = 3500;
+    private static final int GPUS = 2;
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private Path logDir;
+    /** Записи журнала, прочитанные обратно: то, что должен содержать любой экспорт */
+    private final List<Row> expected = new ArrayList<>();
+
+    private static class Row {
+        final long timestamp;
+        final int device;
+        final float[] values = new float[Metric.count()];
+
+        Row(long timestamp, int device) {
+            this.timestamp = timestamp;
+            this.device = device;
+        }
+    }
+
+    @BeforeEach
+    void record() throws Exception {
+        logDir = dir.resolve("log");
+        SampleLog log = new SampleLog(logDir, 1 << 16, 0, 0, 1000);
+        for (int i = 0; i < TICKS; i++) {
+            HostSnapshot host = new HostSnapshot();
+            host.setTimestampMillis(START + i * 1000L);
+            host.setCpuLoad(i % 100);
+            List<GpuSnapshot> gpus = new ArrayList<>();
+            for (int g = 0; g < GPUS; g++) {
+                GpuSnapshot gpu = new GpuSnapshot(g);
+                gpu.setTemperature(40 + (i + g) % 30);
+                gpu.setCoreClock(1500 + g);
+                gpu.setPowerUsage(100.25f + (i % 4) * 0.5f);
+                gpus.add(gpu);
+            }
+            // Очередь писателя переполнена - подождать и отправить тот же тик ещё раз
+            long dropped = log.getDroppedCount();
+            log.onSample(host, gpus);
+            while (log.getDroppedCount() != dropped) {
+                Thread.sleep(1);
+                dropped = log.getDroppedCount();
+                log.onSample(host, gpus);
+            }
+        }
+        log.close();
+
+        try (SampleLog reader = SampleLog.openReadOnly(logDir)) {
+            reader.scan(Long.MIN_VALUE, Long.MAX_VALUE, record -> {
+                Row row = new Row(record.getTimestamp(), record.getDevice());
+                for (Metric metric : Metric.values()) {
+                    row.values[metric.ordinal()] = record.getValue(metric);
+                }
+                expected.add(row);
+                return true;
+            });
+        }
+        assertEquals(TICKS * (GPUS + 1), expected.size());
+    }
+
+    private long export(ExportFormat format, int device, long from, long to, Path target) throws IOException {
+        try (SampleLog log = SampleLog.openReadOnly(logDir)) {
+            return new SampleExporter(log, format, device).export(from, to, target);
+        }
+    }
+
+    private List<Row> expected(int device, long from, long to) {
+        List<Row> rows = new ArrayList<>();
+        for (Row row : expected) {
+            if ((device == SampleExporter.ALL_DEVICES || row.device == device)
+                    && row.timestamp >= from && row.timestamp <= to) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static void assertRow(Row expected, Row actual, String label) {
+        assertEquals(expected.timestamp, actual.timestamp, label);
+        assertEquals(expected.device, actual.device, label);
+        assertArrayEquals(expected.values, actual.values, label);
+    }
+
+    @Test
+    void csvRoundTripsEveryValue() throws IOException {
+        Path target = dir.resolve("out.csv");
+        assertEquals(expected.size(), export(ExportFormat.CSV, SampleExporter.ALL_DEVICES, 0, Long.MAX_VALUE, target));
+
+        List<String> lines = Files.readAllLines(target);
+        StringBuilder header = new StringBuilder("timestamp,device");
+        for (Metric metric : Metric.values()) {
+            header.append(',').append(metric.getKey());
+        }
+        assertEquals(header.toString(), lines.get(0));
+        assertEquals(expected.size() + 1, lines.size());
+        for (int i = 1; i < lines.size(); i++) {
+            String[] fields = lines.get(i).split(",", -1);
+            assertEquals(2 + Metric.count(), fields.length, lines.get(i));
+            Row row = new Row(Long.parseLong(fields[0]), Integer.parseInt(fields[1]));
+            for (int m = 0; m < Metric.count(); m++) {
+                // Пустое поле - значения нет
+                row.values[m] = fields[2 + m].isEmpty() ? Float.NaN : Float.parseFloat(fields[2 + m]);
+            }
+            assertRow(expected.get(i - 1), row, lines.get(i));
+        }
+    }
+
+    @Test
+    void ndjsonOmitsMissingValuesAndFiltersByDeviceAndTime() throws IOException {
+        Path target = dir.resolve("out.ndjson");
+        long from = START + 100_000;
+        long to = START + 199_000;
+        List<Row> rows = expected(1, from, to);
+        assertEquals(100, rows.size());
+        assertEquals(rows.size(), export(ExportFormat.NDJSON, 1, from, to, target));
+
+        List<String> lines = Files.readAllLines(target);
+        assertEquals(rows.size(), lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            Row row = rows.get(i);
+            StringBuilder json = new StringBuilder("{\"timestamp\":" + row.timestamp + ",\"device\":1");
+            for (Metric metric : Metric.values()) {
+                float value = row.values[metric.ordinal()];
+                if (!Float.isNaN(value)) {
+                    json.append(",\"").append(metric.getKey()).append("\":")
+                            .append(value == (int) value ? String.valueOf((int) value) : String.valueOf(value));
+                }
+            }
+            assertEquals(json.append('}').toString(), lines.get(i));
+        }
+        assertTrue(lines.get(0).contains("\"gpu_power\":100.25") || lines.get(0).contains("\"gpu_power\":100.75"),
+                lines.get(0));
+    }
+
+    @Test
+    void columnarRoundTripsThroughTheFooter() throws IOException {
+        Path target = dir.resolve("out.gcol");
+        assertEquals(expected.size(), export(ExportFormat.COLUMNAR, SampleExporter.ALL_DEVICES, 0, Long.MAX_VALUE,
+                target));
+
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(target)).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+        file.get(magic);
+        assertArrayEquals(ColumnarWriter.MAGIC, magic);
+        file.position(file.limit() - magic.length);
+        file.get(magic);
+        assertArrayEquals(ColumnarWriter.MAGIC, magic);
+
+        int footerLength = file.getInt(file.limit() - magic.length - 4);
+        file.position(file.limit() - magic.length - 4 - footerLength);
+        int columnCount = file.getInt();
+        assertEquals(2 + Metric.count(), columnCount);
+        String[] names = new String[columnCount];
+        byte[] types = new byte[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            types[c] = file.get();
+            byte[] name = new byte[file.getShort()];
+            file.get(name);
+            names[c] = new String(name, StandardCharsets.UTF_8);
+        }
+        assertEquals("ts", names[0]);
+        assertEquals(ColumnarWriter.TYPE_LONG, types[0]);
+        assertEquals("device", names[1]);
+        assertEquals(ColumnarWriter.TYPE_SHORT, types[1]);
+        for (Metric metric : Metric.values()) {
+            assertEquals(metric.getKey(), names[2 + metric.ordinal()]);
+            assertEquals(ColumnarWriter.TYPE_FLOAT, types[2 + metric.ordinal()]);
+        }
+
+        int groupCount = file.getInt();
+        assertEquals(2, groupCount);
+        int next = 0;
+        for (int g = 0; g < groupCount; g++) {
+            long offset = file.getLong();
+            int rows = file.getInt();
+            long min = file.getLong();
+            long max = file.getLong();
+            assertEquals(expected.get(next).timestamp, min);
+            assertEquals(expected.get(next + rows - 1).timestamp, max);
+
+            // Колонки группы лежат подряд: ts, device, затем метрики
+            ByteBuffer group = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            group.position((int) offset);
+            Row[] decoded = new Row[rows];
+            long[] timestamps = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                timestamps[i] = group.getLong();
+            }
+            for (int i = 0; i < rows; i++) {
+                decoded[i] = new Row(timestamps[i], group.getShort());
+            }
+            for (int m = 0; m < Metric.count(); m++) {
+                for (int i = 0; i < rows; i++) {
+                    decoded[i].values[m] = group.getFloat();
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                assertRow(expected.get(next + i), decoded[i], "group " + g + " row " + i);
+            }
+            next += rows;
+        }
+        assertEquals(expected.size(), next);
+    }
+
+    @Test
+    void emptyRangeStillWritesAValidFile() throws IOException {
+        Path csv = dir.resolve("empty.csv");
+        assertEquals(0, export(ExportFormat.CSV, MetricStore.HOST, 0, START - 1, csv));
+        assertEquals(1, Files.readAllLines(csv).size());
+
+        Path columnar = dir.resolve("empty.gcol");
+        assertEquals(0, export(ExportFormat.COLUMNAR, SampleExporter.ALL_DEVICES, 0, START - 1, columnar));
+        byte[] bytes = Files.readAllBytes(columnar);
+        assertArrayEquals(ColumnarWriter.MAGIC, Arrays.copyOf(bytes, ColumnarWriter.MAGIC.length));
+        // Число групп - последнее поле футера перед его длиной: ни одной группы
+        ByteBuffer tail = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0, tail.getInt(bytes.length - ColumnarWriter.MAGIC.length - 8));
+    }
+}
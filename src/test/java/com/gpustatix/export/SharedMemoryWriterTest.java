@@ -0,0 +1,95 @@
+package com.gpustatix.export;
+
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedMemoryWriterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readerSeesThePublishedSample() throws IOException {
+        Path path = dir.resolve("gpustatix");
+        SharedMemoryWriter writer = new SharedMemoryWriter(new OneGpu(), path);
+        GpuSnapshot gpu = new GpuSnapshot(0);
+        gpu.setTimestampMillis(1_700_000_000_000L);
+        gpu.setTemperature(64);
+        gpu.setPowerUsage(201.5f);
+        HostSnapshot host = new HostSnapshot();
+        host.setTimestampMillis(1_700_000_000_000L);
+        host.setRamUsedMb(8192);
+        writer.onSample(host, List.of(gpu));
+
+        try (SharedMemoryReader reader = SharedMemoryReader.open(path)) {
+            assertEquals(1, reader.getDeviceCount());
+            assertEquals("Test GPU", reader.getDeviceName(0));
+            assertTrue(reader.isWriterAlive());
+            GpuSnapshot copy = new GpuSnapshot(0);
+            assertTrue(reader.read(0, copy));
+            assertEquals(64, copy.getTemperature());
+            assertEquals(201.5f, copy.getPowerUsage());
+            HostSnapshot hostCopy = new HostSnapshot();
+            assertTrue(reader.readHost(hostCopy));
+            assertEquals(8192, hostCopy.getRamUsedMb());
+
+            writer.close();
+            assertFalse(reader.isWriterAlive());
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void secondWriterDoesNotReplaceALiveOne() throws IOException {
+        Path path = dir.resolve("gpustatix");
+        SharedMemoryWriter first = new SharedMemoryWriter(new OneGpu(), path);
+
+        IOException e = assertThrows(IOException.class, () -> new SharedMemoryWriter(new OneGpu(), path));
+        assertTrue(e.getMessage().contains("another writer"), e.getMessage());
+        // Файл живого писателя не тронут
+        try (SharedMemoryReader reader = SharedMemoryReader.open(path)) {
+            assertTrue(reader.isWriterAlive());
+        }
+
+        first.close();
+        // После закрытия путь снова свободен
+        SharedMemoryWriter second = new SharedMemoryWriter(new OneGpu(), path);
+        assertTrue(Files.exists(path));
+        second.close();
+    }
+
+    private static class OneGpu implements GpuBackend {
+        @Override
+        public int getDeviceCount() {
+            return 1;
+        }
+
+        @Override
+        public String getDeviceName(int device) {
+            return "Test GPU";
+        }
+
+        @Override
+        public String getPciAddress(int device) {
+            return "0000:01:00.0";
+        }
+
+        @Override
+        public boolean sample(int device, GpuSnapshot snapshot) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
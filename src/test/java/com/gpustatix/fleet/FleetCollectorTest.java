@@ -0,0 +1,236 @@
+package com.gpustatix.fleet;
+
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetCollectorTest {
+    private static final int AGENTS = 12;
+    private static final int GPUS = 2;
+    private static final int SAMPLES = 20;
+    private static final int PROCESSES = 3;
+
+    private FleetCollector collector;
+    private final List<FleetAgent> agents = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+
+    @BeforeEach
+    void start() throws IOException {
+        collector = new FleetCollector(new InetSocketAddress("127.0.0.1", 0), new InetSocketAddress("127.0.0.1", 0),
+                3, 10_000, 5);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        for (FleetAgent agent : agents) {
+            agent.close();
+        }
+        // Закрытый stdin - сигнал агенту-процессу завершиться
+        for (Process process : processes) {
+            process.getOutputStream().close();
+        }
+        for (Process process : processes) {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+        collector.close();
+    }
+
+    private static List<GpuSnapshot> sample(int agent, int step) {
+        List<GpuSnapshot> gpus = new ArrayList<>(GPUS);
+        for (int g = 0; g < GPUS; g++) {
+            GpuSnapshot gpu = new GpuSnapshot(g);
+            gpu.setTimestampMillis(1_700_000_000_000L + step * 1000L);
+            gpu.setTemperature(40 + agent + g + step % 3);
+            gpu.setUtilization(90);
+            gpu.setCoreClock(1800 - step);
+            gpu.setPowerUsage(100.5f + agent);
+            gpu.setPowerLimit(300);
+            gpus.add(gpu);
+        }
+        return gpus;
+    }
+
+    private static HostSnapshot host(int step) {
+        HostSnapshot host = new HostSnapshot();
+        host.setTimestampMillis(1_700_000_000_000L + step * 1000L);
+        host.setCpuLoad(step);
+        return host;
+    }
+
+    @Test
+    void everyAgentOnLoopbackEndsAtItsNewestSample() throws Exception {
+        InetSocketAddress address = collector.getAgentAddress();
+        for (int a = 0; a < AGENTS; a++) {
+            agents.add(new FleetAgent(new Gpus(GPUS), address, "agent-" + a));
+        }
+        for (int step = 0; step < SAMPLES; step++) {
+            for (int a = 0; a < AGENTS; a++) {
+                agents.get(a).onSample(host(step), sample(a, step));
+            }
+            Thread.sleep(5);
+        }
+
+        // Последняя выборка каждого агента, если её пропустили - ждём, пока дойдёт
+        int last = SAMPLES - 1;
+        long deadline = System.currentTimeMillis() + 10_000;
+        List<FleetStore.GpuView> gpus;
+        while (true) {
+            gpus = collector.getStore().list(System.currentTimeMillis());
+            if (gpus.size() == AGENTS * GPUS && allAtStep(gpus, last) || System.currentTimeMillis() > deadline) {
+                break;
+            }
+            for (int a = 0; a < AGENTS; a++) {
+                agents.get(a).onSample(host(last), sample(a, last));
+            }
+            Thread.sleep(50);
+        }
+
+        assertEquals(AGENTS * GPUS, gpus.size());
+        for (FleetStore.GpuView gpu : gpus) {
+            int agent = Integer.parseInt(gpu.getHost().substring("agent-".length()));
+            assertEquals("127.0.0.1", gpu.getAddress());
+            assertEquals("GPU " + gpu.getGpu(), gpu.getName());
+            assertEquals(40 + agent + gpu.getGpu() + last % 3, gpu.getTemperature(), gpu.getHost());
+            assertEquals(100.5f + agent, gpu.getPowerWatts());
+            assertFalse(gpu.isStale());
+        }
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + collector.getHttpAddress().getPort() + "/fleet")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"hosts\":" + AGENTS + ",\"stale_hosts\":0,\"gpus\":" + AGENTS * GPUS),
+                response.body());
+        // Пять самых горячих - у агентов с наибольшими номерами
+        assertTrue(response.body().contains("\"hottest\":[{\"host\":\"agent-" + (AGENTS - 1) + "\",\"address\":\"127.0.0.1\",\"gpu\":1"),
+                response.body());
+    }
+
+    @Test
+    void agentsInSeparateProcessesReachTheCollector() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        int port = collector.getAgentAddress().getPort();
+        for (int a = 0; a < PROCESSES; a++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    AgentProcess.class.getName(), String.valueOf(port), String.valueOf(a))
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        }
+
+        // Запуск JVM небыстрый - ждём дольше, чем для агентов в потоках
+        int last = SAMPLES - 1;
+        long deadline = System.currentTimeMillis() + 30_000;
+        List<FleetStore.GpuView> gpus;
+        while (true) {
+            gpus = collector.getStore().list(System.currentTimeMillis());
+            if (gpus.size() == PROCESSES * GPUS && allAtStep(gpus, last) || System.currentTimeMillis() > deadline) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+
+        assertEquals(PROCESSES * GPUS, gpus.size());
+        for (FleetStore.GpuView gpu : gpus) {
+            int agent = Integer.parseInt(gpu.getHost().substring("agent-".length()));
+            assertEquals("127.0.0.1", gpu.getAddress());
+            assertEquals(40 + agent + gpu.getGpu() + last % 3, gpu.getTemperature(), gpu.getHost());
+            assertEquals(100.5f + agent, gpu.getPowerWatts());
+            assertFalse(gpu.isStale());
+        }
+        for (Process process : processes) {
+            assertTrue(process.isAlive());
+        }
+    }
+
+    private static boolean allAtStep(List<FleetStore.GpuView> gpus, int step) {
+        for (FleetStore.GpuView gpu : gpus) {
+            int agent = Integer.parseInt(gpu.getHost().substring("agent-".length()));
+            if (gpu.getTemperature() != 40 + agent + gpu.getGpu() + step % 3 || gpu.getThrottlePercent() != step * 100 / 1800) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Агент в отдельной JVM: аргументы - порт сборщика и номер агента.
+     * Шлёт SAMPLES выборок, потом повторяет последнюю, пока не закроют stdin
+     */
+    static class AgentProcess {
+        public static void main(String[] args) throws Exception {
+            int agent = Integer.parseInt(args[1]);
+            FleetAgent fleetAgent = new FleetAgent(new Gpus(GPUS),
+                    new InetSocketAddress("127.0.0.1", Integer.parseInt(args[0])), "agent-" + agent);
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread watcher = new Thread(() -> {
+                try {
+                    while (System.in.read() >= 0) {
+                        // ждём EOF
+                    }
+                } catch (IOException ignored) {
+                }
+                running.set(false);
+            });
+            watcher.setDaemon(true);
+            watcher.start();
+
+            for (int step = 0; running.get(); step = Math.min(step + 1, SAMPLES - 1)) {
+                fleetAgent.onSample(host(step), sample(agent, step));
+                Thread.sleep(step < SAMPLES - 1 ? 5 : 50);
+            }
+            fleetAgent.close();
+        }
+    }
+
+    private static class Gpus implements GpuBackend {
+        private final int count;
+
+        Gpus(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int getDeviceCount() {
+            return count;
+        }
+
+        @Override
+        public String getDeviceName(int device) {
+            return "GPU " + device;
+        }
+
+        @Override
+        public String getPciAddress(int device) {
+            return "0000:0" + (device + 1) + ":00.0";
+        }
+
+        @Override
+        public boolean sample(int device, GpuSnapshot snapshot) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.gpustatix.fleet;
+
+import com.gpustatix.alert.AnomalyModel;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetStoreTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final FleetStore store = new FleetStore(10_000, new AnomalyModel(100, 10, 4, 20, 5));
+
+    private void report(FleetStore.HostEntry entry, int temperature, int clock) {
+        GpuSnapshot gpu = new GpuSnapshot(0);
+        gpu.setTemperature(temperature);
+        gpu.setUtilization(95);
+        gpu.setCoreClock(clock);
+        store.update(entry, new HostSnapshot(), new GpuSnapshot[]{gpu}, 1, NOW);
+    }
+
+    @Test
+    void sameNameFromTwoAddressesIsTwoHosts() {
+        report(store.register("worker", "10.0.0.1", new String[]{"A"}), 60, 1800);
+        report(store.register("worker", "10.0.0.2", new String[]{"B"}), 80, 1900);
+
+        List<FleetStore.GpuView> gpus = store.list(NOW);
+        assertEquals(2, gpus.size());
+        assertEquals("10.0.0.1", gpus.get(0).getAddress());
+        assertEquals(60, gpus.get(0).getTemperature());
+        assertEquals("10.0.0.2", gpus.get(1).getAddress());
+        assertEquals(80, gpus.get(1).getTemperature());
+        assertEquals(2, store.summarize(5, NOW).getHosts());
+    }
+
+    @Test
+    void reconnectFromTheSameAddressKeepsTheEntry() {
+        report(store.register("worker", "10.0.0.1", new String[]{"A"}), 60, 2000);
+        // Новое соединение с другого порта того же адреса
+        FleetStore.HostEntry again = store.register("worker", "10.0.0.1", new String[]{"A"});
+        report(again, 70, 1500);
+
+        List<FleetStore.GpuView> gpus = store.list(NOW);
+        assertEquals(1, gpus.size());
+        assertEquals(70, gpus.get(0).getTemperature());
+        // Пиковая частота пережила переподключение, поэтому троттлинг виден сразу
+        assertEquals(25, gpus.get(0).getThrottlePercent());
+    }
+
+    @Test
+    void everyObservedSampleReachesTheAnomalyModel() {
+        FleetStore.HostEntry entry = store.register("worker", "10.0.0.1", new String[]{"A"});
+        GpuSnapshot gpu = new GpuSnapshot(0);
+        gpu.setTemperature(65);
+        gpu.setUtilization(95);
+        gpu.setPowerUsage(250);
+        // Пачка из сотни выборок даёт одно обновление хранилища, но модель видит все
+        for (int i = 0; i < 300; i++) {
+            gpu.setFanSpeed(i < 200 ? 70 : 40);
+            store.observe(entry, new GpuSnapshot[]{gpu}, 1);
+            if (i % 100 == 99) {
+                store.update(entry, new HostSnapshot(), new GpuSnapshot[]{gpu}, 1, NOW);
+            }
+        }
+
+        int fanSpeed = 1 << AnomalyModel.Stat.FAN_SPEED.ordinal();
+        assertEquals(fanSpeed, store.list(NOW).get(0).getAnomalies());
+        assertEquals(1, store.summarize(5, NOW).getAnomalous().size());
+    }
+
+    @Test
+    void staleHostsAreCountedButNotAggregated() {
+        report(store.register("old", "10.0.0.1", new String[]{"A"}), 90, 1800);
+
+        FleetStore.Summary summary = store.summarize(5, NOW + 20_000);
+        assertEquals(1, summary.getHosts());
+        assertEquals(1, summary.getStaleHosts());
+        assertEquals(0, summary.getGpus());
+        assertTrue(summary.getHottest().isEmpty());
+        assertTrue(store.list(NOW + 20_000).get(0).isStale());
+    }
+}
@@ -0,0 +1,85 @@
+package com.gpustatix.history;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkEncoderTest {
+    private static final Metric[] COLUMNS = {Metric.GPU_TEMPERATURE, Metric.GPU_POWER};
+
+    private static void assertRoundTrip(long[] timestamps, float[][] rows) {
+        ChunkEncoder encoder = new ChunkEncoder(COLUMNS);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], rows[i]);
+        }
+        BitWriter out = encoder.getOutput();
+        ChunkDecoder decoder = new ChunkDecoder(COLUMNS);
+        decoder.wrap(out.array(), 0, out.bitLength(), encoder.getCount());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue(decoder.next(), "sample " + i);
+            assertEquals(timestamps[i], decoder.getTimestamp(), "timestamp " + i);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                assertEquals(rows[i][c], decoder.getValue(c), "value " + i + "/" + c);
+            }
+        }
+        assertFalse(decoder.next());
+    }
+
+    /**
+     * Two samples 1000 ms apart, then one whose interval differs by dod
+     */
+    private static void assertDeltaOfDelta(long dod) {
+        long base = 1_700_000_000_000L;
+        long[] timestamps = {base, base + 1000, base + 2000 + dod};
+        float[][] rows = {{60, 120.5f}, {61, 121.25f}, {59, 118f}};
+        assertRoundTrip(timestamps, rows);
+    }
+
+    @Test
+    void deltaOfDeltaRoundTripsAtEveryClassBoundary() {
+        long[] boundaries = {0, 1, -1, 63, -64, 64, -65, 255, -256, 256, -257, 2047, -2048, 2048, -2049};
+        for (long dod : boundaries) {
+            assertDeltaOfDelta(dod);
+        }
+    }
+
+    @Test
+    void deltaOfDeltaBeyondThirtyTwoBitsRoundTrips() {
+        // Разрыв записи больше 24 дней
+        assertDeltaOfDelta(30L * 24 * 3600 * 1000);
+        assertDeltaOfDelta(-1500);
+    }
+
+    @Test
+    void boundaryValuesUseTheNarrowClass() {
+        assertEquals(bitsFor(63), bitsFor(-64));
+        assertTrue(bitsFor(64) > bitsFor(63));
+        assertEquals(bitsFor(255), bitsFor(-256));
+        assertTrue(bitsFor(256) > bitsFor(255));
+        assertEquals(bitsFor(2047), bitsFor(-2048));
+        assertTrue(bitsFor(2048) > bitsFor(2047));
+    }
+
+    private static long bitsFor(long dod) {
+        ChunkEncoder encoder = new ChunkEncoder(COLUMNS);
+        float[] row = {60, 100};
+        encoder.add(0, row);
+        encoder.add(1000, row);
+        long before = encoder.getOutput().bitLength();
+        encoder.add(2000 + dod, row);
+        return encoder.getOutput().bitLength() - before;
+    }
+
+    @Test
+    void integerAndFloatColumnsRoundTrip() {
+        int n = 500;
+        long[] timestamps = new long[n];
+        float[][] rows = new float[n][];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = i * 100L + (i % 7 == 0 ? 3 : 0);
+            int temperature = i % 50 == 0 ? 100_000 * (i % 3) - 70_000 : 40 + (i % 30);
+            rows[i] = new float[]{temperature, i % 11 == 0 ? Float.NaN : 80 + (float) Math.sin(i) * 40};
+        }
+        assertRoundTrip(timestamps, rows);
+    }
+}
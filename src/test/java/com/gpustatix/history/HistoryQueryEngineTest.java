@@ -0,0 +1,120 @@
+package com.gpustatix.history;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryQueryEngineTest {
+    private static final int GPUS = 3;
+    private static final int TICKS_PER_SEGMENT = 25_000;
+    private static final int SEGMENTS = 3;
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void write() throws IOException {
+        float[] values = new float[Metric.count()];
+        long ts = START;
+        for (int s = 0; s < SEGMENTS; s++) {
+            LogSegment segment = LogSegment.create(dir.resolve(ts + ".glog"), TICKS_PER_SEGMENT * (GPUS + 1), ts);
+            for (int t = 0; t < TICKS_PER_SEGMENT; t++, ts += 1000) {
+                for (int device = -1; device < GPUS; device++) {
+                    Arrays.fill(values, Float.NaN);
+                    if (device < 0) {
+                        values[Metric.CPU_LOAD.ordinal()] = (ts / 1000) % 100;
+                    } else {
+                        values[Metric.GPU_TEMPERATURE.ordinal()] = 30 + (ts / 1000 + device * 7) % 61;
+                    }
+                    segment.append(ts, device, values);
+                }
+            }
+            segment.seal();
+            segment.close();
+        }
+    }
+
+    /**
+     * Тот же результат последовательным проходом по журналу
+     */
+    private static MetricAccumulator scan(SampleLog log, Metric metric, long from, long to, int device) {
+        MetricAccumulator expected = new MetricAccumulator();
+        log.scan(from, to, record -> {
+            float value = record.getValue(metric);
+            if (!Float.isNaN(value) && (device == Integer.MIN_VALUE || record.getDevice() == device)) {
+                expected.add(record.getDevice(), value);
+            }
+            return true;
+        });
+        return expected;
+    }
+
+    @Test
+    void aggregateMatchesASequentialScan() throws IOException {
+        long end = START + (long) SEGMENTS * TICKS_PER_SEGMENT * 1000 - 1000;
+        long[][] cases = {
+                // from, to, устройство (MIN_VALUE - все)
+                {START, end, Integer.MIN_VALUE},
+                {START + 10_000_000, end - 20_000_000, Integer.MIN_VALUE},
+                {START + 30_000_000, START + 30_500_000, 1},
+                {START - 5000, START + 2000, 2},
+                {START, end, MetricStore.HOST},
+        };
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (SampleLog log = SampleLog.openReadOnly(dir)) {
+            assertEquals(SEGMENTS, log.segments().size());
+            HistoryQueryEngine engine = new HistoryQueryEngine(log, pool);
+            for (long[] c : cases) {
+                int device = (int) c[2];
+                Metric metric = device == MetricStore.HOST ? Metric.CPU_LOAD : Metric.GPU_TEMPERATURE;
+                MetricAccumulator actual = device == Integer.MIN_VALUE
+                        ? engine.aggregate(metric, c[0], c[1])
+                        : engine.aggregate(metric, c[0], c[1], device);
+                MetricAccumulator expected = scan(log, metric, c[0], c[1], device);
+                String label = Arrays.toString(c);
+                assertTrue(expected.getTotalCount() > 0, label);
+                assertEquals(expected.getTotalCount(), actual.getTotalCount(), label);
+                for (int d = MetricStore.HOST; d < GPUS; d++) {
+                    assertEquals(expected.getCount(d), actual.getCount(d), label + " device " + d);
+                    assertEquals(expected.getMin(d), actual.getMin(d), label + " device " + d);
+                    assertEquals(expected.getMax(d), actual.getMax(d), label + " device " + d);
+                    assertEquals(expected.getAverage(d), actual.getAverage(d), 1e-9, label + " device " + d);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void planDropsSegmentsOutsideTheRangeAndWithoutTheDevice() throws IOException {
+        long segmentMillis = TICKS_PER_SEGMENT * 1000L;
+        try (SampleLog log = SampleLog.openReadOnly(dir)) {
+            HistoryQueryEngine engine = new HistoryQueryEngine(log);
+            List<HistoryQueryEngine.Split> all = engine.plan(START, Long.MAX_VALUE, -1L);
+            assertEquals(SEGMENTS * TICKS_PER_SEGMENT * (GPUS + 1),
+                    all.stream().mapToInt(split -> split.to - split.from).sum());
+            assertTrue(all.size() > SEGMENTS, "segments are cut into splits");
+
+            // Только середина второго сегмента
+            List<HistoryQueryEngine.Split> middle = engine.plan(START + segmentMillis + 1000,
+                    START + 2 * segmentMillis - 2000, -1L);
+            assertFalse(middle.isEmpty());
+            for (HistoryQueryEngine.Split split : middle) {
+                assertSame(log.segments().get(1), split.segment);
+            }
+
+            assertTrue(engine.plan(START, Long.MAX_VALUE, LogSegment.deviceBit(GPUS + 5)).isEmpty());
+            assertTrue(engine.plan(START + SEGMENTS * segmentMillis, Long.MAX_VALUE, -1L).isEmpty());
+        }
+    }
+}
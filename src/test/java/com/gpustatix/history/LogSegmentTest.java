@@ -0,0 +1,112 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSegmentTest {
+    @TempDir
+    Path dir;
+
+    private static float[] row(float temperature) {
+        float[] values = new float[Metric.count()];
+        Arrays.fill(values, Float.NaN);
+        values[Metric.GPU_TEMPERATURE.ordinal()] = temperature;
+        return values;
+    }
+
+    private static List<Long> timestamps(LogSegment segment, long from, long to) {
+        List<Long> result = new ArrayList<>();
+        segment.scan(from, to, record -> result.add(record.getTimestamp()), new SampleRecord());
+        return result;
+    }
+
+    @Test
+    void sealedSegmentReopensWithCountAndMask() throws IOException {
+        Path path = dir.resolve("1000.glog");
+        LogSegment segment = LogSegment.create(path, 1024, 1000);
+        for (int i = 0; i < 600; i++) {
+            segment.append(1000 + i, i % 2 == 0 ? MetricStore.HOST : 1, row(i));
+        }
+        segment.seal();
+
+        LogSegment reopened = LogSegment.open(path, 1000, false);
+        assertTrue(reopened.isSealed());
+        assertFalse(reopened.isAppendable());
+        assertEquals(600, reopened.getCount());
+        assertEquals(1599, reopened.getLastTimestamp());
+        assertEquals(LogSegment.deviceBit(MetricStore.HOST) | LogSegment.deviceBit(1), reopened.getDeviceMask());
+        assertEquals(300, reopened.seek(1300));
+        assertEquals(List.of(1298L, 1299L, 1300L), timestamps(reopened, 1298, 1300));
+    }
+
+    @Test
+    void unsealedSegmentDropsTheTornRecord() throws IOException {
+        Path path = dir.resolve("0.glog");
+        LogSegment segment = LogSegment.create(path, 1024, 0);
+        for (int i = 0; i < 300; i++) {
+            segment.append(10 + i, 0, row(i));
+        }
+        segment.force();
+        // Порча последней записи имитирует обрыв посреди записи
+        long lastRecord = LogSegment.fileSize(1024) - 1024L * SampleRecord.SIZE + 299L * SampleRecord.SIZE;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(lastRecord + SampleRecord.VALUES_OFFSET);
+            file.writeInt(0x7fc00001);
+        }
+
+        LogSegment recovered = LogSegment.open(path, 0, true);
+        assertFalse(recovered.isSealed());
+        assertTrue(recovered.isAppendable());
+        assertEquals(299, recovered.getCount());
+        assertEquals(308, recovered.getLastTimestamp());
+    }
+
+    @Test
+    void blockMasksSkipBlocksWithoutTheDevice() throws IOException {
+        LogSegment segment = LogSegment.create(dir.resolve("0.glog"), 1024, 0);
+        // Первый блок - только хост, второй - хост и GPU 0
+        for (int i = 0; i < 2 * LogSegment.INDEX_INTERVAL; i++) {
+            int device = i < LogSegment.INDEX_INTERVAL || i % 2 == 0 ? MetricStore.HOST : 0;
+            segment.append(i, device, row(50));
+        }
+        MetricAccumulator accumulator = new MetricAccumulator();
+        segment.aggregate(0, segment.getCount(), 0, Long.MAX_VALUE, LogSegment.deviceBit(0),
+                Metric.GPU_TEMPERATURE, accumulator);
+
+        assertEquals(1, accumulator.getSkippedBlocks());
+        assertEquals(LogSegment.INDEX_INTERVAL / 2, accumulator.getCount(0));
+    }
+
+    @Test
+    void sampleLogCloseSealsTheActiveSegmentWithoutWaitingForTheSync() throws IOException {
+        // Синхронизация раз в минуту: закрытие не должно ждать таймаута poll()
+        SampleLog log = new SampleLog(dir, 512, 0, 0, 60_000);
+        for (int i = 0; i < 40; i++) {
+            HostSnapshot host = new HostSnapshot();
+            host.setTimestampMillis(1000 + i);
+            GpuSnapshot gpu = new GpuSnapshot(0);
+            gpu.setTemperature(i);
+            log.onSample(host, List.of(gpu));
+        }
+        long closing = System.nanoTime();
+        log.close();
+        assertTrue(System.nanoTime() - closing < 1_000_000_000L, "close waited for the sync interval");
+
+        SampleLog reopened = SampleLog.openReadOnly(dir);
+        assertEquals(1, reopened.segments().size());
+        assertTrue(reopened.segments().get(0).isSealed());
+        assertEquals(80, reopened.segments().get(0).getCount());
+        reopened.close();
+    }
+}
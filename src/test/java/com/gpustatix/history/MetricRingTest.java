@@ -0,0 +1,62 @@
+package com.gpustatix.history;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricRingTest {
+    @Test
+    void keepsExactlyTheConfiguredCapacity() {
+        MetricRing ring = new MetricRing(36_000);
+
+        assertEquals(36_000, ring.capacity());
+        assertEquals(36_001 * 12L, ring.memoryBytes());
+        for (int i = 0; i < 50_000; i++) {
+            ring.append(i * 100L, i);
+        }
+        assertEquals(36_000, ring.size());
+        assertEquals((50_000 - 36_000) * 100L, ring.getOldestTimestamp());
+        assertEquals(49_999 * 100L, ring.getLatestTimestamp());
+        assertEquals(49_999f, ring.getLatest());
+    }
+
+    @Test
+    void readsInclusiveRangeAcrossTheWrap() {
+        MetricRing ring = new MetricRing(5);
+        for (int i = 1; i <= 8; i++) {
+            ring.append(i * 10L, i);
+        }
+        long[] timestamps = new long[10];
+        float[] values = new float[10];
+
+        int n = ring.read(0, Long.MAX_VALUE, timestamps, values);
+        assertEquals(5, n);
+        assertEquals(40, timestamps[0]);
+        assertEquals(80, timestamps[4]);
+
+        n = ring.read(50, 70, timestamps, values);
+        assertEquals(3, n);
+        assertEquals(5f, values[0]);
+        assertEquals(7f, values[2]);
+
+        // Ограничение по размеру выходных массивов
+        n = ring.read(0, Long.MAX_VALUE, new long[2], new float[2]);
+        assertEquals(2, n);
+    }
+
+    @Test
+    void emptyRing() {
+        MetricRing ring = new MetricRing(3);
+
+        assertEquals(0, ring.size());
+        assertEquals(Long.MAX_VALUE, ring.getOldestTimestamp());
+        assertEquals(-1, ring.getLatestTimestamp());
+        assertTrue(Float.isNaN(ring.getLatest()));
+        assertEquals(0, ring.read(0, 100, new long[4], new float[4]));
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new MetricRing(0));
+    }
+}
@@ -0,0 +1,138 @@
+package com.gpustatix.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+
+    private static float[] values(String distribution, int n, long seed) {
+        Random random = new Random(seed);
+        float[] values = new float[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = switch (distribution) {
+                case "uniform" -> random.nextFloat() * 1000;
+                case "exponential" -> (float) (-Math.log(1 - random.nextDouble()) * 50);
+                case "lognormal" -> (float) Math.exp(3 + random.nextGaussian() * 1.5);
+                // Время кадра: плато около 16.7 мс с редкими пиками
+                case "frametime" -> random.nextInt(100) == 0 ? 40 + random.nextFloat() * 60 : 16.7f
+                        + (float) random.nextGaussian() * 0.3f;
+                default -> throw new IllegalArgumentException(distribution);
+            };
+        }
+        return values;
+    }
+
+    /**
+     * Точная квантиль по тому же определению ранга, что и в скетче
+     */
+    private static float exact(float[] sorted, double q) {
+        long rank = Math.max(1, (long) Math.ceil(q * sorted.length));
+        return sorted[(int) rank - 1];
+    }
+
+    @Test
+    void quantilesStayWithinTheBucketError() {
+        double scale = 100;
+        for (String distribution : new String[]{"uniform", "exponential", "lognormal", "frametime"}) {
+            float[] values = values(distribution, 200_000, 42);
+            QuantileSketch sketch = new QuantileSketch(scale, 100_000);
+            for (float value : values) {
+                sketch.record(value);
+            }
+            float[] sorted = values.clone();
+            Arrays.sort(sorted);
+
+            assertEquals(values.length, sketch.getCount());
+            assertEquals(sorted[0], sketch.getMin());
+            assertEquals(sorted[sorted.length - 1], sketch.getMax());
+            for (double q : QUANTILES) {
+                float expected = exact(sorted, q);
+                // Половина ширины корзины - 1/128 значения, плюс отбрасывание дробной части при масштабе
+                double bound = expected / QuantileSketch.SUB_BUCKETS + 1 / scale;
+                assertEquals(expected, sketch.quantile(q), bound, distribution + " q=" + q);
+            }
+        }
+    }
+
+    @Test
+    void smallIntegersAreExact() {
+        QuantileSketch sketch = new QuantileSketch(1, 1000);
+        for (int v = 0; v < 2 * QuantileSketch.SUB_BUCKETS; v++) {
+            sketch.record(v);
+        }
+        assertEquals(0f, sketch.quantile(0));
+        assertEquals(63f, sketch.quantile(0.5));
+        assertEquals(126f, sketch.quantile(0.99));
+        assertEquals(127f, sketch.quantile(1));
+    }
+
+    @Test
+    void mergedSketchEqualsOneThatRecordedEverything() {
+        float[] values = values("lognormal", 100_000, 7);
+        QuantileSketch whole = new QuantileSketch(100, 10_000);
+        QuantileSketch[] parts = new QuantileSketch[4];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = whole.emptyCopy();
+        }
+        for (int i = 0; i < values.length; i++) {
+            whole.record(values[i]);
+            // Части неравные и с разными диапазонами
+            parts[values[i] < 20 ? 0 : i % 3 + 1].record(values[i]);
+        }
+
+        QuantileSketch merged = whole.emptyCopy();
+        merged.merge(whole.emptyCopy());
+        assertEquals(0, merged.getCount());
+        assertTrue(Float.isNaN(merged.getMin()));
+        for (QuantileSketch part : parts) {
+            merged.merge(part);
+        }
+
+        assertEquals(whole.getCount(), merged.getCount());
+        assertEquals(whole.getMin(), merged.getMin());
+        assertEquals(whole.getMax(), merged.getMax());
+        for (double q : QUANTILES) {
+            assertEquals(whole.quantile(q), merged.quantile(q), "q=" + q);
+        }
+        assertEquals(whole.fractionAtOrAbove(100), merged.fractionAtOrAbove(100));
+    }
+
+    @Test
+    void mergeRejectsADifferentLayout() {
+        QuantileSketch sketch = new QuantileSketch(100, 1000);
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(10, 1000)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(100, 100_000)));
+    }
+
+    @Test
+    void ignoresUnavailableReadingsAndClampsLargeValues() {
+        QuantileSketch sketch = new QuantileSketch(1, 1000);
+        assertTrue(Float.isNaN(sketch.quantile(0.5)));
+        assertEquals(0, sketch.fractionAtOrAbove(10));
+
+        sketch.record(Float.NaN);
+        sketch.record(-1);
+        assertEquals(0, sketch.getCount());
+
+        for (int i = 0; i < 99; i++) {
+            sketch.record(50);
+        }
+        sketch.record(1_000_000);
+        assertEquals(100, sketch.getCount());
+        assertEquals(1_000_000f, sketch.getMax());
+        assertEquals(50f, sketch.quantile(0.99));
+        // Значение выше highestValue попадает в последнюю корзину
+        assertTrue(sketch.quantile(1) >= 1000 * (1 - 1.0 / QuantileSketch.SUB_BUCKETS));
+        assertEquals(0.01, sketch.fractionAtOrAbove(500), 1e-12);
+        assertEquals(1.0, sketch.fractionAtOrAbove(0), 1e-12);
+
+        sketch.clear();
+        assertEquals(0, sketch.getCount());
+        assertTrue(Float.isNaN(sketch.getMax()));
+    }
+}
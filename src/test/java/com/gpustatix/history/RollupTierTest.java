@@ -0,0 +1,78 @@
+package com.gpustatix.history;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupTierTest {
+    @Test
+    void openBucketIsVisibleBeforeItCloses() {
+        RollupTier tier = new RollupTier(1000, 10);
+        tier.add(5_000, 10);
+        tier.add(5_400, 30);
+
+        RollupResult result = new RollupResult(1000);
+        tier.readInto(0, 10_000, result);
+
+        assertEquals(1, result.size());
+        assertEquals(5_000, result.getTimestamp(0));
+        assertEquals(20f, result.getAverage(0));
+        assertEquals(10f, result.getMin(0));
+        assertEquals(30f, result.getMax(0));
+        assertEquals(2, result.getCount(0));
+        assertEquals(Long.MAX_VALUE, tier.getOldestTimestamp());
+    }
+
+    @Test
+    void closedAndOpenBucketsAreReadOnce() {
+        RollupTier tier = new RollupTier(1000, 10);
+        tier.add(1_000, 1);
+        tier.add(2_000, 2);
+        tier.add(2_500, 4);
+        tier.add(3_000, 5);
+
+        RollupResult result = new RollupResult(1000);
+        tier.readInto(0, 10_000, result);
+
+        assertEquals(3, result.size());
+        assertEquals(1f, result.getAverage(0));
+        assertEquals(3f, result.getAverage(1));
+        assertEquals(5f, result.getAverage(2));
+        assertEquals(1_000, tier.getOldestTimestamp());
+    }
+
+    @Test
+    void keepsRetentionClosedBucketsAcrossTheWrap() {
+        RollupTier tier = new RollupTier(1000, 4);
+        for (int i = 0; i < 20; i++) {
+            tier.add(i * 1000L, i);
+        }
+
+        RollupResult result = new RollupResult(1000);
+        tier.readInto(0, 100_000, result);
+
+        // 4 закрытые корзины и открытая
+        assertEquals(5, result.size());
+        assertEquals(15_000, tier.getOldestTimestamp());
+        for (int i = 0; i < 5; i++) {
+            assertEquals((15 + i) * 1000L, result.getTimestamp(i));
+            assertEquals(15f + i, result.getAverage(i));
+        }
+    }
+
+    @Test
+    void rebucketsToACoarserStep() {
+        RollupTier tier = new RollupTier(1000, 60);
+        for (int i = 0; i < 10; i++) {
+            tier.add(i * 1000L, i);
+        }
+
+        RollupResult result = new RollupResult(5000);
+        tier.readInto(0, 100_000, result);
+
+        assertEquals(2, result.size());
+        assertEquals(2f, result.getAverage(0));
+        assertEquals(7f, result.getAverage(1));
+        assertEquals(5, result.getCount(1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.gpustatix.history;
+
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryRecordingTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void closeWritesTheOpenChunkWithoutWaitingForThePoll() throws IOException {
+        long start = System.currentTimeMillis();
+        TelemetryRecording recording = new TelemetryRecording(dir, 600, 0);
+        for (int i = 0; i < 25; i++) {
+            HostSnapshot host = new HostSnapshot();
+            host.setTimestampMillis(start + i * 1000L);
+            host.setCpuLoad(i);
+            GpuSnapshot gpu = new GpuSnapshot(0);
+            gpu.setTemperature(50 + i);
+            recording.onSample(host, List.of(gpu));
+        }
+        long closing = System.nanoTime();
+        recording.close();
+        // Писателя будит STOP, а не секундный таймаут poll()
+        assertTrue(System.nanoTime() - closing < 900_000_000L, "close waited for the poll timeout");
+
+        int samples = 0;
+        try (TelemetryRecording.Cursor cursor = recording.cursor(0, start, start + 60_000)) {
+            while (cursor.next()) {
+                assertEquals(start + samples * 1000L, cursor.getTimestamp());
+                assertEquals(50f + samples, cursor.getValue(Metric.GPU_TEMPERATURE));
+                samples++;
+            }
+        }
+        // Чанк на 600 выборок не заполнен: все 25 попали в файл только при закрытии
+        assertEquals(25, samples);
+    }
+}
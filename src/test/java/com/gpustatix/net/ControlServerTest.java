@@ -0,0 +1,84 @@
+package com.gpustatix.net;
+
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.ActuatorQueue;
+import com.gpustatix.utils.GPUSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControlServerTest {
+    private ActuatorQueue queue;
+    private ControlServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws IOException {
+        queue = new ActuatorQueue(new RejectingPowerLimit());
+        server = new ControlServer(queue, null, new InetSocketAddress("127.0.0.1", 0), 5_000);
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        queue.close();
+    }
+
+    private HttpResponse<String> post(String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/settings"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void appliedChangeIsAnsweredWith200() throws Exception {
+        HttpResponse<String> response = post("{\"fan_speed\":40}");
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("\"setting\":\"fan_speed\",\"requested\":40,\"applied\":40"), response.body());
+    }
+
+    @Test
+    void rejectedChangeIsAnsweredWith500() throws Exception {
+        HttpResponse<String> response = post("{\"fan_speed\":40,\"power_limit\":150}");
+
+        assertEquals(500, response.statusCode(), response.body());
+        // Сообщение драйвера без кавычек и переводов строк, JSON остаётся валидным
+        assertTrue(response.body().contains("\"error\":\"NVML said 'no' (code 2)\""), response.body());
+        assertTrue(response.body().contains("\"applied\":40"), "the other change still applies");
+        assertEquals(-1, queue.getLastApplied(ActuatorCommand.POWER_LIMIT));
+    }
+
+    @Test
+    void invalidBodyIsAnsweredWith400() throws Exception {
+        assertEquals(400, post("{\"fan_speed\":400}").statusCode());
+        assertEquals(400, post("{\"volume\":1}").statusCode());
+    }
+
+    private static class RejectingPowerLimit extends GPUSettings {
+        RejectingPowerLimit() {
+            super(false);
+        }
+
+        @Override
+        public void setPowerLimitNVML(int value) {
+            throw new IllegalStateException("NVML said \"no\"\n(code 2)");
+        }
+
+        @Override
+        public void setFanSpeedGradually(int targetValue, boolean isInitialSetting) {
+            // Вентилятор принимает любую скорость
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.gpustatix.net;
+
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrometheusEndpointTest {
+    private static final String GPU0 = "{gpu=\"0\",name=\"GeForce \\\"Test\\\" \\\\ 1\",pci=\"0000:01:00.0\"}";
+    private static final String GPU1 = "{gpu=\"1\",name=\"Second\",pci=\"0000:02:00.0\"}";
+
+    private PrometheusEndpoint endpoint;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws IOException {
+        endpoint = new PrometheusEndpoint(new Gpus(), new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @AfterEach
+    void stop() {
+        endpoint.close();
+    }
+
+    private HttpResponse<String> get(String accept) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + endpoint.getAddress().getPort() + "/metrics"));
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String gauge(String name, String help, String unit, String... samples) {
+        StringBuilder text = new StringBuilder()
+                .append("# TYPE ").append(name).append(" gauge\n")
+                .append("# UNIT ").append(name).append(' ').append(unit).append('\n')
+                .append("# HELP ").append(name).append(' ').append(help).append('\n');
+        for (String sample : samples) {
+            text.append(name).append(sample).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void sample(PrometheusEndpoint endpoint, long ts, int temperature) {
+        HostSnapshot host = new HostSnapshot();
+        host.setTimestampMillis(ts);
+        host.setCpuLoad(12.34f);
+        host.setCpuFrequency(3600);
+        host.setCpuTemperature(55);
+        host.setRamUsedMb(16000);
+        host.setRamTotalMb(-1);
+
+        GpuSnapshot full = new GpuSnapshot(0);
+        full.setTemperature(temperature);
+        full.setUtilization(97);
+        full.setMemoryUsedMb(4096);
+        full.setMemoryTotalMb(8192);
+        full.setCoreClock(1800);
+        full.setMemoryClock(7000);
+        full.setPowerUsage(152.5f);
+        full.setPowerLimit(250);
+        full.setFanSpeed(55);
+        full.setFanRpm(2100);
+        // У второй известна только температура
+        GpuSnapshot partial = new GpuSnapshot(1);
+        partial.setTemperature(40);
+        endpoint.onSample(host, List.of(full, partial));
+    }
+
+    @Test
+    void beforeTheFirstSampleOnlyEofIsServed() throws Exception {
+        HttpResponse<String> response = get(null);
+        assertEquals(200, response.statusCode());
+        assertEquals("# EOF\n", response.body());
+    }
+
+    @Test
+    void exposesEveryAvailableValueInOpenMetricsFormat() throws Exception {
+        sample(endpoint, 1_700_000_000_123L, 65);
+
+        String expected = gauge("gpustatix_sample_timestamp_seconds", "Time of the last sample", "seconds",
+                " 1700000000.123")
+                + gauge("gpustatix_gpu_temperature_celsius", "GPU core temperature", "celsius",
+                GPU0 + " 65", GPU1 + " 40")
+                + gauge("gpustatix_gpu_utilization_percent", "GPU utilization", "percent", GPU0 + " 97")
+                + gauge("gpustatix_gpu_memory_used_bytes", "Used VRAM", "bytes", GPU0 + " 4294967296")
+                + gauge("gpustatix_gpu_memory_total_bytes", "Total VRAM", "bytes", GPU0 + " 8589934592")
+                + gauge("gpustatix_gpu_core_clock_hertz", "Graphics clock", "hertz", GPU0 + " 1800000000")
+                + gauge("gpustatix_gpu_memory_clock_hertz", "Memory clock", "hertz", GPU0 + " 7000000000")
+                + gauge("gpustatix_gpu_power_watts", "Board power draw", "watts", GPU0 + " 152.500")
+                + gauge("gpustatix_gpu_power_limit_watts", "Board power limit", "watts", GPU0 + " 250")
+                + gauge("gpustatix_gpu_fan_speed_percent", "Fan duty cycle", "percent", GPU0 + " 55")
+                + gauge("gpustatix_gpu_fan_speed_rpm", "Fan speed", "rpm", GPU0 + " 2100")
+                + gauge("gpustatix_cpu_load_percent", "CPU load", "percent", " 12.3")
+                + gauge("gpustatix_cpu_frequency_hertz", "CPU clock", "hertz", " 3600000000")
+                + gauge("gpustatix_cpu_temperature_celsius", "CPU package temperature", "celsius", " 55")
+                + gauge("gpustatix_memory_used_bytes", "Used RAM", "bytes", " 16777216000")
+                + gauge("gpustatix_memory_total_bytes", "Total RAM", "bytes")
+                + "# EOF\n";
+
+        HttpResponse<String> response = get("application/openmetrics-text; version=1.0.0");
+        assertEquals(200, response.statusCode());
+        assertEquals("application/openmetrics-text; version=1.0.0; charset=utf-8",
+                response.headers().firstValue("Content-Type").orElse(""));
+        assertEquals(expected, response.body());
+
+        // Без Accept - тот же текст с типом Prometheus 0.0.4
+        HttpResponse<String> plain = get(null);
+        assertEquals("text/plain; version=0.0.4; charset=utf-8", plain.headers().firstValue("Content-Type").orElse(""));
+        assertEquals(expected, plain.body());
+    }
+
+    @Test
+    void laterSamplesReplaceTheExposition() throws Exception {
+        // Буферы переиспользуются по очереди - каждая выборка должна видеть только свои значения
+        for (int i = 0; i < 5; i++) {
+            sample(endpoint, 1_700_000_000_000L + i * 1000, 60 + i);
+            String body = get(null).body();
+            assertTrue(body.contains("gpustatix_sample_timestamp_seconds 17000000" + String.format("%02d", i) + ".000\n"),
+                    body);
+            assertTrue(body.contains("gpustatix_gpu_temperature_celsius" + GPU0 + " " + (60 + i) + "\n"), body);
+            assertTrue(body.endsWith("# EOF\n"));
+            assertEquals(body.indexOf("# EOF"), body.lastIndexOf("# EOF"));
+        }
+    }
+
+    @Test
+    void onlyGetAndHeadAreAllowed() throws Exception {
+        sample(endpoint, 1_700_000_000_000L, 65);
+        URI uri = URI.create("http://127.0.0.1:" + endpoint.getAddress().getPort() + "/metrics");
+
+        HttpResponse<String> head = client.send(HttpRequest.newBuilder(uri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, head.statusCode());
+        assertEquals("", head.body());
+
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri)
+                .POST(HttpRequest.BodyPublishers.ofString("x")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, post.statusCode());
+    }
+
+    private static class Gpus implements GpuBackend {
+        @Override
+        public int getDeviceCount() {
+            return 2;
+        }
+
+        @Override
+        public String getDeviceName(int device) {
+            // Кавычки и обратная косая черта в имени экранируются в метке
+            return device == 0 ? "GeForce \"Test\" \\ 1" : "Second";
+        }
+
+        @Override
+        public String getPciAddress(int device) {
+            return "0000:0" + (device + 1) + ":00.0";
+        }
+
+        @Override
+        public boolean sample(int device, GpuSnapshot snapshot) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
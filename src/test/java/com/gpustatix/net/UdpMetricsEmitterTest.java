@@ -0,0 +1,142 @@
+package com.gpustatix.net;
+
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UdpMetricsEmitterTest {
+    private DatagramChannel listener;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void listen() throws IOException {
+        listener = DatagramChannel.open();
+        listener.bind(new InetSocketAddress("127.0.0.1", 0));
+        address = (InetSocketAddress) listener.getLocalAddress();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        listener.close();
+    }
+
+    private List<String> receive(int datagrams) throws IOException {
+        List<String> result = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(70_000);
+        for (int i = 0; i < datagrams; i++) {
+            buffer.clear();
+            listener.receive(buffer);
+            buffer.flip();
+            result.add(StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+        return result;
+    }
+
+    private static void sample(UdpMetricsEmitter emitter) {
+        HostSnapshot host = new HostSnapshot();
+        host.setTimestampMillis(1_700_000_000_000L);
+        host.setCpuLoad(12.34f);
+        host.setRamUsedMb(4096);
+        GpuSnapshot gpu = new GpuSnapshot(0);
+        gpu.setTemperature(62);
+        gpu.setPowerUsage(151.26f);
+        emitter.onSample(host, List.of(gpu));
+    }
+
+    @Test
+    void sendsStatsdGaugesForAvailableReadings() throws IOException {
+        UdpMetricsEmitter emitter = new UdpMetricsEmitter(new OneGpu(), address,
+                UdpMetricsEmitter.Format.STATSD, 1432, "gpustatix");
+        sample(emitter);
+        emitter.close();
+
+        String datagram = receive(1).get(0);
+        assertTrue(datagram.contains("gpustatix.gpu0.gpu_temperature:62|g\n"), datagram);
+        assertTrue(datagram.contains("gpustatix.gpu0.gpu_power:151.3|g\n"), datagram);
+        assertTrue(datagram.contains("gpustatix.host.cpu_load:12.3|g\n"), datagram);
+        assertFalse(datagram.contains("gpu_fan_rpm"), "unavailable readings are not sent");
+        assertEquals(1, emitter.getDatagramCount());
+        assertEquals(0, emitter.getDroppedCount());
+    }
+
+    @Test
+    void sendsInfluxLinesWithTagsAndNanoseconds() throws IOException {
+        UdpMetricsEmitter emitter = new UdpMetricsEmitter(new OneGpu(), address,
+                UdpMetricsEmitter.Format.INFLUX, 1432, "gpustatix");
+        sample(emitter);
+        emitter.close();
+
+        String[] lines = receive(1).get(0).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("gpustatix,host="), lines[0]);
+        assertTrue(lines[0].contains(",device=0,name=Test\\ GPU gpu_temperature=62i,gpu_power=151.3 "), lines[0]);
+        assertTrue(lines[0].endsWith(" 1700000000000000000"), lines[0]);
+        assertTrue(lines[1].contains(",device=host cpu_load=12.3,ram_used=4096i "), lines[1]);
+    }
+
+    @Test
+    void honoursASmallMtu() throws IOException {
+        int mtu = 80;
+        UdpMetricsEmitter emitter = new UdpMetricsEmitter(new OneGpu(), address,
+                UdpMetricsEmitter.Format.STATSD, mtu, "gpustatix");
+        sample(emitter);
+        emitter.close();
+
+        long count = emitter.getDatagramCount();
+        assertTrue(count >= 2, "lines are split over several datagrams");
+        StringBuilder all = new StringBuilder();
+        for (String datagram : receive((int) count)) {
+            assertTrue(datagram.getBytes(StandardCharsets.UTF_8).length <= mtu, datagram);
+            all.append(datagram);
+        }
+        assertTrue(all.toString().contains("gpustatix.gpu0.gpu_temperature:62|g\n"));
+        assertTrue(all.toString().contains("gpustatix.host.ram_used:4096|g\n"));
+    }
+
+    @Test
+    void rejectsMtuOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new UdpMetricsEmitter(new OneGpu(), address,
+                UdpMetricsEmitter.Format.STATSD, UdpMetricsEmitter.MIN_MTU - 1, "gpustatix"));
+        assertThrows(IllegalArgumentException.class, () -> new UdpMetricsEmitter(new OneGpu(), address,
+                UdpMetricsEmitter.Format.STATSD, UdpMetricsEmitter.MAX_MTU + 1, "gpustatix"));
+    }
+
+    private static class OneGpu implements GpuBackend {
+        @Override
+        public int getDeviceCount() {
+            return 1;
+        }
+
+        @Override
+        public String getDeviceName(int device) {
+            return "Test GPU";
+        }
+
+        @Override
+        public String getPciAddress(int device) {
+            return "0000:01:00.0";
+        }
+
+        @Override
+        public boolean sample(int device, GpuSnapshot snapshot) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.gpustatix.net;
+
+import com.gpustatix.history.Metric;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnixStreamServerTest {
+    private static final int GPUS = 2;
+
+    @TempDir
+    Path dir;
+
+    private UnixStreamServer server;
+    private final List<UnixStreamClient> clients = new ArrayList<>();
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new UnixStreamServer(new Gpus(), dir.resolve("s.sock"), 8);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        for (UnixStreamClient client : clients) {
+            client.close();
+        }
+        server.close();
+        assertFalse(Files.exists(dir.resolve("s.sock")));
+    }
+
+    /**
+     * Выборка: температура и мощность задаются, остальное выводится из номера видеокарты
+     */
+    private static class Sample {
+        long ts;
+        int[] temperature = {60, 70};
+        float[] power = {150.25f, 220.5f};
+        float cpuLoad = 12.5f;
+        int ram = 16000;
+
+        void send(UnixStreamServer server) {
+            HostSnapshot host = new HostSnapshot();
+            host.setTimestampMillis(ts);
+            host.setCpuLoad(cpuLoad);
+            host.setCpuFrequency(3600);
+            host.setCpuTemperature(50);
+            host.setRamUsedMb(ram);
+            List<GpuSnapshot> gpus = new ArrayList<>();
+            for (int g = 0; g < GPUS; g++) {
+                GpuSnapshot gpu = new GpuSnapshot(g);
+                gpu.setTemperature(temperature[g]);
+                gpu.setUtilization(90 + g);
+                gpu.setMemoryUsedMb(4000 + g);
+                gpu.setCoreClock(1800 + g);
+                gpu.setMemoryClock(7000);
+                gpu.setPowerUsage(power[g]);
+                gpu.setFanSpeed(40);
+                gpu.setFanRpm(1500 + g);
+                gpus.add(gpu);
+            }
+            server.onSample(host, gpus);
+        }
+    }
+
+    /**
+     * Подписка читается сервером асинхронно: выборка повторяется, пока клиент не получит ключевой кадр
+     */
+    private UnixStreamClient subscribe(Sample sample, long deviceMask, int metricMask) throws Exception {
+        UnixStreamClient client = UnixStreamClient.connect(server.getPath());
+        clients.add(client);
+        client.subscribe(deviceMask, metricMask);
+        AtomicBoolean received = new AtomicBoolean();
+        Thread sampler = new Thread(() -> {
+            while (!received.get()) {
+                sample.send(server);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        try {
+            assertTrue(client.next());
+        } finally {
+            received.set(true);
+            sampler.join();
+        }
+        assertEquals(sample.ts, client.getTimestampMillis());
+        return client;
+    }
+
+    /**
+     * Пропускает пустые дельты повторов, пока не придёт кадр с нужным временем
+     */
+    private static void awaitTick(UnixStreamClient client, long ts) throws IOException {
+        while (client.getTimestampMillis() != ts) {
+            assertTrue(client.next());
+        }
+    }
+
+    private static void assertValues(UnixStreamClient client, Sample sample, int... gpus) {
+        for (int g : gpus) {
+            assertEquals((float) sample.temperature[g], client.getValue(g, Metric.GPU_TEMPERATURE), "GPU " + g);
+            assertEquals(sample.power[g], client.getValue(g, Metric.GPU_POWER), "GPU " + g);
+            assertEquals(90f + g, client.getValue(g, Metric.GPU_UTILIZATION), "GPU " + g);
+            assertEquals(1500f + g, client.getValue(g, Metric.GPU_FAN_RPM), "GPU " + g);
+        }
+    }
+
+    @Test
+    void keyFrameThenDeltasCarryOnlyChangedFields() throws Exception {
+        Sample sample = new Sample();
+        sample.ts = 1000;
+        UnixStreamClient client = subscribe(sample, UnixStreamClient.ALL_DEVICES, UnixStreamClient.ALL_METRICS);
+
+        assertEquals(GPUS, client.getDeviceCount());
+        assertEquals("GPU 0", client.getDeviceName(0));
+        assertEquals("Видеокарта 1", client.getDeviceName(1));
+        assertValues(client, sample, 0, 1);
+        assertEquals(12.5f, client.getValue(UnixStreamClient.HOST, Metric.CPU_LOAD));
+        assertEquals(16000f, client.getValue(UnixStreamClient.HOST, Metric.RAM_USED));
+        // Ключевой кадр помечает изменёнными все поля
+        assertTrue(client.hasChanged(1, Metric.GPU_MEMORY_CLOCK));
+        assertTrue(client.hasChanged(UnixStreamClient.HOST, Metric.CPU_FREQUENCY));
+
+        // Рост, падение, дробное значение и хост
+        int[][] temperatures = {{65, 70}, {41, 70}, {41, 95}};
+        for (int step = 0; step < temperatures.length; step++) {
+            sample.ts += 1000;
+            boolean gpu0 = sample.temperature[0] != temperatures[step][0];
+            boolean gpu1 = sample.temperature[1] != temperatures[step][1];
+            sample.temperature = temperatures[step];
+            sample.power[1] += 1.125f;
+            sample.ram += step;
+            sample.send(server);
+            awaitTick(client, sample.ts);
+
+            String label = "step " + step;
+            assertValues(client, sample, 0, 1);
+            assertEquals((float) sample.ram, client.getValue(UnixStreamClient.HOST, Metric.RAM_USED), label);
+            assertEquals(gpu0, client.hasChanged(0, Metric.GPU_TEMPERATURE), label);
+            assertEquals(gpu1, client.hasChanged(1, Metric.GPU_TEMPERATURE), label);
+            assertTrue(client.hasChanged(1, Metric.GPU_POWER), label);
+            assertFalse(client.hasChanged(0, Metric.GPU_POWER), label);
+            assertFalse(client.hasChanged(0, Metric.GPU_CORE_CLOCK), label);
+            assertEquals(step != 0, client.hasChanged(UnixStreamClient.HOST, Metric.RAM_USED), label);
+            assertFalse(client.hasChanged(UnixStreamClient.HOST, Metric.CPU_LOAD), label);
+        }
+        assertEquals(0, server.getDroppedCount());
+    }
+
+    @Test
+    void subscriptionFiltersDevicesAndMetrics() throws Exception {
+        Sample sample = new Sample();
+        sample.ts = 1000;
+        UnixStreamClient client = subscribe(sample, UnixStreamClient.devices(1),
+                UnixStreamClient.metrics(Metric.GPU_TEMPERATURE, Metric.GPU_POWER));
+
+        assertEquals(70f, client.getValue(1, Metric.GPU_TEMPERATURE));
+        assertEquals(220.5f, client.getValue(1, Metric.GPU_POWER));
+        // Не подписанное - недоступно
+        assertEquals(-1f, client.getValue(1, Metric.GPU_UTILIZATION));
+        assertEquals(-1f, client.getValue(0, Metric.GPU_TEMPERATURE));
+        assertEquals(-1f, client.getValue(UnixStreamClient.HOST, Metric.CPU_LOAD));
+
+        // Изменилась только видеокарта 0: кадр без секций, но тик отмечен
+        sample.ts = 2000;
+        sample.temperature = new int[]{99, 70};
+        sample.send(server);
+        awaitTick(client, 2000);
+        assertFalse(client.hasChanged(1, Metric.GPU_TEMPERATURE));
+        assertEquals(-1f, client.getValue(0, Metric.GPU_TEMPERATURE));
+        assertEquals(70f, client.getValue(1, Metric.GPU_TEMPERATURE));
+
+        sample.ts = 3000;
+        sample.temperature = new int[]{99, 72};
+        sample.send(server);
+        awaitTick(client, 3000);
+        assertTrue(client.hasChanged(1, Metric.GPU_TEMPERATURE));
+        assertEquals(72f, client.getValue(1, Metric.GPU_TEMPERATURE));
+    }
+
+    @Test
+    void lateClientStartsFromAKeyFrameWhileOthersGetDeltas() throws Exception {
+        Sample sample = new Sample();
+        sample.ts = 1000;
+        UnixStreamClient first = subscribe(sample, UnixStreamClient.ALL_DEVICES, UnixStreamClient.ALL_METRICS);
+
+        sample.ts = 2000;
+        sample.temperature = new int[]{75, 80};
+        sample.send(server);
+        awaitTick(first, 2000);
+
+        // Второй подключается позже: ключевой кадр с текущими значениями, а не с нуля плюс дельта
+        sample.ts = 3000;
+        UnixStreamClient second = subscribe(sample, UnixStreamClient.ALL_DEVICES, UnixStreamClient.ALL_METRICS);
+        assertValues(second, sample, 0, 1);
+        assertTrue(second.hasChanged(0, Metric.GPU_CORE_CLOCK));
+
+        awaitTick(first, 3000);
+        assertValues(first, sample, 0, 1);
+
+        // Повторная подписка снова начинается с ключевого кадра
+        first.subscribe(UnixStreamClient.devices(0), UnixStreamClient.ALL_METRICS);
+        for (long ts = 4000; ts < 20_000 && !first.hasChanged(0, Metric.GPU_CORE_CLOCK); ts += 1000) {
+            sample.ts = ts;
+            sample.send(server);
+            awaitTick(first, ts);
+        }
+        assertTrue(first.hasChanged(0, Metric.GPU_CORE_CLOCK));
+        assertValues(first, sample, 0);
+        assertEquals(-1f, first.getValue(1, Metric.GPU_TEMPERATURE));
+
+        sample.ts = 30_000;
+        sample.temperature = new int[]{76, 81};
+        sample.send(server);
+        awaitTick(second, 30_000);
+        assertValues(second, sample, 0, 1);
+    }
+
+    private static class Gpus implements GpuBackend {
+        @Override
+        public int getDeviceCount() {
+            return GPUS;
+        }
+
+        @Override
+        public String getDeviceName(int device) {
+            return device == 0 ? "GPU 0" : "Видеокарта " + device;
+        }
+
+        @Override
+        public String getPciAddress(int device) {
+            return "0000:0" + (device + 1) + ":00.0";
+        }
+
+        @Override
+        public boolean sample(int device, GpuSnapshot snapshot) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.gpustatix.replay;
+
+import com.gpustatix.utils.ActuatorCommand;
+import com.gpustatix.utils.GpuBackend;
+import com.gpustatix.utils.GpuSnapshot;
+import com.gpustatix.utils.HostSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionFormatTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void recorderOutputIsReadBackFrameByFrame() throws IOException {
+        Path file = dir.resolve("test" + SessionFormat.SUFFIX);
+        SessionRecorder recorder = new SessionRecorder(file, new TwoGpus(), 100);
+        for (int i = 0; i < 50; i++) {
+            HostSnapshot host = host(10 + i);
+            host.setTimestampMillis(1_000_000L + i * 100L);
+            recorder.onSample(host, List.of(gpu(0, 60 + i % 3, 100 + i), gpu(1, 40, 50.5f)));
+            if (i == 20) {
+                recorder.onCommand(1, ActuatorCommand.FAN_SPEED, 75);
+            }
+        }
+        recorder.close();
+
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(2, reader.getDeviceCount());
+            assertEquals("GPU 1", reader.getDeviceName(1));
+            assertEquals("0000:02:00.0", reader.getPciAddress(1));
+            assertEquals(100, reader.getIntervalMs());
+            int samples = 0;
+            int frame;
+            while ((frame = reader.next()) != SessionReader.END) {
+                if (frame == SessionReader.COMMAND) {
+                    assertEquals(21, samples);
+                    assertEquals(1, reader.getCommandDevice());
+                    assertEquals(ActuatorCommand.FAN_SPEED, reader.getCommand());
+                    assertEquals(75, reader.getCommandValue());
+                    continue;
+                }
+                assertEquals(1_000_000L + samples * 100L, reader.getTimestampMillis());
+                assertEquals(10f + samples, reader.getHost().getCpuLoad());
+                GpuSnapshot first = reader.getGpus().get(0);
+                assertEquals(60 + samples % 3, first.getTemperature());
+                assertEquals(100f + samples, first.getPowerUsage());
+                assertEquals(50.5f, reader.getGpus().get(1).getPowerUsage());
+                samples++;
+            }
+            assertEquals(50, samples);
+        }
+    }
+
+    private static GpuSnapshot gpu(int device, int temperature, float power) {
+        GpuSnapshot gpu = new GpuSnapshot(device);
+        gpu.setTemperature(temperature);
+        gpu.setUtilization(90);
+        gpu.setPowerUsage(power);
+        gpu.setFanSpeed(55);
+        gpu.setFanRpm(1800);
+        return gpu;
+    }
+
+    private static HostSnapshot host(float cpuLoad) {
+        HostSnapshot host = new HostSnapshot();
+        host.setCpuLoad(cpuLoad);
+        host.setRamUsedMb(4000);
+        host.setRamTotalMb(16_000);
+        return host;
+    }
+
+    private static class TwoGpus implements GpuBackend {
+        @Override
+        public int getDeviceCount() {
+            return 2;
+        }
+
+        @Override
+        public String getDeviceName(int device) {
+            return "GPU " + device;
+        }
+
+        @Override
+        public String getPciAddress(int device) {
+            return "0000:0" + (device + 1) + ":00.0";
+        }
+
+        @Override
+        public boolean sample(int device, GpuSnapshot snapshot) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.gpustatix.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActuatorQueueTest {
+    @Test
+    void rejectedChangeCompletesExceptionally() throws Exception {
+        FakeSettings settings = new FakeSettings(50);
+        ActuatorQueue queue = new ActuatorQueue(settings);
+
+        CompletableFuture<ActuatorQueue.Result> rejected = queue.submit(ActuatorCommand.POWER_LIMIT, 150);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertTrue(e.getCause().getMessage().contains("error code 2"), e.getCause().getMessage());
+        assertEquals(-1, queue.getLastApplied(ActuatorCommand.POWER_LIMIT));
+
+        ActuatorQueue.Result applied = queue.submit(ActuatorCommand.FAN_SPEED, 40).get(5, TimeUnit.SECONDS);
+        assertEquals(40, applied.getApplied());
+        assertEquals(40, queue.getLastApplied(ActuatorCommand.FAN_SPEED));
+        queue.close();
+    }
+
+    @Test
+    void tempLimitCorrectionsGoThroughTheQueue() throws Exception {
+        // 90°C при пределе 80: вентилятор +20% и сброс частот
+        FakeSettings settings = new FakeSettings(90);
+        ActuatorQueue queue = new ActuatorQueue(settings);
+
+        queue.submit(ActuatorCommand.TEMP_LIMIT, 80).get(5, TimeUnit.SECONDS);
+        queue.close();
+
+        assertEquals(List.of("TEMP_LIMIT=80", "FAN_SPEED=20", "CORE_CLOCK=0", "MEMORY_CLOCK=0"), settings.applied);
+        assertEquals(20, queue.getLastApplied(ActuatorCommand.FAN_SPEED));
+        assertEquals(0, queue.getLastApplied(ActuatorCommand.CORE_CLOCK));
+    }
+
+    @Test
+    void noCorrectionsWithinTheLimit() throws Exception {
+        FakeSettings settings = new FakeSettings(60);
+        ActuatorQueue queue = new ActuatorQueue(settings);
+
+        queue.submit(ActuatorCommand.TEMP_LIMIT, 85).get(5, TimeUnit.SECONDS);
+        queue.close();
+
+        assertEquals(List.of("TEMP_LIMIT=85"), settings.applied);
+    }
+
+    /**
+     * Records applied commands instead of touching hardware; NVML rejects every power limit
+     */
+    static class FakeSettings extends GPUSettings {
+        final List<String> applied = new ArrayList<>();
+        private final int temperature;
+
+        FakeSettings(int temperature) {
+            super(false);
+            this.temperature = temperature;
+            addActuatorListener((device, command, value) -> applied.add(command + "=" + value));
+        }
+
+        @Override
+        public int getGpuTemperature() {
+            return temperature;
+        }
+
+        @Override
+        public void setCoreClock(int value) {
+            fireCommand(ActuatorCommand.CORE_CLOCK, value);
+        }
+
+        @Override
+        public void setMemoryClock(int value) {
+            fireCommand(ActuatorCommand.MEMORY_CLOCK, value);
+        }
+
+        @Override
+        public void setPowerLimitNVML(int value) {
+            throw new IllegalStateException("NVML did not set the power limit, error code 2");
+        }
+
+        @Override
+        public void setFanSpeedGradually(int targetValue, boolean isInitialSetting) {
+            fireCommand(ActuatorCommand.FAN_SPEED, targetValue);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.gpustatix.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CgroupUsageTest {
+    private static final String ID = "4f3c2b1a0e9d8c7b6a5f4e3d2c1b0a9f8e7d6c5b4a3f2e1d0c9b8a7f6e5d4c3b";
+    private static final String SHORT = "4f3c2b1a0e9d";
+
+    @Test
+    void labelsContainerRuntimes() {
+        // Путь cgroup и ожидаемая метка
+        String[][] cases = {
+                {"/", "host"},
+                {"/system.slice/docker-" + ID + ".scope", "docker " + SHORT},
+                {"/docker/" + ID, "docker " + SHORT},
+                {"/kubepods.slice/kubepods-pod1.slice/cri-containerd-" + ID + ".scope", "containerd " + SHORT},
+                {"/kubepods.slice/kubepods-burstable.slice/crio-" + ID + ".scope", "cri-o " + SHORT},
+                {"/machine.slice/libpod-" + ID + ".scope", "podman " + SHORT},
+                {"/kubepods/burstable/pod1/" + ID, "k8s " + SHORT},
+                {"/kubepods.slice/kubepods-besteffort.slice/" + ID, "k8s " + SHORT},
+                // Короткий id не обрезается
+                {"/system.slice/docker-abc123.scope", "docker abc123"},
+                // Обычные cgroup: последний элемент пути
+                {"/system.slice/sshd.service", "sshd.service"},
+                {"/user.slice/user-1000.slice/session-2.scope", "session-2.scope"},
+                {"/libpod_parent/conmon", "conmon"},
+                // Шестнадцатеричное имя вне docker и kubepods - не контейнер
+                {"/machine/" + ID, ID},
+                // Заглавные буквы и слишком короткое имя - не id
+                {"/docker/" + ID.toUpperCase(Locale.ROOT), ID.toUpperCase(Locale.ROOT)},
+                {"/docker/" + ID.substring(0, 31), ID.substring(0, 31)},
+        };
+        for (String[] c : cases) {
+            assertEquals(c[1], CgroupUsage.label(c[0]), c[0]);
+        }
+    }
+
+    @Test
+    void onlyRecognizedCgroupsAreContainers() {
+        assertTrue(new CgroupUsage("/docker/" + ID, 1, 0, 0, 0, 0).isContainer());
+        assertTrue(new CgroupUsage("/machine.slice/libpod-" + ID + ".scope", 1, 0, 0, 0, 0).isContainer());
+        assertFalse(new CgroupUsage("/", 1, 0, 0, 0, 0).isContainer());
+        assertFalse(new CgroupUsage("/system.slice/sshd.service", 1, 0, 0, 0, 0).isContainer());
+    }
+}
@@ -0,0 +1,69 @@
+package com.gpustatix.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DrmGpuBackendTest {
+    @TempDir
+    Path sysfs;
+
+    private Path card(String card, String address, String vendor, String pciClass) throws IOException {
+        Path device = Files.createDirectories(sysfs.resolve("bus/pci/devices").resolve(address));
+        Files.writeString(device.resolve("class"), pciClass + "\n");
+        Files.writeString(device.resolve("vendor"), vendor + "\n");
+        Files.writeString(device.resolve("device"), "0x744c\n");
+        Path cardDir = Files.createDirectories(sysfs.resolve("class/drm").resolve(card));
+        Files.createSymbolicLink(cardDir.resolve("device"), device);
+        return device;
+    }
+
+    @Test
+    void readsAmdgpuAttributes() throws IOException {
+        Path device = card("card0", "0000:0a:00.0", "0x1002", "0x030000");
+        Files.writeString(device.resolve("gpu_busy_percent"), "37\n");
+        Files.writeString(device.resolve("mem_info_vram_used"), (2048L << 20) + "\n");
+        Files.writeString(device.resolve("mem_info_vram_total"), (24L << 30) + "\n");
+        Files.writeString(device.resolve("pp_dpm_sclk"), "0: 500Mhz\n1: 2400Mhz *\n");
+        Files.writeString(device.resolve("product_name"), "Radeon RX 7900 XTX\n");
+        Path hwmon = Files.createDirectories(device.resolve("hwmon/hwmon3"));
+        Files.writeString(hwmon.resolve("temp1_input"), "61000\n");
+        Files.writeString(hwmon.resolve("fan1_input"), "1450\n");
+        Files.writeString(hwmon.resolve("pwm1"), "128\n");
+        Files.writeString(hwmon.resolve("power1_average"), "212000000\n");
+        Files.writeString(hwmon.resolve("power1_cap"), "355000000\n");
+        // Коннектор не считается картой
+        Files.createDirectories(sysfs.resolve("class/drm/card0-DP-1"));
+
+        try (DrmGpuBackend backend = new DrmGpuBackend(new GpuTopology(sysfs))) {
+            assertEquals(1, backend.getDeviceCount());
+            assertEquals("AMD Radeon RX 7900 XTX", backend.getDeviceName(0));
+            assertEquals("0000:0a:00.0", backend.getPciAddress(0));
+
+            GpuSnapshot snapshot = new GpuSnapshot(0);
+            assertTrue(backend.sample(0, snapshot));
+            assertEquals(61, snapshot.getTemperature());
+            assertEquals(37, snapshot.getUtilization());
+            assertEquals(2048, snapshot.getMemoryUsedMb());
+            assertEquals(24576, snapshot.getMemoryTotalMb());
+            assertEquals(2400, snapshot.getCoreClock());
+            assertEquals(1450, snapshot.getFanRpm());
+            assertEquals(50, snapshot.getFanSpeed());
+            assertEquals(212f, snapshot.getPowerUsage(), 0.01f);
+            assertEquals(355, snapshot.getPowerLimit());
+        }
+    }
+
+    @Test
+    void skipsNvidiaCards() throws IOException {
+        card("card0", "0000:01:00.0", "0x10de", "0x030000");
+        try (DrmGpuBackend backend = new DrmGpuBackend(new GpuTopology(sysfs))) {
+            assertEquals(0, backend.getDeviceCount());
+        }
+    }
+}
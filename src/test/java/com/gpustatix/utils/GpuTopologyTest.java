@@ -0,0 +1,90 @@
+package com.gpustatix.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpuTopologyTest {
+    @TempDir
+    Path sysfs;
+
+    private Path device(String address, String pciClass, String vendor, String deviceId) throws IOException {
+        Path dir = Files.createDirectories(sysfs.resolve("bus/pci/devices").resolve(address));
+        Files.writeString(dir.resolve("class"), pciClass + "\n");
+        Files.writeString(dir.resolve("vendor"), vendor + "\n");
+        Files.writeString(dir.resolve("device"), deviceId + "\n");
+        return dir;
+    }
+
+    private void driver(Path device, String name) throws IOException {
+        Path target = Files.createDirectories(sysfs.resolve("bus/pci/drivers").resolve(name));
+        Files.createSymbolicLink(device.resolve("driver"), target);
+    }
+
+    @Test
+    void findsOnlyDisplayControllersSortedByAddress() throws IOException {
+        device("0000:01:00.0", "0x030000", "0x10de", "0x2684");
+        device("0000:00:02.0", "0x030000", "0x8086", "0x4680");
+        // Сетевая карта и звук HDMI не видеокарты
+        device("0000:02:00.0", "0x020000", "0x8086", "0x1533");
+        device("0000:01:00.1", "0x040300", "0x10de", "0x22ba");
+
+        GpuTopology topology = new GpuTopology(sysfs);
+
+        assertEquals(2, topology.getGpus().size());
+        assertEquals("0000:00:02.0", topology.getGpus().get(0).getAddress());
+        assertEquals("0000:01:00.0", topology.getGpus().get(1).getAddress());
+        assertEquals(0x2684, topology.findByAddress("0000:01:00.0").getDeviceId());
+        assertNull(topology.findByAddress("0000:02:00.0"));
+    }
+
+    @Test
+    void classifiesIntelByBusAndAmdByVram() throws IOException {
+        device("0000:00:02.0", "0x030000", "0x8086", "0x4680");
+        device("0000:03:00.0", "0x030000", "0x8086", "0x56a0");
+        Path apu = device("0000:05:00.0", "0x030000", "0x1002", "0x1681");
+        Files.writeString(apu.resolve("mem_info_vram_total"), Long.toString(512L << 20));
+        Path radeon = device("0000:0a:00.0", "0x030000", "0x1002", "0x744c");
+        Files.writeString(radeon.resolve("mem_info_vram_total"), Long.toString(24L << 30));
+        driver(radeon, "amdgpu");
+
+        GpuTopology topology = new GpuTopology(sysfs);
+
+        assertTrue(topology.findByAddress("0000:00:02.0").isIntegrated(), "iGPU on the root bus");
+        assertFalse(topology.findByAddress("0000:03:00.0").isIntegrated(), "Arc behind a bridge");
+        assertTrue(topology.findByAddress("0000:05:00.0").isIntegrated(), "APU carve-out");
+        assertFalse(topology.findByAddress("0000:0a:00.0").isIntegrated(), "dedicated Radeon");
+        assertEquals("amdgpu", topology.findByAddress("0000:0a:00.0").getDriver());
+        assertEquals("", topology.findByAddress("0000:05:00.0").getDriver());
+        assertTrue(topology.hasDiscreteGpu());
+        assertTrue(topology.hasIntegratedGpu());
+        assertFalse(topology.hasVendor(GpuTopology.VENDOR_NVIDIA));
+    }
+
+    @Test
+    void nvidiaIsAlwaysDiscrete() throws IOException {
+        Path gpu = device("0000:41:00.0", "0x030200", "0x10de", "0x20b0");
+        Files.writeString(gpu.resolve("numa_node"), "1\n");
+        Files.writeString(gpu.resolve("boot_vga"), "0\n");
+
+        GpuTopology.PciGpu nvidia = new GpuTopology(sysfs).getGpus().get(0);
+
+        assertFalse(nvidia.isIntegrated());
+        assertEquals(1, nvidia.getNumaNode());
+        assertFalse(nvidia.isBootVga());
+        assertEquals("NVIDIA", nvidia.getVendorName());
+    }
+
+    @Test
+    void missingSysfsGivesEmptyTopology() {
+        GpuTopology topology = new GpuTopology(sysfs.resolve("absent"));
+
+        assertTrue(topology.getGpus().isEmpty());
+        assertFalse(topology.hasDiscreteGpu());
+    }
+}
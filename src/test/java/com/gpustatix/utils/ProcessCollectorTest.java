@@ -0,0 +1,52 @@
+package com.gpustatix.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessCollectorTest {
+    private static final String ID = "4f3c2b1a0e9d8c7b6a5f4e3d2c1b0a9f8e7d6c5b4a3f2e1d0c9b8a7f6e5d4c3b";
+
+    @Test
+    void picksTheContainerCgroup() {
+        // Содержимое /proc/[pid]/cgroup и ожидаемый путь
+        String[][] cases = {
+                // cgroup v2, драйвер systemd
+                {"0::/system.slice/docker-" + ID + ".scope\n", "/system.slice/docker-" + ID + ".scope"},
+                {"0::/kubepods.slice/kubepods-besteffort.slice/kubepods-besteffort-pod1.slice/cri-containerd-" + ID + ".scope\n",
+                        "/kubepods.slice/kubepods-besteffort.slice/kubepods-besteffort-pod1.slice/cri-containerd-" + ID + ".scope"},
+                {"0::/kubepods.slice/kubepods-burstable.slice/crio-" + ID + ".scope\n",
+                        "/kubepods.slice/kubepods-burstable.slice/crio-" + ID + ".scope"},
+                {"0::/user.slice/user-1000.slice/user@1000.service/user.slice/libpod-" + ID + ".scope/container\n",
+                        "/user.slice/user-1000.slice/user@1000.service/user.slice/libpod-" + ID + ".scope/container"},
+                // cgroup v2 без перевода строки в конце
+                {"0::/kubepods/besteffort/pod1/" + ID, "/kubepods/besteffort/pod1/" + ID},
+                // cgroup v1, драйвер cgroupfs: берётся иерархия cpu или memory
+                {"12:pids:/docker/" + ID + "\n11:cpu,cpuacct:/docker/" + ID + "\n4:memory:/docker/" + ID + "\n",
+                        "/docker/" + ID},
+                {"5:net_cls,net_prio:/\n3:cpuacct,cpu:/kubepods/burstable/pod1/" + ID + "\n",
+                        "/kubepods/burstable/pod1/" + ID},
+                {"9:memory:/mem\n8:cpu,cpuacct:/cpu\n", "/mem"},
+                // Смешанный v1 + v2: непустой v2 важнее
+                {"11:cpu,cpuacct:/docker/" + ID + "\n0::/system.slice/docker-" + ID + ".scope\n",
+                        "/system.slice/docker-" + ID + ".scope"},
+                // Смешанный: v2 в корне (гибридный режим), контейнер виден только в v1
+                {"12:memory:/docker/" + ID + "\n1:name=systemd:/docker/" + ID + "\n0::/\n", "/docker/" + ID},
+                // cpuset похож на cpu, но это другой контроллер
+                {"7:cpuset:/a\n0::/\n", "/"},
+                {"7:cpuset:/a\n", "/a"},
+                {"0::/system.slice/sshd.service (deleted)\n", "/system.slice/sshd.service"},
+                {"0::/\n", "/"},
+        };
+        for (String[] c : cases) {
+            assertEquals(c[1], ProcessCollector.parseCgroup(c[0]), c[0]);
+        }
+    }
+
+    @Test
+    void contentWithoutAUsableLineGivesNull() {
+        for (String content : new String[]{"", "\n", "garbage\n", "12:memory\n"}) {
+            assertNull(ProcessCollector.parseCgroup(content), content);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.gpustatix.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleCodecTest {
+    @Test
+    void varLongRoundTripsAtTheByteBoundaries() {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, 8191, -8192, 8192, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 10);
+        for (long value : values) {
+            SampleCodec.putVarLong(buffer, value);
+        }
+        buffer.flip();
+        for (long value : values) {
+            assertEquals(value, SampleCodec.getVarLong(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void varLongLengthFollowsTheMagnitude() {
+        // Значение и ожидаемая длина в байтах
+        long[][] cases = {{0, 1}, {-64, 1}, {63, 1}, {64, 2}, {-65, 2}, {-8192, 2}, {8192, 3},
+                {Integer.MAX_VALUE, SampleCodec.MAX_INT_VARINT_BYTES}, {Integer.MIN_VALUE, SampleCodec.MAX_INT_VARINT_BYTES},
+                {Long.MIN_VALUE, 10}};
+        for (long[] c : cases) {
+            ByteBuffer buffer = ByteBuffer.allocate(10);
+            SampleCodec.putVarLong(buffer, c[0]);
+            assertEquals(c[1], buffer.position(), "length of " + c[0]);
+        }
+    }
+
+    @Test
+    void malformedVarLongIsRejected() {
+        ByteBuffer endless = ByteBuffer.allocate(11);
+        while (endless.hasRemaining()) {
+            endless.put((byte) 0x80);
+        }
+        endless.flip();
+        assertThrows(IllegalStateException.class, () -> SampleCodec.getVarLong(endless));
+
+        ByteBuffer truncated = ByteBuffer.wrap(new byte[]{(byte) 0x80, (byte) 0x80});
+        assertThrows(BufferUnderflowException.class, () -> SampleCodec.getVarLong(truncated));
+    }
+
+    @Test
+    void gpuAndHostFieldsRoundTrip() {
+        GpuSnapshot gpu = new GpuSnapshot(1);
+        gpu.setTemperature(71);
+        gpu.setUtilization(90);
+        gpu.setMemoryUsedMb(7000);
+        gpu.setMemoryTotalMb(24_000);
+        gpu.setCoreClock(1950);
+        gpu.setPowerUsage(250.75f);
+        gpu.setPowerLimit(320);
+        gpu.setFanSpeed(55);
+        gpu.setFanRpm(1800);
+        int[] fields = new int[SampleCodec.GPU_FIELDS + 3];
+        SampleCodec.gpuFields(gpu, fields, 3);
+        GpuSnapshot copy = new GpuSnapshot(1);
+        SampleCodec.toGpu(fields, 3, copy);
+        assertEquals(71, copy.getTemperature());
+        assertEquals(90, copy.getUtilization());
+        assertEquals(7000, copy.getMemoryUsedMb());
+        assertEquals(24_000, copy.getMemoryTotalMb());
+        assertEquals(1950, copy.getCoreClock());
+        assertEquals(GpuSnapshot.UNAVAILABLE, copy.getMemoryClock());
+        assertEquals(250.75f, copy.getPowerUsage());
+        assertEquals(320, copy.getPowerLimit());
+        assertEquals(55, copy.getFanSpeed());
+        assertEquals(1800, copy.getFanRpm());
+
+        HostSnapshot host = new HostSnapshot();
+        host.setCpuLoad(33.5f);
+        host.setCpuFrequency(4200);
+        host.setCpuTemperature(58);
+        host.setRamUsedMb(4000);
+        host.setRamTotalMb(16_000);
+        int[] hostFields = new int[SampleCodec.HOST_FIELDS];
+        SampleCodec.hostFields(host, hostFields);
+        HostSnapshot hostCopy = new HostSnapshot();
+        SampleCodec.toHost(hostFields, hostCopy);
+        assertEquals(33.5f, hostCopy.getCpuLoad());
+        assertEquals(4200, hostCopy.getCpuFrequency());
+        assertEquals(58, hostCopy.getCpuTemperature());
+        assertEquals(4000, hostCopy.getRamUsedMb());
+        assertEquals(16_000, hostCopy.getRamTotalMb());
+    }
+
+    @Test
+    void unavailableReadingsSurviveDeltaEncoding() {
+        // Поле пропадает и появляется снова: дельты через -1 не теряют значения
+        int[] previous = new int[SampleCodec.GPU_FIELDS];
+        int[] current = new int[SampleCodec.GPU_FIELDS];
+        int[] decoded = new int[SampleCodec.GPU_FIELDS];
+        ByteBuffer buffer = ByteBuffer.allocate(SampleCodec.GPU_FIELDS * SampleCodec.MAX_INT_VARINT_BYTES * 3);
+        int[] temperatures = {65, GpuSnapshot.UNAVAILABLE, 66};
+        for (int temperature : temperatures) {
+            GpuSnapshot gpu = new GpuSnapshot(0);
+            gpu.setTemperature(temperature);
+            gpu.setPowerUsage(temperature * 2.5f);
+            SampleCodec.gpuFields(gpu, current, 0);
+            for (int i = 0; i < current.length; i++) {
+                SampleCodec.putVarLong(buffer, current[i] - previous[i]);
+                previous[i] = current[i];
+            }
+        }
+        buffer.flip();
+        for (int temperature : temperatures) {
+            for (int i = 0; i < decoded.length; i++) {
+                decoded[i] += (int) SampleCodec.getVarLong(buffer);
+            }
+            GpuSnapshot gpu = new GpuSnapshot(0);
+            SampleCodec.toGpu(decoded, 0, gpu);
+            assertEquals(temperature, gpu.getTemperature());
+            assertEquals(temperature * 2.5f, gpu.getPowerUsage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gpustatix.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SysfsAttributeTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void rereadsTheSameChannel() throws IOException {
+        Path file = dir.resolve("temp1_input");
+        Files.writeString(file, "45000\n");
+        try (SysfsAttribute attribute = new SysfsAttribute(file)) {
+            assertEquals(45000, attribute.readLong(-1));
+            Files.writeString(file, "51000\n");
+            assertEquals(51000, attribute.readLong(-1));
+        }
+    }
+
+    @Test
+    void missingFileIsPermanent() throws IOException {
+        Path file = dir.resolve("fan1_input");
+        try (SysfsAttribute attribute = new SysfsAttribute(file)) {
+            assertEquals(-1, attribute.readLong(-1));
+            Files.writeString(file, "1200\n");
+            assertEquals(-1, attribute.readLong(-1));
+            assertFalse(attribute.exists());
+        }
+    }
+
+    @Test
+    void transientErrorIsRetried() throws IOException {
+        // Чтение каталога даёт IOException, отличную от NoSuchFileException - как EBUSY от драйвера
+        Path file = Files.createDirectory(dir.resolve("power1_average"));
+        try (SysfsAttribute attribute = new SysfsAttribute(file)) {
+            assertEquals(-1, attribute.readLong(-1));
+            Files.delete(file);
+            Files.writeString(file, "95000000\n");
+            assertEquals(95_000_000, attribute.readLong(-1));
+        }
+    }
+
+    @Test
+    void findsActiveDpmLevel() throws IOException {
+        Path file = dir.resolve("pp_dpm_sclk");
+        Files.writeString(file, "0: 500Mhz\n1: 1800Mhz *\n2: 2500Mhz\n");
+        try (SysfsAttribute attribute = new SysfsAttribute(file)) {
+            assertEquals(1800, attribute.readActiveLevel(-1));
+            Files.writeString(file, "0: 500Mhz\n1: 1800Mhz\n");
+            assertEquals(-1, attribute.readActiveLevel(-1));
+        }
+    }
+
+    @Test
+    void parsesLeadingNumber() {
+        ByteBuffer data = ByteBuffer.wrap(" -42 mW\nx".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(-42, SysfsAttribute.parseLong(data, 0, data.limit(), 7));
+        assertEquals(7, SysfsAttribute.parseLong(data, 5, data.limit(), 7));
+        assertEquals(4, SysfsAttribute.parseLong(data, 2, 3, 7));
+    }
+}